@@ -20,7 +20,11 @@ import org.eclipse.core.runtime.AssertionFailedException;
  * @since 1.0
  */
 public abstract class AbstractObservable extends ChangeManager implements IObservable {
-	private boolean disposed = false;
+	/**
+	 * Volatile so that {@link #isDisposed()}, which is invoked on every
+	 * tracked read, needs no lock.
+	 */
+	private volatile boolean disposed = false;
 
 	/**
 	 * @param realm
@@ -73,7 +77,7 @@ public abstract class AbstractObservable extends ChangeManager implements IObser
 	/**
 	 * @since 1.2
 	 */
-	public synchronized boolean isDisposed() {
+	public boolean isDisposed() {
 		return disposed;
 	}
 
@@ -13,6 +13,8 @@
 
 package org.eclipse.core.databinding.observable;
 
+import org.eclipse.core.databinding.observable.value.ValueChangingEvent;
+import org.eclipse.core.internal.databinding.observable.PropagationScheduler;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ListenerList;
 
@@ -110,6 +112,53 @@ import org.eclipse.core.runtime.ListenerList;
 	}
 
 	protected void fireEvent(ObservableEvent event) {
+		PropagationScheduler scheduler = PropagationScheduler
+				.getInstance(realm);
+		if (scheduler == null) {
+			dispatchEvent(event);
+		} else {
+			scheduler.beginEvent();
+			try {
+				dispatchEvent(event);
+			} finally {
+				scheduler.endEvent();
+			}
+		}
+	}
+
+	private void dispatchEvent(final ObservableEvent event) {
+		if (!realm.isBoundedDispatchDepth()) {
+			notifyListeners(event);
+			return;
+		}
+		// Events fired from within listeners nest; dispatch deeply nested
+		// events iteratively from the outermost dispatch instead, so that long
+		// chains of observables do not overflow the stack.
+		PropagationScheduler current = PropagationScheduler.getCurrent();
+		if (current.isDispatchDepthExceeded() && isDeferrable(event)) {
+			current.defer(new Runnable() {
+				public void run() {
+					dispatchEvent(event);
+				}
+			});
+			return;
+		}
+		current.beginDispatch();
+		try {
+			notifyListeners(event);
+		} finally {
+			current.endDispatch();
+		}
+	}
+
+	private static boolean isDeferrable(ObservableEvent event) {
+		// Vetoable events must be answered synchronously, and dispose events
+		// must reach the listeners before they are discarded
+		return !(event instanceof ValueChangingEvent)
+				&& !(event instanceof DisposeEvent);
+	}
+
+	private void notifyListeners(ObservableEvent event) {
 		Object listenerType = event.getListenerType();
 		int listenerTypeIndex = findListenerTypeIndex(listenerType);
 		if (listenerTypeIndex != -1) {
@@ -30,6 +30,8 @@ public class DecoratingObservable extends AbstractObservable implements
 
 	private boolean disposedDecoratedOnDispose;
 
+	private IDisposeListener disposeListener;
+
 	/**
 	 * Constructs a DecoratingObservable which decorates the given observable.
 	 * 
@@ -44,11 +46,12 @@ public class DecoratingObservable extends AbstractObservable implements
 		super(decorated.getRealm());
 		this.decorated = decorated;
 		this.disposedDecoratedOnDispose = disposeDecoratedOnDispose;
-		decorated.addDisposeListener(new IDisposeListener() {
+		this.disposeListener = new IDisposeListener() {
 			public void handleDispose(DisposeEvent staleEvent) {
 				dispose();
 			}
-		});
+		};
+		decorated.addDisposeListener(disposeListener);
 	}
 
 	public IObservable getDecorated() {
@@ -116,11 +119,14 @@ public class DecoratingObservable extends AbstractObservable implements
 			decorated.removeStaleListener(staleListener);
 		}
 		if (decorated != null) {
+			// Do not leak this decorator if the decorated observable lives on
+			decorated.removeDisposeListener(disposeListener);
 			if (disposedDecoratedOnDispose)
 				decorated.dispose();
 			decorated = null;
 		}
 		staleListener = null;
+		disposeListener = null;
 		super.dispose();
 	}
 }
@@ -113,6 +113,11 @@ private IObservableCollection<E> decorated;
 		return decorated.toArray(a);
 	}
 
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		getterCalled();
+		decorated.visitElements(visitor);
+	}
+
 	public Object getElementType() {
 		return decorated.getElementType();
 	}
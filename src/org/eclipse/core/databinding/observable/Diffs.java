@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.core.databinding.observable.bag.BagDiff;
 import org.eclipse.core.databinding.observable.list.ListDiff;
 import org.eclipse.core.databinding.observable.list.ListDiffEntry;
 import org.eclipse.core.databinding.observable.map.MapDiff;
@@ -397,6 +398,64 @@ public class Diffs {
 		};
 	}
 
+	/**
+	 * Returns a bag diff with the given changes of the number of occurrences.
+	 * Entries with a delta of <code>0</code> are ignored.
+	 * 
+	 * @param countDeltas
+	 *            map from each changed element to the change of its number of
+	 *            occurrences
+	 * @return a bag diff
+	 * @since 1.4
+	 */
+	public static <E> BagDiff<E> createBagDiff(Map<E, Integer> countDeltas) {
+		final Map<E, Integer> deltas = new HashMap<E, Integer>();
+		for (Iterator<Map.Entry<E, Integer>> it = countDeltas.entrySet()
+				.iterator(); it.hasNext();) {
+			Map.Entry<E, Integer> entry = it.next();
+			if (entry.getValue().intValue() != 0)
+				deltas.put(entry.getKey(), entry.getValue());
+		}
+		final Set<E> elements = Collections.unmodifiableSet(deltas.keySet());
+		return new BagDiff<E>() {
+
+			public Set<E> getElements() {
+				return elements;
+			}
+
+			public int getCountDelta(Object element) {
+				Integer delta = deltas.get(element);
+				return delta == null ? 0 : delta.intValue();
+			}
+		};
+	}
+
+	/**
+	 * Returns a bag diff with a single changed element.
+	 * 
+	 * @param element
+	 *            the changed element
+	 * @param countDelta
+	 *            the change of its number of occurrences
+	 * @return a bag diff
+	 * @since 1.4
+	 */
+	public static <E> BagDiff<E> createBagDiff(final E element,
+			final int countDelta) {
+		final Set<E> elements = countDelta == 0 ? Collections.<E> emptySet()
+				: Collections.singleton(element);
+		return new BagDiff<E>() {
+
+			public Set<E> getElements() {
+				return elements;
+			}
+
+			public int getCountDelta(Object o) {
+				return elements.contains(o) ? countDelta : 0;
+			}
+		};
+	}
+
 //	/**
 //	 * @param difference
 //	 * @return a list diff with one differing entry
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.observable;
+
+/**
+ * Visitor of the elements of an observable collection, see
+ * {@link IObservableCollection#visitElements(IElementVisitor)}.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public interface IElementVisitor<E> {
+
+	/**
+	 * Visits an element. Implementations must not modify the visited
+	 * collection.
+	 * 
+	 * @param element
+	 *            the element
+	 * @return <code>true</code> to continue with the next element,
+	 *         <code>false</code> to stop visiting
+	 */
+	boolean visit(E element);
+}
@@ -42,4 +42,17 @@ public interface IObservableCollection<E> extends IObservable, Collection<E> {
 	 */
 	Object getElementType();
 
+	/**
+	 * Visits the elements of this collection in iteration order, until the
+	 * visitor returns <code>false</code>. The read is reported to the
+	 * {@link ObservableTracker} once for the whole traversal, rather than once
+	 * per element as when iterating.
+	 * 
+	 * @param visitor
+	 *            the visitor
+	 * @TrackedGetter
+	 * @since 1.4
+	 */
+	void visitElements(IElementVisitor<? super E> visitor);
+
 }
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+/**
+ * Receives measurements about the runnables passed through the work queue of
+ * a realm. A monitor is installed using {@link Realm#setMonitor(IRealmMonitor)}
+ * and is notified for every runnable queued by the default implementations of
+ * {@link Realm#asyncExec(Runnable, int)} and
+ * {@link Realm#timerExec(int, Runnable, int)} while it is installed.
+ * <p>
+ * Methods of this interface are called from the thread queueing or running
+ * the runnable, so implementations must be thread safe and should return
+ * quickly.
+ * </p>
+ *
+ * @see RealmMetrics
+ * @since 1.4
+ */
+public interface IRealmMonitor {
+
+	/**
+	 * Notifies this monitor that a runnable has been queued.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param queueDepth
+	 *            the number of runnables waiting in the queue, including the
+	 *            queued runnable
+	 */
+	public void taskQueued(Realm realm, int queueDepth);
+
+	/**
+	 * Notifies this monitor that a queued runnable is about to be run.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param waitNanos
+	 *            the time in nanoseconds between queueing the runnable and
+	 *            starting it
+	 */
+	public void taskStarted(Realm realm, long waitNanos);
+
+	/**
+	 * Notifies this monitor that a queued runnable has been run.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param runnable
+	 *            the runnable
+	 * @param executionNanos
+	 *            the time in nanoseconds it took to run the runnable
+	 */
+	public void taskFinished(Realm realm, Runnable runnable,
+			long executionNanos);
+}
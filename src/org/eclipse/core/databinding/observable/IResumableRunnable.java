@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+/**
+ * A unit of work which can be executed in several slices. Each slice runs
+ * within the realm until a deadline has passed, and the remaining work is
+ * resumed in a later slice. This allows long running work to share a realm
+ * with other runnables instead of blocking it until the work is complete.
+ *
+ * @see Realm#execResumable(IResumableRunnable)
+ * @see Realm#setTimeBudget(int)
+ *
+ * @since 1.4
+ */
+public interface IResumableRunnable {
+
+	/**
+	 * Performs the next slice of work. Implementations should check
+	 * <code>System.nanoTime() &lt; deadline</code> between reasonably small
+	 * steps of work and return as soon as the deadline has passed. Each
+	 * invocation must make progress, that is it must perform at least one
+	 * step of work, even if the deadline has already passed.
+	 *
+	 * @param deadline
+	 *            the value of {@link System#nanoTime()} after which this
+	 *            slice should return, or {@link Long#MAX_VALUE} if the work
+	 *            should be completed without yielding
+	 * @return <code>true</code> if the work is complete, <code>false</code>
+	 *         if this runnable has to be resumed
+	 */
+	public boolean run(long deadline);
+
+}
@@ -11,10 +11,10 @@
  *******************************************************************************/
 package org.eclipse.core.databinding.observable;
 
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.databinding.util.Policy;
-import org.eclipse.core.internal.databinding.identity.IdentitySet;
+import org.eclipse.core.internal.databinding.identity.IdentityCollector;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -60,20 +60,109 @@ import org.eclipse.core.runtime.Status;
 public class ObservableTracker {
 
 	/**
-	 * Threadlocal storage pointing to the current Set of IObservables, or null
-	 * if none. Note that this is actually the top of a stack. Whenever a method
-	 * changes the current value, it remembers the old value as a local variable
-	 * and restores the old value when the method exits.
+	 * Threadlocal storage pointing to the tracking state of the current
+	 * thread. The state holds a stack of frames, one for each active
+	 * runAndMonitor or runAndCollect invocation. Frames are pushed when a
+	 * method starts tracking and popped when it returns, and are reused by
+	 * later invocations so that tracking does not allocate on the steady path.
 	 */
-	private static ThreadLocal<IChangeListener> currentChangeListener = new ThreadLocal<IChangeListener>();
+	private static final ThreadLocal<TrackerState> currentState = new ThreadLocal<TrackerState>() {
+		protected TrackerState initialValue() {
+			return new TrackerState();
+		}
+	};
+
+	/**
+	 * The number of threads having at least one frame pushed. While it is
+	 * zero, {@link #getterCalled(IObservable)} and
+	 * {@link #observableCreated(IObservable)} return without looking up the
+	 * thread local state. Only updated when a thread pushes its outermost
+	 * frame or pops it.
+	 */
+	private static final AtomicInteger activeThreads = new AtomicInteger();
+
+	private static final class TrackerState {
+		private Frame[] frames = new Frame[4];
+
+		/**
+		 * The number of frames pushed on this thread. While it is zero, no
+		 * observable reads or creations are gathered on this thread, and
+		 * {@link ObservableTracker#getterCalled(IObservable)} and
+		 * {@link ObservableTracker#observableCreated(IObservable)} return right
+		 * away. Only accessed by the owning thread.
+		 */
+		int depth = 0;
 
-	private static ThreadLocal<IStaleListener> currentStaleListener = new ThreadLocal<IStaleListener>();
+		/**
+		 * The innermost runAndMonitor frame, or null if none
+		 */
+		Frame getterFrame;
 
-	private static ThreadLocal<Set<IObservable>> currentGetterCalledSet = new ThreadLocal<Set<IObservable>>();
+		/**
+		 * The innermost runAndCollect frame, or null if none
+		 */
+		Frame createdFrame;
+
+		/**
+		 * The ignore count of the innermost frame, or of the thread if no frame
+		 * is active
+		 */
+		int ignoreCount;
+
+		Frame push() {
+			if (depth == frames.length) {
+				Frame[] newFrames = new Frame[depth * 2];
+				System.arraycopy(frames, 0, newFrames, 0, depth);
+				frames = newFrames;
+			}
+			Frame frame = frames[depth];
+			if (frame == null)
+				frame = frames[depth] = new Frame();
+			if (depth++ == 0)
+				activeThreads.incrementAndGet();
+			frame.lastGetterFrame = getterFrame;
+			frame.lastCreatedFrame = createdFrame;
+			frame.lastIgnoreCount = ignoreCount;
+			ignoreCount = 0;
+			return frame;
+		}
+
+		void pop(Frame frame) {
+			getterFrame = frame.lastGetterFrame;
+			createdFrame = frame.lastCreatedFrame;
+			ignoreCount = frame.lastIgnoreCount;
+			frame.lastGetterFrame = null;
+			frame.lastCreatedFrame = null;
+			frame.changeListener = null;
+			frame.staleListener = null;
+			frame.observables.clear();
+			frame.previous.clear();
+			if (--depth == 0)
+				activeThreads.decrementAndGet();
+		}
+	}
 
-	private static ThreadLocal<Set<IObservable>> currentObservableCreatedSet = new ThreadLocal<Set<IObservable>>();
+	private static final class Frame {
+		final IdentityCollector<IObservable> observables = new IdentityCollector<IObservable>();
 
-	private static ThreadLocal<Integer> currentIgnoreCount = new ThreadLocal<Integer>();
+		/**
+		 * The observables which already have the listeners of this frame
+		 * attached, used by runAndMonitor when reconciling dependencies
+		 */
+		final IdentityCollector<IObservable> previous = new IdentityCollector<IObservable>();
+
+		IChangeListener changeListener;
+
+		IStaleListener staleListener;
+
+		Frame lastGetterFrame;
+
+		Frame lastCreatedFrame;
+
+		int lastIgnoreCount;
+	}
+
+	private static final IObservable[] EMPTY_ARRAY = new IObservable[0];
 
 	/**
 	 * Invokes the given runnable, and returns the set of IObservables that were
@@ -92,34 +181,96 @@ public class ObservableTracker {
 	 */
 	public static IObservable[] runAndMonitor(Runnable runnable,
 			IChangeListener changeListener, IStaleListener staleListener) {
-		// Remember the previous value in the listener stack
-		Set<IObservable> lastObservableSet = currentGetterCalledSet.get();
-		IChangeListener lastChangeListener = currentChangeListener
-				.get();
-		IStaleListener lastStaleListener = currentStaleListener
-				.get();
-		Integer lastIgnore = currentIgnoreCount.get();
-
-		Set<IObservable> observableSet = new IdentitySet<IObservable>();
-		// Push the new listeners to the top of the stack
-		currentGetterCalledSet.set(observableSet);
-		currentChangeListener.set(changeListener);
-		currentStaleListener.set(staleListener);
-		currentIgnoreCount.set(null);
+		TrackerState state = currentState.get();
+		// Push a new frame to the top of the stack
+		Frame frame = state.push();
+		frame.changeListener = changeListener;
+		frame.staleListener = staleListener;
+		state.getterFrame = frame;
 		try {
 			runnable.run();
+			return toArray(frame.observables);
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentGetterCalledSet.set(lastObservableSet);
-			currentChangeListener.set(lastChangeListener);
-			currentStaleListener.set(lastStaleListener);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			// Pop the frame off the top of the stack (restoring the previous
+			// frames)
+			checkUnmatchedIgnore(runnable, state.ignoreCount);
+			state.pop(frame);
 		}
+	}
 
-		return observableSet
-				.toArray(new IObservable[observableSet.size()]);
+	/**
+	 * Invokes the given runnable, and returns the set of IObservables that were
+	 * read by the runnable, reconciling the listeners with the given previous
+	 * set of observables. The given listeners are assumed to be registered
+	 * with all previous observables already: they are only registered with
+	 * accessed observables which are not in the previous set, and they are
+	 * removed from previous observables which have not been accessed by the
+	 * runnable. This avoids removing and re-adding listeners when the set of
+	 * accessed observables is the same from one run to the next, which is the
+	 * common case when recomputing a derived value. If the runnable throws an
+	 * exception, no listeners are removed.
+	 * <p>
+	 * If the runnable calls this method recursively, the result will not
+	 * contain IObservables that were used within the inner runnable.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            runnable to execute
+	 * @param changeListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no change listener is to be registered
+	 * @param staleListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no stale listener is to be registered
+	 * @param previous
+	 *            the observables returned by the previous run, with which the
+	 *            given listeners are registered, or <code>null</code> if there
+	 *            was no previous run
+	 * @return an array of unique observable objects. If the runnable accessed
+	 *         exactly the previous observables, the <code>previous</code>
+	 *         array itself is returned.
+	 * @since 1.4
+	 */
+	public static IObservable[] runAndMonitor(Runnable runnable,
+			IChangeListener changeListener, IStaleListener staleListener,
+			IObservable[] previous) {
+		if (previous == null)
+			return runAndMonitor(runnable, changeListener, staleListener);
+
+		TrackerState state = currentState.get();
+		// Push a new frame to the top of the stack
+		Frame frame = state.push();
+		frame.changeListener = changeListener;
+		frame.staleListener = staleListener;
+		for (int i = 0; i < previous.length; i++)
+			frame.previous.add(previous[i]);
+		state.getterFrame = frame;
+		try {
+			runnable.run();
+
+			IdentityCollector<IObservable> observables = frame.observables;
+			int retained = 0;
+			for (int i = 0; i < previous.length; i++) {
+				IObservable observable = previous[i];
+				if (observables.contains(observable)) {
+					retained++;
+				} else {
+					if (changeListener != null)
+						observable.removeChangeListener(changeListener);
+					if (staleListener != null)
+						observable.removeStaleListener(staleListener);
+				}
+			}
+			if (retained == previous.length
+					&& observables.size() == previous.length)
+				return previous;
+			return toArray(observables);
+		} finally {
+			// Pop the frame off the top of the stack (restoring the previous
+			// frames)
+			checkUnmatchedIgnore(runnable, state.ignoreCount);
+			state.pop(frame);
+		}
 	}
 
 	/**
@@ -139,30 +290,31 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static IObservable[] runAndCollect(Runnable runnable) {
-		Set<IObservable> lastObservableCreatedSet = currentObservableCreatedSet
-				.get();
-		Integer lastIgnore = currentIgnoreCount.get();
-
-		Set<IObservable> observableSet = new IdentitySet<IObservable>();
-		// Push the new listeners to the top of the stack
-		currentObservableCreatedSet.set(observableSet);
-		currentIgnoreCount.set(null);
+		TrackerState state = currentState.get();
+		// Push a new frame to the top of the stack
+		Frame frame = state.push();
+		state.createdFrame = frame;
 		try {
 			runnable.run();
+			return toArray(frame.observables);
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentObservableCreatedSet.set(lastObservableCreatedSet);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			// Pop the frame off the top of the stack (restoring the previous
+			// frames)
+			checkUnmatchedIgnore(runnable, state.ignoreCount);
+			state.pop(frame);
 		}
+	}
 
-		return observableSet
-				.toArray(new IObservable[observableSet.size()]);
+	private static IObservable[] toArray(IdentityCollector<IObservable> observables) {
+		int size = observables.size();
+		if (size == 0)
+			return EMPTY_ARRAY;
+		return observables.toArray(new IObservable[size]);
 	}
 
-	private static void checkUnmatchedIgnore(Runnable runnable) {
-		if (isIgnore()) {
+	private static void checkUnmatchedIgnore(Runnable runnable,
+			int ignoreCount) {
+		if (ignoreCount != 0) {
 			Policy
 					.getLog()
 					.log(
@@ -170,7 +322,7 @@ public class ObservableTracker {
 									IStatus.ERROR,
 									Policy.JFACE_DATABINDING,
 									"There were " //$NON-NLS-1$
-											+ currentIgnoreCount.get()
+											+ ignoreCount
 											+ " unmatched setIgnore(true) invocations in runnable " //$NON-NLS-1$
 											+ runnable));
 		}
@@ -197,15 +349,14 @@ public class ObservableTracker {
 	 * @since 1.3
 	 */
 	public static void setIgnore(boolean ignore) {
-		Integer lastCount = currentIgnoreCount.get();
+		TrackerState state = currentState.get();
 
-		int newCount = (lastCount == null ? 0 : lastCount.intValue())
-				+ (ignore ? 1 : -1);
+		int newCount = state.ignoreCount + (ignore ? 1 : -1);
 
 		if (newCount < 0)
 			throw new IllegalStateException("Ignore count is already zero"); //$NON-NLS-1$
 
-		currentIgnoreCount.set(newCount == 0 ? null : new Integer(newCount));
+		state.ignoreCount = newCount;
 	}
 
 	/**
@@ -234,10 +385,6 @@ public class ObservableTracker {
 				+ Integer.toHexString(System.identityHashCode(observable));
 	}
 
-	private static boolean isIgnore() {
-		return currentIgnoreCount.get() != null;
-	}
-
 	/**
 	 * Notifies the ObservableTracker that an observable was read from. The
 	 * JavaDoc for methods that invoke this method should include the following
@@ -257,18 +404,22 @@ public class ObservableTracker {
 			Assert.isTrue(false, "Getter called outside realm of observable " //$NON-NLS-1$
 					+ toString(observable));
 
-		if (isIgnore())
+		// Fast path for plain reads while nothing is being monitored on any
+		// thread, or on this thread
+		if (activeThreads.get() == 0)
+			return;
+		TrackerState state = currentState.get();
+		if (state.depth == 0 || state.ignoreCount != 0)
 			return;
 
-		Set<IObservable> getterCalledSet = currentGetterCalledSet.get();
-		if (getterCalledSet != null && getterCalledSet.add(observable)) {
+		Frame frame = state.getterFrame;
+		if (frame != null && frame.observables.add(observable)
+				&& !frame.previous.contains(observable)) {
 			// If anyone is listening for observable usage...
-			IChangeListener changeListener = currentChangeListener
-					.get();
+			IChangeListener changeListener = frame.changeListener;
 			if (changeListener != null)
 				observable.addChangeListener(changeListener);
-			IStaleListener staleListener = currentStaleListener
-					.get();
+			IStaleListener staleListener = frame.staleListener;
 			if (staleListener != null)
 				observable.addStaleListener(staleListener);
 		}
@@ -282,12 +433,14 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static void observableCreated(IObservable observable) {
-		if (isIgnore())
+		if (activeThreads.get() == 0)
+			return;
+		TrackerState state = currentState.get();
+		if (state.depth == 0 || state.ignoreCount != 0)
 			return;
-		Set<IObservable> observableCreatedSet = currentObservableCreatedSet
-				.get();
-		if (observableCreatedSet != null) {
-			observableCreatedSet.add(observable);
+		Frame frame = state.createdFrame;
+		if (frame != null) {
+			frame.observables.add(observable);
 		}
 	}
 }
@@ -18,6 +18,7 @@ package org.eclipse.core.databinding.observable;
 import java.util.List;
 import java.util.Set;
 
+import org.eclipse.core.databinding.observable.bag.IObservableBag;
 import org.eclipse.core.databinding.observable.list.DecoratingObservableList;
 import org.eclipse.core.databinding.observable.list.IListChangeListener;
 import org.eclipse.core.databinding.observable.list.IObservableList;
@@ -36,11 +37,15 @@ import org.eclipse.core.databinding.observable.value.IValueChangeListener;
 import org.eclipse.core.databinding.observable.value.IVetoableValue;
 import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
 import org.eclipse.core.databinding.observable.value.ValueChangingEvent;
+import org.eclipse.core.internal.databinding.observable.BagElementObservableSet;
 import org.eclipse.core.internal.databinding.observable.ConstantObservableValue;
 import org.eclipse.core.internal.databinding.observable.DelayedObservableValue;
 import org.eclipse.core.internal.databinding.observable.EmptyObservableList;
 import org.eclipse.core.internal.databinding.observable.EmptyObservableSet;
 import org.eclipse.core.internal.databinding.observable.MapEntryObservableValue;
+import org.eclipse.core.internal.databinding.observable.RealmBridgeObservableSet;
+import org.eclipse.core.internal.databinding.observable.RealmBridgeObservableValue;
+import org.eclipse.core.internal.databinding.observable.SetObservableBag;
 import org.eclipse.core.internal.databinding.observable.StalenessObservableValue;
 import org.eclipse.core.internal.databinding.observable.UnmodifiableObservableList;
 import org.eclipse.core.internal.databinding.observable.UnmodifiableObservableMap;
@@ -669,4 +674,95 @@ public class Observables {
 			}
 		});
 	}
+
+	/**
+	 * Returns a read-only observable value in the given realm which mirrors
+	 * the value of an observable value of a different realm. Value changes of
+	 * the source are forwarded to the target realm asynchronously; if the
+	 * source changes several times before the target realm gets to run the
+	 * forwarded change, only a single value change event is fired.
+	 * <p>
+	 * The returned observable is stale until the initial value of the source
+	 * has been received, and whenever a value change of the source is pending.
+	 * Disposing the returned observable removes its listener from the source.
+	 * </p>
+	 * 
+	 * @param realm
+	 *            the realm of the returned observable
+	 * @param source
+	 *            the observable value to mirror
+	 * @return an observable value in the given realm mirroring the value of
+	 *         <code>source</code>
+	 * 
+	 * @see ShardedRealm
+	 * @since 1.4
+	 */
+	public static <T> IObservableValue<T> bridgeObservableValue(Realm realm,
+			IObservableValue<T> source) {
+		Assert.isNotNull(realm, "Argument 'realm' cannot be null"); //$NON-NLS-1$
+		Assert.isNotNull(source, "Argument 'source' cannot be null"); //$NON-NLS-1$
+		return new RealmBridgeObservableValue<T>(realm, source);
+	}
+
+	/**
+	 * Returns a read-only observable set in the given realm which mirrors the
+	 * contents of an observable set of a different realm. Set changes of the
+	 * source are forwarded to the target realm asynchronously; if the source
+	 * changes several times before the target realm gets to run the forwarded
+	 * change, the changes are merged into a single set change event.
+	 * <p>
+	 * The returned observable is stale until the initial contents of the
+	 * source have been received, and whenever a set change of the source is
+	 * pending. Disposing the returned observable removes its listener from the
+	 * source.
+	 * </p>
+	 * 
+	 * @param realm
+	 *            the realm of the returned observable
+	 * @param source
+	 *            the observable set to mirror
+	 * @return an observable set in the given realm mirroring the contents of
+	 *         <code>source</code>
+	 * 
+	 * @see ShardedRealm
+	 * @since 1.4
+	 */
+	public static <E> IObservableSet<E> bridgeObservableSet(Realm realm,
+			IObservableSet<E> source) {
+		Assert.isNotNull(realm, "Argument 'realm' cannot be null"); //$NON-NLS-1$
+		Assert.isNotNull(source, "Argument 'source' cannot be null"); //$NON-NLS-1$
+		return new RealmBridgeObservableSet<E>(realm, source);
+	}
+
+	/**
+	 * Returns an unmodifiable observable bag viewing the given observable set,
+	 * in which every element of the set occurs once.
+	 * 
+	 * @param set
+	 *            the observable set
+	 * @return an observable bag tracking the elements of the given set
+	 * 
+	 * @since 1.4
+	 */
+	public static <E> IObservableBag<E> observeSetAsBag(IObservableSet<E> set) {
+		Assert.isNotNull(set, "Argument 'set' cannot be null"); //$NON-NLS-1$
+		return new SetObservableBag<E>(set);
+	}
+
+	/**
+	 * Returns an unmodifiable observable set of the distinct elements of the
+	 * given observable bag. The returned set fires a set change only when an
+	 * element is added to the bag for the first time, or when its last
+	 * occurrence is removed.
+	 * 
+	 * @param bag
+	 *            the observable bag
+	 * @return an observable set tracking the distinct elements of the given bag
+	 * 
+	 * @since 1.4
+	 */
+	public static <E> IObservableSet<E> observeElementSet(IObservableBag<E> bag) {
+		Assert.isNotNull(bag, "Argument 'bag' cannot be null"); //$NON-NLS-1$
+		return new BagElementObservableSet<E>(bag);
+	}
 }
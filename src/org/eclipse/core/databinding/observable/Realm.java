@@ -17,7 +17,8 @@ import java.util.Timer;
 import java.util.TimerTask;
 
 import org.eclipse.core.databinding.util.Policy;
-import org.eclipse.core.internal.databinding.observable.Queue;
+import org.eclipse.core.internal.databinding.observable.PriorityLaneQueue;
+import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
@@ -79,6 +80,37 @@ import org.eclipse.core.runtime.Status;
  */
 public abstract class Realm {
 
+	/**
+	 * Priority for runnables which directly affect what the user sees, such
+	 * as the propagation of a value change to a visible control.
+	 * 
+	 * @see #asyncExec(Runnable, int)
+	 * @see #timerExec(int, Runnable, int)
+	 * @since 1.4
+	 */
+	public static final int PRIORITY_INTERACTIVE = 0;
+
+	/**
+	 * The priority of runnables passed to {@link #asyncExec(Runnable)}.
+	 * 
+	 * @see #asyncExec(Runnable, int)
+	 * @see #timerExec(int, Runnable, int)
+	 * @since 1.4
+	 */
+	public static final int PRIORITY_NORMAL = 1;
+
+	/**
+	 * Priority for bulk work which may be deferred in favor of runnables with
+	 * a higher priority, such as the creation of detail observables or the
+	 * remaining slices of {@link #execResumable(IResumableRunnable) resumable
+	 * work}.
+	 * 
+	 * @see #asyncExec(Runnable, int)
+	 * @see #timerExec(int, Runnable, int)
+	 * @since 1.4
+	 */
+	public static final int PRIORITY_BACKGROUND = 2;
+
 	private static ThreadLocal<Realm> defaultRealm = new ThreadLocal<Realm>();
 
 	/**
@@ -114,11 +146,20 @@ public abstract class Realm {
 	 */
 	abstract public boolean isCurrent();
 
-	private Thread workerThread;
+	Thread workerThread;
 	
 	private volatile Timer timer;
 
-	Queue workQueue = new Queue();
+	PriorityLaneQueue workQueue = new PriorityLaneQueue(
+			PRIORITY_BACKGROUND + 1);
+
+	private volatile int timeBudget = 0;
+
+	private volatile IRealmMonitor monitor;
+
+	private volatile boolean glitchFreePropagation = false;
+
+	private volatile boolean boundedDispatchDepth = false;
 	
 	/**
 	 * Runs the given runnable. If an exception occurs within the runnable, it
@@ -190,13 +231,62 @@ public abstract class Realm {
 	 * @param runnable
 	 */
 	public void asyncExec(Runnable runnable) {
-		synchronized (workQueue) {
-			ensureWorkerThreadIsRunning();
-			workQueue.enqueue(runnable);
-			workQueue.notifyAll();
+		asyncExec(runnable, PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Causes the <code>run()</code> method of the runnable to be invoked from
+	 * within this realm at the next reasonable opportunity, taking the given
+	 * priority into account. Runnables with a higher priority overtake queued
+	 * runnables with a lower priority, but a runnable with a lower priority is
+	 * not passed over indefinitely. The caller of this method continues to
+	 * run in parallel, and is not notified when the runnable has completed.
+	 * <p>
+	 * If the given runnable is an instance of {@link ISafeRunnable}, its
+	 * exception handler method will be called if any exceptions occur while
+	 * running it. Otherwise, the exception will be logged.
+	 * </p>
+	 * <p>
+	 * The default implementation queues the runnable and hands it to
+	 * {@link #syncExec(Runnable)} from a worker thread, like the default
+	 * implementation of {@link #asyncExec(Runnable)} does. Subclasses which
+	 * override {@link #asyncExec(Runnable)} to run runnables on a designated
+	 * thread may override this method as well to support priorities natively.
+	 * </p>
+	 * 
+	 * @param runnable
+	 * @param priority
+	 *            one of {@link #PRIORITY_INTERACTIVE},
+	 *            {@link #PRIORITY_NORMAL} or {@link #PRIORITY_BACKGROUND}
+	 * @since 1.4
+	 */
+	public void asyncExec(Runnable runnable, int priority) {
+		checkPriority(priority);
+		IRealmMonitor monitor = this.monitor;
+		if (monitor == null) {
+			synchronized (workQueue) {
+				ensureWorkerThreadIsRunning();
+				workQueue.enqueue(runnable, priority);
+				workQueue.notifyAll();
+			}
+		} else {
+			int queueDepth;
+			synchronized (workQueue) {
+				ensureWorkerThreadIsRunning();
+				workQueue.enqueue(new MonitoredRunnable(runnable, monitor),
+						priority);
+				queueDepth = workQueue.size();
+				workQueue.notifyAll();
+			}
+			monitor.taskQueued(this, queueDepth);
 		}
 	}
 
+	private static void checkPriority(int priority) {
+		Assert.isTrue(priority >= PRIORITY_INTERACTIVE
+				&& priority <= PRIORITY_BACKGROUND, "Unknown priority"); //$NON-NLS-1$
+	}
+
 	/**
 	 * Causes the <code>run()</code> method of the runnable to be invoked from
 	 * within this realm after the specified number of milliseconds have
@@ -236,6 +326,260 @@ public abstract class Realm {
 
 	}
 
+	/**
+	 * Causes the <code>run()</code> method of the runnable to be invoked from
+	 * within this realm with the given priority after the specified number of
+	 * milliseconds have elapsed. If milliseconds is less than zero, the
+	 * runnable is not executed. The caller of this method continues to run in
+	 * parallel, and is not notified when the runnable has completed.
+	 * <p>
+	 * If the given runnable is an instance of {@link ISafeRunnable}, its
+	 * exception handler method will be called if any exceptions occur while
+	 * running it. Otherwise, the exception will be logged.
+	 * </p>
+	 * 
+	 * @param milliseconds
+	 * @param runnable
+	 * @param priority
+	 *            one of {@link #PRIORITY_INTERACTIVE},
+	 *            {@link #PRIORITY_NORMAL} or {@link #PRIORITY_BACKGROUND}
+	 * @see #asyncExec(Runnable, int)
+	 * @since 1.4
+	 */
+	public void timerExec(int milliseconds, final Runnable runnable,
+			final int priority) {
+		checkPriority(priority);
+		if (milliseconds < 0) {
+			return;
+		} else if (milliseconds == 0) {
+			asyncExec(runnable, priority);
+		} else {
+			synchronized (workQueue) {
+				if (timer == null) {
+					timer = new Timer(true);
+				}
+				timer.schedule(new TimerTask() {
+					public void run() {
+						asyncExec(runnable, priority);
+					}
+				}, milliseconds);
+			}
+		}
+	}
+
+	/**
+	 * Sets the time budget for resumable work executed within this realm. A
+	 * runnable passed to {@link #execResumable(IResumableRunnable)} yields
+	 * after running for about the given number of milliseconds, and resumes
+	 * at the next reasonable opportunity, giving other runnables queued on
+	 * this realm the chance to run in between. A time budget of zero, which
+	 * is the default, means that resumable work is always completed without
+	 * yielding.
+	 * 
+	 * @param milliseconds
+	 *            the time budget in milliseconds, or <code>0</code> for an
+	 *            unlimited budget
+	 * @since 1.4
+	 */
+	public void setTimeBudget(int milliseconds) {
+		Assert.isTrue(milliseconds >= 0, "Time budget must not be negative"); //$NON-NLS-1$
+		timeBudget = milliseconds;
+	}
+
+	/**
+	 * Returns the time budget for resumable work executed within this realm.
+	 * 
+	 * @return the time budget in milliseconds, or <code>0</code> if the
+	 *         budget is unlimited
+	 * @see #setTimeBudget(int)
+	 * @since 1.4
+	 */
+	public int getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Enables or disables glitch-free propagation of changes for observables
+	 * in this realm. When enabled, computed observables such as
+	 * <code>ComputedValue</code>, <code>ComputedList</code> and
+	 * <code>ComputedSet</code> which are affected by a change do not fire
+	 * their own change events while the change is being dispatched. Instead,
+	 * their events are fired after the change has been dispatched, in order of
+	 * their distance from the changed observable, and each computed observable
+	 * fires at most once per change. This avoids recomputing a computed
+	 * observable several times for a single change, and avoids computing it
+	 * from an inconsistent mix of updated and outdated dependencies, at the
+	 * cost of delaying its events until the change has been dispatched.
+	 * Glitch-free propagation is disabled by default.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable glitch-free propagation
+	 * @since 1.4
+	 */
+	public void setGlitchFreePropagation(boolean enabled) {
+		glitchFreePropagation = enabled;
+	}
+
+	/**
+	 * Returns whether glitch-free propagation of changes is enabled for
+	 * observables in this realm.
+	 * 
+	 * @return <code>true</code> if glitch-free propagation is enabled
+	 * @see #setGlitchFreePropagation(boolean)
+	 * @since 1.4
+	 */
+	public boolean isGlitchFreePropagation() {
+		return glitchFreePropagation;
+	}
+
+	/**
+	 * Enables or disables bounding the nesting of event dispatch for
+	 * observables in this realm. Change notifications travel through chains of
+	 * computed and decorating observables by firing events from within
+	 * listeners, so a long chain nests as many dispatches on the stack. When
+	 * enabled, events fired beyond a fixed nesting depth are not dispatched
+	 * right away, but queued and dispatched in order after the outermost
+	 * dispatch on the thread has completed, so that the length of a chain is
+	 * limited by the heap rather than by the stack.
+	 * <p>
+	 * Deeply nested events are therefore no longer delivered synchronously:
+	 * <code>fireEvent</code> may return before the listeners have been
+	 * notified, events may reach the listeners in a different order than they
+	 * have been fired, and an exception thrown by a listener of a queued event
+	 * propagates out of the outermost dispatch. Vetoable value changing events
+	 * and dispose events are always dispatched synchronously. Bounded dispatch
+	 * depth is disabled by default.
+	 * </p>
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to bound the nesting of event dispatch
+	 * @since 1.4
+	 */
+	public void setBoundedDispatchDepth(boolean enabled) {
+		boundedDispatchDepth = enabled;
+	}
+
+	/**
+	 * Returns whether the nesting of event dispatch is bounded for observables
+	 * in this realm.
+	 * 
+	 * @return <code>true</code> if the nesting of event dispatch is bounded
+	 * @see #setBoundedDispatchDepth(boolean)
+	 * @since 1.4
+	 */
+	public boolean isBoundedDispatchDepth() {
+		return boundedDispatchDepth;
+	}
+
+	/**
+	 * Installs a monitor which is notified about the runnables passed through
+	 * the work queue of this realm, replacing the previously installed monitor.
+	 * Only runnables queued while a monitor is installed are measured. When no
+	 * monitor is installed, which is the default, no measurements are taken.
+	 * <p>
+	 * Subclasses which override {@link #asyncExec(Runnable, int)} without
+	 * calling the default implementation do not notify the monitor.
+	 * </p>
+	 * 
+	 * @param monitor
+	 *            the monitor, or <code>null</code> to remove the installed
+	 *            monitor
+	 * @see RealmMetrics
+	 * @since 1.4
+	 */
+	public void setMonitor(IRealmMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Returns the monitor installed on this realm.
+	 * 
+	 * @return the monitor, or <code>null</code> if no monitor is installed
+	 * @see #setMonitor(IRealmMonitor)
+	 * @since 1.4
+	 */
+	public IRealmMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Returns the number of runnables waiting in the work queue of this realm.
+	 * The result is only meaningful for realms using the default
+	 * implementation of {@link #asyncExec(Runnable, int)}.
+	 * 
+	 * @return the number of queued runnables
+	 * @since 1.4
+	 */
+	public int getQueueDepth() {
+		synchronized (workQueue) {
+			return workQueue.size();
+		}
+	}
+
+	/**
+	 * Runs a queued runnable and reports its queue wait time and execution
+	 * time to a monitor.
+	 */
+	private class MonitoredRunnable implements Runnable {
+		private final Runnable runnable;
+		private final IRealmMonitor monitor;
+		private final long queuedAt = System.nanoTime();
+
+		MonitoredRunnable(Runnable runnable, IRealmMonitor monitor) {
+			this.runnable = runnable;
+			this.monitor = monitor;
+		}
+
+		public void run() {
+			long startedAt = System.nanoTime();
+			monitor.taskStarted(Realm.this, startedAt - queuedAt);
+			try {
+				safeRun(runnable);
+			} finally {
+				monitor.taskFinished(Realm.this, runnable, System.nanoTime()
+						- startedAt);
+			}
+		}
+	}
+
+	/**
+	 * Causes the given resumable runnable to be run within this realm, one
+	 * slice at a time. The first slice is run like {@link #exec(Runnable)}
+	 * would run a runnable: directly if the caller is executing in this realm,
+	 * otherwise using asyncExec. Each slice is given a deadline derived from
+	 * the {@link #setTimeBudget(int) time budget} of this realm, and if the
+	 * runnable returns without having completed its work, the next slice is
+	 * run using asyncExec with {@link #PRIORITY_BACKGROUND background
+	 * priority}.
+	 * <p>
+	 * If an exception occurs within a slice, it is logged and the runnable is
+	 * not resumed.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            the resumable runnable
+	 * @since 1.4
+	 */
+	public void execResumable(IResumableRunnable runnable) {
+		exec(new ResumableSlice(runnable));
+	}
+
+	private class ResumableSlice implements Runnable {
+		private final IResumableRunnable runnable;
+
+		ResumableSlice(IResumableRunnable runnable) {
+			this.runnable = runnable;
+		}
+
+		public void run() {
+			int budget = timeBudget;
+			long deadline = budget == 0 ? Long.MAX_VALUE : System.nanoTime()
+					+ budget * 1000000L;
+			if (!runnable.run(deadline))
+				asyncExec(this, PRIORITY_BACKGROUND);
+		}
+	}
+
 	/**
 	 * 
 	 */
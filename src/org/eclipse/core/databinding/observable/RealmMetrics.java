@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import org.eclipse.core.databinding.util.Policy;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * A realm monitor which aggregates the measurements of one or more realms
+ * into histograms of queue wait times and execution times, and keeps track of
+ * the maximum queue depth. Runnables running longer than a configurable
+ * threshold are reported to {@link #handleSlowTask(Realm, Runnable, long)}.
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * RealmMetrics metrics = new RealmMetrics(100);
+ * realm.setMonitor(metrics);
+ * ...
+ * long p99 = metrics.getWaitTimes().getPercentile(0.99);
+ * </pre>
+ *
+ * @since 1.4
+ */
+public class RealmMetrics implements IRealmMonitor {
+
+	private final Histogram waitTimes = new Histogram();
+
+	private final Histogram executionTimes = new Histogram();
+
+	private final long slowTaskThreshold;
+
+	private int maxQueueDepth = 0;
+
+	/**
+	 * Creates metrics without slow task reporting.
+	 */
+	public RealmMetrics() {
+		this(0);
+	}
+
+	/**
+	 * Creates metrics which report runnables running at least the given
+	 * number of milliseconds to {@link #handleSlowTask(Realm, Runnable, long)}.
+	 *
+	 * @param slowTaskThresholdMillis
+	 *            the slow task threshold in milliseconds, or <code>0</code>
+	 *            to disable slow task reporting
+	 */
+	public RealmMetrics(int slowTaskThresholdMillis) {
+		this.slowTaskThreshold = slowTaskThresholdMillis * 1000000L;
+	}
+
+	public synchronized void taskQueued(Realm realm, int queueDepth) {
+		if (queueDepth > maxQueueDepth)
+			maxQueueDepth = queueDepth;
+	}
+
+	public void taskStarted(Realm realm, long waitNanos) {
+		waitTimes.record(waitNanos);
+	}
+
+	public void taskFinished(Realm realm, Runnable runnable,
+			long executionNanos) {
+		executionTimes.record(executionNanos);
+		if (slowTaskThreshold > 0 && executionNanos >= slowTaskThreshold)
+			handleSlowTask(realm, runnable, executionNanos);
+	}
+
+	/**
+	 * Called when a runnable ran for at least the slow task threshold. The
+	 * default implementation logs a warning. Subclasses may override.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param runnable
+	 *            the slow runnable
+	 * @param executionNanos
+	 *            the time in nanoseconds it took to run the runnable
+	 */
+	protected void handleSlowTask(Realm realm, Runnable runnable,
+			long executionNanos) {
+		Policy.getLog().log(
+				new Status(IStatus.WARNING, Policy.JFACE_DATABINDING,
+						"Slow runnable in realm " + realm + ": " + runnable //$NON-NLS-1$ //$NON-NLS-2$
+								+ " took " + (executionNanos / 1000000L) //$NON-NLS-1$
+								+ " ms")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the histogram of the times in nanoseconds between queueing a
+	 * runnable and starting it.
+	 *
+	 * @return the histogram of queue wait times
+	 */
+	public Histogram getWaitTimes() {
+		return waitTimes;
+	}
+
+	/**
+	 * Returns the histogram of the times in nanoseconds it took to run the
+	 * queued runnables.
+	 *
+	 * @return the histogram of execution times
+	 */
+	public Histogram getExecutionTimes() {
+		return executionTimes;
+	}
+
+	/**
+	 * Returns the maximum number of runnables which have been waiting in a
+	 * queue at the same time.
+	 *
+	 * @return the maximum queue depth
+	 * @see Realm#getQueueDepth()
+	 */
+	public synchronized int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * Clears all measurements.
+	 */
+	public void reset() {
+		synchronized (this) {
+			maxQueueDepth = 0;
+		}
+		waitTimes.reset();
+		executionTimes.reset();
+	}
+
+	/**
+	 * A histogram of non-negative durations with power-of-two bucket
+	 * boundaries. Bucket <code>0</code> counts durations of zero, and bucket
+	 * <code>i &gt; 0</code> counts durations between <code>2^(i-1)</code>
+	 * and <code>2^i - 1</code> nanoseconds. Recording a value takes constant
+	 * time and does not allocate.
+	 */
+	public static class Histogram {
+		/**
+		 * The number of buckets of every histogram.
+		 */
+		public static final int BUCKET_COUNT = 64;
+
+		private final long[] buckets = new long[BUCKET_COUNT];
+		private long count = 0;
+		private long total = 0;
+		private long max = 0;
+
+		/**
+		 * Records the given duration.
+		 *
+		 * @param nanos
+		 *            the duration in nanoseconds
+		 */
+		public synchronized void record(long nanos) {
+			if (nanos < 0)
+				nanos = 0;
+			buckets[bucketOf(nanos)]++;
+			count++;
+			total += nanos;
+			if (nanos > max)
+				max = nanos;
+		}
+
+		private static int bucketOf(long nanos) {
+			return Math.min(BUCKET_COUNT - 1,
+					64 - Long.numberOfLeadingZeros(nanos));
+		}
+
+		/**
+		 * Returns the largest duration counted by the given bucket.
+		 *
+		 * @param bucket
+		 *            the bucket index
+		 * @return the upper bound of the bucket in nanoseconds
+		 */
+		public static long getUpperBound(int bucket) {
+			return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE
+					: (1L << bucket) - 1;
+		}
+
+		/**
+		 * @param bucket
+		 *            the bucket index
+		 * @return the number of durations counted by the given bucket
+		 */
+		public synchronized long getCount(int bucket) {
+			return buckets[bucket];
+		}
+
+		/**
+		 * @return the number of recorded durations
+		 */
+		public synchronized long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the sum of all recorded durations in nanoseconds
+		 */
+		public synchronized long getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return the largest recorded duration in nanoseconds
+		 */
+		public synchronized long getMax() {
+			return max;
+		}
+
+		/**
+		 * Returns an upper bound for the given percentile of the recorded
+		 * durations, that is the upper bound of the first bucket at which the
+		 * given fraction of all durations has been counted.
+		 *
+		 * @param fraction
+		 *            the percentile as a fraction between 0 and 1
+		 * @return an upper bound of the percentile in nanoseconds, or
+		 *         <code>0</code> if no durations have been recorded
+		 */
+		public synchronized long getPercentile(double fraction) {
+			if (count == 0)
+				return 0;
+			long threshold = (long) Math.ceil(fraction * count);
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				seen += buckets[i];
+				if (seen >= threshold && seen > 0)
+					return Math.min(getUpperBound(i), max);
+			}
+			return max;
+		}
+
+		/**
+		 * Clears all recorded durations.
+		 */
+		public synchronized void reset() {
+			for (int i = 0; i < BUCKET_COUNT; i++)
+				buckets[i] = 0;
+			count = 0;
+			total = 0;
+			max = 0;
+		}
+
+		public synchronized String toString() {
+			return "Histogram{count=" + count + ", total=" + total //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", max=" + max + "}"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
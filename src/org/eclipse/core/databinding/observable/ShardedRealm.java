@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * A fixed pool of single-threaded realms ("shards"). Each shard owns a
+ * dedicated worker thread and is current only on that thread, so every shard
+ * keeps the usual realm contract while independent observable graphs placed
+ * on different shards can update in parallel.
+ * <p>
+ * Observables are assigned to a shard by a partition key, see
+ * {@link #getShard(Object)}. Observables must only depend on observables of
+ * the same shard; to consume state of an observable on another shard, use a
+ * bridge observable such as
+ * {@link Observables#bridgeObservableValue(Realm, org.eclipse.core.databinding.observable.value.IObservableValue)}
+ * or
+ * {@link Observables#bridgeObservableSet(Realm, org.eclipse.core.databinding.observable.set.IObservableSet)}
+ * , which forwards and coalesces the changes of the source observable into
+ * the target shard.
+ * </p>
+ * <p>
+ * The worker threads of the shards are started eagerly and keep running
+ * until {@link #dispose()} is called. The first runnable executed by each
+ * shard makes it the {@link Realm#getDefault() default realm} of its worker
+ * thread.
+ * </p>
+ *
+ * @since 1.4
+ */
+public class ShardedRealm {
+
+	private final ShardRealm[] shards;
+
+	/**
+	 * Creates a pool of <code>shardCount</code> single-threaded realms.
+	 *
+	 * @param shardCount
+	 *            the number of shards, must be positive
+	 */
+	public ShardedRealm(int shardCount) {
+		Assert.isTrue(shardCount > 0, "Shard count must be positive"); //$NON-NLS-1$
+		shards = new ShardRealm[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new ShardRealm();
+		}
+	}
+
+	/**
+	 * Returns the number of shards in this pool.
+	 *
+	 * @return the number of shards
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * Returns the shard with the given index.
+	 *
+	 * @param index
+	 *            the shard index, between <code>0</code> (inclusive) and
+	 *            {@link #getShardCount()} (exclusive)
+	 * @return the shard with the given index
+	 */
+	public Realm getShard(int index) {
+		return shards[index];
+	}
+
+	/**
+	 * Returns the shard to which observables with the given partition key are
+	 * assigned. Equal partition keys are always assigned to the same shard.
+	 *
+	 * @param partitionKey
+	 *            the partition key, may be <code>null</code>
+	 * @return the shard for the given partition key
+	 */
+	public Realm getShard(Object partitionKey) {
+		return shards[indexOf(partitionKey)];
+	}
+
+	/**
+	 * Returns the index of the shard to which observables with the given
+	 * partition key are assigned.
+	 *
+	 * @param partitionKey
+	 *            the partition key, may be <code>null</code>
+	 * @return the index of the shard for the given partition key
+	 */
+	public int indexOf(Object partitionKey) {
+		if (partitionKey == null)
+			return 0;
+		int h = partitionKey.hashCode();
+		// Spread the higher bits since keys often differ only there
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return (h & 0x7fffffff) % shards.length;
+	}
+
+	/**
+	 * Stops the worker threads of all shards. Runnables which are already
+	 * queued are still executed, runnables passed to a shard after this method
+	 * has been called are discarded.
+	 */
+	public void dispose() {
+		for (int i = 0; i < shards.length; i++) {
+			shards[i].dispose();
+		}
+	}
+
+	/**
+	 * A realm which runs all its runnables on the worker thread of
+	 * {@link Realm}, and is only current on that thread.
+	 */
+	private static class ShardRealm extends Realm {
+		private boolean disposed = false;
+
+		ShardRealm() {
+			// Starts the worker thread and makes this realm its default realm
+			asyncExec(new Runnable() {
+				public void run() {
+					setDefault(ShardRealm.this);
+				}
+			});
+		}
+
+		public boolean isCurrent() {
+			return Thread.currentThread() == workerThread;
+		}
+
+		public void asyncExec(Runnable runnable, int priority) {
+			synchronized (workQueue) {
+				if (disposed)
+					return;
+				super.asyncExec(runnable, priority);
+			}
+		}
+
+		protected void syncExec(Runnable runnable) {
+			if (isCurrent()) {
+				safeRun(runnable);
+			} else {
+				super.syncExec(runnable);
+			}
+		}
+
+		void dispose() {
+			Thread thread;
+			synchronized (workQueue) {
+				disposed = true;
+				thread = workerThread;
+			}
+			if (thread != null)
+				thread.interrupt();
+		}
+	}
+}
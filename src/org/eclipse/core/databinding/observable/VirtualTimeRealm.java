@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.eclipse.core.internal.databinding.observable.PriorityLaneQueue;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * A realm driven by a virtual clock instead of wall-clock time, intended for
+ * tests and benchmarks of timer based observables such as
+ * {@link Observables#observeDelayedValue(int, org.eclipse.core.databinding.observable.value.IObservableValue)
+ * delayed values}.
+ * <p>
+ * The realm is current on the thread which created it. Runnables passed to
+ * {@link #asyncExec(Runnable)} are not run until {@link #drainAll()} or
+ * {@link #advance(long)} is called, and runnables passed to
+ * {@link #timerExec(int, Runnable)} are not run until the virtual clock has
+ * been advanced past their due time. No threads or timers are created, so
+ * execution is fully deterministic: timers are fired in order of their due
+ * time, and timers due at the same time are fired in the order in which they
+ * were scheduled.
+ * </p>
+ * <p>
+ * Runnables may be passed to this realm from any thread, but
+ * {@link #drainAll()} and {@link #advance(long)} must be called from within
+ * the realm.
+ * </p>
+ *
+ * @since 1.4
+ */
+public class VirtualTimeRealm extends Realm {
+
+	private final Thread thread;
+
+	private final Object lock = new Object();
+
+	private final PriorityLaneQueue readyQueue = new PriorityLaneQueue(
+			PRIORITY_BACKGROUND + 1);
+
+	private final PriorityQueue<ScheduledRunnable> agenda = new PriorityQueue<ScheduledRunnable>(
+			11, new Comparator<ScheduledRunnable>() {
+				public int compare(ScheduledRunnable o1, ScheduledRunnable o2) {
+					if (o1.dueTime != o2.dueTime)
+						return o1.dueTime < o2.dueTime ? -1 : 1;
+					return o1.sequence < o2.sequence ? -1
+							: (o1.sequence == o2.sequence ? 0 : 1);
+				}
+			});
+
+	private long time = 0;
+
+	private long sequence = 0;
+
+	/**
+	 * Creates a virtual time realm which is current on the calling thread, with
+	 * its clock set to <code>0</code>.
+	 */
+	public VirtualTimeRealm() {
+		thread = Thread.currentThread();
+	}
+
+	public boolean isCurrent() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Queues the given runnable. It is run by the next call to
+	 * {@link #drainAll()} or {@link #advance(long)}.
+	 */
+	public void asyncExec(Runnable runnable, int priority) {
+		Assert.isTrue(priority >= PRIORITY_INTERACTIVE
+				&& priority <= PRIORITY_BACKGROUND, "Unknown priority"); //$NON-NLS-1$
+		synchronized (lock) {
+			readyQueue.enqueue(runnable, priority);
+		}
+	}
+
+	/**
+	 * Schedules the given runnable to be queued once the virtual clock has
+	 * been advanced by the given number of milliseconds.
+	 */
+	public void timerExec(int milliseconds, Runnable runnable) {
+		timerExec(milliseconds, runnable, PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Schedules the given runnable to be queued with the given priority once
+	 * the virtual clock has been advanced by the given number of milliseconds.
+	 * If milliseconds is less than zero, the runnable is not executed.
+	 */
+	public void timerExec(int milliseconds, Runnable runnable, int priority) {
+		Assert.isTrue(priority >= PRIORITY_INTERACTIVE
+				&& priority <= PRIORITY_BACKGROUND, "Unknown priority"); //$NON-NLS-1$
+		if (milliseconds < 0) {
+			return;
+		} else if (milliseconds == 0) {
+			asyncExec(runnable, priority);
+			return;
+		}
+		synchronized (lock) {
+			agenda.add(new ScheduledRunnable(time + milliseconds, sequence++,
+					runnable, priority));
+		}
+	}
+
+	protected void syncExec(Runnable runnable) {
+		if (isCurrent()) {
+			safeRun(runnable);
+		} else {
+			super.syncExec(runnable);
+		}
+	}
+
+	/**
+	 * Returns the current value of the virtual clock.
+	 *
+	 * @return the virtual time in milliseconds
+	 */
+	public long getTime() {
+		synchronized (lock) {
+			return time;
+		}
+	}
+
+	/**
+	 * Returns the virtual time at which the next scheduled runnable is due.
+	 *
+	 * @return the due time in milliseconds, or <code>-1</code> if no runnables
+	 *         are scheduled
+	 */
+	public long getNextDueTime() {
+		synchronized (lock) {
+			ScheduledRunnable next = agenda.peek();
+			return next == null ? -1 : next.dueTime;
+		}
+	}
+
+	/**
+	 * Returns whether no runnables are queued or scheduled.
+	 *
+	 * @return <code>true</code> if there is no pending work
+	 */
+	public boolean isIdle() {
+		synchronized (lock) {
+			return readyQueue.isEmpty() && agenda.isEmpty();
+		}
+	}
+
+	/**
+	 * Runs all queued runnables, including runnables queued while draining,
+	 * without advancing the virtual clock.
+	 *
+	 * @return the number of runnables which have been run
+	 */
+	public int drainAll() {
+		checkRealm();
+		int count = 0;
+		while (true) {
+			Runnable runnable;
+			synchronized (lock) {
+				if (readyQueue.isEmpty())
+					return count;
+				runnable = (Runnable) readyQueue.dequeue();
+			}
+			safeRun(runnable);
+			count++;
+		}
+	}
+
+	/**
+	 * Advances the virtual clock by the given number of milliseconds. Queued
+	 * runnables are run first. Then, in order of their due time, each
+	 * scheduled runnable which is due is queued after setting the clock to
+	 * its due time, and all queued runnables are run. Runnables scheduled
+	 * while advancing are run as well if they become due.
+	 *
+	 * @param milliseconds
+	 *            the amount of virtual time to advance, must not be negative
+	 * @return the number of runnables which have been run
+	 */
+	public int advance(long milliseconds) {
+		checkRealm();
+		Assert.isTrue(milliseconds >= 0, "Cannot advance by a negative time"); //$NON-NLS-1$
+		long target;
+		synchronized (lock) {
+			target = time + milliseconds;
+		}
+		int count = drainAll();
+		while (true) {
+			synchronized (lock) {
+				ScheduledRunnable next = agenda.peek();
+				if (next == null || next.dueTime > target) {
+					time = target;
+					return count;
+				}
+				agenda.poll();
+				time = next.dueTime;
+				readyQueue.enqueue(next.runnable, next.priority);
+			}
+			count += drainAll();
+		}
+	}
+
+	private void checkRealm() {
+		Assert.isTrue(isCurrent(),
+				"This method must be called from within the realm"); //$NON-NLS-1$
+	}
+
+	private static class ScheduledRunnable {
+		final long dueTime;
+		final long sequence;
+		final Runnable runnable;
+		final int priority;
+
+		ScheduledRunnable(long dueTime, long sequence, Runnable runnable,
+				int priority) {
+			this.dueTime = dueTime;
+			this.sequence = sequence;
+			this.runnable = runnable;
+			this.priority = priority;
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.bag;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.AbstractObservable;
+import org.eclipse.core.databinding.observable.IElementVisitor;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+
+/**
+ * Abstract implementation of {@link IObservableBag}. Subclasses provide the
+ * number of occurrences of each element and the set of distinct elements, from
+ * which the collection methods are derived.
+ *
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public abstract class AbstractObservableBag<E> extends AbstractObservable
+		implements IObservableBag<E> {
+
+	private boolean stale = false;
+
+	private Set<E> elementSet;
+
+	protected AbstractObservableBag() {
+		this(Realm.getDefault());
+	}
+
+	protected AbstractObservableBag(Realm realm) {
+		super(realm);
+	}
+
+	public synchronized void addBagChangeListener(
+			IBagChangeListener<? super E> listener) {
+		addListener(BagChangeEvent.TYPE, listener);
+	}
+
+	public synchronized void removeBagChangeListener(
+			IBagChangeListener<? super E> listener) {
+		removeListener(BagChangeEvent.TYPE, listener);
+	}
+
+	/**
+	 * Returns the number of occurrences of the given element, without
+	 * notifying the observable tracker.
+	 *
+	 * @param o
+	 *            the element
+	 * @return the number of occurrences
+	 */
+	protected abstract int doCount(Object o);
+
+	/**
+	 * Returns the distinct elements of this bag, without notifying the
+	 * observable tracker. The returned set must be a live view which reflects
+	 * later changes of this bag.
+	 *
+	 * @return the set of distinct elements
+	 */
+	protected abstract Set<E> doGetElementSet();
+
+	/**
+	 * Returns the total number of occurrences in this bag, without notifying
+	 * the observable tracker. The default implementation sums the counts of
+	 * the distinct elements, subclasses keeping a running total should
+	 * override.
+	 *
+	 * @return the total number of occurrences
+	 */
+	protected int doGetSize() {
+		int size = 0;
+		for (Iterator<E> it = doGetElementSet().iterator(); it.hasNext();)
+			size += doCount(it.next());
+		return size;
+	}
+
+	protected void fireBagChange(BagDiff<E> diff) {
+		// fire general change event first
+		super.fireChange();
+
+		fireEvent(new BagChangeEvent<E>(this, diff));
+	}
+
+	public int count(Object o) {
+		getterCalled();
+		return doCount(o);
+	}
+
+	public Set<E> elementSet() {
+		getterCalled();
+		if (elementSet == null)
+			elementSet = Collections.unmodifiableSet(doGetElementSet());
+		return elementSet;
+	}
+
+	public boolean contains(Object o) {
+		getterCalled();
+		return doCount(o) > 0;
+	}
+
+	public boolean containsAll(Collection<?> c) {
+		getterCalled();
+		for (Iterator<?> it = c.iterator(); it.hasNext();)
+			if (doCount(it.next()) == 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns whether the given object is a bag containing the same elements
+	 * with the same number of occurrences.
+	 */
+	public boolean equals(Object o) {
+		getterCalled();
+		if (o == this)
+			return true;
+		if (!(o instanceof IObservableBag<?>))
+			return false;
+		IObservableBag<?> other = (IObservableBag<?>) o;
+		if (other.size() != doGetSize())
+			return false;
+		Set<?> otherElements = other.elementSet();
+		if (otherElements.size() != doGetElementSet().size())
+			return false;
+		for (Iterator<?> it = otherElements.iterator(); it.hasNext();) {
+			Object element = it.next();
+			if (doCount(element) != other.count(element))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the sum over the distinct elements of the hash code of the
+	 * element xor its number of occurrences.
+	 */
+	public int hashCode() {
+		getterCalled();
+		int hashCode = 0;
+		for (Iterator<E> it = doGetElementSet().iterator(); it.hasNext();) {
+			E element = it.next();
+			hashCode += (element == null ? 0 : element.hashCode())
+					^ doCount(element);
+		}
+		return hashCode;
+	}
+
+	public boolean isEmpty() {
+		getterCalled();
+		return doGetElementSet().isEmpty();
+	}
+
+	/**
+	 * Returns an iterator visiting every occurrence of every element, the
+	 * occurrences of an element being visited consecutively.
+	 */
+	public Iterator<E> iterator() {
+		getterCalled();
+		final Iterator<E> elements = doGetElementSet().iterator();
+		return new Iterator<E>() {
+			private E element;
+			private int remaining = 0;
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public boolean hasNext() {
+				ObservableTracker.getterCalled(AbstractObservableBag.this);
+				return remaining > 0 || elements.hasNext();
+			}
+
+			public E next() {
+				ObservableTracker.getterCalled(AbstractObservableBag.this);
+				if (remaining == 0) {
+					if (!elements.hasNext())
+						throw new NoSuchElementException();
+					element = elements.next();
+					remaining = doCount(element);
+				}
+				remaining--;
+				return element;
+			}
+		};
+	}
+
+	public int size() {
+		getterCalled();
+		return doGetSize();
+	}
+
+	public Object[] toArray() {
+		return toArray(new Object[0]);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T[] toArray(T[] a) {
+		getterCalled();
+		int size = doGetSize();
+		T[] result = a.length >= size ? a : (T[]) Array.newInstance(a
+				.getClass().getComponentType(), size);
+		int i = 0;
+		for (Iterator<E> it = doGetElementSet().iterator(); it.hasNext();) {
+			E element = it.next();
+			for (int n = doCount(element); n > 0; n--)
+				result[i++] = (T) element;
+		}
+		if (result.length > size)
+			result[size] = null;
+		return result;
+	}
+
+	/**
+	 * Visits every occurrence of each element, so an element contained
+	 * <i>n</i> times is visited <i>n</i> times in a row.
+	 */
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		getterCalled();
+		for (Iterator<E> it = doGetElementSet().iterator(); it.hasNext();) {
+			E element = it.next();
+			for (int n = doCount(element); n > 0; n--)
+				if (!visitor.visit(element))
+					return;
+		}
+	}
+
+	public String toString() {
+		getterCalled();
+		StringBuffer buffer = new StringBuffer();
+		buffer.append('[');
+		for (Iterator<E> it = doGetElementSet().iterator(); it.hasNext();) {
+			E element = it.next();
+			buffer.append(element == this ? "(this Bag)" : element); //$NON-NLS-1$
+			int count = doCount(element);
+			if (count > 1)
+				buffer.append(" x ").append(count); //$NON-NLS-1$
+			if (it.hasNext())
+				buffer.append(", "); //$NON-NLS-1$
+		}
+		buffer.append(']');
+		return buffer.toString();
+	}
+
+	protected void getterCalled() {
+		ObservableTracker.getterCalled(this);
+	}
+
+	public boolean add(E o) {
+		throw new UnsupportedOperationException();
+	}
+
+	public int add(E element, int occurrences) {
+		throw new UnsupportedOperationException();
+	}
+
+	public boolean addAll(Collection<? extends E> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+
+	public int remove(Object o, int occurrences) {
+		throw new UnsupportedOperationException();
+	}
+
+	public boolean removeAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	public boolean retainAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @return Returns the stale state.
+	 */
+	public boolean isStale() {
+		getterCalled();
+		return stale;
+	}
+
+	/**
+	 * @param stale
+	 *            The stale state to set. This will fire a stale event if the
+	 *            given boolean is true and this observable bag was not already
+	 *            stale.
+	 */
+	public void setStale(boolean stale) {
+		checkRealm();
+		boolean wasStale = this.stale;
+		this.stale = stale;
+		if (!wasStale && stale) {
+			fireStale();
+		}
+	}
+
+	protected void fireChange() {
+		throw new RuntimeException("fireChange should not be called, use fireBagChange() instead"); //$NON-NLS-1$
+	}
+}
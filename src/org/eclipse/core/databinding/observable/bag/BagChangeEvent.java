@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.bag;
+
+import org.eclipse.core.databinding.observable.IObservablesListener;
+import org.eclipse.core.databinding.observable.ObservableEvent;
+
+/**
+ * Bag change event describing an incremental change of an
+ * {@link IObservableBag} object.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public class BagChangeEvent<E> extends ObservableEvent {
+
+	private static final long serialVersionUID = -5314219813931395513L;
+
+	static final Object TYPE = new Object();
+
+	/**
+	 * Description of the change to the source observable bag. Listeners must
+	 * not change this field.
+	 */
+	public BagDiff<E> diff;
+
+	/**
+	 * Creates a new bag change event.
+	 * 
+	 * @param source
+	 *            the source observable bag
+	 * @param diff
+	 *            the bag change
+	 */
+	public BagChangeEvent(IObservableBag<E> source, BagDiff<E> diff) {
+		super(source);
+		this.diff = diff;
+	}
+
+	/**
+	 * Returns the observable bag from which this event originated.
+	 * 
+	 * @return the observable bag from which this event originated
+	 */
+	@SuppressWarnings("unchecked")
+	// always safe, same object as in constructor
+	public IObservableBag<E> getObservableBag() {
+		return (IObservableBag<E>) getSource();
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void dispatch(IObservablesListener listener) {
+		((IBagChangeListener<E>) listener).handleBagChange(this);
+	}
+
+	protected Object getListenerType() {
+		return TYPE;
+	}
+
+}
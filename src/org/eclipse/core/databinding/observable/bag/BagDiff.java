@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.bag;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.IDiff;
+
+/**
+ * Describes the change of an observable bag as the change of the number of
+ * occurrences of each changed element.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public abstract class BagDiff<E> implements IDiff {
+
+	/**
+	 * @return the set of elements whose number of occurrences changed
+	 */
+	public abstract Set<E> getElements();
+
+	/**
+	 * Returns the change of the number of occurrences of the given element,
+	 * positive if occurrences have been added, negative if occurrences have
+	 * been removed, and <code>0</code> if the element did not change.
+	 * 
+	 * @param element
+	 *            the element
+	 * @return the change of the number of occurrences
+	 */
+	public abstract int getCountDelta(Object element);
+
+	/**
+	 * Returns true if the diff has no changed elements.
+	 * 
+	 * @return true if the diff has no changed elements.
+	 */
+	public boolean isEmpty() {
+		return getElements().isEmpty();
+	}
+
+	/**
+	 * Applies the changes in this diff to the given bag
+	 * 
+	 * @param bag
+	 *            the bag to which the diff will be applied
+	 */
+	public void applyTo(IObservableBag<E> bag) {
+		for (Iterator<E> it = getElements().iterator(); it.hasNext();) {
+			E element = it.next();
+			int delta = getCountDelta(element);
+			if (delta > 0)
+				bag.add(element, delta);
+			else if (delta < 0)
+				bag.remove(element, -delta);
+		}
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(getClass().getName()).append("{"); //$NON-NLS-1$
+		for (Iterator<E> it = getElements().iterator(); it.hasNext();) {
+			E element = it.next();
+			int delta = getCountDelta(element);
+			buffer.append(element).append(delta < 0 ? " " : " +") //$NON-NLS-1$ //$NON-NLS-2$
+					.append(delta);
+			if (it.hasNext())
+				buffer.append(", "); //$NON-NLS-1$
+		}
+		buffer.append("}"); //$NON-NLS-1$
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.bag;
+
+import org.eclipse.core.databinding.observable.IObservablesListener;
+
+/**
+ * Listener for changes to observable bags.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public interface IBagChangeListener<E> extends IObservablesListener {
+
+	/**
+	 * Handle a change to an observable bag. The given event object must only be
+	 * used locally in this method because it may be reused for other change
+	 * notifications. The diff object referenced by the event is immutable and
+	 * may be used non-locally.
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	void handleBagChange(BagChangeEvent<E> event);
+
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.bag;
+
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.IObservableCollection;
+
+/**
+ * An observable multiset, a collection which may contain an element several
+ * times, and whose elements are not ordered. The {@link #size()} of a bag is
+ * its total number of occurrences, and its iterators visit every occurrence.
+ * Elements are compared using {@link Object#equals(Object)}.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @noimplement This interface is not intended to be implemented by clients.
+ *              Clients should instead subclass one of the classes that
+ *              implement this interface. Note that direct implementers of this
+ *              interface outside of the framework will be broken in future
+ *              releases when methods are added to this interface.
+ * 
+ * @see AbstractObservableBag
+ * @see WritableBag
+ * 
+ * @since 1.4
+ */
+public interface IObservableBag<E> extends IObservableCollection<E> {
+
+	/**
+	 * @param listener
+	 */
+	public void addBagChangeListener(IBagChangeListener<? super E> listener);
+
+	/**
+	 * @param listener
+	 */
+	public void removeBagChangeListener(IBagChangeListener<? super E> listener);
+
+	/**
+	 * Returns the number of occurrences of the given element.
+	 * 
+	 * @param o
+	 *            the element
+	 * @return the number of occurrences, <code>0</code> if the element is not
+	 *         contained
+	 * @TrackedGetter
+	 */
+	public int count(Object o);
+
+	/**
+	 * Adds occurrences of the given element (optional operation).
+	 * 
+	 * @param element
+	 *            the element
+	 * @param occurrences
+	 *            the number of occurrences to add, must not be negative
+	 * @return the number of occurrences before the operation
+	 */
+	public int add(E element, int occurrences);
+
+	/**
+	 * Removes occurrences of the given element (optional operation). If the
+	 * element has fewer occurrences, all of them are removed.
+	 * 
+	 * @param o
+	 *            the element
+	 * @param occurrences
+	 *            the number of occurrences to remove, must not be negative
+	 * @return the number of occurrences before the operation
+	 */
+	public int remove(Object o, int occurrences);
+
+	/**
+	 * Returns an unmodifiable view of the distinct elements of this bag. The
+	 * view is not observable, use
+	 * {@link org.eclipse.core.databinding.observable.Observables#observeElementSet(IObservableBag)}
+	 * for an observable set of the distinct elements.
+	 * 
+	 * @return the set of distinct elements
+	 * @TrackedGetter
+	 */
+	public Set<E> elementSet();
+
+	/**
+	 * Returns the total number of occurrences in this bag.
+	 * 
+	 * @TrackedGetter
+	 */
+	public int size();
+
+	/**
+	 * @TrackedGetter
+	 */
+	public boolean contains(Object o);
+
+	/**
+	 * @TrackedGetter
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * @TrackedGetter
+	 */
+	public boolean equals(Object o);
+
+	/**
+	 * @TrackedGetter
+	 */
+	public int hashCode();
+}
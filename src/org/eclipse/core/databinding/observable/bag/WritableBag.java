@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.bag;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.internal.databinding.observable.HashMultiset;
+import org.eclipse.core.internal.databinding.observable.MultisetBagDiff;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * Mutable observable bag. Occurrences are counted with primitive counters, so
+ * that {@link #count(Object)}, {@link #add(Object, int)} and
+ * {@link #remove(Object, int)} take constant time and do not allocate memory
+ * for elements which are already contained.
+ *
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public class WritableBag<E> extends AbstractObservableBag<E> {
+
+	private final HashMultiset<E> wrappedBag = new HashMultiset<E>();
+
+	private final Object elementType;
+
+	/**
+	 * Constructs a new empty instance in the default realm with a
+	 * <code>null</code> element type.
+	 */
+	public WritableBag() {
+		this(Realm.getDefault());
+	}
+
+	/**
+	 * Constructs a new empty instance in the given realm and a
+	 * <code>null</code> element type.
+	 *
+	 * @param realm
+	 */
+	public WritableBag(Realm realm) {
+		this(realm, null);
+	}
+
+	/**
+	 * Constructs a new empty instance in the given realm with the given element
+	 * type.
+	 *
+	 * @param realm
+	 * @param elementType
+	 *            can be <code>null</code>
+	 */
+	public WritableBag(Realm realm, Object elementType) {
+		super(realm);
+		this.elementType = elementType;
+	}
+
+	/**
+	 * Constructs a new instance in the given realm with the given element type,
+	 * containing the elements of the given collection. Changes to the given
+	 * collection after calling this method do not affect the contents of the
+	 * created WritableBag.
+	 *
+	 * @param realm
+	 * @param c
+	 * @param elementType
+	 *            can be <code>null</code>
+	 */
+	public WritableBag(Realm realm, Collection<? extends E> c,
+			Object elementType) {
+		this(realm, elementType);
+		for (Iterator<? extends E> it = c.iterator(); it.hasNext();)
+			wrappedBag.add(it.next());
+	}
+
+	protected int doCount(Object o) {
+		return wrappedBag.count(o);
+	}
+
+	protected Set<E> doGetElementSet() {
+		return wrappedBag.elementSet();
+	}
+
+	protected int doGetSize() {
+		return wrappedBag.totalCount();
+	}
+
+	public Object getElementType() {
+		return elementType;
+	}
+
+	public boolean add(E o) {
+		add(o, 1);
+		return true;
+	}
+
+	public int add(E element, int occurrences) {
+		checkRealm();
+		Assert.isTrue(occurrences >= 0, "Occurrences cannot be negative"); //$NON-NLS-1$
+		int oldCount = wrappedBag.count(element);
+		if (occurrences > 0) {
+			wrappedBag.add(element, occurrences);
+			fireBagChange(Diffs.createBagDiff(element, occurrences));
+		}
+		return oldCount;
+	}
+
+	public boolean addAll(Collection<? extends E> c) {
+		checkRealm();
+		if (c.isEmpty())
+			return false;
+		HashMultiset<E> added = new HashMultiset<E>();
+		for (Iterator<? extends E> it = c.iterator(); it.hasNext();) {
+			E element = it.next();
+			wrappedBag.add(element);
+			added.add(element);
+		}
+		fireBagChange(new MultisetBagDiff<E>(added, false));
+		return true;
+	}
+
+	public boolean remove(Object o) {
+		return remove(o, 1) > 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public int remove(Object o, int occurrences) {
+		checkRealm();
+		Assert.isTrue(occurrences >= 0, "Occurrences cannot be negative"); //$NON-NLS-1$
+		int oldCount = wrappedBag.count(o);
+		if (oldCount > 0 && occurrences > 0) {
+			wrappedBag.remove(o, occurrences);
+			fireBagChange(Diffs.createBagDiff((E) o, -Math.min(oldCount,
+					occurrences)));
+		}
+		return oldCount;
+	}
+
+	/**
+	 * Removes all occurrences of the elements contained in the given
+	 * collection.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean removeAll(Collection<?> c) {
+		checkRealm();
+		HashMultiset<E> removed = new HashMultiset<E>();
+		for (Iterator<?> it = c.iterator(); it.hasNext();) {
+			Object element = it.next();
+			int count = wrappedBag.count(element);
+			if (count > 0) {
+				wrappedBag.remove(element, count);
+				removed.add((E) element, count);
+			}
+		}
+		if (removed.isEmpty())
+			return false;
+		fireBagChange(new MultisetBagDiff<E>(removed, true));
+		return true;
+	}
+
+	/**
+	 * Removes all occurrences of the elements not contained in the given
+	 * collection.
+	 */
+	public boolean retainAll(Collection<?> c) {
+		checkRealm();
+		HashMultiset<E> removed = new HashMultiset<E>();
+		for (Iterator<E> it = wrappedBag.elementSet().iterator(); it.hasNext();) {
+			E element = it.next();
+			if (!c.contains(element))
+				removed.add(element, wrappedBag.count(element));
+		}
+		if (removed.isEmpty())
+			return false;
+		for (Iterator<E> it = removed.elementSet().iterator(); it.hasNext();)
+			wrappedBag.remove(it.next(), Integer.MAX_VALUE);
+		fireBagChange(new MultisetBagDiff<E>(removed, true));
+		return true;
+	}
+
+	public void clear() {
+		checkRealm();
+		if (wrappedBag.isEmpty())
+			return;
+		HashMultiset<E> removed = new HashMultiset<E>();
+		for (Iterator<E> it = wrappedBag.elementSet().iterator(); it.hasNext();) {
+			E element = it.next();
+			removed.add(element, wrappedBag.count(element));
+		}
+		wrappedBag.clear();
+		fireBagChange(new MultisetBagDiff<E>(removed, true));
+	}
+
+	/**
+	 * @param elementType
+	 *            can be <code>null</code>
+	 * @return new instance with the default realm
+	 */
+	public static <E> WritableBag<E> withElementType(Object elementType) {
+		return new WritableBag<E>(Realm.getDefault(), elementType);
+	}
+}
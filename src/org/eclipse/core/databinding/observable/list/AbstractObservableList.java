@@ -14,14 +14,18 @@
 package org.eclipse.core.databinding.observable.list;
 
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.ChangeSupport;
 import org.eclipse.core.databinding.observable.DisposeEvent;
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IDisposeListener;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
@@ -63,7 +67,7 @@ implements IObservableList<E> {
 
 	private final Realm realm;
 	private PrivateChangeSupport changeSupport;
-	private boolean disposed = false;
+	private volatile boolean disposed = false;
 
 	/**
 	 * @param realm 
@@ -183,7 +187,7 @@ implements IObservableList<E> {
 	/**
 	 * @since 1.2
 	 */
-	public synchronized boolean isDisposed() {
+	public boolean isDisposed() {
 		return disposed;
 	}
 
@@ -247,12 +251,51 @@ implements IObservableList<E> {
 
 	public Object[] toArray() {
 		getterCalled();
-		return super.toArray();
+		ObservableTracker.setIgnore(true);
+		try {
+			return super.toArray();
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
 	}
 
 	public <T> T[] toArray(T[] a) {
 		getterCalled();
-		return super.toArray(a);
+		ObservableTracker.setIgnore(true);
+		try {
+			return super.toArray(a);
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
+	/**
+	 * Copies the elements using {@link #toArray()}, which is reported to the
+	 * {@link ObservableTracker} once, and visits the copy. Observables read by
+	 * the visitor are tracked as usual. Subclasses keeping their elements in a
+	 * list should override to scan it directly.
+	 * 
+	 * @since 1.4
+	 */
+	@SuppressWarnings("unchecked")
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		Object[] elements = toArray();
+		for (int i = 0; i < elements.length; i++)
+			if (!visitor.visit((E) elements[i]))
+				return;
+	}
+
+	/**
+	 * @since 1.4
+	 */
+	public List<E> snapshot() {
+		getterCalled();
+		ObservableTracker.setIgnore(true);
+		try {
+			return Collections.unmodifiableList(new ArrayList<E>(this));
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
 	}
 
 	// Modification Operations
@@ -15,17 +15,21 @@ package org.eclipse.core.databinding.observable.list;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.internal.databinding.observable.IdleTimeout;
+import org.eclipse.core.internal.databinding.observable.PropagationScheduler;
 
 /**
  * A lazily calculated list that automatically computes and registers listeners
@@ -79,6 +83,28 @@ public abstract class ComputedList<E> extends AbstractObservableList<E> {
 	private boolean dirty = true;
 	private boolean stale = false;
 
+	private boolean eagerCompare = false;
+
+	/**
+	 * <code>true</code> if a stale event has been fired since the last change
+	 * event
+	 */
+	private boolean staleFired = false;
+
+	private final IdleTimeout idleTimeout = new IdleTimeout(getRealm()) {
+		protected boolean isIdle() {
+			return !hasListeners() && !isDisposed();
+		}
+
+		protected void release() {
+			if (!dirty) {
+				stopListening();
+				dirty = true;
+				cachedList = new ArrayList<E>();
+			}
+		}
+	};
+
 	private IObservable[] dependencies = new IObservable[0];
 
 	/**
@@ -180,45 +206,104 @@ public abstract class ComputedList<E> extends AbstractObservableList<E> {
 		return doGetList().get(index);
 	}
 
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		for (Iterator<E> it = getList().iterator(); it.hasNext();)
+			if (!visitor.visit(it.next()))
+				return;
+	}
+
+	public List<E> snapshot() {
+		return Collections.unmodifiableList(new ArrayList<E>(getList()));
+	}
+
 	private final List<E> getList() {
 		getterCalled();
 		return doGetList();
 	}
 
+	/**
+	 * Schedules the change event fired by makeDirty when glitch-free
+	 * propagation is enabled, and remembers the dependency height of this
+	 * computed list. Created lazily.
+	 */
+	private class PropagationNode extends PropagationScheduler.Node {
+		ListDiff<E> diff;
+
+		protected void propagate() {
+			ListDiff<E> diff = this.diff;
+			this.diff = null;
+			if (eagerCompare)
+				fireEagerListChange(diff);
+			else
+				fireListChange(diff);
+		}
+	}
+
+	private PropagationNode propagationNode;
+
+	private PropagationNode getPropagationNode() {
+		if (propagationNode == null)
+			propagationNode = new PropagationNode();
+		return propagationNode;
+	}
+
 	final List<E> doGetList() {
+		PropagationScheduler scheduler = PropagationScheduler
+				.getInstance(getRealm());
 		if (dirty) {
-			// This line will do the following:
-			// - Run the calculate method
-			// - While doing so, add any observable that is touched to the
-			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+			int readHeight = scheduler == null ? 0 : scheduler
+					.beginRecompute();
+			IObservable[] newDependencies;
+			try {
+				// This line will do the following:
+				// - Run the calculate method
+				// - While doing so, add any observable that is touched to the
+				// dependencies list
+				// - Only add listeners to dependencies we are not listening to
+				// yet, and remove them from dependencies no longer used
+				newDependencies = ObservableTracker.runAndMonitor(
+						privateInterface, privateInterface, privateInterface,
+						dependencies);
+			} finally {
+				if (scheduler != null)
+					getPropagationNode().setHeight(
+							scheduler.endRecompute(readHeight));
+			}
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
 			// clients assume that a list change is indicative of non-staleness.
 			stale = false;
-			for (int i = 0; i < newDependencies.length; i++) {
-				if (newDependencies[i].isStale()) {
-					makeStale();
-					break;
-				}
-			}
-
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
+			if (anyStale(newDependencies))
+				makeStale();
 
 			dependencies = newDependencies;
 
 			dirty = false;
 		}
 
+		idleTimeout.touch();
+
+		if (scheduler != null)
+			scheduler.reportRead(getPropagationNode().getHeight());
 		return cachedList;
 	}
 
+	private static boolean anyStale(IObservable[] observables) {
+		// Do not let the isStale() calls track our dependencies as
+		// dependencies of whoever is reading us
+		ObservableTracker.setIgnore(true);
+		try {
+			for (int i = 0; i < observables.length; i++) {
+				if (observables[i].isStale())
+					return true;
+			}
+			return false;
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
 	private void getterCalled() {
 		ObservableTracker.getterCalled(this);
 	}
@@ -237,15 +322,32 @@ public abstract class ComputedList<E> extends AbstractObservableList<E> {
 		if (!dirty) {
 			dirty = true;
 
-			makeStale();
+			// With eager comparison, we are recomputed before notifying our
+			// listeners, so we only become stale if a dependency is stale
+			boolean eager = eagerCompare && hasListeners();
+			if (!eager)
+				makeStale();
 
-			stopListening();
+			// Keep listening while somebody is listening to us, so that the
+			// dependencies can be reconciled on the next recompute instead of
+			// being subscribed again from scratch.
+			if (!hasListeners())
+				stopListening();
+
+			PropagationScheduler scheduler = PropagationScheduler
+					.getInstance(getRealm());
+			boolean deferred = scheduler != null && scheduler.isPropagating();
+			if (deferred && getPropagationNode().isScheduled()) {
+				// Our pending event already reports the list from before the
+				// current wave as old list
+				return;
+			}
 
 			// copy the old list
 			final List<E> oldList = new ArrayList<E>(cachedList);
 			// Fire the "dirty" event. This implementation recomputes the new
 			// list lazily.
-			fireListChange(new ListDiff<E>() {
+			ListDiff<E> diff = new ListDiff<E>() {
 				ListDiffEntry<E>[] differences;
 
 				public ListDiffEntry<E>[] getDifferences() {
@@ -254,7 +356,20 @@ public abstract class ComputedList<E> extends AbstractObservableList<E> {
 								.getDifferences();
 					return differences;
 				}
-			});
+			};
+
+			if (deferred) {
+				// Fire once all dependencies changed in this wave have fired
+				PropagationNode node = getPropagationNode();
+				node.diff = diff;
+				scheduler.schedule(node);
+			} else if (eager) {
+				// Recompute right away, and only notify our listeners if the
+				// list actually changed
+				fireEagerListChange(Diffs.computeListDiff(oldList, doGetList()));
+			} else {
+				fireListChange(diff);
+			}
 		}
 	}
 
@@ -273,16 +388,121 @@ public abstract class ComputedList<E> extends AbstractObservableList<E> {
 	private void makeStale() {
 		if (!stale) {
 			stale = true;
+			staleFired = true;
 			fireStale();
 		}
 	}
 
+	/**
+	 * Fires the diff computed by an eager comparison. An empty diff is only
+	 * fired to end the staleness announced since the last change event, since
+	 * clients consider a change event as the end of staleness.
+	 */
+	private void fireEagerListChange(ListDiff<E> diff) {
+		if (diff.isEmpty() && (stale || !staleFired))
+			return;
+		fireListChange(diff);
+		if (stale) {
+			// Still stale, announce it again after the change event
+			staleFired = true;
+			fireStale();
+		}
+	}
+
+	protected void fireListChange(ListDiff<E> diff) {
+		staleFired = false;
+		super.fireListChange(diff);
+	}
+
 	public boolean isStale() {
 		// recalculate list if dirty, to ensure staleness is correct.
 		getList();
 		return stale;
 	}
 
+	/**
+	 * Enables or disables eager comparison. By default, a computed list fires
+	 * a list change event as soon as one of its dependencies changes, and
+	 * computes the new contents lazily when the event is inspected or the list
+	 * is read. With eager comparison enabled, a computed list which has
+	 * listeners recomputes its contents as soon as a dependency changes, and
+	 * only fires a list change event if the difference to the previous contents
+	 * is not empty. This avoids notifying (and recomputing) downstream
+	 * observables when a change does not affect this list, at the cost of
+	 * computing the contents even when nobody reads them.
+	 * <p>
+	 * If glitch-free propagation is enabled for the realm, the contents are
+	 * recomputed and compared when the change event is due to be fired.
+	 * </p>
+	 * 
+	 * @param eagerCompare
+	 *            <code>true</code> to enable eager comparison
+	 * @see Realm#setGlitchFreePropagation(boolean)
+	 * @since 1.4
+	 */
+	public void setEagerCompare(boolean eagerCompare) {
+		checkRealm();
+		this.eagerCompare = eagerCompare;
+	}
+
+	/**
+	 * Returns whether eager comparison is enabled.
+	 * 
+	 * @return <code>true</code> if eager comparison is enabled
+	 * @see #setEagerCompare(boolean)
+	 * @since 1.4
+	 */
+	public boolean isEagerCompare() {
+		return eagerCompare;
+	}
+
+	/**
+	 * Sets the idle timeout of this computed list. By default, a computed list
+	 * keeps listening to its dependencies while nobody listens to it, until a
+	 * dependency changes or the list is disposed. With an idle timeout, a
+	 * computed list which had no listeners for the given period stops listening
+	 * to its dependencies and discards its cached contents. The contents are
+	 * recomputed, and the dependencies listened to again, when the list is next
+	 * accessed or a listener is added.
+	 * 
+	 * @param milliseconds
+	 *            the idle period in milliseconds, or <code>0</code> to never
+	 *            stop listening while idle
+	 * @since 1.4
+	 */
+	public void setIdleTimeout(int milliseconds) {
+		checkRealm();
+		idleTimeout.setMilliseconds(milliseconds);
+	}
+
+	/**
+	 * Returns the idle timeout of this computed list.
+	 * 
+	 * @return the idle period in milliseconds, or <code>0</code> if this
+	 *         computed list never stops listening while idle
+	 * @see #setIdleTimeout(int)
+	 * @since 1.4
+	 */
+	public int getIdleTimeout() {
+		return idleTimeout.getMilliseconds();
+	}
+
+	protected void lastListenerRemoved() {
+		super.lastListenerRemoved();
+		// May be called outside of our realm
+		getRealm().exec(new Runnable() {
+			public void run() {
+				if (hasListeners() || isDisposed())
+					return;
+				if (dirty)
+					// The dependencies were only kept for the listeners
+					stopListening();
+				else
+					idleTimeout.touch();
+			}
+		});
+	}
+
 	public Object getElementType() {
 		return elementType;
 	}
@@ -313,8 +533,9 @@ public abstract class ComputedList<E> extends AbstractObservableList<E> {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not currently listening, or do not receive
+					// changes until we are recomputed.
 					// But someone is listening for changes. Call getValue()
 					// to make sure we start listening to the observables we
 					// depend on.
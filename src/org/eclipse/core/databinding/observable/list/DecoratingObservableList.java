@@ -197,6 +197,11 @@ public class DecoratingObservableList<E> extends DecoratingObservableCollection<
 		return decorated.subList(fromIndex, toIndex);
 	}
 
+	public List<E> snapshot() {
+		getterCalled();
+		return decorated.snapshot();
+	}
+
 	public synchronized void dispose() {
 		if (decorated != null && listChangeListener != null) {
 			decorated.removeListChangeListener(listChangeListener);
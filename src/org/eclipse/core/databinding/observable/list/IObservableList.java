@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.ListIterator;
 
 import org.eclipse.core.databinding.observable.IObservableCollection;
+import org.eclipse.core.databinding.observable.ObservableTracker;
 
 /**
  * A list whose changes can be tracked by list change listeners.
@@ -194,4 +195,15 @@ public interface IObservableList<E> extends List<E>, IObservableCollection<E> {
 	 * @return the type of the elements or <code>null</code> if untyped
 	 */
 	Object getElementType();
+
+	/**
+	 * Returns an unmodifiable copy of the current elements of this list. The
+	 * read is reported to the {@link ObservableTracker} once, and the returned
+	 * list can then be read without further tracking overhead.
+	 * 
+	 * @return an unmodifiable copy of this list
+	 * @TrackedGetter
+	 * @since 1.4
+	 */
+	List<E> snapshot();
 }
@@ -0,0 +1,657 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.observable.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IElementVisitor;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableEvent;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.map.IMapChangeListener;
+import org.eclipse.core.databinding.observable.map.IObservableMap;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.internal.databinding.identity.IdentitySet;
+
+/**
+ * A lazily calculated list which can be updated incrementally. Like
+ * {@link ComputedList}, it automatically computes and registers listeners on
+ * its dependencies. In addition, it records the change events of its
+ * dependencies, and when it has to be recomputed, it passes the previous list
+ * and the recorded events to {@link #calculateDiff(List, List)}. If that
+ * method returns a diff, the diff is applied to the previous list, and the
+ * list is updated in time proportional to the size of the change instead of
+ * the size of the list. Otherwise the list is recomputed from scratch using
+ * {@link #calculate()}.
+ * <p>
+ * The events passed to {@link #calculateDiff(List, List)} are
+ * {@link ListChangeEvent}s, {@link SetChangeEvent}s, {@link MapChangeEvent}s
+ * and {@link ValueChangeEvent}s from dependencies which are lists, sets, maps
+ * and values, and plain {@link ChangeEvent}s from other dependencies, in the
+ * order in which they have been received. Their diffs are copies which are
+ * resolved when the events are received, so they remain accurate when the
+ * list is recomputed later. While the list has listeners but is not read,
+ * events keep being recorded; beyond a fixed number of events, they are
+ * discarded and the list is recomputed from scratch when it is read.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ * <p>
+ * Example: maintain the squares of the elements of an {@link IObservableList}
+ * &lt; {@link Integer} &gt;.
+ * </p>
+ *
+ * <pre>
+ * IObservableList&lt;Integer&gt; squares = new IncrementalComputedList&lt;Integer&gt;() {
+ * 	protected List&lt;Integer&gt; calculate() {
+ * 		List&lt;Integer&gt; result = new ArrayList&lt;Integer&gt;();
+ * 		for (Integer i : numbers)
+ * 			result.add(i * i);
+ * 		return result;
+ * 	}
+ *
+ * 	protected ListDiff&lt;Integer&gt; calculateDiff(List&lt;Integer&gt; previous,
+ * 			List&lt;ObservableEvent&gt; events) {
+ * 		List&lt;ListDiffEntry&lt;Integer&gt;&gt; entries = new ArrayList&lt;ListDiffEntry&lt;Integer&gt;&gt;();
+ * 		for (ObservableEvent event : events) {
+ * 			for (ListDiffEntry&lt;Integer&gt; entry : ((ListChangeEvent&lt;Integer&gt;) event).diff
+ * 					.getDifferences()) {
+ * 				int i = entry.getElement();
+ * 				entries.add(Diffs.createListDiffEntry(entry.getPosition(),
+ * 						entry.isAddition(), i * i));
+ * 			}
+ * 		}
+ * 		return Diffs.createListDiff(entries
+ * 				.toArray(ListDiffEntry.&lt;Integer&gt; newArray(entries.size())));
+ * 	}
+ * };
+ * </pre>
+ *
+ * @param <E>
+ *            the type of the elements of this list
+ *
+ * @since 1.4
+ */
+public abstract class IncrementalComputedList<E> extends
+		AbstractObservableList<E> {
+	private final List<E> cachedList = new ArrayList<E>();
+
+	private final List<E> unmodifiableCachedList = Collections
+			.unmodifiableList(cachedList);
+
+	/**
+	 * The number of events recorded between two computations beyond which the
+	 * events are discarded and the list is recomputed from scratch
+	 */
+	private static final int MAX_RECORDED_EVENTS = 1024;
+
+	private final List<ObservableEvent> events = new ArrayList<ObservableEvent>();
+
+	private final List<ObservableEvent> unmodifiableEvents = Collections
+			.unmodifiableList(events);
+
+	private boolean dirty = true;
+
+	private boolean stale = false;
+
+	/**
+	 * <code>true</code> if the list has to be computed from scratch because
+	 * it has never been computed, or because changes may have been missed
+	 */
+	private boolean complete = true;
+
+	/**
+	 * The lazy diff of the last change event we fired, which is resolved when
+	 * the list is recomputed, or <code>null</code> if we are not dirty
+	 */
+	private DirtyDiff dirtyDiff;
+
+	private IObservable[] dependencies = null;
+
+	private Object elementType;
+
+	/**
+	 * Creates an incremental computed list in the default realm and with an
+	 * unknown (null) element type.
+	 */
+	public IncrementalComputedList() {
+		this(Realm.getDefault(), null);
+	}
+
+	/**
+	 * Creates an incremental computed list in the default realm and with the
+	 * given element type.
+	 *
+	 * @param elementType
+	 *            the element type, may be <code>null</code> to indicate unknown
+	 *            element type
+	 */
+	public IncrementalComputedList(Object elementType) {
+		this(Realm.getDefault(), elementType);
+	}
+
+	/**
+	 * Creates an incremental computed list in given realm and with an unknown
+	 * (null) element type.
+	 *
+	 * @param realm
+	 *            the realm
+	 */
+	public IncrementalComputedList(Realm realm) {
+		this(realm, null);
+	}
+
+	/**
+	 * Creates an incremental computed list in the given realm and with the
+	 * given element type.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param elementType
+	 *            the element type, may be <code>null</code> to indicate unknown
+	 *            element type
+	 */
+	public IncrementalComputedList(Realm realm, Object elementType) {
+		super(realm);
+		this.elementType = elementType;
+	}
+
+	/**
+	 * Inner class that implements interfaces that we don't want to expose as
+	 * public API. Each interface could have been implemented using a separate
+	 * anonymous class, but we combine them here to reduce the memory overhead
+	 * and number of classes.
+	 *
+	 * <p>
+	 * The Runnables compute the list from scratch or incrementally.
+	 * </p>
+	 *
+	 * <p>
+	 * The typed change listeners record the events of dependencies which fire
+	 * typed events. The IChangeListener records the events of all other
+	 * dependencies, since the typed events are fired after the generic ones.
+	 * </p>
+	 */
+	private class PrivateInterface implements IChangeListener,
+			IStaleListener, IListChangeListener<Object>,
+			ISetChangeListener<Object>, IMapChangeListener<Object, Object>,
+			IValueChangeListener<Object> {
+		List<E> result;
+		ListDiff<E> diff;
+
+		final Runnable calculateRunnable = new Runnable() {
+			public void run() {
+				result = calculate();
+			}
+		};
+
+		final Runnable calculateDiffRunnable = new Runnable() {
+			public void run() {
+				diff = calculateDiff(unmodifiableCachedList,
+						unmodifiableEvents);
+			}
+		};
+
+		public void handleStale(StaleEvent event) {
+			if (!dirty)
+				makeStale();
+		}
+
+		public void handleChange(ChangeEvent event) {
+			if (!isTyped(event.getObservable()))
+				record(event);
+		}
+
+		public void handleListChange(ListChangeEvent<Object> event) {
+			record(event);
+		}
+
+		public void handleSetChange(SetChangeEvent<Object> event) {
+			record(event);
+		}
+
+		public void handleMapChange(MapChangeEvent<Object, Object> event) {
+			record(event);
+		}
+
+		public void handleValueChange(ValueChangeEvent<Object> event) {
+			record(event);
+		}
+	}
+
+	private PrivateInterface privateInterface = new PrivateInterface();
+
+	private static boolean isTyped(IObservable observable) {
+		return observable instanceof IObservableList
+				|| observable instanceof IObservableSet
+				|| observable instanceof IObservableMap
+				|| observable instanceof IObservableValue;
+	}
+
+	private void addTypedListener(IObservable observable) {
+		if (observable instanceof IObservableList)
+			((IObservableList<?>) observable)
+					.addListChangeListener(privateInterface);
+		else if (observable instanceof IObservableSet)
+			((IObservableSet<?>) observable)
+					.addSetChangeListener(privateInterface);
+		else if (observable instanceof IObservableMap)
+			((IObservableMap<?, ?>) observable)
+					.addMapChangeListener(privateInterface);
+		else if (observable instanceof IObservableValue)
+			((IObservableValue<?>) observable)
+					.addValueChangeListener(privateInterface);
+	}
+
+	private void removeTypedListener(IObservable observable) {
+		if (observable instanceof IObservableList)
+			((IObservableList<?>) observable)
+					.removeListChangeListener(privateInterface);
+		else if (observable instanceof IObservableSet)
+			((IObservableSet<?>) observable)
+					.removeSetChangeListener(privateInterface);
+		else if (observable instanceof IObservableMap)
+			((IObservableMap<?, ?>) observable)
+					.removeMapChangeListener(privateInterface);
+		else if (observable instanceof IObservableValue)
+			((IObservableValue<?>) observable)
+					.removeValueChangeListener(privateInterface);
+	}
+
+	/**
+	 * The diff fired when this list becomes dirty. It recomputes the list when
+	 * it is inspected, and reports the differences of that recomputation.
+	 */
+	private class DirtyDiff extends ListDiff<E> {
+		ListDiffEntry<E>[] differences;
+
+		public ListDiffEntry<E>[] getDifferences() {
+			if (differences == null)
+				doGetList();
+			return differences;
+		}
+	}
+
+	protected int doGetSize() {
+		return doGetList().size();
+	}
+
+	public E get(int index) {
+		getterCalled();
+		return doGetList().get(index);
+	}
+
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		for (Iterator<E> it = getList().iterator(); it.hasNext();)
+			if (!visitor.visit(it.next()))
+				return;
+	}
+
+	public List<E> snapshot() {
+		return Collections.unmodifiableList(new ArrayList<E>(getList()));
+	}
+
+	private final List<E> getList() {
+		getterCalled();
+		return doGetList();
+	}
+
+	final List<E> doGetList() {
+		if (dirty) {
+			ListDiffEntry<E>[] differences = null;
+			if (!complete && dependencies != null) {
+				differences = recomputeIncrementally();
+			}
+			if (differences == null) {
+				differences = recomputeCompletely();
+			}
+			events.clear();
+			complete = false;
+
+			// If any dependencies are stale, a stale event will be fired here
+			// even if we were already stale before recomputing. This is in case
+			// clients assume that a list change is indicative of non-staleness.
+			stale = false;
+			if (anyStale(dependencies))
+				makeStale();
+
+			dirty = false;
+
+			if (dirtyDiff != null) {
+				dirtyDiff.differences = differences;
+				dirtyDiff = null;
+			}
+		}
+
+		return unmodifiableCachedList;
+	}
+
+	private ListDiffEntry<E>[] recomputeIncrementally() {
+		// Record the observables read by calculateDiff as additional
+		// dependencies. Dependencies which are not read are kept, since an
+		// incremental computation typically only reads what has changed.
+		IObservable[] readDependencies = ObservableTracker.runAndMonitor(
+				privateInterface.calculateDiffRunnable, privateInterface,
+				privateInterface);
+		ListDiff<E> diff = privateInterface.diff;
+		privateInterface.diff = null;
+		addDependencies(readDependencies);
+		if (diff == null)
+			return null;
+		diff.applyTo(cachedList);
+		return diff.getDifferences();
+	}
+
+	private ListDiffEntry<E>[] recomputeCompletely() {
+		// This line will do the following:
+		// - Run the calculate method
+		// - While doing so, add any observable that is touched to the
+		// dependencies list
+		// - Only add listeners to dependencies we are not listening to
+		// yet, and remove them from dependencies no longer used
+		IObservable[] newDependencies = ObservableTracker.runAndMonitor(
+				privateInterface.calculateRunnable, privateInterface,
+				privateInterface, dependencies);
+		List<E> newList = privateInterface.result;
+		privateInterface.result = null;
+		if (newList == null)
+			newList = Collections.emptyList();
+		updateTypedListeners(newDependencies);
+		dependencies = newDependencies;
+
+		ListDiffEntry<E>[] differences = Diffs.computeListDiff(cachedList,
+				newList).getDifferences();
+		cachedList.clear();
+		cachedList.addAll(newList);
+		return differences;
+	}
+
+	private void updateTypedListeners(IObservable[] newDependencies) {
+		if (newDependencies == dependencies)
+			return;
+		if (dependencies != null) {
+			IdentitySet<IObservable> retained = new IdentitySet<IObservable>();
+			for (int i = 0; i < newDependencies.length; i++)
+				retained.add(newDependencies[i]);
+			for (int i = 0; i < dependencies.length; i++) {
+				if (!retained.contains(dependencies[i]))
+					removeTypedListener(dependencies[i]);
+			}
+		}
+		for (int i = 0; i < newDependencies.length; i++)
+			addTypedListener(newDependencies[i]);
+	}
+
+	private void addDependencies(IObservable[] readDependencies) {
+		IdentitySet<IObservable> known = null;
+		List<IObservable> added = null;
+		for (int i = 0; i < readDependencies.length; i++) {
+			if (known == null) {
+				known = new IdentitySet<IObservable>();
+				for (int j = 0; j < dependencies.length; j++)
+					known.add(dependencies[j]);
+			}
+			if (known.add(readDependencies[i])) {
+				if (added == null)
+					added = new ArrayList<IObservable>();
+				added.add(readDependencies[i]);
+				addTypedListener(readDependencies[i]);
+			}
+		}
+		if (added != null) {
+			IObservable[] newDependencies = new IObservable[dependencies.length
+					+ added.size()];
+			System.arraycopy(dependencies, 0, newDependencies, 0,
+					dependencies.length);
+			for (int i = 0; i < added.size(); i++)
+				newDependencies[dependencies.length + i] = added.get(i);
+			dependencies = newDependencies;
+		}
+	}
+
+	private static boolean anyStale(IObservable[] observables) {
+		// Do not let the isStale() calls track our dependencies as
+		// dependencies of whoever is reading us
+		ObservableTracker.setIgnore(true);
+		try {
+			for (int i = 0; i < observables.length; i++) {
+				if (observables[i].isStale())
+					return true;
+			}
+			return false;
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
+	private void getterCalled() {
+		ObservableTracker.getterCalled(this);
+	}
+
+	/**
+	 * Subclasses must override this method to calculate the list contents from
+	 * scratch. Any dependencies used to calculate the list must be
+	 * {@link IObservable}, and implementers must use one of the interface
+	 * methods tagged TrackedGetter for IncrementalComputedList to recognize it
+	 * as a dependency.
+	 *
+	 * @return the object's list.
+	 */
+	protected abstract List<E> calculate();
+
+	/**
+	 * Calculates the changes to the list caused by the given events of the
+	 * dependencies of this list. Observables read by this method become
+	 * additional dependencies of this list; dependencies are only dropped when
+	 * the list is recomputed from scratch.
+	 * <p>
+	 * The default implementation returns <code>null</code>, which causes the
+	 * list to be recomputed from scratch using {@link #calculate()}.
+	 * Subclasses should override this method for the kinds of changes which
+	 * can be handled incrementally, and return <code>null</code> for others.
+	 * </p>
+	 *
+	 * @param previous
+	 *            an unmodifiable view of the list before the changes
+	 * @param events
+	 *            an unmodifiable list of the change events received from the
+	 *            dependencies of this list since it has last been computed, in
+	 *            the order they have been received
+	 * @return the diff to apply to <code>previous</code>, or <code>null</code>
+	 *         to recompute the list from scratch
+	 */
+	protected ListDiff<E> calculateDiff(List<E> previous,
+			List<ObservableEvent> events) {
+		return null;
+	}
+
+	private void record(ObservableEvent event) {
+		if (dependencies != null && !complete) {
+			if (events.size() < MAX_RECORDED_EVENTS) {
+				events.add(materialize(event));
+			} else {
+				// Nobody has read us for a long time, recomputing from scratch
+				// is cheaper than replaying the backlog
+				events.clear();
+				complete = true;
+			}
+		}
+		makeDirty();
+	}
+
+	/**
+	 * Returns a copy of the given event whose diff no longer depends on the
+	 * state of its source. The diffs of computed observables are resolved
+	 * lazily, against the state at the time they are inspected, so they must
+	 * be resolved now rather than when the events are replayed.
+	 */
+	@SuppressWarnings("unchecked")
+	private static ObservableEvent materialize(ObservableEvent event) {
+		if (event instanceof ListChangeEvent<?>) {
+			ListChangeEvent<Object> e = (ListChangeEvent<Object>) event;
+			return new ListChangeEvent<Object>(e.getObservableList(), Diffs
+					.createListDiff(e.diff.getDifferences().clone()));
+		}
+		if (event instanceof SetChangeEvent<?>) {
+			SetChangeEvent<Object> e = (SetChangeEvent<Object>) event;
+			return new SetChangeEvent<Object>(e.getObservableSet(), Diffs
+					.createSetDiff(new LinkedHashSet<Object>(e.diff
+							.getAdditions()), new LinkedHashSet<Object>(e.diff
+							.getRemovals())));
+		}
+		if (event instanceof MapChangeEvent<?, ?>) {
+			MapChangeEvent<Object, Object> e = (MapChangeEvent<Object, Object>) event;
+			MapDiff<Object, Object> diff = e.diff;
+			Set<Object> addedKeys = new LinkedHashSet<Object>(diff
+					.getAddedKeys());
+			Set<Object> removedKeys = new LinkedHashSet<Object>(diff
+					.getRemovedKeys());
+			Set<Object> changedKeys = new LinkedHashSet<Object>(diff
+					.getChangedKeys());
+			Map<Object, Object> oldValues = new HashMap<Object, Object>();
+			Map<Object, Object> newValues = new HashMap<Object, Object>();
+			for (Iterator<Object> it = addedKeys.iterator(); it.hasNext();) {
+				Object key = it.next();
+				newValues.put(key, diff.getNewValue(key));
+			}
+			for (Iterator<Object> it = removedKeys.iterator(); it.hasNext();) {
+				Object key = it.next();
+				oldValues.put(key, diff.getOldValue(key));
+			}
+			for (Iterator<Object> it = changedKeys.iterator(); it.hasNext();) {
+				Object key = it.next();
+				oldValues.put(key, diff.getOldValue(key));
+				newValues.put(key, diff.getNewValue(key));
+			}
+			return new MapChangeEvent<Object, Object>(e.getObservableMap(),
+					Diffs.createMapDiff(addedKeys, removedKeys, changedKeys,
+							oldValues, newValues));
+		}
+		if (event instanceof ValueChangeEvent<?>) {
+			ValueChangeEvent<Object> e = (ValueChangeEvent<Object>) event;
+			return new ValueChangeEvent<Object>(e.getObservableValue(), Diffs
+					.createValueDiff(e.diff.getOldValue(), e.diff
+							.getNewValue()));
+		}
+		return event;
+	}
+
+	private void makeDirty() {
+		if (!dirty) {
+			dirty = true;
+
+			makeStale();
+
+			// Keep listening while somebody is listening to us, so that we can
+			// be updated incrementally. Without listeners, we stop listening
+			// and have to be recomputed from scratch.
+			if (!hasListeners()) {
+				stopListening();
+			}
+
+			// Fire the "dirty" event. This implementation recomputes the new
+			// list lazily.
+			dirtyDiff = new DirtyDiff();
+			fireListChange(dirtyDiff);
+		}
+	}
+
+	private void stopListening() {
+		if (dependencies != null) {
+			for (int i = 0; i < dependencies.length; i++) {
+				IObservable observable = dependencies[i];
+
+				observable.removeChangeListener(privateInterface);
+				observable.removeStaleListener(privateInterface);
+				removeTypedListener(observable);
+			}
+			dependencies = null;
+		}
+		events.clear();
+		complete = true;
+	}
+
+	private void makeStale() {
+		if (!stale) {
+			stale = true;
+			fireStale();
+		}
+	}
+
+	public boolean isStale() {
+		// recalculate list if dirty, to ensure staleness is correct.
+		getList();
+		return stale;
+	}
+
+	public Object getElementType() {
+		return elementType;
+	}
+
+	public synchronized void addChangeListener(IChangeListener listener) {
+		super.addChangeListener(listener);
+		// If somebody is listening, we need to make sure we attach our own
+		// listeners
+		computeListForListeners();
+	}
+
+	public synchronized void addListChangeListener(
+			IListChangeListener<? super E> listener) {
+		super.addListChangeListener(listener);
+		// If somebody is listening, we need to make sure we attach our own
+		// listeners
+		computeListForListeners();
+	}
+
+	private void computeListForListeners() {
+		// Some clients just add a listener and expect to get notified even if
+		// they never called getList(), so we have to call getList() ourselves
+		// here to be sure. Need to be careful about realms though, this method
+		// can be called outside of our realm. See also bug 198211.
+		getRealm().exec(new Runnable() {
+			public void run() {
+				if (dirty) {
+					// We are not currently listening, or do not receive
+					// changes until we are recomputed.
+					getList();
+				}
+			}
+		});
+	}
+
+	public synchronized void dispose() {
+		stopListening();
+		super.dispose();
+	}
+}
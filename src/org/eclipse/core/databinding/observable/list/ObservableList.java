@@ -13,13 +13,16 @@
 
 package org.eclipse.core.databinding.observable.list;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
 import org.eclipse.core.databinding.observable.AbstractObservable;
 import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 
@@ -132,6 +135,24 @@ IObservableList<E> {
 		return wrappedList.toArray(a);
 	}
 
+	/**
+	 * @since 1.4
+	 */
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		getterCalled();
+		for (Iterator<E> it = wrappedList.iterator(); it.hasNext();)
+			if (!visitor.visit(it.next()))
+				return;
+	}
+
+	/**
+	 * @since 1.4
+	 */
+	public List<E> snapshot() {
+		getterCalled();
+		return Collections.unmodifiableList(new ArrayList<E>(wrappedList));
+	}
+
 	public String toString() {
 		getterCalled();
 		return wrappedList.toString();
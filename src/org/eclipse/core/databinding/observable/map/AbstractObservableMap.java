@@ -14,6 +14,9 @@
 package org.eclipse.core.databinding.observable.map;
 
 import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.ChangeSupport;
@@ -60,7 +63,7 @@ implements IObservableMap<K, V> {
 
 	private final Realm realm;
 	private PrivateChangeSupport changeSupport;
-	private boolean disposed = false;
+	private volatile boolean disposed = false;
 
 	private boolean stale;
 
@@ -141,7 +144,7 @@ implements IObservableMap<K, V> {
 	/**
 	 * @since 1.2
 	 */
-	public synchronized boolean isDisposed() {
+	public boolean isDisposed() {
 		return disposed;
 	}
 
@@ -198,6 +201,39 @@ implements IObservableMap<K, V> {
 		}
 	}
 
+	/**
+	 * Notifies the observable tracker once, copies the entries of
+	 * {@link #entrySet()} with tracking suspended, and visits the copy.
+	 * Observables read by the visitor are tracked as usual. Subclasses with
+	 * direct access to their entries may override.
+	 */
+	@SuppressWarnings("unchecked")
+	public void visitEntries(IEntryVisitor<? super K, ? super V> visitor) {
+		ObservableTracker.getterCalled(this);
+		Object[] entries;
+		ObservableTracker.setIgnore(true);
+		try {
+			entries = entrySet().toArray();
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+		for (int i = 0; i < entries.length; i++) {
+			Map.Entry<K, V> entry = (Map.Entry<K, V>) entries[i];
+			if (!visitor.visit(entry.getKey(), entry.getValue()))
+				return;
+		}
+	}
+
+	public Map<K, V> snapshot() {
+		ObservableTracker.getterCalled(this);
+		ObservableTracker.setIgnore(true);
+		try {
+			return Collections.unmodifiableMap(new LinkedHashMap<K, V>(this));
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
 	/**
 	 * Fires stale events. Must be invoked from current realm.
 	 */
@@ -25,13 +25,16 @@ import java.util.Set;
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.DisposeEvent;
 import org.eclipse.core.databinding.observable.IDisposeListener;
+import org.eclipse.core.databinding.observable.IResumableRunnable;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.set.IObservableSet;
 import org.eclipse.core.databinding.observable.set.ISetChangeListener;
 import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.internal.databinding.identity.IdentityMap;
 import org.eclipse.core.internal.databinding.identity.IdentitySet;
+import org.eclipse.core.internal.databinding.observable.Util;
 
 /**
  * Maps objects to one of their attributes. Tracks changes to the underlying
@@ -56,8 +59,13 @@ public abstract class ComputedObservableMap<K, V> extends AbstractObservableMap<
 				V oldValue = null;
 				if (removedKey != null) {
 					oldValue = doGet(removedKey);
-					unhookListener(removedKey);
+					// While the key set is still being hooked, the removed
+					// key may not have been hooked yet
+					if (keyHooker == null || knownKeys.contains(removedKey))
+						unhookListener(removedKey);
 					knownKeys.remove(removedKey);
+					if (keyHooker != null)
+						keyHooker.forget(removedKey);
 				}
 				oldValues.put(removedKey, oldValue);
 			}
@@ -68,6 +76,8 @@ public abstract class ComputedObservableMap<K, V> extends AbstractObservableMap<
 					newValue = doGet(addedKey);
 					hookListener(addedKey);
 					knownKeys.add(addedKey);
+					if (keyHooker != null)
+						keyHooker.forget(addedKey);
 				}
 				newValues.put(addedKey, newValue);
 			}
@@ -82,6 +92,98 @@ public abstract class ComputedObservableMap<K, V> extends AbstractObservableMap<
 		}
 	};
 
+	/**
+	 * Hooks the keys of the key set in slices of work. This field is
+	 * <code>null</code> unless the keys are currently being hooked.
+	 */
+	private KeyHooker keyHooker;
+
+	private class KeyHooker implements IResumableRunnable {
+		private final Object[] keys;
+		private int index = 0;
+		private boolean yielded = false;
+
+		/**
+		 * The values of the keys which were not hooked yet when hooking first
+		 * yielded, since changes of these keys are missed until they are
+		 * hooked
+		 */
+		Map<K, V> pendingValues;
+
+		KeyHooker(Object[] keys) {
+			this.keys = keys;
+		}
+
+		@SuppressWarnings("unchecked")
+		// safe, the keys were taken from the key set
+		public boolean run(long deadline) {
+			if (keyHooker != this) {
+				// listeners were unhooked in the meantime
+				return true;
+			}
+			Set<K> changedKeys = null;
+			Map<K, V> oldValues = null;
+			Map<K, V> newValues = null;
+			while (index < keys.length) {
+				K key = (K) keys[index++];
+				// Skip keys removed or hooked by the set change listener
+				if (keySet.contains(key) && knownKeys.add(key)) {
+					hookListener(key);
+					if (pendingValues != null
+							&& pendingValues.containsKey(key)) {
+						V oldValue = pendingValues.remove(key);
+						V newValue = doGet(key);
+						if (!Util.equals(oldValue, newValue)) {
+							if (changedKeys == null) {
+								changedKeys = new IdentitySet<K>();
+								oldValues = new IdentityMap<K, V>();
+								newValues = new IdentityMap<K, V>();
+							}
+							changedKeys.add(key);
+							oldValues.put(key, oldValue);
+							newValues.put(key, newValue);
+						}
+					}
+				}
+				if (System.nanoTime() >= deadline)
+					break;
+			}
+			boolean done = index == keys.length;
+			if (done)
+				keyHooker = null;
+			if (changedKeys != null || (done && yielded)) {
+				// Report the changes missed before the keys were hooked, and
+				// tell clients when we are no longer stale
+				fireMapChange(Diffs.createMapDiff(Collections.<K> emptySet(),
+						Collections.<K> emptySet(),
+						changedKeys != null ? changedKeys : Collections
+								.<K> emptySet(),
+						oldValues != null ? oldValues : Collections
+								.<K, V> emptyMap(),
+						newValues != null ? newValues : Collections
+								.<K, V> emptyMap()));
+			}
+			if (done)
+				return true;
+			if (!yielded) {
+				yielded = true;
+				pendingValues = new IdentityMap<K, V>();
+				for (int i = index; i < keys.length; i++) {
+					K key = (K) keys[i];
+					if (keySet.contains(key) && !knownKeys.contains(key))
+						pendingValues.put(key, doGet(key));
+				}
+				fireStale();
+			}
+			return false;
+		}
+
+		void forget(K key) {
+			if (pendingValues != null)
+				pendingValues.remove(key);
+		}
+	}
+
 	private Set<Map.Entry<K, V>> entrySet = new EntrySet();
 
 	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
@@ -172,17 +274,17 @@ public abstract class ComputedObservableMap<K, V> extends AbstractObservableMap<
 			knownKeys = new IdentitySet<K>();
 			keySet.addSetChangeListener(setChangeListener);
 			keySet.addStaleListener(staleListener);
-			for (Iterator<K> it = this.keySet.iterator(); it.hasNext();) {
-				K key = it.next();
-				hookListener(key);
-				knownKeys.add(key);
-			}
+			// Hooking a large key set may take a while, so do it in slices of
+			// work according to the time budget of the realm.
+			keyHooker = new KeyHooker(keySet.toArray());
+			getRealm().execResumable(keyHooker);
 		}
 	}
 
 	@SuppressWarnings("unchecked")
 	// safe
 	private void unhookListeners() {
+		keyHooker = null;
 		if (keySet != null) {
 			keySet.removeSetChangeListener(setChangeListener);
 			keySet.removeStaleListener(staleListener);
@@ -287,7 +389,7 @@ public abstract class ComputedObservableMap<K, V> extends AbstractObservableMap<
 	protected abstract V doPut(K key, V value);
 
 	public boolean isStale() {
-		return super.isStale() || keySet.isStale();
+		return super.isStale() || keySet.isStale() || keyHooker != null;
 	}
 
 	public synchronized void dispose() {
@@ -278,6 +278,16 @@ implements IObservableMap<K, V> {
 		return decorated.size();
 	}
 
+	public void visitEntries(IEntryVisitor<? super K, ? super V> visitor) {
+		getterCalled();
+		decorated.visitEntries(visitor);
+	}
+
+	public Map<K, V> snapshot() {
+		getterCalled();
+		return decorated.snapshot();
+	}
+
 	Collection<V> values;
 
 	public Collection<V> values() {
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.observable.map;
+
+/**
+ * Visitor of the entries of an observable map, see
+ * {@link IObservableMap#visitEntries(IEntryVisitor)}.
+ * 
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ * 
+ * @since 1.4
+ */
+public interface IEntryVisitor<K, V> {
+
+	/**
+	 * Visits an entry. Implementations must not modify the visited map.
+	 * 
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the value of the entry
+	 * @return <code>true</code> to continue with the next entry,
+	 *         <code>false</code> to stop visiting
+	 */
+	boolean visit(K key, V value);
+}
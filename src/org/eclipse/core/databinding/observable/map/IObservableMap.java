@@ -18,6 +18,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.ObservableTracker;
 
 /**
  * Observable Map.
@@ -127,4 +128,28 @@ public interface IObservableMap<K, V> extends Map<K, V>, IObservable {
 	 * @TrackedGetter
 	 */
 	public int hashCode();
+
+	/**
+	 * Visits the entries of this map in iteration order, until the visitor
+	 * returns <code>false</code>. The read is reported to the
+	 * {@link ObservableTracker} once for the whole traversal.
+	 * 
+	 * @param visitor
+	 *            the visitor
+	 * @TrackedGetter
+	 * @since 1.4
+	 */
+	public void visitEntries(IEntryVisitor<? super K, ? super V> visitor);
+
+	/**
+	 * Returns an unmodifiable copy of the current entries of this map, in the
+	 * iteration order of this map. The read is reported to the
+	 * {@link ObservableTracker} once, and the returned map can then be read
+	 * without further tracking overhead.
+	 * 
+	 * @return an unmodifiable copy of this map
+	 * @TrackedGetter
+	 * @since 1.4
+	 */
+	public Map<K, V> snapshot();
 }
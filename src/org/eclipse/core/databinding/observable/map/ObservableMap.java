@@ -14,6 +14,9 @@
 package org.eclipse.core.databinding.observable.map;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -131,6 +134,21 @@ IObservableMap<K, V> {
 		return wrappedMap.values();
 	}
 
+	public void visitEntries(IEntryVisitor<? super K, ? super V> visitor) {
+		getterCalled();
+		for (Iterator<Map.Entry<K, V>> it = wrappedMap.entrySet().iterator(); it
+				.hasNext();) {
+			Map.Entry<K, V> entry = it.next();
+			if (!visitor.visit(entry.getKey(), entry.getValue()))
+				return;
+		}
+	}
+
+	public Map<K, V> snapshot() {
+		getterCalled();
+		return Collections.unmodifiableMap(new LinkedHashMap<K, V>(wrappedMap));
+	}
+
 	/**
 	 * Returns the stale state. Must be invoked from the current realm.
 	 * 
@@ -13,10 +13,13 @@
 package org.eclipse.core.databinding.observable.set;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.AbstractObservable;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 
@@ -133,6 +136,25 @@ implements IObservableSet<E> {
 		return getWrappedSet().toArray(a);
 	}
 
+	/**
+	 * @since 1.4
+	 */
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		getterCalled();
+		for (Iterator<E> it = getWrappedSet().iterator(); it.hasNext();)
+			if (!visitor.visit(it.next()))
+				return;
+	}
+
+	/**
+	 * @since 1.4
+	 */
+	public Set<E> snapshot() {
+		getterCalled();
+		return Collections.unmodifiableSet(new LinkedHashSet<E>(
+				getWrappedSet()));
+	}
+
 	public String toString() {
 		getterCalled();
 		return getWrappedSet().toString();
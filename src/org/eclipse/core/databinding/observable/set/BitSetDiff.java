@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.set.BitSetObservableSet.BitSetView;
+import org.eclipse.core.databinding.observable.set.BitSetObservableSet.Domain;
+
+/**
+ * The set diff fired by a {@link BitSetObservableSet}, whose additions and
+ * removals are also available as bit sets.
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public final class BitSetDiff<E> extends SetDiff<E> {
+
+	private final BitSet additions;
+
+	private final BitSet removals;
+
+	private final Set<E> additionSet;
+
+	private final Set<E> removalSet;
+
+	BitSetDiff(Domain<E> domain, BitSet additions, BitSet removals) {
+		this.additions = additions;
+		this.removals = removals;
+		this.additionSet = new BitSetView<E>(additions, domain);
+		this.removalSet = new BitSetView<E>(removals, domain);
+	}
+
+	public Set<E> getAdditions() {
+		return additionSet;
+	}
+
+	public Set<E> getRemovals() {
+		return removalSet;
+	}
+
+	/**
+	 * @return a copy of the bits of the added elements
+	 */
+	public BitSet getAdditionBits() {
+		return (BitSet) additions.clone();
+	}
+
+	/**
+	 * @return a copy of the bits of the removed elements
+	 */
+	public BitSet getRemovalBits() {
+		return (BitSet) removals.clone();
+	}
+}
@@ -0,0 +1,399 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * Mutable observable set over a dense domain of non-negative integers or of
+ * the constants of an enum type, storing its members as the bits of a
+ * {@link BitSet}. Members take one bit each instead of a hash table entry and
+ * a boxed object, and the bulk operations {@link #and(BitSet)},
+ * {@link #or(BitSet)} and {@link #andNot(BitSet)} process 64 members per
+ * machine word.
+ * <p>
+ * The set change events fired by this set carry a {@link BitSetDiff}, whose
+ * additions and removals are bit sets as well, so listeners can process large
+ * changes with bitwise operations too.
+ * </p>
+ * <p>
+ * The iterators of this set are not fail-fast.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements, {@link Integer} or an enum type
+ *
+ * @since 1.4
+ */
+public class BitSetObservableSet<E> extends AbstractObservableSet<E> {
+
+	/**
+	 * Maps the elements of the domain of a set to bit indices and back.
+	 */
+	static abstract class Domain<E> {
+		/**
+		 * @return the bit index of the given object, <code>-1</code> if it is
+		 *         not an element of the domain
+		 */
+		abstract int indexOf(Object o);
+
+		abstract E get(int index);
+
+		/**
+		 * @return the number of elements of the domain
+		 */
+		abstract int size();
+
+		abstract Object getElementType();
+	}
+
+	private static final Domain<Integer> INTEGERS = new Domain<Integer>() {
+		int indexOf(Object o) {
+			if (o instanceof Integer) {
+				int value = ((Integer) o).intValue();
+				if (value >= 0)
+					return value;
+			}
+			return -1;
+		}
+
+		Integer get(int index) {
+			return Integer.valueOf(index);
+		}
+
+		int size() {
+			return Integer.MAX_VALUE;
+		}
+
+		Object getElementType() {
+			return Integer.class;
+		}
+	};
+
+	private static class EnumDomain<E extends Enum<E>> extends Domain<E> {
+		private final Class<E> enumType;
+		private final E[] constants;
+
+		EnumDomain(Class<E> enumType) {
+			this.enumType = enumType;
+			this.constants = enumType.getEnumConstants();
+		}
+
+		int indexOf(Object o) {
+			return enumType.isInstance(o) ? ((Enum<?>) o).ordinal() : -1;
+		}
+
+		E get(int index) {
+			return constants[index];
+		}
+
+		int size() {
+			return constants.length;
+		}
+
+		Object getElementType() {
+			return enumType;
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof EnumDomain<?>
+					&& ((EnumDomain<?>) obj).enumType == enumType;
+		}
+
+		public int hashCode() {
+			return enumType.hashCode();
+		}
+	}
+
+	/**
+	 * A set view of the elements corresponding to the set bits of a bit set.
+	 * The view reflects later changes of the bit set.
+	 */
+	static class BitSetView<E> extends AbstractSet<E> {
+		private final BitSet bits;
+		private final Domain<E> domain;
+
+		BitSetView(BitSet bits, Domain<E> domain) {
+			this.bits = bits;
+			this.domain = domain;
+		}
+
+		public boolean contains(Object o) {
+			int index = domain.indexOf(o);
+			return index >= 0 && bits.get(index);
+		}
+
+		public boolean isEmpty() {
+			return bits.isEmpty();
+		}
+
+		public int size() {
+			return bits.cardinality();
+		}
+
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int next = bits.nextSetBit(0);
+
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				public E next() {
+					if (next < 0)
+						throw new NoSuchElementException();
+					E element = domain.get(next);
+					next = bits.nextSetBit(next + 1);
+					return element;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	private final Domain<E> domain;
+
+	private final BitSet bits = new BitSet();
+
+	private final Set<E> wrappedSet;
+
+	private BitSetObservableSet(Realm realm, Domain<E> domain) {
+		super(realm);
+		this.domain = domain;
+		this.wrappedSet = new BitSetView<E>(bits, domain);
+	}
+
+	/**
+	 * Returns a new empty set of non-negative integers in the default realm.
+	 *
+	 * @return a new empty set of non-negative integers
+	 */
+	public static BitSetObservableSet<Integer> forIntegers() {
+		return forIntegers(Realm.getDefault());
+	}
+
+	/**
+	 * Returns a new empty set of non-negative integers in the given realm.
+	 *
+	 * @param realm
+	 * @return a new empty set of non-negative integers
+	 */
+	public static BitSetObservableSet<Integer> forIntegers(Realm realm) {
+		return new BitSetObservableSet<Integer>(realm, INTEGERS);
+	}
+
+	/**
+	 * Returns a new empty set of constants of the given enum type in the
+	 * default realm.
+	 *
+	 * @param enumType
+	 *            the enum type
+	 * @return a new empty set of enum constants
+	 */
+	public static <E extends Enum<E>> BitSetObservableSet<E> forEnum(
+			Class<E> enumType) {
+		return forEnum(Realm.getDefault(), enumType);
+	}
+
+	/**
+	 * Returns a new empty set of constants of the given enum type in the given
+	 * realm.
+	 *
+	 * @param realm
+	 * @param enumType
+	 *            the enum type
+	 * @return a new empty set of enum constants
+	 */
+	public static <E extends Enum<E>> BitSetObservableSet<E> forEnum(
+			Realm realm, Class<E> enumType) {
+		Assert.isNotNull(enumType, "Enum type cannot be null"); //$NON-NLS-1$
+		return new BitSetObservableSet<E>(realm, new EnumDomain<E>(enumType));
+	}
+
+	protected Set<E> getWrappedSet() {
+		return wrappedSet;
+	}
+
+	/**
+	 * Returns {@link Integer}<code>.class</code> for a set of integers, or the
+	 * enum type for a set of enum constants.
+	 */
+	public Object getElementType() {
+		return domain.getElementType();
+	}
+
+	/**
+	 * Returns a copy of the bits of the members of this set. Bit <i>i</i> is
+	 * set if the integer <i>i</i>, respectively the enum constant of ordinal
+	 * <i>i</i>, is a member.
+	 *
+	 * @return a new bit set of the members
+	 */
+	public BitSet toBitSet() {
+		getterCalled();
+		return (BitSet) bits.clone();
+	}
+
+	private int indexOfElement(Object o) {
+		int index = domain.indexOf(o);
+		Assert.isTrue(index >= 0, "Element is not in the domain of the set"); //$NON-NLS-1$
+		return index;
+	}
+
+	private void checkDomain(BitSet other) {
+		Assert.isNotNull(other, "Bit set cannot be null"); //$NON-NLS-1$
+		Assert.isTrue(other.length() <= domain.size(),
+				"Bit set exceeds the domain of the set"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the bits of the elements of the given collection. Elements
+	 * outside of the domain are ignored unless <code>strict</code> is true.
+	 */
+	private BitSet toBits(Collection<?> c, boolean strict) {
+		if (c instanceof BitSetObservableSet<?>) {
+			BitSetObservableSet<?> other = (BitSetObservableSet<?>) c;
+			if (other.domain.equals(domain))
+				return other.toBitSet();
+		}
+		BitSet result = new BitSet();
+		for (Iterator<?> it = c.iterator(); it.hasNext();) {
+			Object element = it.next();
+			int index = strict ? indexOfElement(element) : domain
+					.indexOf(element);
+			if (index >= 0)
+				result.set(index);
+		}
+		return result;
+	}
+
+	public boolean add(E o) {
+		checkRealm();
+		int index = indexOfElement(o);
+		if (bits.get(index))
+			return false;
+		bits.set(index);
+		BitSet additions = new BitSet();
+		additions.set(index);
+		fireSetChange(new BitSetDiff<E>(domain, additions, new BitSet()));
+		return true;
+	}
+
+	public boolean remove(Object o) {
+		checkRealm();
+		int index = domain.indexOf(o);
+		if (index < 0 || !bits.get(index))
+			return false;
+		bits.clear(index);
+		BitSet removals = new BitSet();
+		removals.set(index);
+		fireSetChange(new BitSetDiff<E>(domain, new BitSet(), removals));
+		return true;
+	}
+
+	public boolean addAll(Collection<? extends E> c) {
+		checkRealm();
+		return or(toBits(c, true));
+	}
+
+	public boolean removeAll(Collection<?> c) {
+		checkRealm();
+		return andNot(toBits(c, false));
+	}
+
+	public boolean retainAll(Collection<?> c) {
+		checkRealm();
+		return and(toBits(c, false));
+	}
+
+	public void clear() {
+		checkRealm();
+		if (bits.isEmpty())
+			return;
+		BitSet removals = (BitSet) bits.clone();
+		bits.clear();
+		fireSetChange(new BitSetDiff<E>(domain, new BitSet(), removals));
+	}
+
+	/**
+	 * Adds the members whose bits are set in the given bit set.
+	 *
+	 * @param other
+	 *            the bits of the members to add
+	 * @return <code>true</code> if this set changed
+	 */
+	public boolean or(BitSet other) {
+		checkRealm();
+		checkDomain(other);
+		BitSet additions = (BitSet) other.clone();
+		additions.andNot(bits);
+		if (additions.isEmpty())
+			return false;
+		bits.or(additions);
+		fireSetChange(new BitSetDiff<E>(domain, additions, new BitSet()));
+		return true;
+	}
+
+	/**
+	 * Removes the members whose bits are not set in the given bit set.
+	 *
+	 * @param other
+	 *            the bits of the members to retain
+	 * @return <code>true</code> if this set changed
+	 */
+	public boolean and(BitSet other) {
+		checkRealm();
+		Assert.isNotNull(other, "Bit set cannot be null"); //$NON-NLS-1$
+		BitSet removals = (BitSet) bits.clone();
+		removals.andNot(other);
+		return removeBits(removals);
+	}
+
+	/**
+	 * Removes the members whose bits are set in the given bit set.
+	 *
+	 * @param other
+	 *            the bits of the members to remove
+	 * @return <code>true</code> if this set changed
+	 */
+	public boolean andNot(BitSet other) {
+		checkRealm();
+		Assert.isNotNull(other, "Bit set cannot be null"); //$NON-NLS-1$
+		BitSet removals = (BitSet) bits.clone();
+		removals.and(other);
+		return removeBits(removals);
+	}
+
+	private boolean removeBits(BitSet removals) {
+		if (removals.isEmpty())
+			return false;
+		bits.andNot(removals);
+		fireSetChange(new BitSetDiff<E>(domain, new BitSet(), removals));
+		return true;
+	}
+}
@@ -24,6 +24,8 @@ import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.internal.databinding.observable.IdleTimeout;
+import org.eclipse.core.internal.databinding.observable.PropagationScheduler;
 
 /**
  * A lazily calculated set that automatically computes and registers listeners
@@ -74,6 +76,28 @@ public abstract class ComputedSet<E> extends AbstractObservableSet<E> {
 	private boolean dirty = true;
 	private boolean stale = false;
 
+	private boolean eagerCompare = false;
+
+	/**
+	 * <code>true</code> if a stale event has been fired since the last change
+	 * event
+	 */
+	private boolean staleFired = false;
+
+	private final IdleTimeout idleTimeout = new IdleTimeout(getRealm()) {
+		protected boolean isIdle() {
+			return !hasListeners() && !isDisposed();
+		}
+
+		protected void release() {
+			if (!dirty) {
+				stopListening();
+				dirty = true;
+				cachedSet = new HashSet<E>();
+			}
+		}
+	};
+
 	private IObservable[] dependencies = new IObservable[0];
 
 	/**
@@ -179,40 +203,89 @@ public abstract class ComputedSet<E> extends AbstractObservableSet<E> {
 		return doGetSet();
 	}
 
+	/**
+	 * Schedules the change event fired by makeDirty when glitch-free
+	 * propagation is enabled, and remembers the dependency height of this
+	 * computed set. Created lazily.
+	 */
+	private class PropagationNode extends PropagationScheduler.Node {
+		SetDiff<E> diff;
+
+		protected void propagate() {
+			SetDiff<E> diff = this.diff;
+			this.diff = null;
+			if (eagerCompare)
+				fireEagerSetChange(diff);
+			else
+				fireSetChange(diff);
+		}
+	}
+
+	private PropagationNode propagationNode;
+
+	private PropagationNode getPropagationNode() {
+		if (propagationNode == null)
+			propagationNode = new PropagationNode();
+		return propagationNode;
+	}
+
 	final Set<E> doGetSet() {
+		PropagationScheduler scheduler = PropagationScheduler
+				.getInstance(getRealm());
 		if (dirty) {
-			// This line will do the following:
-			// - Run the calculate method
-			// - While doing so, add any observable that is touched to the
-			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+			int readHeight = scheduler == null ? 0 : scheduler
+					.beginRecompute();
+			IObservable[] newDependencies;
+			try {
+				// This line will do the following:
+				// - Run the calculate method
+				// - While doing so, add any observable that is touched to the
+				// dependencies list
+				// - Only add listeners to dependencies we are not listening to
+				// yet, and remove them from dependencies no longer used
+				newDependencies = ObservableTracker.runAndMonitor(
+						privateInterface, privateInterface, privateInterface,
+						dependencies);
+			} finally {
+				if (scheduler != null)
+					getPropagationNode().setHeight(
+							scheduler.endRecompute(readHeight));
+			}
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
 			// clients assume that a set change is indicative of non-staleness.
 			stale = false;
-			for (int i = 0; i < newDependencies.length; i++) {
-				if (newDependencies[i].isStale()) {
-					makeStale();
-					break;
-				}
-			}
-
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
+			if (anyStale(newDependencies))
+				makeStale();
 
 			dependencies = newDependencies;
 
 			dirty = false;
 		}
 
+		idleTimeout.touch();
+
+		if (scheduler != null)
+			scheduler.reportRead(getPropagationNode().getHeight());
 		return cachedSet;
 	}
 
+	private static boolean anyStale(IObservable[] observables) {
+		// Do not let the isStale() calls track our dependencies as
+		// dependencies of whoever is reading us
+		ObservableTracker.setIgnore(true);
+		try {
+			for (int i = 0; i < observables.length; i++) {
+				if (observables[i].isStale())
+					return true;
+			}
+			return false;
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
 	/**
 	 * Subclasses must override this method to calculate the set contents. Any
 	 * dependencies used to calculate the set must be {@link IObservable}, and
@@ -227,15 +300,32 @@ public abstract class ComputedSet<E> extends AbstractObservableSet<E> {
 		if (!dirty) {
 			dirty = true;
 
-			makeStale();
+			// With eager comparison, we are recomputed before notifying our
+			// listeners, so we only become stale if a dependency is stale
+			boolean eager = eagerCompare && hasListeners();
+			if (!eager)
+				makeStale();
 
-			stopListening();
+			// Keep listening while somebody is listening to us, so that the
+			// dependencies can be reconciled on the next recompute instead of
+			// being subscribed again from scratch.
+			if (!hasListeners())
+				stopListening();
+
+			PropagationScheduler scheduler = PropagationScheduler
+					.getInstance(getRealm());
+			boolean deferred = scheduler != null && scheduler.isPropagating();
+			if (deferred && getPropagationNode().isScheduled()) {
+				// Our pending event already reports the set from before the
+				// current wave as old set
+				return;
+			}
 
 			// copy the old set
 			final Set<E> oldSet = new HashSet<E>(cachedSet);
 			// Fire the "dirty" event. This implementation recomputes the new
 			// set lazily.
-			fireSetChange(new SetDiff<E>() {
+			SetDiff<E> diff = new SetDiff<E>() {
 				SetDiff<E> delegate;
 
 				private SetDiff<E> getDelegate() {
@@ -251,7 +341,20 @@ public abstract class ComputedSet<E> extends AbstractObservableSet<E> {
 				public Set<E> getRemovals() {
 					return getDelegate().getRemovals();
 				}
-			});
+			};
+
+			if (deferred) {
+				// Fire once all dependencies changed in this wave have fired
+				PropagationNode node = getPropagationNode();
+				node.diff = diff;
+				scheduler.schedule(node);
+			} else if (eager) {
+				// Recompute right away, and only notify our listeners if the
+				// set actually changed
+				fireEagerSetChange(Diffs.computeSetDiff(oldSet, doGetSet()));
+			} else {
+				fireSetChange(diff);
+			}
 		}
 	}
 
@@ -270,16 +373,121 @@ public abstract class ComputedSet<E> extends AbstractObservableSet<E> {
 	private void makeStale() {
 		if (!stale) {
 			stale = true;
+			staleFired = true;
+			fireStale();
+		}
+	}
+
+	/**
+	 * Fires the diff computed by an eager comparison. An empty diff is only
+	 * fired to end the staleness announced since the last change event, since
+	 * clients consider a change event as the end of staleness.
+	 */
+	private void fireEagerSetChange(SetDiff<E> diff) {
+		if (diff.isEmpty() && (stale || !staleFired))
+			return;
+		fireSetChange(diff);
+		if (stale) {
+			// Still stale, announce it again after the change event
+			staleFired = true;
 			fireStale();
 		}
 	}
 
+	protected void fireSetChange(SetDiff<E> diff) {
+		staleFired = false;
+		super.fireSetChange(diff);
+	}
+
 	public boolean isStale() {
 		// recalculate set if dirty, to ensure staleness is correct.
 		getSet();
 		return stale;
 	}
 
+	/**
+	 * Enables or disables eager comparison. By default, a computed set fires
+	 * a set change event as soon as one of its dependencies changes, and
+	 * computes the new contents lazily when the event is inspected or the set
+	 * is read. With eager comparison enabled, a computed set which has
+	 * listeners recomputes its contents as soon as a dependency changes, and
+	 * only fires a set change event if the difference to the previous contents
+	 * is not empty. This avoids notifying (and recomputing) downstream
+	 * observables when a change does not affect this set, at the cost of
+	 * computing the contents even when nobody reads them.
+	 * <p>
+	 * If glitch-free propagation is enabled for the realm, the contents are
+	 * recomputed and compared when the change event is due to be fired.
+	 * </p>
+	 * 
+	 * @param eagerCompare
+	 *            <code>true</code> to enable eager comparison
+	 * @see Realm#setGlitchFreePropagation(boolean)
+	 * @since 1.4
+	 */
+	public void setEagerCompare(boolean eagerCompare) {
+		checkRealm();
+		this.eagerCompare = eagerCompare;
+	}
+
+	/**
+	 * Returns whether eager comparison is enabled.
+	 * 
+	 * @return <code>true</code> if eager comparison is enabled
+	 * @see #setEagerCompare(boolean)
+	 * @since 1.4
+	 */
+	public boolean isEagerCompare() {
+		return eagerCompare;
+	}
+
+	/**
+	 * Sets the idle timeout of this computed set. By default, a computed set
+	 * keeps listening to its dependencies while nobody listens to it, until a
+	 * dependency changes or the set is disposed. With an idle timeout, a
+	 * computed set which had no listeners for the given period stops listening
+	 * to its dependencies and discards its cached contents. The contents are
+	 * recomputed, and the dependencies listened to again, when the set is next
+	 * accessed or a listener is added.
+	 * 
+	 * @param milliseconds
+	 *            the idle period in milliseconds, or <code>0</code> to never
+	 *            stop listening while idle
+	 * @since 1.4
+	 */
+	public void setIdleTimeout(int milliseconds) {
+		checkRealm();
+		idleTimeout.setMilliseconds(milliseconds);
+	}
+
+	/**
+	 * Returns the idle timeout of this computed set.
+	 * 
+	 * @return the idle period in milliseconds, or <code>0</code> if this
+	 *         computed set never stops listening while idle
+	 * @see #setIdleTimeout(int)
+	 * @since 1.4
+	 */
+	public int getIdleTimeout() {
+		return idleTimeout.getMilliseconds();
+	}
+
+	protected void lastListenerRemoved() {
+		super.lastListenerRemoved();
+		// May be called outside of our realm
+		getRealm().exec(new Runnable() {
+			public void run() {
+				if (hasListeners() || isDisposed())
+					return;
+				if (dirty)
+					// The dependencies were only kept for the listeners
+					stopListening();
+				else
+					idleTimeout.touch();
+			}
+		});
+	}
+
 	public Object getElementType() {
 		return elementType;
 	}
@@ -310,8 +518,9 @@ public abstract class ComputedSet<E> extends AbstractObservableSet<E> {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not currently listening, or do not receive
+					// changes until we are recomputed.
 					// But someone is listening for changes. Call getValue()
 					// to make sure we start listening to the observables we
 					// depend on.
@@ -12,6 +12,8 @@
 
 package org.eclipse.core.databinding.observable.set;
 
+import java.util.Set;
+
 import org.eclipse.core.databinding.observable.DecoratingObservableCollection;
 
 /**
@@ -45,6 +47,11 @@ public DecoratingObservableSet(IObservableSet<E> decorated,
 		decorated.clear();
 	}
 
+	public Set<E> snapshot() {
+		getterCalled();
+		return decorated.snapshot();
+	}
+
 	public synchronized void addSetChangeListener(
 			ISetChangeListener<? super E> listener) {
 		addListener(SetChangeEvent.TYPE, listener);
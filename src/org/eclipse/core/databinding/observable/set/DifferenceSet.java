@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.internal.databinding.observable.IStalenessConsumer;
+import org.eclipse.core.internal.databinding.observable.StalenessTracker;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * Represents a set consisting of the elements of one set which are not
+ * contained in another set. This object does not need to be explicitly
+ * disposed. If nobody is listening to the DifferenceSet, the set will remove
+ * its listeners.
+ * <p>
+ * While listened to, the set is updated from the diffs of the two sets, by
+ * looking up each changed element in the other set, so the cost of an update
+ * is proportional to the size of the diff.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public final class DifferenceSet<E> extends ObservableSet<E> {
+
+	private final IObservableSet<E> minuend;
+
+	private final IObservableSet<? extends Object> subtrahend;
+
+	private boolean stale = false;
+
+	/**
+	 * The elements of the minuend not contained in the subtrahend, null if
+	 * nobody is listening to the DifferenceSet.
+	 */
+	private Set<E> members = null;
+
+	private StalenessTracker stalenessTracker;
+
+	/**
+	 * @param minuend
+	 *            the set whose elements are contained in the difference
+	 * @param subtrahend
+	 *            the set whose elements are excluded from the difference
+	 */
+	public DifferenceSet(IObservableSet<E> minuend,
+			IObservableSet<? extends Object> subtrahend) {
+		this(minuend, subtrahend, minuend.getElementType());
+	}
+
+	/**
+	 * @param minuend
+	 *            the set whose elements are contained in the difference
+	 * @param subtrahend
+	 *            the set whose elements are excluded from the difference
+	 * @param elementType
+	 */
+	public DifferenceSet(IObservableSet<E> minuend,
+			IObservableSet<? extends Object> subtrahend, Object elementType) {
+		super(minuend.getRealm(), null, elementType);
+		Assert.isTrue(minuend.getRealm().equals(subtrahend.getRealm()),
+				"Both sets must belong to the same realm"); //$NON-NLS-1$
+		this.minuend = minuend;
+		this.subtrahend = subtrahend;
+	}
+
+	private ISetChangeListener<E> minuendChangeListener = new ISetChangeListener<E>() {
+		public void handleSetChange(SetChangeEvent<E> event) {
+			Set<E> addsToFire = new HashSet<E>();
+			Set<E> removesToFire = new HashSet<E>();
+			for (Iterator<E> iter = event.diff.getRemovals().iterator(); iter
+					.hasNext();) {
+				E removed = iter.next();
+				if (members.remove(removed))
+					removesToFire.add(removed);
+			}
+			for (Iterator<E> iter = event.diff.getAdditions().iterator(); iter
+					.hasNext();) {
+				E added = iter.next();
+				if (!subtrahend.contains(added) && members.add(added))
+					addsToFire.add(added);
+			}
+			fireIfChanged(addsToFire, removesToFire);
+		}
+	};
+
+	private ISetChangeListener<Object> subtrahendChangeListener = new ISetChangeListener<Object>() {
+		public void handleSetChange(SetChangeEvent<Object> event) {
+			Set<E> addsToFire = new HashSet<E>();
+			Set<E> removesToFire = new HashSet<E>();
+			for (Iterator<?> iter = event.diff.getAdditions().iterator(); iter
+					.hasNext();) {
+				Object added = iter.next();
+				if (members.remove(added)) {
+					@SuppressWarnings("unchecked")
+					E element = (E) added;
+					removesToFire.add(element);
+				}
+			}
+			for (Iterator<?> iter = event.diff.getRemovals().iterator(); iter
+					.hasNext();) {
+				Object removed = iter.next();
+				if (minuend.contains(removed)) {
+					@SuppressWarnings("unchecked")
+					E element = (E) removed;
+					if (members.add(element))
+						addsToFire.add(element);
+				}
+			}
+			fireIfChanged(addsToFire, removesToFire);
+		}
+	};
+
+	private IStalenessConsumer stalenessConsumer = new IStalenessConsumer() {
+		public void setStale(boolean stale) {
+			boolean oldStale = DifferenceSet.this.stale;
+			DifferenceSet.this.stale = stale;
+			if (stale && !oldStale) {
+				fireStale();
+			}
+		}
+	};
+
+	private void fireIfChanged(Set<E> addsToFire, Set<E> removesToFire) {
+		if (addsToFire.size() > 0 || removesToFire.size() > 0) {
+			fireSetChange(Diffs.createSetDiff(addsToFire, removesToFire));
+		}
+	}
+
+	public boolean isStale() {
+		getterCalled();
+		if (members != null) {
+			return stale;
+		}
+		return minuend.isStale() || subtrahend.isStale();
+	}
+
+	protected void firstListenerAdded() {
+		super.firstListenerAdded();
+
+		minuend.addSetChangeListener(minuendChangeListener);
+		subtrahend.addSetChangeListener(subtrahendChangeListener);
+		members = computeElements();
+		stalenessTracker = new StalenessTracker(new IObservable[] { minuend,
+				subtrahend }, stalenessConsumer);
+		setWrappedSet(members);
+	}
+
+	protected void lastListenerRemoved() {
+		super.lastListenerRemoved();
+
+		minuend.removeSetChangeListener(minuendChangeListener);
+		subtrahend.removeSetChangeListener(subtrahendChangeListener);
+		stalenessTracker.removeObservable(minuend);
+		stalenessTracker.removeObservable(subtrahend);
+		members = null;
+		stalenessTracker = null;
+		setWrappedSet(null);
+	}
+
+	protected void getterCalled() {
+		super.getterCalled();
+		if (members == null) {
+			// no listeners, recompute
+			setWrappedSet(computeElements());
+		}
+	}
+
+	private Set<E> computeElements() {
+		Set<E> result = new HashSet<E>();
+		for (Iterator<E> iter = minuend.iterator(); iter.hasNext();) {
+			E element = iter.next();
+			if (!subtrahend.contains(element))
+				result.add(element);
+		}
+		return result;
+	}
+
+}
@@ -17,6 +17,7 @@ import java.util.Iterator;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.IObservableCollection;
+import org.eclipse.core.databinding.observable.ObservableTracker;
 
 /**
  * A set whose changes can be tracked by set change listeners.
@@ -126,4 +127,16 @@ public interface IObservableSet<E> extends Set<E>, IObservableCollection<E> {
 	 */
 	int hashCode();
 
+	/**
+	 * Returns an unmodifiable copy of the current elements of this set, in the
+	 * iteration order of this set. The read is reported to the
+	 * {@link ObservableTracker} once, and the returned set can then be read
+	 * without further tracking overhead.
+	 * 
+	 * @return an unmodifiable copy of this set
+	 * @TrackedGetter
+	 * @since 1.4
+	 */
+	Set<E> snapshot();
+
 }
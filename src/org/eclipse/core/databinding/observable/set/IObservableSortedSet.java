@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.SortedSet;
+
+/**
+ * An observable set whose elements are kept in ascending order. The range
+ * views returned by {@link #subSet(Object, Object)}, {@link #headSet(Object)}
+ * and {@link #tailSet(Object)} are observable sets as well, which only fire
+ * set changes for the elements within their range.
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @noimplement This interface is not intended to be implemented by clients.
+ *              Clients should instead subclass one of the classes that
+ *              implement this interface. Note that direct implementers of this
+ *              interface outside of the framework will be broken in future
+ *              releases when methods are added to this interface.
+ *
+ * @see WritableSortedSet
+ *
+ * @since 1.4
+ */
+public interface IObservableSortedSet<E> extends IObservableSet<E>,
+		SortedSet<E> {
+
+	/**
+	 * @TrackedGetter
+	 */
+	E first();
+
+	/**
+	 * @TrackedGetter
+	 */
+	E last();
+
+	/**
+	 * Returns the element at the given position in ascending order (the
+	 * <i>select</i> query of an order statistic tree).
+	 *
+	 * @param index
+	 *            the position of the element
+	 * @return the element at the given position
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is negative or not less than {@link #size()}
+	 * @TrackedGetter
+	 */
+	E get(int index);
+
+	/**
+	 * Returns the position of the given element in ascending order (the
+	 * <i>rank</i> query of an order statistic tree).
+	 *
+	 * @param o
+	 *            the element
+	 * @return the position of the element, or <code>-1</code> if it is not
+	 *         contained
+	 * @TrackedGetter
+	 */
+	int indexOf(Object o);
+
+	/**
+	 * Returns a live observable view of the elements ranging from
+	 * <code>fromElement</code>, inclusive, to <code>toElement</code>,
+	 * exclusive.
+	 */
+	IObservableSortedSet<E> subSet(E fromElement, E toElement);
+
+	/**
+	 * Returns a live observable view of the elements strictly less than
+	 * <code>toElement</code>.
+	 */
+	IObservableSortedSet<E> headSet(E toElement);
+
+	/**
+	 * Returns a live observable view of the elements greater than or equal to
+	 * <code>fromElement</code>.
+	 */
+	IObservableSortedSet<E> tailSet(E fromElement);
+}
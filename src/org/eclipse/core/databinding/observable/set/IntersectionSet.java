@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.internal.databinding.observable.HashMultiset;
+import org.eclipse.core.internal.databinding.observable.IStalenessConsumer;
+import org.eclipse.core.internal.databinding.observable.StalenessTracker;
+
+/**
+ * Represents a set consisting of the elements contained in all of one or more
+ * other sets. This object does not need to be explicitly disposed. If nobody
+ * is listening to the IntersectionSet, the set will remove its listeners.
+ * <p>
+ * While listened to, the set counts for each element the number of child sets
+ * containing it, and updates the counts from the diffs of the child sets. An
+ * element is contained in the intersection when its count equals the number
+ * of child sets, so the cost of an update is proportional to the size of the
+ * child diff.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public final class IntersectionSet<E> extends ObservableSet<E> {
+
+	/**
+	 * child sets
+	 */
+	private IObservableSet<E>[] childSets;
+
+	private boolean stale = false;
+
+	/**
+	 * Multiset counting the child sets containing each element. This multiset
+	 * is constructed when the first listener is added to the intersection set.
+	 * Null if nobody is listening to the IntersectionSet.
+	 */
+	private HashMultiset<E> refCounts = null;
+
+	/**
+	 * The elements contained in all child sets, null if nobody is listening.
+	 */
+	private Set<E> members = null;
+
+	private StalenessTracker stalenessTracker;
+
+	/**
+	 * @param childSets
+	 *            the sets to intersect, at least one
+	 */
+	public IntersectionSet(IObservableSet<E>[] childSets) {
+		this(childSets, childSets[0].getElementType());
+	}
+
+	/**
+	 * @param childSets
+	 *            the sets to intersect, at least one
+	 * @param elementType
+	 */
+	public IntersectionSet(IObservableSet<E>[] childSets, Object elementType) {
+		super(childSets[0].getRealm(), null, elementType);
+		System.arraycopy(childSets, 0,
+				this.childSets = UnionSet.newArray(childSets.length), 0,
+				childSets.length);
+	}
+
+	private ISetChangeListener<E> childSetChangeListener = new ISetChangeListener<E>() {
+		public void handleSetChange(SetChangeEvent<E> event) {
+			processAddsAndRemoves(event.diff.getAdditions(), event.diff
+					.getRemovals());
+		}
+	};
+
+	private IStalenessConsumer stalenessConsumer = new IStalenessConsumer() {
+		public void setStale(boolean stale) {
+			boolean oldStale = IntersectionSet.this.stale;
+			IntersectionSet.this.stale = stale;
+			if (stale && !oldStale) {
+				fireStale();
+			}
+		}
+	};
+
+	public boolean isStale() {
+		getterCalled();
+		if (refCounts != null) {
+			return stale;
+		}
+
+		for (int i = 0; i < childSets.length; i++) {
+			if (childSets[i].isStale()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void processAddsAndRemoves(Set<E> adds, Set<E> removes) {
+		Set<E> addsToFire = new HashSet<E>();
+		Set<E> removesToFire = new HashSet<E>();
+
+		for (Iterator<E> iter = removes.iterator(); iter.hasNext();) {
+			E removed = iter.next();
+			if (refCounts.count(removed) == childSets.length) {
+				members.remove(removed);
+				removesToFire.add(removed);
+			}
+			refCounts.remove(removed);
+		}
+
+		for (Iterator<E> iter = adds.iterator(); iter.hasNext();) {
+			E added = iter.next();
+			refCounts.add(added);
+			if (refCounts.count(added) == childSets.length) {
+				members.add(added);
+				// removed and added again within the same diff
+				if (!removesToFire.remove(added))
+					addsToFire.add(added);
+			}
+		}
+
+		if (addsToFire.size() > 0 || removesToFire.size() > 0) {
+			fireSetChange(Diffs.createSetDiff(addsToFire, removesToFire));
+		}
+	}
+
+	protected void firstListenerAdded() {
+		super.firstListenerAdded();
+
+		refCounts = new HashMultiset<E>();
+		members = new HashSet<E>();
+		for (int i = 0; i < childSets.length; i++) {
+			IObservableSet<E> next = childSets[i];
+			next.addSetChangeListener(childSetChangeListener);
+			for (Iterator<E> iter = next.iterator(); iter.hasNext();)
+				refCounts.add(iter.next());
+		}
+		for (Iterator<E> iter = refCounts.elementSet().iterator(); iter
+				.hasNext();) {
+			E element = iter.next();
+			if (refCounts.count(element) == childSets.length)
+				members.add(element);
+		}
+		stalenessTracker = new StalenessTracker(childSets, stalenessConsumer);
+		setWrappedSet(members);
+	}
+
+	protected void lastListenerRemoved() {
+		super.lastListenerRemoved();
+
+		for (int i = 0; i < childSets.length; i++) {
+			IObservableSet<E> next = childSets[i];
+
+			next.removeSetChangeListener(childSetChangeListener);
+			stalenessTracker.removeObservable(next);
+		}
+		refCounts = null;
+		members = null;
+		stalenessTracker = null;
+		setWrappedSet(null);
+	}
+
+	protected void getterCalled() {
+		super.getterCalled();
+		if (refCounts == null) {
+			// no listeners, recompute
+			setWrappedSet(computeElements());
+		}
+	}
+
+	private Set<E> computeElements() {
+		// Start from the smallest child set and keep the elements contained
+		// in all other child sets
+		int smallest = 0;
+		for (int i = 1; i < childSets.length; i++) {
+			if (childSets[i].size() < childSets[smallest].size())
+				smallest = i;
+		}
+		Set<E> result = new HashSet<E>(childSets[smallest]);
+		for (int i = 0; i < childSets.length && !result.isEmpty(); i++) {
+			if (i != smallest)
+				result.retainAll(childSets[i]);
+		}
+		return result;
+	}
+
+}
@@ -13,10 +13,8 @@
 package org.eclipse.core.databinding.observable.set;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.Diffs;
@@ -25,6 +23,7 @@ import org.eclipse.core.databinding.observable.map.IMapChangeListener;
 import org.eclipse.core.databinding.observable.map.IObservableMap;
 import org.eclipse.core.databinding.observable.map.MapChangeEvent;
 import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.internal.databinding.observable.HashMultiset;
 
 /**
  * 
@@ -43,9 +42,9 @@ public class MappedSet<I, E> extends ObservableSet<E> {
 	private final IObservableMap<I, E> wrappedMap;
 
 	/*
-	 * Map from values (range elements) to Integer ref counts
+	 * Multiset counting the occurrences of values (range elements)
 	 */
-	private Map<E, Integer> valueCounts = new HashMap<E, Integer>();
+	private HashMultiset<E> valueCounts = new HashMultiset<E>();
 
 	private ISetChangeListener<I> domainListener = new ISetChangeListener<I>() {
 		public void handleSetChange(SetChangeEvent<I> event) {
@@ -115,7 +114,7 @@ public class MappedSet<I, E> extends ObservableSet<E> {
 	 */
 	public MappedSet(IObservableSet<I> input, IObservableMap<I, E> map) {
 		super(input.getRealm(), Collections.<E> emptySet(), Object.class);
-		setWrappedSet(valueCounts.keySet());
+		setWrappedSet(valueCounts.elementSet());
 		this.wrappedMap = map;
 		this.input = input;
 		for (Iterator<I> it = input.iterator(); it.hasNext();) {
@@ -132,13 +131,7 @@ public class MappedSet<I, E> extends ObservableSet<E> {
 	 * @return true if the given mapValue was an addition
 	 */
 	protected boolean handleAddition(E mapValue) {
-		Integer count = valueCounts.get(mapValue);
-		if (count == null) {
-			valueCounts.put(mapValue, new Integer(1));
-			return true;
-		}
-		valueCounts.put(mapValue, new Integer(count.intValue() + 1));
-		return false;
+		return valueCounts.add(mapValue);
 	}
 
 	/**
@@ -146,13 +139,7 @@ public class MappedSet<I, E> extends ObservableSet<E> {
 	 * @return true if the given mapValue has been removed
 	 */
 	protected boolean handleRemoval(E mapValue) {
-		Integer count = valueCounts.get(mapValue);
-		if (count.intValue() <= 1) {
-			valueCounts.remove(mapValue);
-			return true;
-		}
-		valueCounts.put(mapValue, new Integer(count.intValue() - 1));
-		return false;
+		return valueCounts.remove(mapValue);
 	}
 
 	public synchronized void dispose() {
@@ -13,10 +13,13 @@
 package org.eclipse.core.databinding.observable.set;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.AbstractObservable;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 
@@ -130,6 +133,24 @@ IObservableSet<E> {
 		return wrappedSet.toArray(a);
 	}
 
+	/**
+	 * @since 1.4
+	 */
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		getterCalled();
+		for (Iterator<E> it = wrappedSet.iterator(); it.hasNext();)
+			if (!visitor.visit(it.next()))
+				return;
+	}
+
+	/**
+	 * @since 1.4
+	 */
+	public Set<E> snapshot() {
+		getterCalled();
+		return Collections.unmodifiableSet(new LinkedHashSet<E>(wrappedSet));
+	}
+
 	public String toString() {
 		getterCalled();
 		return wrappedSet.toString();
@@ -12,15 +12,15 @@
 
 package org.eclipse.core.databinding.observable.set;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.AbstractSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.internal.databinding.observable.HashMultiset;
 import org.eclipse.core.internal.databinding.observable.IStalenessConsumer;
 import org.eclipse.core.internal.databinding.observable.StalenessTracker;
 
@@ -28,6 +28,20 @@ import org.eclipse.core.internal.databinding.observable.StalenessTracker;
  * Represents a set consisting of the union of elements from one or more other
  * sets. This object does not need to be explicitly disposed. If nobody is
  * listening to the UnionSet, the set will remove its listeners.
+ * <p>
+ * While nobody is listening, the set does not hold a copy of the union.
+ * Instead, it answers queries by querying the child sets directly: an element
+ * is contained if any child set contains it, and iteration visits each element
+ * of each child set that is not contained in a preceding child set. This
+ * costs one containment check per preceding child set for each element
+ * visited, so {@link #size()} performs up to <i>n</i>&times;<i>k</i> such
+ * checks for <i>n</i> elements in total spread over <i>k</i> child sets, and
+ * {@link #isEmpty()} or {@link #contains(Object)} should be preferred when
+ * they suffice. While the set is listened to, it maintains the number of
+ * child sets containing each element instead, and the size is known in
+ * constant time. Clients reading the size of a union of many large sets
+ * repeatedly should therefore listen to it.
+ * </p>
  * 
  * <p>
  * This class is thread safe. All state accessing methods must be invoked from
@@ -52,11 +66,11 @@ public final class UnionSet<E> extends ObservableSet<E> {
 	private boolean stale = false;
 
 	/**
-	 * Map of elements onto Integer reference counts. This map is constructed
-	 * when the first listener is added to the union set. Null if nobody is
-	 * listening to the UnionSet.
+	 * Multiset counting the child sets containing each element. This multiset
+	 * is constructed when the first listener is added to the union set. Null
+	 * if nobody is listening to the UnionSet.
 	 */
-	private HashMap<E, Integer> refCounts = null;
+	private HashMultiset<E> refCounts = null;
 
 	private StalenessTracker stalenessTracker;
 
@@ -79,6 +93,7 @@ public final class UnionSet<E> extends ObservableSet<E> {
 				childSets.length);
 		this.stalenessTracker = new StalenessTracker(childSets,
 				stalenessConsumer);
+		setWrappedSet(childSetsView);
 	}
 
 	private ISetChangeListener<E> childSetChangeListener = new ISetChangeListener<E>() {
@@ -121,31 +136,15 @@ public final class UnionSet<E> extends ObservableSet<E> {
 		for (Iterator<E> iter = adds.iterator(); iter.hasNext();) {
 			E added = iter.next();
 
-			Integer refCount = refCounts.get(added);
-			if (refCount == null) {
-				refCounts.put(added, new Integer(1));
+			if (refCounts.add(added))
 				addsToFire.add(added);
-			} else {
-				int refs = refCount.intValue();
-				refCount = new Integer(refs + 1);
-				refCounts.put(added, refCount);
-			}
 		}
 
 		for (Iterator<E> iter = removes.iterator(); iter.hasNext();) {
 			E removed = iter.next();
 
-			Integer refCount = refCounts.get(removed);
-			if (refCount != null) {
-				int refs = refCount.intValue();
-				if (refs <= 1) {
-					removesToFire.add(removed);
-					refCounts.remove(removed);
-				} else {
-					refCount = new Integer(refCount.intValue() - 1);
-					refCounts.put(removed, refCount);
-				}
-			}
+			if (refCounts.remove(removed))
+				removesToFire.add(removed);
 		}
 
 		// just in case the removes overlapped with the adds
@@ -159,14 +158,14 @@ public final class UnionSet<E> extends ObservableSet<E> {
 	protected void firstListenerAdded() {
 		super.firstListenerAdded();
 
-		refCounts = new HashMap<E, Integer>();
+		refCounts = new HashMultiset<E>();
 		for (int i = 0; i < childSets.length; i++) {
 			IObservableSet<E> next = childSets[i];
 			next.addSetChangeListener(childSetChangeListener);
 			incrementRefCounts(next);
 		}
 		stalenessTracker = new StalenessTracker(childSets, stalenessConsumer);
-		setWrappedSet(refCounts.keySet());
+		setWrappedSet(refCounts.elementSet());
 	}
 
 	protected void lastListenerRemoved() {
@@ -180,48 +179,91 @@ public final class UnionSet<E> extends ObservableSet<E> {
 		}
 		refCounts = null;
 		stalenessTracker = null;
-		setWrappedSet(null);
+		setWrappedSet(childSetsView);
 	}
 
-	private ArrayList<E> incrementRefCounts(Collection<E> added) {
-		ArrayList<E> adds = new ArrayList<E>();
-
-		for (Iterator<E> iter = added.iterator(); iter.hasNext();) {
-			E next = iter.next();
-
-			Integer refCount = refCounts.get(next);
-			if (refCount == null) {
-				adds.add(next);
-				refCount = new Integer(1);
-				refCounts.put(next, refCount);
-			} else {
-				refCount = new Integer(refCount.intValue() + 1);
-				refCounts.put(next, refCount);
-			}
-		}
-		return adds;
+	private void incrementRefCounts(Set<E> added) {
+		for (Iterator<E> iter = added.iterator(); iter.hasNext();)
+			refCounts.add(iter.next());
 	}
 
-	protected void getterCalled() {
-		super.getterCalled();
-		if (refCounts == null) {
-			// no listeners, recompute
-			setWrappedSet(computeElements());
+	/**
+	 * Live view of the union used while nobody is listening, which queries the
+	 * child sets instead of copying them.
+	 */
+	private final Set<E> childSetsView = new AbstractSet<E>() {
+		public boolean contains(Object o) {
+			for (int i = 0; i < childSets.length; i++) {
+				if (childSets[i].contains(o))
+					return true;
+			}
+			return false;
 		}
-	}
 
-	private Set<E> computeElements() {
-		// If there is no cached value, compute the union from scratch
-		if (refCounts == null) {
-			Set<E> result = new HashSet<E>();
+		public boolean isEmpty() {
 			for (int i = 0; i < childSets.length; i++) {
-				result.addAll(childSets[i]);
+				if (!childSets[i].isEmpty())
+					return false;
 			}
-			return result;
+			return true;
 		}
 
-		// Else there is a cached value. Return it.
-		return refCounts.keySet();
-	}
+		public int size() {
+			if (childSets.length == 1)
+				return childSets[0].size();
+			// Linear in the total size of the child sets times their number,
+			// see the class comment
+			int size = 0;
+			for (Iterator<E> it = iterator(); it.hasNext(); it.next())
+				size++;
+			return size;
+		}
+
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int child = 0;
+				private Iterator<E> childIterator = childSets[0].iterator();
+				private boolean hasNext;
+				private E next;
+
+				public boolean hasNext() {
+					while (!hasNext) {
+						while (!childIterator.hasNext()) {
+							if (++child == childSets.length)
+								return false;
+							childIterator = childSets[child].iterator();
+						}
+						E candidate = childIterator.next();
+						if (!containedInPreviousChild(candidate)) {
+							next = candidate;
+							hasNext = true;
+						}
+					}
+					return true;
+				}
+
+				private boolean containedInPreviousChild(E element) {
+					for (int i = 0; i < child; i++) {
+						if (childSets[i].contains(element))
+							return true;
+					}
+					return false;
+				}
+
+				public E next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+					hasNext = false;
+					E result = next;
+					next = null;
+					return result;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	};
 
 }
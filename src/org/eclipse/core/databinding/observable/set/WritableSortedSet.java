@@ -0,0 +1,782 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+
+/**
+ * Mutable observable set keeping its elements in ascending order, either
+ * according to their natural ordering or to a comparator. Elements are stored
+ * in a weight balanced binary tree whose nodes record the size of their
+ * subtree, so that membership tests, insertions, removals, and the
+ * {@link #get(int)} and {@link #indexOf(Object)} queries take logarithmic
+ * time.
+ * <p>
+ * The range views returned by {@link #subSet(Object, Object)},
+ * {@link #headSet(Object)} and {@link #tailSet(Object)} are live observable
+ * sets reading the same tree. A view only listens to this set while it has
+ * listeners itself, and then forwards the part of each set change falling
+ * within its range. Elements can be added to and removed from a view as long
+ * as they lie within its range.
+ * </p>
+ * <p>
+ * Elements are compared using the ordering of the set rather than
+ * {@link Object#equals(Object)}, as in {@link TreeSet}.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public class WritableSortedSet<E> extends AbstractObservableSet<E> implements
+		IObservableSortedSet<E> {
+
+	/**
+	 * A subtree may be at most this many times as large as its sibling.
+	 */
+	private static final int DELTA = 3;
+
+	/**
+	 * Decides between a single and a double rotation when rebalancing.
+	 */
+	private static final int RATIO = 2;
+
+	private static final class Node<E> {
+		E element;
+		Node<E> left;
+		Node<E> right;
+		int size = 1;
+
+		Node(E element) {
+			this.element = element;
+		}
+	}
+
+	/**
+	 * The bounds of a range view, from <code>low</code> inclusive to
+	 * <code>high</code> exclusive.
+	 */
+	private static final class Range {
+		final boolean hasLow;
+		final Object low;
+		final boolean hasHigh;
+		final Object high;
+
+		Range(boolean hasLow, Object low, boolean hasHigh, Object high) {
+			this.hasLow = hasLow;
+			this.low = low;
+			this.hasHigh = hasHigh;
+			this.high = high;
+		}
+	}
+
+	private static final Range FULL = new Range(false, null, false, null);
+
+	private static final Comparator<Object> NATURAL_ORDER = new Comparator<Object>() {
+		@SuppressWarnings("unchecked")
+		public int compare(Object o1, Object o2) {
+			return ((Comparable<Object>) o1).compareTo(o2);
+		}
+	};
+
+	private final Comparator<? super E> comparator;
+
+	private final Comparator<Object> order;
+
+	private final Object elementType;
+
+	private final Set<E> wrappedSet = new RangeSet(FULL);
+
+	private Node<E> root = null;
+
+	private int modCount = 0;
+
+	/**
+	 * Set while inserting or deleting when the tree has been modified.
+	 */
+	private boolean modified;
+
+	/**
+	 * The element removed by the last modifying deletion.
+	 */
+	private E removedElement;
+
+	/**
+	 * Constructs a new empty instance in the default realm, ordered according
+	 * to the natural ordering of its elements.
+	 */
+	public WritableSortedSet() {
+		this(Realm.getDefault(), null, null);
+	}
+
+	/**
+	 * Constructs a new empty instance in the default realm, ordered according
+	 * to the given comparator.
+	 *
+	 * @param comparator
+	 *            the comparator, or <code>null</code> for the natural
+	 *            ordering of the elements
+	 */
+	public WritableSortedSet(Comparator<? super E> comparator) {
+		this(Realm.getDefault(), comparator, null);
+	}
+
+	/**
+	 * Constructs a new empty instance in the given realm, ordered according
+	 * to the natural ordering of its elements.
+	 *
+	 * @param realm
+	 */
+	public WritableSortedSet(Realm realm) {
+		this(realm, null, null);
+	}
+
+	/**
+	 * Constructs a new empty instance in the given realm.
+	 *
+	 * @param realm
+	 * @param comparator
+	 *            the comparator, or <code>null</code> for the natural
+	 *            ordering of the elements
+	 * @param elementType
+	 *            can be <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public WritableSortedSet(Realm realm, Comparator<? super E> comparator,
+			Object elementType) {
+		super(realm);
+		this.comparator = comparator;
+		// The elements are only ever compared with elements of type E
+		this.order = comparator == null ? NATURAL_ORDER
+				: (Comparator<Object>) comparator;
+		this.elementType = elementType;
+	}
+
+	protected Set<E> getWrappedSet() {
+		return wrappedSet;
+	}
+
+	public Object getElementType() {
+		return elementType;
+	}
+
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	public E first() {
+		getterCalled();
+		return first(FULL);
+	}
+
+	public E last() {
+		getterCalled();
+		return last(FULL);
+	}
+
+	public E get(int index) {
+		getterCalled();
+		return get(FULL, index);
+	}
+
+	public int indexOf(Object o) {
+		getterCalled();
+		return indexOf(FULL, o);
+	}
+
+	public IObservableSortedSet<E> subSet(E fromElement, E toElement) {
+		return new RangeView(subRange(FULL, true, fromElement, true, toElement));
+	}
+
+	public IObservableSortedSet<E> headSet(E toElement) {
+		return new RangeView(subRange(FULL, false, null, true, toElement));
+	}
+
+	public IObservableSortedSet<E> tailSet(E fromElement) {
+		return new RangeView(subRange(FULL, true, fromElement, false, null));
+	}
+
+	public boolean add(E o) {
+		checkRealm();
+		if (!insert(o))
+			return false;
+		fireSetChange(Diffs.createSetDiff(Collections.singleton(o),
+				Collections.<E> emptySet()));
+		return true;
+	}
+
+	public boolean addAll(Collection<? extends E> c) {
+		checkRealm();
+		Set<E> additions = new TreeSet<E>(comparator);
+		for (Iterator<? extends E> it = c.iterator(); it.hasNext();) {
+			E element = it.next();
+			if (insert(element))
+				additions.add(element);
+		}
+		if (additions.isEmpty())
+			return false;
+		fireSetChange(Diffs.createSetDiff(additions, Collections.<E> emptySet()));
+		return true;
+	}
+
+	public boolean remove(Object o) {
+		checkRealm();
+		E removed = delete(o);
+		if (!modified)
+			return false;
+		fireSetChange(Diffs.createSetDiff(Collections.<E> emptySet(),
+				Collections.singleton(removed)));
+		return true;
+	}
+
+	public boolean removeAll(Collection<?> c) {
+		checkRealm();
+		Set<E> removals = new TreeSet<E>(comparator);
+		for (Iterator<?> it = c.iterator(); it.hasNext();) {
+			E removed = delete(it.next());
+			if (modified)
+				removals.add(removed);
+		}
+		return fireRemovals(removals);
+	}
+
+	public boolean retainAll(Collection<?> c) {
+		checkRealm();
+		return retainAll(FULL, c);
+	}
+
+	public void clear() {
+		checkRealm();
+		clear(FULL);
+	}
+
+	private boolean fireRemovals(Set<E> removals) {
+		if (removals.isEmpty())
+			return false;
+		fireSetChange(Diffs.createSetDiff(Collections.<E> emptySet(), removals));
+		return true;
+	}
+
+	private boolean retainAll(Range range, Collection<?> c) {
+		Set<E> removals = new TreeSet<E>(comparator);
+		for (Iterator<E> it = new RangeIterator(range); it.hasNext();) {
+			E element = it.next();
+			if (!c.contains(element))
+				removals.add(element);
+		}
+		for (Iterator<E> it = removals.iterator(); it.hasNext();)
+			delete(it.next());
+		return fireRemovals(removals);
+	}
+
+	private void clear(Range range) {
+		Set<E> removals = new TreeSet<E>(comparator);
+		for (Iterator<E> it = new RangeIterator(range); it.hasNext();)
+			removals.add(it.next());
+		if (range == FULL) {
+			root = null;
+			modCount++;
+		} else {
+			for (Iterator<E> it = removals.iterator(); it.hasNext();)
+				delete(it.next());
+		}
+		fireRemovals(removals);
+	}
+
+	// Tree operations
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private int compare(Object o1, Object o2) {
+		return order.compare(o1, o2);
+	}
+
+	private boolean insert(E element) {
+		modified = false;
+		root = insert(root, element);
+		if (modified)
+			modCount++;
+		return modified;
+	}
+
+	private Node<E> insert(Node<E> node, E element) {
+		if (node == null) {
+			modified = true;
+			return new Node<E>(element);
+		}
+		int c = compare(element, node.element);
+		if (c < 0)
+			node.left = insert(node.left, element);
+		else if (c > 0)
+			node.right = insert(node.right, element);
+		return modified ? balance(node) : node;
+	}
+
+	/**
+	 * Deletes the given element, setting {@link #modified} if it was
+	 * contained.
+	 *
+	 * @return the deleted element
+	 */
+	private E delete(Object o) {
+		modified = false;
+		removedElement = null;
+		root = delete(root, o);
+		E removed = removedElement;
+		removedElement = null;
+		if (modified)
+			modCount++;
+		return removed;
+	}
+
+	private Node<E> delete(Node<E> node, Object o) {
+		if (node == null)
+			return null;
+		int c = compare(o, node.element);
+		if (c < 0)
+			node.left = delete(node.left, o);
+		else if (c > 0)
+			node.right = delete(node.right, o);
+		else {
+			modified = true;
+			removedElement = node.element;
+			if (node.left == null)
+				return node.right;
+			if (node.right == null)
+				return node.left;
+			Node<E> min = node.right;
+			while (min.left != null)
+				min = min.left;
+			node.element = min.element;
+			node.right = deleteMin(node.right);
+		}
+		return modified ? balance(node) : node;
+	}
+
+	private Node<E> deleteMin(Node<E> node) {
+		if (node.left == null)
+			return node.right;
+		node.left = deleteMin(node.left);
+		return balance(node);
+	}
+
+	/**
+	 * Restores the balance of a node after a single element has been inserted
+	 * into or deleted from one of its subtrees, and updates its size.
+	 */
+	private static <E> Node<E> balance(Node<E> node) {
+		int leftSize = size(node.left);
+		int rightSize = size(node.right);
+		if (leftSize + rightSize > 1) {
+			if (rightSize > DELTA * leftSize) {
+				Node<E> right = node.right;
+				if (size(right.left) < RATIO * size(right.right))
+					return rotateLeft(node);
+				node.right = rotateRight(right);
+				return rotateLeft(node);
+			}
+			if (leftSize > DELTA * rightSize) {
+				Node<E> left = node.left;
+				if (size(left.right) < RATIO * size(left.left))
+					return rotateRight(node);
+				node.left = rotateLeft(left);
+				return rotateRight(node);
+			}
+		}
+		node.size = leftSize + rightSize + 1;
+		return node;
+	}
+
+	private static <E> Node<E> rotateLeft(Node<E> node) {
+		Node<E> right = node.right;
+		node.right = right.left;
+		node.size = size(node.left) + size(node.right) + 1;
+		right.left = node;
+		right.size = node.size + size(right.right) + 1;
+		return right;
+	}
+
+	private static <E> Node<E> rotateRight(Node<E> node) {
+		Node<E> left = node.left;
+		node.left = left.right;
+		node.size = size(node.left) + size(node.right) + 1;
+		left.right = node;
+		left.size = size(left.left) + node.size + 1;
+		return left;
+	}
+
+	private Node<E> find(Object o) {
+		Node<E> node = root;
+		while (node != null) {
+			int c = compare(o, node.element);
+			if (c == 0)
+				return node;
+			node = c < 0 ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of elements less than the given object
+	 */
+	private int rank(Object o) {
+		int rank = 0;
+		Node<E> node = root;
+		while (node != null) {
+			if (compare(o, node.element) <= 0) {
+				node = node.left;
+			} else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+
+	private E select(int index) {
+		Node<E> node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index == leftSize) {
+				return node.element;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	// Range operations
+
+	private boolean inRange(Range range, Object o) {
+		return (!range.hasLow || compare(o, range.low) >= 0)
+				&& (!range.hasHigh || compare(o, range.high) < 0);
+	}
+
+	private int lowRank(Range range) {
+		return range.hasLow ? rank(range.low) : 0;
+	}
+
+	private int highRank(Range range) {
+		return range.hasHigh ? rank(range.high) : size(root);
+	}
+
+	private int rangeSize(Range range) {
+		if (range == FULL)
+			return size(root);
+		return Math.max(0, highRank(range) - lowRank(range));
+	}
+
+	private E first(Range range) {
+		if (rangeSize(range) == 0)
+			throw new NoSuchElementException();
+		return select(lowRank(range));
+	}
+
+	private E last(Range range) {
+		if (rangeSize(range) == 0)
+			throw new NoSuchElementException();
+		return select(highRank(range) - 1);
+	}
+
+	private E get(Range range, int index) {
+		if (index < 0 || index >= rangeSize(range))
+			throw new IndexOutOfBoundsException("Index: " + index); //$NON-NLS-1$
+		return select(lowRank(range) + index);
+	}
+
+	private int indexOf(Range range, Object o) {
+		if (!inRange(range, o) || find(o) == null)
+			return -1;
+		return rank(o) - lowRank(range);
+	}
+
+	private void checkInRange(Range range, Object o) {
+		if (!inRange(range, o))
+			throw new IllegalArgumentException("Element out of range"); //$NON-NLS-1$
+	}
+
+	private Range subRange(Range range, boolean hasLow, Object low,
+			boolean hasHigh, Object high) {
+		if (hasLow) {
+			if ((range.hasLow && compare(low, range.low) < 0)
+					|| (range.hasHigh && compare(low, range.high) > 0))
+				throw new IllegalArgumentException("fromElement out of range"); //$NON-NLS-1$
+		} else {
+			hasLow = range.hasLow;
+			low = range.low;
+		}
+		if (hasHigh) {
+			if ((range.hasLow && compare(high, range.low) < 0)
+					|| (range.hasHigh && compare(high, range.high) > 0))
+				throw new IllegalArgumentException("toElement out of range"); //$NON-NLS-1$
+		} else {
+			hasHigh = range.hasHigh;
+			high = range.high;
+		}
+		if (hasLow && hasHigh && compare(low, high) > 0)
+			throw new IllegalArgumentException("fromElement > toElement"); //$NON-NLS-1$
+		return new Range(hasLow, low, hasHigh, high);
+	}
+
+	/**
+	 * Iterates in ascending order over the elements of a range, keeping the
+	 * path of pending ancestors on a stack.
+	 */
+	private class RangeIterator implements Iterator<E> {
+		private final List<Node<E>> stack = new ArrayList<Node<E>>();
+		private int remaining;
+		private final int expectedModCount = modCount;
+
+		RangeIterator(Range range) {
+			int index = lowRank(range);
+			remaining = rangeSize(range);
+			Node<E> node = remaining == 0 ? null : root;
+			while (node != null) {
+				int leftSize = size(node.left);
+				if (index < leftSize) {
+					stack.add(node);
+					node = node.left;
+				} else if (index == leftSize) {
+					stack.add(node);
+					break;
+				} else {
+					// node precedes the range, it is not pending
+					index -= leftSize + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		public E next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (remaining == 0)
+				throw new NoSuchElementException();
+			remaining--;
+			Node<E> node = stack.remove(stack.size() - 1);
+			for (Node<E> child = node.right; child != null; child = child.left)
+				stack.add(child);
+			return node.element;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The elements of a range, read directly from the tree.
+	 */
+	private class RangeSet extends AbstractSet<E> {
+		private final Range range;
+
+		RangeSet(Range range) {
+			this.range = range;
+		}
+
+		public boolean contains(Object o) {
+			return inRange(range, o) && find(o) != null;
+		}
+
+		public boolean isEmpty() {
+			return rangeSize(range) == 0;
+		}
+
+		public int size() {
+			return rangeSize(range);
+		}
+
+		public Iterator<E> iterator() {
+			return new RangeIterator(range);
+		}
+	}
+
+	/**
+	 * A live observable view of a range of this set.
+	 */
+	private class RangeView extends AbstractObservableSet<E> implements
+			IObservableSortedSet<E> {
+		private final Range range;
+
+		private final Set<E> wrappedSet;
+
+		private class PrivateInterface implements ISetChangeListener<E>,
+				IStaleListener {
+			public void handleSetChange(SetChangeEvent<E> event) {
+				Set<E> additions = filter(event.diff.getAdditions());
+				Set<E> removals = filter(event.diff.getRemovals());
+				if (!additions.isEmpty() || !removals.isEmpty())
+					fireSetChange(Diffs.createSetDiff(additions, removals));
+			}
+
+			public void handleStale(StaleEvent staleEvent) {
+				fireStale();
+			}
+		}
+
+		private PrivateInterface privateInterface = new PrivateInterface();
+
+		RangeView(Range range) {
+			super(WritableSortedSet.this.getRealm());
+			this.range = range;
+			this.wrappedSet = new RangeSet(range);
+		}
+
+		private Set<E> filter(Set<E> elements) {
+			Set<E> result = null;
+			for (Iterator<E> it = elements.iterator(); it.hasNext();) {
+				E element = it.next();
+				if (inRange(range, element)) {
+					if (result == null)
+						result = new TreeSet<E>(comparator);
+					result.add(element);
+				}
+			}
+			return result == null ? Collections.<E> emptySet() : result;
+		}
+
+		protected void firstListenerAdded() {
+			WritableSortedSet.this.addSetChangeListener(privateInterface);
+			WritableSortedSet.this.addStaleListener(privateInterface);
+		}
+
+		protected void lastListenerRemoved() {
+			if (privateInterface != null) {
+				WritableSortedSet.this
+						.removeSetChangeListener(privateInterface);
+				WritableSortedSet.this.removeStaleListener(privateInterface);
+			}
+		}
+
+		protected Set<E> getWrappedSet() {
+			return wrappedSet;
+		}
+
+		public Object getElementType() {
+			return elementType;
+		}
+
+		public boolean isStale() {
+			getterCalled();
+			return WritableSortedSet.this.isStale();
+		}
+
+		public Comparator<? super E> comparator() {
+			return comparator;
+		}
+
+		public E first() {
+			getterCalled();
+			return WritableSortedSet.this.first(range);
+		}
+
+		public E last() {
+			getterCalled();
+			return WritableSortedSet.this.last(range);
+		}
+
+		public E get(int index) {
+			getterCalled();
+			return WritableSortedSet.this.get(range, index);
+		}
+
+		public int indexOf(Object o) {
+			getterCalled();
+			return WritableSortedSet.this.indexOf(range, o);
+		}
+
+		public IObservableSortedSet<E> subSet(E fromElement, E toElement) {
+			return new RangeView(subRange(range, true, fromElement, true,
+					toElement));
+		}
+
+		public IObservableSortedSet<E> headSet(E toElement) {
+			return new RangeView(subRange(range, false, null, true, toElement));
+		}
+
+		public IObservableSortedSet<E> tailSet(E fromElement) {
+			return new RangeView(subRange(range, true, fromElement, false,
+					null));
+		}
+
+		public boolean add(E o) {
+			checkInRange(range, o);
+			return WritableSortedSet.this.add(o);
+		}
+
+		public boolean addAll(Collection<? extends E> c) {
+			for (Iterator<? extends E> it = c.iterator(); it.hasNext();)
+				checkInRange(range, it.next());
+			return WritableSortedSet.this.addAll(c);
+		}
+
+		public boolean remove(Object o) {
+			return inRange(range, o) && WritableSortedSet.this.remove(o);
+		}
+
+		public boolean removeAll(Collection<?> c) {
+			List<Object> inRange = new ArrayList<Object>();
+			for (Iterator<?> it = c.iterator(); it.hasNext();) {
+				Object element = it.next();
+				if (inRange(range, element))
+					inRange.add(element);
+			}
+			return WritableSortedSet.this.removeAll(inRange);
+		}
+
+		public boolean retainAll(Collection<?> c) {
+			checkRealm();
+			return WritableSortedSet.this.retainAll(range, c);
+		}
+
+		public void clear() {
+			checkRealm();
+			WritableSortedSet.this.clear(range);
+		}
+
+		public synchronized void dispose() {
+			lastListenerRemoved();
+			privateInterface = null;
+			super.dispose();
+		}
+	}
+}
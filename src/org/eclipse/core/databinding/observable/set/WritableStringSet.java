@@ -0,0 +1,575 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.set;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * Mutable observable set of strings indexed by a trie, which provides live
+ * views of the strings starting with an observable prefix.
+ * <p>
+ * A {@link #prefixView(IObservableValue) prefix view} updates incrementally
+ * when its prefix changes: when the prefix is extended, the view fires a set
+ * change with only the removed strings, and when the prefix is shortened, with
+ * only the added strings. Both are found by walking the trie from the node of
+ * the old prefix to the node of the new one, so the cost of a change of the
+ * prefix is proportional to the number of strings entering or leaving the
+ * view rather than to the size of the set. This makes prefix views suited for
+ * type-ahead filtering of large collections.
+ * </p>
+ * <p>
+ * The iterators of this set and of its views visit the strings in
+ * lexicographic order of their characters. The set does not permit
+ * <code>null</code> elements.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ *
+ * @since 1.4
+ */
+public class WritableStringSet extends AbstractObservableSet<String> {
+
+	private static final char[] NO_KEYS = new char[0];
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	/**
+	 * A trie node. Its children are kept sorted by their key character.
+	 */
+	private static final class Node {
+		char[] keys = NO_KEYS;
+		Node[] children = NO_CHILDREN;
+		int childCount = 0;
+
+		/**
+		 * The string ending at this node, or <code>null</code>.
+		 */
+		String word;
+
+		/**
+		 * The number of strings in the subtree of this node.
+		 */
+		int size = 0;
+
+		int indexOf(char key) {
+			int low = 0;
+			int high = childCount - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				char midKey = keys[mid];
+				if (midKey < key)
+					low = mid + 1;
+				else if (midKey > key)
+					high = mid - 1;
+				else
+					return mid;
+			}
+			return -(low + 1);
+		}
+
+		Node child(char key) {
+			int index = indexOf(key);
+			return index >= 0 ? children[index] : null;
+		}
+
+		Node getOrAddChild(char key) {
+			int index = indexOf(key);
+			if (index >= 0)
+				return children[index];
+			index = -(index + 1);
+			if (childCount == keys.length) {
+				int capacity = Math.max(2, childCount * 2);
+				char[] newKeys = new char[capacity];
+				Node[] newChildren = new Node[capacity];
+				System.arraycopy(keys, 0, newKeys, 0, childCount);
+				System.arraycopy(children, 0, newChildren, 0, childCount);
+				keys = newKeys;
+				children = newChildren;
+			}
+			System.arraycopy(keys, index, keys, index + 1, childCount - index);
+			System.arraycopy(children, index, children, index + 1, childCount
+					- index);
+			Node child = new Node();
+			keys[index] = key;
+			children[index] = child;
+			childCount++;
+			return child;
+		}
+
+		void removeChild(char key) {
+			int index = indexOf(key);
+			childCount--;
+			System.arraycopy(keys, index + 1, keys, index, childCount - index);
+			System.arraycopy(children, index + 1, children, index, childCount
+					- index);
+			children[childCount] = null;
+		}
+	}
+
+	private Node root = new Node();
+
+	private int modCount = 0;
+
+	private final Set<String> wrappedSet = new PrefixSet() {
+		String getPrefix() {
+			return ""; //$NON-NLS-1$
+		}
+	};
+
+	/**
+	 * Constructs a new empty instance in the default realm.
+	 */
+	public WritableStringSet() {
+		this(Realm.getDefault());
+	}
+
+	/**
+	 * Constructs a new empty instance in the given realm.
+	 *
+	 * @param realm
+	 */
+	public WritableStringSet(Realm realm) {
+		super(realm);
+	}
+
+	/**
+	 * Constructs a new instance in the given realm containing the given
+	 * strings. Changes to the given collection after calling this method do
+	 * not affect the contents of the created set.
+	 *
+	 * @param realm
+	 * @param c
+	 */
+	public WritableStringSet(Realm realm, Collection<String> c) {
+		super(realm);
+		for (Iterator<String> it = c.iterator(); it.hasNext();)
+			insert(it.next());
+	}
+
+	protected Set<String> getWrappedSet() {
+		return wrappedSet;
+	}
+
+	public Object getElementType() {
+		return String.class;
+	}
+
+	/**
+	 * Returns an unmodifiable live view of the strings of this set starting
+	 * with the value of the given observable. A <code>null</code> prefix is
+	 * treated as the empty prefix. The view only listens to this set and to
+	 * the prefix while it has listeners itself, and must be disposed when no
+	 * longer needed.
+	 *
+	 * @param prefix
+	 *            the observable prefix, in the realm of this set
+	 * @return an observable view of the strings starting with the prefix
+	 */
+	public IObservableSet<String> prefixView(IObservableValue<String> prefix) {
+		Assert.isNotNull(prefix, "Prefix cannot be null"); //$NON-NLS-1$
+		Assert.isTrue(prefix.getRealm().equals(getRealm()),
+				"The prefix must belong to the realm of the set"); //$NON-NLS-1$
+		return new PrefixView(prefix);
+	}
+
+	public boolean add(String o) {
+		checkRealm();
+		if (!insert(o))
+			return false;
+		fireSetChange(Diffs.createSetDiff(Collections.singleton(o),
+				Collections.<String> emptySet()));
+		return true;
+	}
+
+	public boolean addAll(Collection<? extends String> c) {
+		checkRealm();
+		Set<String> additions = new HashSet<String>();
+		for (Iterator<? extends String> it = c.iterator(); it.hasNext();) {
+			String element = it.next();
+			if (insert(element))
+				additions.add(element);
+		}
+		if (additions.isEmpty())
+			return false;
+		fireSetChange(Diffs.createSetDiff(additions, Collections
+				.<String> emptySet()));
+		return true;
+	}
+
+	public boolean remove(Object o) {
+		checkRealm();
+		if (!delete(o))
+			return false;
+		fireSetChange(Diffs.createSetDiff(Collections.<String> emptySet(),
+				Collections.singleton((String) o)));
+		return true;
+	}
+
+	public boolean removeAll(Collection<?> c) {
+		checkRealm();
+		Set<String> removals = new HashSet<String>();
+		for (Iterator<?> it = c.iterator(); it.hasNext();) {
+			Object element = it.next();
+			if (delete(element))
+				removals.add((String) element);
+		}
+		return fireRemovals(removals);
+	}
+
+	public boolean retainAll(Collection<?> c) {
+		checkRealm();
+		Set<String> removals = new HashSet<String>();
+		for (Iterator<String> it = wrappedSet.iterator(); it.hasNext();) {
+			String element = it.next();
+			if (!c.contains(element))
+				removals.add(element);
+		}
+		for (Iterator<String> it = removals.iterator(); it.hasNext();)
+			delete(it.next());
+		return fireRemovals(removals);
+	}
+
+	public void clear() {
+		checkRealm();
+		Set<String> removals = new HashSet<String>(root.size);
+		collect(root, removals);
+		root = new Node();
+		modCount++;
+		fireRemovals(removals);
+	}
+
+	private boolean fireRemovals(Set<String> removals) {
+		if (removals.isEmpty())
+			return false;
+		fireSetChange(Diffs.createSetDiff(Collections.<String> emptySet(),
+				removals));
+		return true;
+	}
+
+	// Trie operations
+
+	private boolean insert(String element) {
+		Assert.isNotNull(element, "Strings cannot be null"); //$NON-NLS-1$
+		Node node = find(element);
+		if (node != null && node.word != null)
+			return false;
+		node = root;
+		node.size++;
+		for (int i = 0; i < element.length(); i++) {
+			node = node.getOrAddChild(element.charAt(i));
+			node.size++;
+		}
+		node.word = element;
+		modCount++;
+		return true;
+	}
+
+	private boolean delete(Object o) {
+		if (!(o instanceof String))
+			return false;
+		String element = (String) o;
+		Node node = find(element);
+		if (node == null || node.word == null)
+			return false;
+		node = root;
+		node.size--;
+		for (int i = 0; i < element.length(); i++) {
+			Node child = node.child(element.charAt(i));
+			if (--child.size == 0) {
+				// prune the now empty branch
+				node.removeChild(element.charAt(i));
+				modCount++;
+				return true;
+			}
+			node = child;
+		}
+		node.word = null;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * @return the node of the given prefix, or <code>null</code> if no string
+	 *         starts with it
+	 */
+	private Node find(String prefix) {
+		Node node = root;
+		for (int i = 0; node != null && i < prefix.length(); i++)
+			node = node.child(prefix.charAt(i));
+		return node;
+	}
+
+	/**
+	 * Adds the strings in the subtree of the given node to the given set.
+	 */
+	private static void collect(Node node, Set<String> result) {
+		List<Node> stack = new ArrayList<Node>();
+		stack.add(node);
+		while (!stack.isEmpty()) {
+			Node next = stack.remove(stack.size() - 1);
+			if (next.word != null)
+				result.add(next.word);
+			for (int i = 0; i < next.childCount; i++)
+				stack.add(next.children[i]);
+		}
+	}
+
+	/**
+	 * Adds the strings starting with <code>prefix</code> but not with
+	 * <code>longerPrefix</code> to the given set, where
+	 * <code>longerPrefix</code> starts with <code>prefix</code>. Only the
+	 * branches of the trie leaving the path between both prefixes are visited.
+	 */
+	private void collectDifference(String prefix, String longerPrefix,
+			Set<String> result) {
+		Node node = find(prefix);
+		for (int depth = prefix.length(); node != null
+				&& depth < longerPrefix.length(); depth++) {
+			if (node.word != null)
+				result.add(node.word);
+			char key = longerPrefix.charAt(depth);
+			Node next = null;
+			for (int i = 0; i < node.childCount; i++) {
+				if (node.keys[i] == key)
+					next = node.children[i];
+				else
+					collect(node.children[i], result);
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * The strings of this set starting with a prefix, read directly from the
+	 * trie.
+	 */
+	private abstract class PrefixSet extends AbstractSet<String> {
+		abstract String getPrefix();
+
+		public boolean contains(Object o) {
+			if (!(o instanceof String))
+				return false;
+			String string = (String) o;
+			if (!string.startsWith(getPrefix()))
+				return false;
+			Node node = find(string);
+			return node != null && node.word != null;
+		}
+
+		public int size() {
+			Node node = find(getPrefix());
+			return node == null ? 0 : node.size;
+		}
+
+		public Iterator<String> iterator() {
+			final Node start = find(getPrefix());
+			return new Iterator<String>() {
+				private final List<Node> stack = new ArrayList<Node>();
+				private final int expectedModCount = modCount;
+				private Node next;
+
+				{
+					if (start != null)
+						stack.add(start);
+					advance();
+				}
+
+				private void advance() {
+					next = null;
+					while (next == null && !stack.isEmpty()) {
+						Node node = stack.remove(stack.size() - 1);
+						// push in reverse to visit the children in order
+						for (int i = node.childCount - 1; i >= 0; i--)
+							stack.add(node.children[i]);
+						if (node.word != null)
+							next = node;
+					}
+				}
+
+				public boolean hasNext() {
+					return next != null;
+				}
+
+				public String next() {
+					if (modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+					if (next == null)
+						throw new NoSuchElementException();
+					String word = next.word;
+					advance();
+					return word;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	/**
+	 * A live view of the strings starting with an observable prefix.
+	 */
+	private class PrefixView extends AbstractObservableSet<String> {
+		private IObservableValue<String> prefixValue;
+
+		/**
+		 * The prefix the view last fired events for, or <code>null</code>
+		 * while not listening.
+		 */
+		private String prefix = null;
+
+		private final Set<String> wrappedSet = new PrefixSet() {
+			String getPrefix() {
+				return currentPrefix();
+			}
+		};
+
+		private class PrivateInterface implements ISetChangeListener<String>,
+				IValueChangeListener<String>, IStaleListener {
+			public void handleSetChange(SetChangeEvent<String> event) {
+				Set<String> additions = filter(event.diff.getAdditions());
+				Set<String> removals = filter(event.diff.getRemovals());
+				if (!additions.isEmpty() || !removals.isEmpty())
+					fireSetChange(Diffs.createSetDiff(additions, removals));
+			}
+
+			public void handleValueChange(ValueChangeEvent<String> event) {
+				String oldPrefix = prefix;
+				String newPrefix = normalize(event.diff.getNewValue());
+				prefix = newPrefix;
+				Set<String> additions = new HashSet<String>();
+				Set<String> removals = new HashSet<String>();
+				if (newPrefix.startsWith(oldPrefix)) {
+					collectDifference(oldPrefix, newPrefix, removals);
+				} else if (oldPrefix.startsWith(newPrefix)) {
+					collectDifference(newPrefix, oldPrefix, additions);
+				} else {
+					// Neither prefix extends the other, the views are disjoint
+					Node oldNode = find(oldPrefix);
+					if (oldNode != null)
+						collect(oldNode, removals);
+					Node newNode = find(newPrefix);
+					if (newNode != null)
+						collect(newNode, additions);
+				}
+				if (!additions.isEmpty() || !removals.isEmpty())
+					fireSetChange(Diffs.createSetDiff(additions, removals));
+			}
+
+			public void handleStale(StaleEvent staleEvent) {
+				fireStale();
+			}
+		}
+
+		private PrivateInterface privateInterface = new PrivateInterface();
+
+		PrefixView(IObservableValue<String> prefixValue) {
+			super(WritableStringSet.this.getRealm());
+			this.prefixValue = prefixValue;
+		}
+
+		private String normalize(String prefix) {
+			return prefix == null ? "" : prefix; //$NON-NLS-1$
+		}
+
+		private String currentPrefix() {
+			if (prefix != null)
+				return prefix;
+			ObservableTracker.setIgnore(true);
+			try {
+				return normalize(prefixValue.getValue());
+			} finally {
+				ObservableTracker.setIgnore(false);
+			}
+		}
+
+		private Set<String> filter(Set<String> strings) {
+			Set<String> result = null;
+			for (Iterator<String> it = strings.iterator(); it.hasNext();) {
+				String string = it.next();
+				if (string.startsWith(prefix)) {
+					if (result == null)
+						result = new HashSet<String>();
+					result.add(string);
+				}
+			}
+			return result == null ? Collections.<String> emptySet() : result;
+		}
+
+		protected void firstListenerAdded() {
+			WritableStringSet.this.addSetChangeListener(privateInterface);
+			WritableStringSet.this.addStaleListener(privateInterface);
+			prefixValue.addValueChangeListener(privateInterface);
+			prefixValue.addStaleListener(privateInterface);
+			prefix = currentPrefix();
+		}
+
+		protected void lastListenerRemoved() {
+			if (prefix == null)
+				return;
+			WritableStringSet.this.removeSetChangeListener(privateInterface);
+			WritableStringSet.this.removeStaleListener(privateInterface);
+			prefixValue.removeValueChangeListener(privateInterface);
+			prefixValue.removeStaleListener(privateInterface);
+			prefix = null;
+		}
+
+		protected Set<String> getWrappedSet() {
+			return wrappedSet;
+		}
+
+		public Object getElementType() {
+			return String.class;
+		}
+
+		public boolean isStale() {
+			getterCalled();
+			ObservableTracker.setIgnore(true);
+			try {
+				return WritableStringSet.this.isStale()
+						|| prefixValue.isStale();
+			} finally {
+				ObservableTracker.setIgnore(false);
+			}
+		}
+
+		public synchronized void dispose() {
+			lastListenerRemoved();
+			privateInterface = null;
+			prefixValue = null;
+			super.dispose();
+		}
+	}
+}
@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.observable.value;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.util.Policy;
+import org.eclipse.core.internal.databinding.observable.Util;
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * A computed value whose computation runs outside of its realm. The inputs of
+ * the computation are read within the realm by {@link #snapshot()}, which
+ * automatically registers listeners on its observable dependencies like
+ * {@link ComputedValue#calculate()} does. The computation itself is performed
+ * by {@link #calculate(Object)} on a thread of the given {@link Executor}, and
+ * the result is published within the realm using
+ * {@link Realm#asyncExec(Runnable)}.
+ * <p>
+ * Until the first computation has completed, the value is <code>null</code>.
+ * While a computation is in flight, the value is the result of the previous
+ * computation and {@link #isStale()} returns <code>true</code>. When a
+ * dependency changes while a computation is in flight, the computation is
+ * superseded: it is cancelled, its result is discarded, and a new
+ * computation is started with a fresh snapshot. Changes occurring in quick
+ * succession are coalesced into a single new computation.
+ * </p>
+ * <p>
+ * A stale event is fired when a computation starts, and a value change event
+ * is fired when its result is published. The value change event ends the
+ * staleness, and is therefore fired even if the result is equal to the
+ * previous value, in which case old and new value of the diff are equal. If
+ * the computation fails, the previous value is kept.
+ * </p>
+ * <p>
+ * This class is thread safe. All state accessing methods must be invoked from
+ * the {@link Realm#isCurrent() current realm}. Methods for adding and removing
+ * listeners may be invoked from any thread.
+ * </p>
+ * <p>
+ * Example: parse a document off the realm thread.
+ * </p>
+ *
+ * <pre>
+ * IObservableValue&lt;Ast&gt; ast = new AsyncComputedValue&lt;String, Ast&gt;(executor) {
+ * 	protected String snapshot() {
+ * 		return text.getValue();
+ * 	}
+ *
+ * 	protected Ast calculate(String text) {
+ * 		return Parser.parse(text);
+ * 	}
+ * };
+ * </pre>
+ *
+ * @param <S>
+ *            the type of the snapshot of the inputs
+ * @param <T>
+ *            the type of the value
+ *
+ * @since 1.4
+ */
+public abstract class AsyncComputedValue<S, T> extends
+		AbstractObservableValue<T> {
+
+	private final Executor executor;
+
+	private final Object valueType;
+
+	private T cachedValue = null;
+
+	private boolean dirty = true;
+
+	private boolean stale = false;
+
+	/**
+	 * Incremented whenever a computation is started or superseded. Results of
+	 * computations started with an older generation are discarded.
+	 */
+	private int generation = 0;
+
+	private FutureTask<T> inFlight = null;
+
+	private boolean restartScheduled = false;
+
+	/**
+	 * Array of observables this value depends on. This field has a value of
+	 * <code>null</code> if we are not currently listening.
+	 */
+	private IObservable[] dependencies = null;
+
+	/**
+	 * Creates an asynchronously computed value in the default realm.
+	 *
+	 * @param executor
+	 *            the executor running the computations
+	 */
+	public AsyncComputedValue(Executor executor) {
+		this(Realm.getDefault(), executor, null);
+	}
+
+	/**
+	 * Creates an asynchronously computed value in the given realm.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param executor
+	 *            the executor running the computations
+	 */
+	public AsyncComputedValue(Realm realm, Executor executor) {
+		this(realm, executor, null);
+	}
+
+	/**
+	 * Creates an asynchronously computed value in the given realm.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @param executor
+	 *            the executor running the computations
+	 * @param valueType
+	 *            the value type, may be <code>null</code>
+	 */
+	public AsyncComputedValue(Realm realm, Executor executor, Object valueType) {
+		super(realm);
+		Assert.isNotNull(executor, "Executor cannot be null"); //$NON-NLS-1$
+		this.executor = executor;
+		this.valueType = valueType;
+	}
+
+	/**
+	 * Inner class that implements interfaces that we don't want to expose as
+	 * public API. Each interface could have been implemented using a separate
+	 * anonymous class, but we combine them here to reduce the memory overhead
+	 * and number of classes.
+	 *
+	 * <p>
+	 * The Runnable takes the snapshot of the inputs within the realm. It is
+	 * passed to ObservableTracker to detect every observable that is used by
+	 * the snapshot.
+	 * </p>
+	 *
+	 * <p>
+	 * The IChangeListener and IStaleListener are attached to every
+	 * dependency.
+	 * </p>
+	 */
+	private class PrivateInterface implements Runnable, IChangeListener,
+			IStaleListener {
+		S snapshot;
+
+		public void run() {
+			snapshot = snapshot();
+		}
+
+		public void handleStale(StaleEvent event) {
+			if (!dirty)
+				makeStale();
+		}
+
+		public void handleChange(ChangeEvent event) {
+			makeDirty();
+		}
+	}
+
+	private PrivateInterface privateInterface = new PrivateInterface();
+
+	private Runnable restartRunnable = new Runnable() {
+		public void run() {
+			restartScheduled = false;
+			if (!isDisposed() && dirty)
+				start();
+		}
+	};
+
+	/**
+	 * Reads the inputs of the computation within the realm. Any dependencies
+	 * read must be {@link IObservable}, and implementers must use one of the
+	 * interface methods tagged TrackedGetter for AsyncComputedValue to
+	 * recognize it as a dependency.
+	 * <p>
+	 * The returned snapshot is passed to {@link #calculate(Object)} on another
+	 * thread, and must therefore not be modified afterwards, and must not
+	 * provide access to observables.
+	 * </p>
+	 *
+	 * @return the snapshot of the inputs
+	 */
+	protected abstract S snapshot();
+
+	/**
+	 * Computes the value from the given snapshot. This method is called on a
+	 * thread of the executor, and must not access observables. If the
+	 * computation is superseded while it is running, the executing thread is
+	 * interrupted, so long running implementations may check
+	 * {@link Thread#isInterrupted()} and return early.
+	 *
+	 * @param snapshot
+	 *            the snapshot returned by {@link #snapshot()}
+	 * @return the value
+	 * @throws Exception
+	 *             if the value cannot be computed. The exception is logged,
+	 *             and the previous value is kept.
+	 */
+	protected abstract T calculate(S snapshot) throws Exception;
+
+	protected final T doGetValue() {
+		if (dirty && !restartScheduled)
+			start();
+		return cachedValue;
+	}
+
+	private void start() {
+		// This line will do the following:
+		// - Run the snapshot method
+		// - While doing so, add any observable that is touched to the
+		// dependencies list
+		// - Only add listeners to dependencies we are not listening to
+		// yet, and remove them from dependencies no longer used
+		dependencies = ObservableTracker.runAndMonitor(privateInterface,
+				privateInterface, privateInterface, dependencies);
+		final S snapshot = privateInterface.snapshot;
+		privateInterface.snapshot = null;
+		dirty = false;
+
+		cancelInFlight();
+		final int startedGeneration = ++generation;
+		final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+			public T call() throws Exception {
+				return calculate(snapshot);
+			}
+		}) {
+			protected void done() {
+				if (isCancelled())
+					return;
+				final FutureTask<T> completed = this;
+				// Called on the executor thread, publish within the realm
+				getRealm().asyncExec(new Runnable() {
+					public void run() {
+						publish(startedGeneration, completed);
+					}
+				});
+			}
+		};
+		inFlight = task;
+		makeStale();
+		executor.execute(task);
+	}
+
+	private void publish(int startedGeneration, FutureTask<T> task) {
+		if (startedGeneration != generation || task != inFlight
+				|| isDisposed())
+			// superseded
+			return;
+		inFlight = null;
+
+		T oldValue = cachedValue;
+		try {
+			cachedValue = task.get();
+		} catch (CancellationException e) {
+			return;
+		} catch (InterruptedException e) {
+			// cannot happen, the task is done
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Policy.getLog().log(
+					new Status(IStatus.ERROR, Policy.JFACE_DATABINDING,
+							IStatus.OK, "Could not compute value", e //$NON-NLS-1$
+									.getCause()));
+		}
+
+		if (!stale && Util.equals(oldValue, cachedValue))
+			return;
+
+		// A change event clears the staleness announced when starting, so it is
+		// fired even if the value is unchanged. If a dependency is stale, a
+		// stale event is fired again afterwards in case clients assume that a
+		// value change is indicative of non-staleness.
+		stale = false;
+		fireValueChange(Diffs.createValueDiff(oldValue, cachedValue));
+		if (anyStale(dependencies))
+			makeStale();
+	}
+
+	private static boolean anyStale(IObservable[] observables) {
+		if (observables == null)
+			return false;
+		// Do not let the isStale() calls track our dependencies as
+		// dependencies of whoever is reading us
+		ObservableTracker.setIgnore(true);
+		try {
+			for (int i = 0; i < observables.length; i++) {
+				if (observables[i].isStale())
+					return true;
+			}
+			return false;
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
+	private void cancelInFlight() {
+		if (inFlight != null) {
+			inFlight.cancel(true);
+			inFlight = null;
+		}
+	}
+
+	private void makeDirty() {
+		if (!dirty) {
+			dirty = true;
+
+			// Supersede the computation in flight, if any
+			cancelInFlight();
+			generation++;
+
+			if (hasListeners()) {
+				makeStale();
+				// Coalesce changes occurring in quick succession into a single
+				// new computation
+				if (!restartScheduled) {
+					restartScheduled = true;
+					getRealm().asyncExec(restartRunnable);
+				}
+			} else {
+				stopListening();
+				stale = false;
+			}
+		}
+	}
+
+	private void makeStale() {
+		if (!stale) {
+			stale = true;
+			fireStale();
+		}
+	}
+
+	private void stopListening() {
+		if (dependencies != null) {
+			for (int i = 0; i < dependencies.length; i++) {
+				IObservable observable = dependencies[i];
+
+				observable.removeChangeListener(privateInterface);
+				observable.removeStaleListener(privateInterface);
+			}
+			dependencies = null;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> while a computation is in flight, or while a
+	 * dependency is stale.
+	 */
+	public boolean isStale() {
+		// start computing if necessary, otherwise staleness wouldn't mean
+		// anything
+		getValue();
+		return stale;
+	}
+
+	public Object getValueType() {
+		return valueType;
+	}
+
+	public synchronized void addChangeListener(IChangeListener listener) {
+		super.addChangeListener(listener);
+		// If somebody is listening, we need to make sure we attach our own
+		// listeners
+		computeValueForListeners();
+	}
+
+	public synchronized void addValueChangeListener(
+			IValueChangeListener<? super T> listener) {
+		super.addValueChangeListener(listener);
+		// If somebody is listening, we need to make sure we attach our own
+		// listeners
+		computeValueForListeners();
+	}
+
+	private void computeValueForListeners() {
+		getRealm().exec(new Runnable() {
+			public void run() {
+				if (dirty && !isDisposed()) {
+					// Start the computation to make sure we start listening to
+					// the observables we depend on.
+					getValue();
+				}
+			}
+		});
+	}
+
+	public synchronized void dispose() {
+		cancelInFlight();
+		generation++;
+		stopListening();
+		super.dispose();
+	}
+}
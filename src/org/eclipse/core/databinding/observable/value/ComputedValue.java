@@ -13,6 +13,7 @@
 package org.eclipse.core.databinding.observable.value;
 
 import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.IStaleListener;
@@ -20,6 +21,9 @@ import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.internal.databinding.observable.IdleTimeout;
+import org.eclipse.core.internal.databinding.observable.PropagationScheduler;
+import org.eclipse.core.internal.databinding.observable.Util;
 
 /**
  * A Lazily calculated value that automatically computes and registers listeners
@@ -69,6 +73,28 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 
 	private T cachedValue = null;
 
+	private boolean eagerCompare = false;
+
+	/**
+	 * <code>true</code> if a stale event has been fired since the last change
+	 * event
+	 */
+	private boolean staleFired = false;
+
+	private final IdleTimeout idleTimeout = new IdleTimeout(getRealm()) {
+		protected boolean isIdle() {
+			return !hasListeners() && !isDisposed();
+		}
+
+		protected void release() {
+			if (!dirty) {
+				stopListening();
+				dirty = true;
+				cachedValue = null;
+			}
+		}
+	};
+
 	/**
 	 * Array of observables this computed value depends on. This field has a
 	 * value of <code>null</code> if we are not currently listening.
@@ -137,6 +163,7 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 		public void handleStale(StaleEvent event) {
 			if (!dirty && !stale) {
 				stale = true;
+				staleFired = true;
 				fireStale();
 			}
 		}
@@ -150,34 +177,86 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 
 	private Object valueType;
 
+	/**
+	 * Schedules the change event fired by makeDirty when glitch-free
+	 * propagation is enabled, and remembers the dependency height of this
+	 * computed value. Created lazily.
+	 */
+	private class PropagationNode extends PropagationScheduler.Node {
+		ValueDiff<T> diff;
+
+		protected void propagate() {
+			ValueDiff<T> diff = this.diff;
+			this.diff = null;
+			if (eagerCompare)
+				fireEagerValueChange(diff.getOldValue(), diff.getNewValue());
+			else
+				fireValueChange(diff);
+		}
+	}
+
+	private PropagationNode propagationNode;
+
+	private PropagationNode getPropagationNode() {
+		if (propagationNode == null)
+			propagationNode = new PropagationNode();
+		return propagationNode;
+	}
+
 	protected final T doGetValue() {
+		PropagationScheduler scheduler = PropagationScheduler
+				.getInstance(getRealm());
 		if (dirty) {
-			// This line will do the following:
-			// - Run the calculate method
-			// - While doing so, add any observable that is touched to the
-			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+			int readHeight = scheduler == null ? 0 : scheduler
+					.beginRecompute();
+			IObservable[] newDependencies;
+			try {
+				// This line will do the following:
+				// - Run the calculate method
+				// - While doing so, add any observable that is touched to the
+				// dependencies list
+				// - Only add listeners to dependencies we are not listening to
+				// yet, and remove them from dependencies no longer used
+				newDependencies = ObservableTracker.runAndMonitor(
+						privateInterface, privateInterface, privateInterface,
+						dependencies);
+			} finally {
+				if (scheduler != null)
+					getPropagationNode().setHeight(
+							scheduler.endRecompute(readHeight));
+			}
 
 			stale = false;
-			for (int i = 0; i < newDependencies.length; i++) {
-				IObservable observable = newDependencies[i];
-				// Add a change listener to the new dependency.
-				if (observable.isStale()) {
-					stale = true;
-				} else {
-					observable.addStaleListener(privateInterface);
-				}
-			}
+			if (anyStale(newDependencies))
+				stale = true;
 
 			dependencies = newDependencies;
 
 			dirty = false;
 		}
 
+		idleTimeout.touch();
+
+		if (scheduler != null)
+			scheduler.reportRead(getPropagationNode().getHeight());
 		return cachedValue;
 	}
 
+	private static boolean anyStale(IObservable[] observables) {
+		// Do not let the isStale() calls track our dependencies as
+		// dependencies of whoever is reading us
+		ObservableTracker.setIgnore(true);
+		try {
+			for (int i = 0; i < observables.length; i++) {
+				if (observables[i].isStale())
+					return true;
+			}
+			return false;
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
 	/**
 	 * Subclasses must override this method to provide the object's value. Any
 	 * dependencies used to calculate the value must be {@link IObservable}, and
@@ -192,13 +271,17 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 		if (!dirty) {
 			dirty = true;
 
-			stopListening();
+			// Keep listening while somebody is listening to us, so that the
+			// dependencies can be reconciled on the next recompute instead of
+			// being subscribed again from scratch.
+			if (!hasListeners())
+				stopListening();
 
 			// copy the old value
 			final T oldValue = cachedValue;
 			// Fire the "dirty" event. This implementation recomputes the new
 			// value lazily.
-			fireValueChange(new ValueDiff<T>() {
+			ValueDiff<T> diff = new ValueDiff<T>() {
 
 				public T getOldValue() {
 					return oldValue;
@@ -207,10 +290,51 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 				public T getNewValue() {
 					return getValue();
 				}
-			});
+			};
+
+			PropagationScheduler scheduler = PropagationScheduler
+					.getInstance(getRealm());
+			if (scheduler != null && scheduler.isPropagating()) {
+				// Fire once all dependencies changed in this wave have fired.
+				// If our event is still pending, it already reports the
+				// value from before the wave as old value.
+				PropagationNode node = getPropagationNode();
+				if (!node.isScheduled()) {
+					node.diff = diff;
+					scheduler.schedule(node);
+				}
+			} else if (eagerCompare && hasListeners()) {
+				// Recompute right away, and only notify our listeners if the
+				// value actually changed
+				fireEagerValueChange(oldValue, doGetValue());
+			} else {
+				fireValueChange(diff);
+			}
 		}
 	}
 
+	/**
+	 * Fires the change computed by an eager comparison. A change between equal
+	 * values is only fired to end the staleness announced since the last
+	 * change event, since clients consider a change event as the end of
+	 * staleness.
+	 */
+	private void fireEagerValueChange(T oldValue, T newValue) {
+		if (Util.equals(oldValue, newValue) && (stale || !staleFired))
+			return;
+		fireValueChange(Diffs.createValueDiff(oldValue, newValue));
+		if (stale) {
+			// Still stale, announce it again after the change event
+			staleFired = true;
+			fireStale();
+		}
+	}
+
+	protected void fireValueChange(ValueDiff<T> diff) {
+		staleFired = false;
+		super.fireValueChange(diff);
+	}
+
 	/**
 	 * 
 	 */
@@ -233,6 +357,89 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 		return stale;
 	}
 
+	/**
+	 * Enables or disables eager comparison. By default, a computed value fires
+	 * a value change event as soon as one of its dependencies changes, and
+	 * computes its new value lazily when the event is inspected or the value
+	 * is read. With eager comparison enabled, a computed value which has
+	 * listeners recomputes its value as soon as a dependency changes, and only
+	 * fires a value change event if the new value is not equal to the cached
+	 * value. This avoids notifying (and recomputing) downstream observables
+	 * when a change does not affect this value, at the cost of computing the
+	 * value even when nobody reads it.
+	 * <p>
+	 * If glitch-free propagation is enabled for the realm, the value is
+	 * recomputed and compared when its change event is due to be fired.
+	 * </p>
+	 * 
+	 * @param eagerCompare
+	 *            <code>true</code> to enable eager comparison
+	 * @see Realm#setGlitchFreePropagation(boolean)
+	 * @since 1.4
+	 */
+	public void setEagerCompare(boolean eagerCompare) {
+		checkRealm();
+		this.eagerCompare = eagerCompare;
+	}
+
+	/**
+	 * Returns whether eager comparison is enabled.
+	 * 
+	 * @return <code>true</code> if eager comparison is enabled
+	 * @see #setEagerCompare(boolean)
+	 * @since 1.4
+	 */
+	public boolean isEagerCompare() {
+		return eagerCompare;
+	}
+
+	/**
+	 * Sets the idle timeout of this computed value. By default, a computed
+	 * value keeps listening to its dependencies while nobody listens to it,
+	 * until a dependency changes or the value is disposed. With an idle
+	 * timeout, a computed value which had no listeners for the given period
+	 * stops listening to its dependencies and discards its cached value. The
+	 * value is recomputed, and the dependencies listened to again, when the
+	 * value is next accessed or a listener is added.
+	 * 
+	 * @param milliseconds
+	 *            the idle period in milliseconds, or <code>0</code> to never
+	 *            stop listening while idle
+	 * @since 1.4
+	 */
+	public void setIdleTimeout(int milliseconds) {
+		checkRealm();
+		idleTimeout.setMilliseconds(milliseconds);
+	}
+
+	/**
+	 * Returns the idle timeout of this computed value.
+	 * 
+	 * @return the idle period in milliseconds, or <code>0</code> if this
+	 *         computed value never stops listening while idle
+	 * @see #setIdleTimeout(int)
+	 * @since 1.4
+	 */
+	public int getIdleTimeout() {
+		return idleTimeout.getMilliseconds();
+	}
+
+	protected void lastListenerRemoved() {
+		super.lastListenerRemoved();
+		// May be called outside of our realm
+		getRealm().exec(new Runnable() {
+			public void run() {
+				if (hasListeners() || isDisposed())
+					return;
+				if (dirty)
+					// The dependencies were only kept for the listeners
+					stopListening();
+				else
+					idleTimeout.touch();
+			}
+		});
+	}
+
 	public Object getValueType() {
 		return valueType;
 	}
@@ -264,8 +471,9 @@ public abstract class ComputedValue<T> extends AbstractObservableValue<T> {
 	private void computeValueForListeners() {
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not currently listening, or do not receive
+					// changes until we are recomputed.
 					if (hasListeners()) {
 						// But someone is listening for changes. Call getValue()
 						// to make sure we start listening to the observables we
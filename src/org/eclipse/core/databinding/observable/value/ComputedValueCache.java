@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.observable.value;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.masterdetail.IObservableFactory;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * A memoizing factory of computed values parameterized by a key. The factory
+ * keeps one shared {@link ComputedValue} per key, which computes its value
+ * using {@link #calculate(Object)} and, like any computed value, automatically
+ * listens to the observables read while doing so.
+ * <p>
+ * Every call to {@link #createObservable(Object)} returns a new observable
+ * value which decorates the shared computed value for the key. Disposing the
+ * returned observable releases it. Computed values which are no longer
+ * referenced by any returned observable are kept for later reuse, but once
+ * the number of cached computed values exceeds the maximum size of the
+ * factory, the least recently used unreferenced ones are disposed. Computed
+ * values which are still referenced are never evicted, so the cache may
+ * temporarily hold more values than its maximum size.
+ * </p>
+ * <p>
+ * All methods must be invoked from the realm of the factory. Keys are compared
+ * using {@link Object#equals(Object)}.
+ * </p>
+ * <p>
+ * Example: the total of the order lines of a customer.
+ * </p>
+ *
+ * <pre>
+ * ComputedValueCache&lt;Customer, Integer&gt; totals = new ComputedValueCache&lt;Customer, Integer&gt;(
+ * 		100) {
+ * 	protected Integer calculate(Customer customer) {
+ * 		int total = 0;
+ * 		for (OrderLine line : orderLines(customer))
+ * 			total += line.getAmount();
+ * 		return total;
+ * 	}
+ * };
+ *
+ * IObservableValue&lt;Integer&gt; total = totals.createObservable(customer);
+ * ...
+ * total.dispose();
+ * </pre>
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <T>
+ *            the type of the values
+ *
+ * @since 1.4
+ */
+public abstract class ComputedValueCache<K, T> implements
+		IObservableFactory<IObservableValue<T>, K> {
+
+	private final Realm realm;
+
+	private final Object valueType;
+
+	private int maximumSize;
+
+	/**
+	 * The cached entries, in access order from least to most recently used.
+	 */
+	private final LinkedHashMap<K, Entry> entries = new LinkedHashMap<K, Entry>(
+			16, 0.75f, true);
+
+	private int unreferencedCount = 0;
+
+	private boolean disposed = false;
+
+	/**
+	 * Creates a cache in the default realm.
+	 *
+	 * @param maximumSize
+	 *            the number of computed values beyond which unreferenced
+	 *            values are evicted
+	 */
+	public ComputedValueCache(int maximumSize) {
+		this(Realm.getDefault(), null, maximumSize);
+	}
+
+	/**
+	 * Creates a cache in the given realm.
+	 *
+	 * @param realm
+	 *            the realm of the computed values
+	 * @param maximumSize
+	 *            the number of computed values beyond which unreferenced
+	 *            values are evicted
+	 */
+	public ComputedValueCache(Realm realm, int maximumSize) {
+		this(realm, null, maximumSize);
+	}
+
+	/**
+	 * Creates a cache in the given realm.
+	 *
+	 * @param realm
+	 *            the realm of the computed values
+	 * @param valueType
+	 *            the value type of the computed values, may be
+	 *            <code>null</code>
+	 * @param maximumSize
+	 *            the number of computed values beyond which unreferenced
+	 *            values are evicted
+	 */
+	public ComputedValueCache(Realm realm, Object valueType, int maximumSize) {
+		Assert.isNotNull(realm, "Realm cannot be null"); //$NON-NLS-1$
+		Assert.isTrue(maximumSize >= 0, "Maximum size cannot be negative"); //$NON-NLS-1$
+		this.realm = realm;
+		this.valueType = valueType;
+		this.maximumSize = maximumSize;
+	}
+
+	private class Entry {
+		final K key;
+		final ComputedValue<T> value;
+		int referenceCount = 0;
+		boolean evicted = false;
+
+		Entry(final K key) {
+			this.key = key;
+			this.value = new ComputedValue<T>(realm, valueType) {
+				protected T calculate() {
+					return ComputedValueCache.this.calculate(key);
+				}
+			};
+		}
+	}
+
+	private class Reference extends DecoratingObservableValue<T> {
+		private Entry entry;
+
+		Reference(Entry entry) {
+			super(entry.value, false);
+			this.entry = entry;
+		}
+
+		public synchronized void dispose() {
+			if (entry != null) {
+				Entry released = entry;
+				entry = null;
+				release(released);
+			}
+			super.dispose();
+		}
+	}
+
+	/**
+	 * Computes the value for the given key. Any dependencies used to calculate
+	 * the value must be {@link IObservable}, and implementers must use one of
+	 * the interface methods tagged TrackedGetter for the computed value to
+	 * recognize it as a dependency.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value for the key
+	 */
+	protected abstract T calculate(K key);
+
+	/**
+	 * Returns a new observable value decorating the shared computed value for
+	 * the given key, creating the computed value if it is not cached. The
+	 * returned observable must be disposed when no longer needed.
+	 *
+	 * @param key
+	 *            the key
+	 * @return a new reference to the computed value for the key
+	 */
+	public IObservableValue<T> createObservable(K key) {
+		checkRealm();
+		Assert.isTrue(!disposed, "Cache has been disposed"); //$NON-NLS-1$
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			// The shared value is owned by this cache, do not report it as
+			// created to whoever is collecting the observables created by
+			// the caller
+			ObservableTracker.setIgnore(true);
+			try {
+				entry = new Entry(key);
+			} finally {
+				ObservableTracker.setIgnore(false);
+			}
+			entries.put(key, entry);
+			unreferencedCount++;
+		}
+		if (entry.referenceCount++ == 0)
+			unreferencedCount--;
+		Reference reference = new Reference(entry);
+		evict();
+		return reference;
+	}
+
+	private void release(Entry entry) {
+		if (entry.evicted)
+			return;
+		if (--entry.referenceCount == 0) {
+			unreferencedCount++;
+			evict();
+		}
+	}
+
+	private void evict() {
+		int excess = entries.size() - maximumSize;
+		if (excess <= 0 || unreferencedCount == 0)
+			return;
+		List<Entry> evicted = new ArrayList<Entry>();
+		for (Iterator<Entry> it = entries.values().iterator(); excess > 0
+				&& it.hasNext();) {
+			Entry entry = it.next();
+			if (entry.referenceCount == 0) {
+				it.remove();
+				entry.evicted = true;
+				evicted.add(entry);
+				unreferencedCount--;
+				excess--;
+			}
+		}
+		for (Iterator<Entry> it = evicted.iterator(); it.hasNext();)
+			it.next().value.dispose();
+	}
+
+	/**
+	 * Returns the number of cached computed values, including the ones which
+	 * are still referenced.
+	 *
+	 * @return the number of cached computed values
+	 */
+	public int size() {
+		checkRealm();
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of computed values beyond which unreferenced values
+	 *         are evicted
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Sets the number of computed values beyond which unreferenced values are
+	 * evicted, evicting the least recently used unreferenced values if
+	 * necessary.
+	 *
+	 * @param maximumSize
+	 *            the maximum size, <code>0</code> to dispose computed values
+	 *            as soon as they are no longer referenced
+	 */
+	public void setMaximumSize(int maximumSize) {
+		checkRealm();
+		Assert.isTrue(maximumSize >= 0, "Maximum size cannot be negative"); //$NON-NLS-1$
+		this.maximumSize = maximumSize;
+		evict();
+	}
+
+	/**
+	 * @return the realm of the computed values
+	 */
+	public Realm getRealm() {
+		return realm;
+	}
+
+	/**
+	 * Disposes all cached computed values, which also disposes all observables
+	 * returned by {@link #createObservable(Object)}.
+	 */
+	public void dispose() {
+		checkRealm();
+		if (disposed)
+			return;
+		disposed = true;
+		List<Entry> evicted = new ArrayList<Entry>(entries.values());
+		entries.clear();
+		unreferencedCount = 0;
+		for (Iterator<Entry> it = evicted.iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			entry.evicted = true;
+			entry.value.dispose();
+		}
+	}
+
+	private void checkRealm() {
+		Assert.isTrue(realm.isCurrent(),
+				"This operation must be run within the observable's realm"); //$NON-NLS-1$
+	}
+}
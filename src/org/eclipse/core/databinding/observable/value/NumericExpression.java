@@ -0,0 +1,585 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.observable.value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * An immutable arithmetic expression over observable numbers, which can be
+ * compiled into a single observable value.
+ * <p>
+ * Expressions are built from observable leaves and constants using the
+ * operator methods, and {@link #toObservable()} compiles the whole expression
+ * into one observable value. The compiled value evaluates the expression as a
+ * postfix program over primitive <code>double</code> values, and listens
+ * directly to the distinct observable leaves. Compared to a chain of
+ * {@link ComputedValue}s, one per operator, there are no intermediate
+ * observables, no intermediate listeners and no boxing of intermediate
+ * results.
+ * </p>
+ * <p>
+ * The value of the compiled observable is <code>null</code> if any observable
+ * value leaf, or any element of an observable list leaf, is <code>null</code>.
+ * All observable leaves must belong to the same realm.
+ * </p>
+ * <p>
+ * Example: the gross total of an order.
+ * </p>
+ *
+ * <pre>
+ * IObservableValue&lt;Double&gt; gross = NumericExpression.sumOf(lineAmounts)
+ * 		.plus(NumericExpression.valueOf(shipping))
+ * 		.times(NumericExpression.valueOf(taxRate).plus(1)).round(2)
+ * 		.toObservable();
+ * </pre>
+ *
+ * @since 1.4
+ */
+public final class NumericExpression {
+
+	private static final int LOAD_VALUE = 0;
+	private static final int SUM_LIST = 1;
+	private static final int LOAD_CONSTANT = 2;
+	private static final int ADD = 3;
+	private static final int SUBTRACT = 4;
+	private static final int MULTIPLY = 5;
+	private static final int DIVIDE = 6;
+	private static final int NEGATE = 7;
+	private static final int ABS = 8;
+	private static final int MIN = 9;
+	private static final int MAX = 10;
+	private static final int ROUND = 11;
+
+	private final int operator;
+
+	private final NumericExpression left;
+
+	private final NumericExpression right;
+
+	private final IObservable leaf;
+
+	private final double constant;
+
+	private NumericExpression(int operator, NumericExpression left,
+			NumericExpression right, IObservable leaf, double constant) {
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+		this.leaf = leaf;
+		this.constant = constant;
+	}
+
+	private static NumericExpression unary(int operator,
+			NumericExpression operand, double constant) {
+		return new NumericExpression(operator, operand, null, null, constant);
+	}
+
+	private static NumericExpression binary(int operator,
+			NumericExpression left, NumericExpression right) {
+		Assert.isNotNull(right, "Operand cannot be null"); //$NON-NLS-1$
+		return new NumericExpression(operator, left, right, null, 0);
+	}
+
+	/**
+	 * Returns an expression evaluating to the value of the given observable.
+	 *
+	 * @param value
+	 *            the observable value
+	 * @return the expression
+	 */
+	public static NumericExpression valueOf(
+			IObservableValue<? extends Number> value) {
+		Assert.isNotNull(value, "Observable value cannot be null"); //$NON-NLS-1$
+		return new NumericExpression(LOAD_VALUE, null, null, value, 0);
+	}
+
+	/**
+	 * Returns an expression evaluating to the sum of the elements of the given
+	 * observable list.
+	 *
+	 * @param list
+	 *            the observable list
+	 * @return the expression
+	 */
+	public static NumericExpression sumOf(IObservableList<? extends Number> list) {
+		Assert.isNotNull(list, "Observable list cannot be null"); //$NON-NLS-1$
+		return new NumericExpression(SUM_LIST, null, null, list, 0);
+	}
+
+	/**
+	 * Returns an expression evaluating to the given constant.
+	 *
+	 * @param constant
+	 *            the constant
+	 * @return the expression
+	 */
+	public static NumericExpression constant(double constant) {
+		return new NumericExpression(LOAD_CONSTANT, null, null, null, constant);
+	}
+
+	/**
+	 * Returns an expression evaluating to the sum of the given expressions.
+	 *
+	 * @param addends
+	 *            the expressions to add, at least one
+	 * @return the expression
+	 */
+	public static NumericExpression sum(NumericExpression... addends) {
+		Assert.isTrue(addends.length > 0, "No addends"); //$NON-NLS-1$
+		NumericExpression result = addends[0];
+		for (int i = 1; i < addends.length; i++)
+			result = result.plus(addends[i]);
+		return result;
+	}
+
+	/**
+	 * @param addend
+	 * @return an expression evaluating to this plus the given addend
+	 */
+	public NumericExpression plus(NumericExpression addend) {
+		return binary(ADD, this, addend);
+	}
+
+	/**
+	 * @param addend
+	 * @return an expression evaluating to this plus the given addend
+	 */
+	public NumericExpression plus(double addend) {
+		return plus(constant(addend));
+	}
+
+	/**
+	 * @param subtrahend
+	 * @return an expression evaluating to this minus the given subtrahend
+	 */
+	public NumericExpression minus(NumericExpression subtrahend) {
+		return binary(SUBTRACT, this, subtrahend);
+	}
+
+	/**
+	 * @param subtrahend
+	 * @return an expression evaluating to this minus the given subtrahend
+	 */
+	public NumericExpression minus(double subtrahend) {
+		return minus(constant(subtrahend));
+	}
+
+	/**
+	 * @param factor
+	 * @return an expression evaluating to this times the given factor
+	 */
+	public NumericExpression times(NumericExpression factor) {
+		return binary(MULTIPLY, this, factor);
+	}
+
+	/**
+	 * @param factor
+	 * @return an expression evaluating to this times the given factor
+	 */
+	public NumericExpression times(double factor) {
+		return times(constant(factor));
+	}
+
+	/**
+	 * @param divisor
+	 * @return an expression evaluating to this divided by the given divisor
+	 */
+	public NumericExpression dividedBy(NumericExpression divisor) {
+		return binary(DIVIDE, this, divisor);
+	}
+
+	/**
+	 * @param divisor
+	 * @return an expression evaluating to this divided by the given divisor
+	 */
+	public NumericExpression dividedBy(double divisor) {
+		return dividedBy(constant(divisor));
+	}
+
+	/**
+	 * @return an expression evaluating to the negation of this
+	 */
+	public NumericExpression negate() {
+		return unary(NEGATE, this, 0);
+	}
+
+	/**
+	 * @return an expression evaluating to the absolute value of this
+	 */
+	public NumericExpression abs() {
+		return unary(ABS, this, 0);
+	}
+
+	/**
+	 * @param other
+	 * @return an expression evaluating to the smaller of this and the other
+	 *         expression
+	 */
+	public NumericExpression min(NumericExpression other) {
+		return binary(MIN, this, other);
+	}
+
+	/**
+	 * @param other
+	 * @return an expression evaluating to the larger of this and the other
+	 *         expression
+	 */
+	public NumericExpression max(NumericExpression other) {
+		return binary(MAX, this, other);
+	}
+
+	/**
+	 * Returns an expression evaluating to this rounded to the given number of
+	 * decimal places, with ties rounded up as by {@link Math#round(double)}.
+	 *
+	 * @param scale
+	 *            the number of decimal places, may be negative
+	 * @return the expression
+	 */
+	public NumericExpression round(int scale) {
+		return unary(ROUND, this, Math.pow(10, scale));
+	}
+
+	/**
+	 * Compiles this expression into an observable value in the realm of its
+	 * observable leaves, or in the default realm if it has none.
+	 *
+	 * @return the observable value of this expression
+	 */
+	public IObservableValue<Double> toObservable() {
+		Compiler compiler = new Compiler();
+		compiler.compile(this);
+		Realm realm = compiler.realm == null ? Realm.getDefault()
+				: compiler.realm;
+		return new CompiledExpression(realm, compiler);
+	}
+
+	private static class Compiler {
+		int[] code = new int[16];
+		int length = 0;
+		List<Double> constants = new ArrayList<Double>();
+		List<IObservable> leaves = new ArrayList<IObservable>();
+		int depth = 0;
+		int maxDepth = 0;
+		Realm realm;
+
+		void compile(NumericExpression expression) {
+			switch (expression.operator) {
+			case LOAD_VALUE:
+			case SUM_LIST:
+				emit(expression.operator, leafIndex(expression.leaf));
+				push();
+				break;
+			case LOAD_CONSTANT:
+				emit(LOAD_CONSTANT, constantIndex(expression.constant));
+				push();
+				break;
+			case NEGATE:
+			case ABS:
+				compile(expression.left);
+				emit(expression.operator);
+				break;
+			case ROUND:
+				compile(expression.left);
+				emit(ROUND, constantIndex(expression.constant));
+				break;
+			default:
+				compile(expression.left);
+				compile(expression.right);
+				emit(expression.operator);
+				depth--;
+			}
+		}
+
+		private void push() {
+			if (++depth > maxDepth)
+				maxDepth = depth;
+		}
+
+		private int leafIndex(IObservable leaf) {
+			// Leaves are few, a linear search by identity is fine
+			for (int i = 0; i < leaves.size(); i++)
+				if (leaves.get(i) == leaf)
+					return i;
+			if (realm == null)
+				realm = leaf.getRealm();
+			else
+				Assert.isTrue(realm.equals(leaf.getRealm()),
+						"All observables must belong to the same realm"); //$NON-NLS-1$
+			leaves.add(leaf);
+			return leaves.size() - 1;
+		}
+
+		private int constantIndex(double constant) {
+			constants.add(Double.valueOf(constant));
+			return constants.size() - 1;
+		}
+
+		private void emit(int operator) {
+			ensureCapacity(1);
+			code[length++] = operator;
+		}
+
+		private void emit(int operator, int operand) {
+			ensureCapacity(2);
+			code[length++] = operator;
+			code[length++] = operand;
+		}
+
+		private void ensureCapacity(int extra) {
+			if (length + extra > code.length) {
+				int[] newCode = new int[code.length * 2];
+				System.arraycopy(code, 0, newCode, 0, length);
+				code = newCode;
+			}
+		}
+	}
+
+	/**
+	 * The fused observable value of a compiled expression. While it has
+	 * listeners, it listens to its leaves, caches its value, and only fires a
+	 * value change event if the value actually changed. Without listeners, it
+	 * evaluates the expression whenever it is read.
+	 */
+	private static class CompiledExpression extends
+			AbstractObservableValue<Double> {
+		private final int[] code;
+		private final double[] constants;
+		private final IObservable[] leaves;
+		private final double[] stack;
+
+		private boolean listening = false;
+		private double cachedValue;
+		private boolean cachedNull;
+
+		/**
+		 * <code>true</code> if a stale event has been fired and the staleness
+		 * has not been ended by a value change event yet
+		 */
+		private boolean stale = false;
+
+		CompiledExpression(Realm realm, Compiler compiler) {
+			super(realm);
+			this.code = new int[compiler.length];
+			System.arraycopy(compiler.code, 0, code, 0, compiler.length);
+			this.constants = new double[compiler.constants.size()];
+			for (int i = 0; i < constants.length; i++)
+				constants[i] = compiler.constants.get(i).doubleValue();
+			this.leaves = compiler.leaves
+					.toArray(new IObservable[compiler.leaves.size()]);
+			this.stack = new double[compiler.maxDepth];
+		}
+
+		private class PrivateInterface implements IChangeListener,
+				IStaleListener {
+			public void handleChange(ChangeEvent event) {
+				if (!listening)
+					return;
+				double oldValue = cachedValue;
+				boolean oldNull = cachedNull;
+				evaluate();
+				boolean wasStale = stale;
+				stale = anyLeafStale();
+				if (oldNull != cachedNull
+						|| (!cachedNull && Double.compare(oldValue,
+								cachedValue) != 0)
+						|| (wasStale && !stale)) {
+					// A value change event ends announced staleness, announce
+					// it again if a leaf is still stale
+					fireValueChange(Diffs.createValueDiff(box(oldValue,
+							oldNull), box(cachedValue, cachedNull)));
+					if (stale)
+						fireStale();
+				} else if (stale && !wasStale) {
+					fireStale();
+				}
+			}
+
+			public void handleStale(StaleEvent event) {
+				if (listening && !stale) {
+					stale = true;
+					fireStale();
+				}
+			}
+		}
+
+		private PrivateInterface privateInterface = new PrivateInterface();
+
+		private static Double box(double value, boolean isNull) {
+			return isNull ? null : Double.valueOf(value);
+		}
+
+		/**
+		 * Runs the program, leaving the result in cachedValue and cachedNull.
+		 */
+		private void evaluate() {
+			// Reading the leaves must not make them dependencies of whoever
+			// is reading us, we are the dependency
+			ObservableTracker.setIgnore(true);
+			try {
+				cachedNull = !run();
+			} finally {
+				ObservableTracker.setIgnore(false);
+			}
+		}
+
+		private boolean run() {
+			double[] stack = this.stack;
+			int top = -1;
+			for (int pc = 0; pc < code.length; pc++) {
+				switch (code[pc]) {
+				case LOAD_VALUE: {
+					Object value = ((IObservableValue<?>) leaves[code[++pc]])
+							.getValue();
+					if (value == null)
+						return false;
+					stack[++top] = ((Number) value).doubleValue();
+					break;
+				}
+				case SUM_LIST: {
+					List<?> list = (List<?>) leaves[code[++pc]];
+					double sum = 0;
+					for (int i = 0, size = list.size(); i < size; i++) {
+						Object element = list.get(i);
+						if (element == null)
+							return false;
+						sum += ((Number) element).doubleValue();
+					}
+					stack[++top] = sum;
+					break;
+				}
+				case LOAD_CONSTANT:
+					stack[++top] = constants[code[++pc]];
+					break;
+				case ADD:
+					top--;
+					stack[top] += stack[top + 1];
+					break;
+				case SUBTRACT:
+					top--;
+					stack[top] -= stack[top + 1];
+					break;
+				case MULTIPLY:
+					top--;
+					stack[top] *= stack[top + 1];
+					break;
+				case DIVIDE:
+					top--;
+					stack[top] /= stack[top + 1];
+					break;
+				case NEGATE:
+					stack[top] = -stack[top];
+					break;
+				case ABS:
+					stack[top] = Math.abs(stack[top]);
+					break;
+				case MIN:
+					top--;
+					stack[top] = Math.min(stack[top], stack[top + 1]);
+					break;
+				case MAX:
+					top--;
+					stack[top] = Math.max(stack[top], stack[top + 1]);
+					break;
+				case ROUND: {
+					double factor = constants[code[++pc]];
+					stack[top] = Math.floor(stack[top] * factor + 0.5) / factor;
+					break;
+				}
+				}
+			}
+			cachedValue = stack[0];
+			return true;
+		}
+
+		protected Double doGetValue() {
+			if (!listening)
+				evaluate();
+			return box(cachedValue, cachedNull);
+		}
+
+		public Object getValueType() {
+			return Double.class;
+		}
+
+		public boolean isStale() {
+			ObservableTracker.getterCalled(this);
+			return anyLeafStale();
+		}
+
+		private boolean anyLeafStale() {
+			ObservableTracker.setIgnore(true);
+			try {
+				for (int i = 0; i < leaves.length; i++)
+					if (leaves[i].isStale())
+						return true;
+				return false;
+			} finally {
+				ObservableTracker.setIgnore(false);
+			}
+		}
+
+		protected void firstListenerAdded() {
+			// May be called outside of our realm
+			getRealm().exec(new Runnable() {
+				public void run() {
+					if (!listening && hasListeners() && !isDisposed())
+						startListening();
+				}
+			});
+		}
+
+		protected void lastListenerRemoved() {
+			getRealm().exec(new Runnable() {
+				public void run() {
+					if (listening && !hasListeners())
+						stopListening();
+				}
+			});
+		}
+
+		private void startListening() {
+			for (int i = 0; i < leaves.length; i++) {
+				leaves[i].addChangeListener(privateInterface);
+				leaves[i].addStaleListener(privateInterface);
+			}
+			evaluate();
+			stale = anyLeafStale();
+			listening = true;
+		}
+
+		private void stopListening() {
+			listening = false;
+			for (int i = 0; i < leaves.length; i++) {
+				leaves[i].removeChangeListener(privateInterface);
+				leaves[i].removeStaleListener(privateInterface);
+			}
+		}
+
+		public synchronized void dispose() {
+			if (listening)
+				stopListening();
+			super.dispose();
+		}
+	}
+}
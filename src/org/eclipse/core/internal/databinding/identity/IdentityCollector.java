@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.identity;
+
+/**
+ * A reusable, insertion ordered collection of unique elements where elements
+ * are compared by identity. Elements are stored in an open addressing hash
+ * table with linear probing, so adding an element does not allocate unless
+ * the collector has to grow. Clearing the collector keeps its capacity, which
+ * makes it suitable to be reused for collecting elements over and over again.
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public class IdentityCollector<E> {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Collectors which had to grow beyond this capacity are shrunk back to the
+	 * default capacity when cleared, so that a single large collection does not
+	 * pin a large table for the lifetime of the collector.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 1024;
+
+	private Object[] table;
+	private int[] slots;
+	private E[] elements;
+	private int size;
+
+	/**
+	 * Constructs an empty collector.
+	 */
+	public IdentityCollector() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		table = new Object[capacity];
+		// Keep the load factor at or below one half
+		slots = new int[capacity / 2];
+		elements = (E[]) new Object[capacity / 2];
+		size = 0;
+	}
+
+	private static int indexFor(Object element, int mask) {
+		int h = System.identityHashCode(element);
+		// Identity hash codes tend to be clustered in the low bits
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h & mask;
+	}
+
+	/**
+	 * Adds the given element unless an identical element has already been
+	 * added.
+	 *
+	 * @param element
+	 *            the element, must not be <code>null</code>
+	 * @return <code>true</code> if the element has been added,
+	 *         <code>false</code> if it was already present
+	 */
+	public boolean add(E element) {
+		int mask = table.length - 1;
+		int index = indexFor(element, mask);
+		Object current;
+		while ((current = table[index]) != null) {
+			if (current == element)
+				return false;
+			index = (index + 1) & mask;
+		}
+		if (size == elements.length) {
+			grow();
+			return add(element);
+		}
+		table[index] = element;
+		slots[size] = index;
+		elements[size++] = element;
+		return true;
+	}
+
+	/**
+	 * Returns whether an element identical to the given object has been added.
+	 *
+	 * @param o
+	 *            the object
+	 * @return <code>true</code> if the object has been added
+	 */
+	public boolean contains(Object o) {
+		if (o == null || size == 0)
+			return false;
+		int mask = table.length - 1;
+		int index = indexFor(o, mask);
+		Object current;
+		while ((current = table[index]) != null) {
+			if (current == o)
+				return true;
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	private void grow() {
+		E[] oldElements = elements;
+		int oldSize = size;
+		allocate(table.length * 2);
+		for (int i = 0; i < oldSize; i++)
+			add(oldElements[i]);
+	}
+
+	/**
+	 * @return the number of elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the element at the given position in insertion order.
+	 *
+	 * @param index
+	 *            the position
+	 * @return the element at the given position
+	 */
+	public E get(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException();
+		return elements[index];
+	}
+
+	/**
+	 * Copies the elements in insertion order into the given array, which must
+	 * be large enough to hold all elements.
+	 *
+	 * @param array
+	 *            the destination array
+	 * @return the given array
+	 */
+	public <T> T[] toArray(T[] array) {
+		System.arraycopy(elements, 0, array, 0, size);
+		return array;
+	}
+
+	/**
+	 * Removes all elements, retaining the capacity of this collector unless it
+	 * has grown unusually large.
+	 */
+	public void clear() {
+		if (table.length > MAX_RETAINED_CAPACITY) {
+			allocate(DEFAULT_CAPACITY);
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			table[slots[i]] = null;
+			elements[i] = null;
+		}
+		size = 0;
+	}
+}
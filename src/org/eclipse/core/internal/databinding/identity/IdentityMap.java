@@ -10,15 +10,19 @@
  *     Matthew Hall - bug 228125
  *         (through ViewerElementMap.java)
  *     Matthew Hall - bugs 262269, 303847
+ *     IBM Corporation - open addressing implementation
  ******************************************************************************/
 
 package org.eclipse.core.internal.databinding.identity;
 
-import java.lang.reflect.Array;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.eclipse.core.internal.databinding.observable.Util;
@@ -32,17 +36,29 @@ import org.eclipse.core.runtime.Assert;
  * This class is <i>not</i> a strict implementation the {@link Map} interface.
  * It intentionally violates the {@link Map} contract, which requires the use of
  * {@link #equals(Object)} when comparing keys.
+ * <p>
+ * The entries are stored in an open addressing hash table with linear
+ * probing, which holds keys and values in alternating slots of a single
+ * array. Putting, removing and looking up entries does not allocate memory
+ * unless the table has to grow. Iterators are fail-fast.
  * 
  * @since 1.2
  */
 public class IdentityMap<K, V> implements Map<K, V> {
-	private Map<IdentityWrapper<K>, V> wrappedMap;
+	/**
+	 * Keys at even indices, each followed by its value.
+	 */
+	private Object[] table;
+
+	private int size;
+
+	private int modCount;
 
 	/**
 	 * Constructs an IdentityMap.
 	 */
 	public IdentityMap() {
-		this.wrappedMap = new HashMap<IdentityWrapper<K>, V>();
+		this.table = new Object[2 * IdentityTables.DEFAULT_CAPACITY];
 	}
 
 	/**
@@ -53,351 +69,369 @@ public class IdentityMap<K, V> implements Map<K, V> {
 	 *            the map whose entries are to be added to this map.
 	 */
 	public IdentityMap(Map<K, V> map) {
-		this();
 		Assert.isNotNull(map);
+		this.table = new Object[2 * IdentityTables.capacityFor(map.size())];
 		putAll(map);
 	}
 
 	public void clear() {
-		wrappedMap.clear();
+		if (size > 0) {
+			Arrays.fill(table, null);
+			size = 0;
+		}
+		modCount++;
+	}
+
+	/**
+	 * Returns the index of the given key in the table, or -1 if absent.
+	 */
+	private int indexOf(Object key) {
+		Object k = IdentityTables.maskNull(key);
+		Object[] tab = table;
+		int mask = (tab.length >> 1) - 1;
+		int i = IdentityTables.indexFor(k, mask) << 1;
+		Object current;
+		while ((current = tab[i]) != null) {
+			if (current == k)
+				return i;
+			i = (i + 2) & (tab.length - 1);
+		}
+		return -1;
 	}
 
 	public boolean containsKey(Object key) {
-		return wrappedMap.containsKey(IdentityWrapper.wrap(key));
+		return indexOf(key) != -1;
 	}
 
 	public boolean containsValue(Object value) {
-		return wrappedMap.containsValue(value);
+		Object[] tab = table;
+		for (int i = 0; i < tab.length; i += 2)
+			if (tab[i] != null && Util.equals(tab[i + 1], value))
+				return true;
+		return false;
 	}
 
-	public Set<Map.Entry<K, V>> entrySet() {
-		final Set<Map.Entry<IdentityWrapper<K>, V>> wrappedEntrySet = wrappedMap
-				.entrySet();
-		return new Set<Map.Entry<K, V>>() {
-			public boolean add(Map.Entry<K, V> o) {
-				throw new UnsupportedOperationException();
-			}
-
-			public boolean addAll(Collection<? extends Map.Entry<K, V>> c) {
-				throw new UnsupportedOperationException();
-			}
-
-			public void clear() {
-				wrappedEntrySet.clear();
-			}
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int i = indexOf(key);
+		return i == -1 ? null : (V) table[i + 1];
+	}
 
-			public boolean contains(Object o) {
-				for (Iterator<Map.Entry<K, V>> iterator = iterator(); iterator
-						.hasNext();)
-					if (iterator.next().equals(o))
-						return true;
-				return false;
-			}
+	public boolean isEmpty() {
+		return size == 0;
+	}
 
-			public boolean containsAll(Collection<?> c) {
-				for (Iterator<?> iterator = c.iterator(); iterator.hasNext();)
-					if (!contains(iterator.next()))
-						return false;
-				return true;
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		Object k = IdentityTables.maskNull(key);
+		Object[] tab = table;
+		int mask = (tab.length >> 1) - 1;
+		int i = IdentityTables.indexFor(k, mask) << 1;
+		Object current;
+		while ((current = tab[i]) != null) {
+			if (current == k) {
+				V oldValue = (V) tab[i + 1];
+				tab[i + 1] = value;
+				return oldValue;
 			}
+			i = (i + 2) & (tab.length - 1);
+		}
+		tab[i] = k;
+		tab[i + 1] = value;
+		modCount++;
+		if (++size * 3 > tab.length)
+			resize(tab.length);
+		return null;
+	}
 
-			public boolean isEmpty() {
-				return wrappedEntrySet.isEmpty();
+	private void resize(int capacity) {
+		if (capacity > IdentityTables.MAXIMUM_CAPACITY) {
+			if (size == (table.length >> 1) - 1)
+				throw new IllegalStateException("Capacity exhausted"); //$NON-NLS-1$
+			return;
+		}
+		Object[] oldTable = table;
+		Object[] newTable = new Object[2 * capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldTable.length; j += 2) {
+			Object key = oldTable[j];
+			if (key != null) {
+				int i = IdentityTables.indexFor(key, mask) << 1;
+				while (newTable[i] != null)
+					i = (i + 2) & (newTable.length - 1);
+				newTable[i] = key;
+				newTable[i + 1] = oldTable[j + 1];
 			}
+		}
+		table = newTable;
+	}
 
-			public Iterator<Map.Entry<K, V>> iterator() {
-				final Iterator<Map.Entry<IdentityWrapper<K>, V>> wrappedIterator = wrappedEntrySet
-						.iterator();
-				return new Iterator<Map.Entry<K, V>>() {
-					public boolean hasNext() {
-						return wrappedIterator.hasNext();
-					}
+	public void putAll(Map<? extends K, ? extends V> other) {
+		for (Map.Entry<? extends K, ? extends V> entry : other.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
 
-					public Map.Entry<K, V> next() {
-						final Map.Entry<IdentityWrapper<K>, V> wrappedEntry = wrappedIterator
-								.next();
-						return new Map.Entry<K, V>() {
-							public K getKey() {
-								return wrappedEntry.getKey()
-										.unwrap();
-							}
-
-							public V getValue() {
-								return wrappedEntry.getValue();
-							}
-
-							public V setValue(V value) {
-								return wrappedEntry.setValue(value);
-							}
-
-							public boolean equals(Object obj) {
-								if (obj == this)
-									return true;
-								if (obj == null || !(obj instanceof Map.Entry))
-									return false;
-								Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
-								return this.getKey() == that.getKey()
-										&& Util.equals(this.getValue(), that
-												.getValue());
-							}
-
-							public int hashCode() {
-								return wrappedEntry.hashCode();
-							}
-						};
-					}
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		int i = indexOf(key);
+		if (i == -1)
+			return null;
+		V oldValue = (V) table[i + 1];
+		deleteSlot(i);
+		return oldValue;
+	}
 
-					public void remove() {
-						wrappedIterator.remove();
-					}
-				};
+	private void deleteSlot(int i) {
+		Object[] tab = table;
+		int length = tab.length;
+		int mask = (length >> 1) - 1;
+		int j = i;
+		while (true) {
+			j = (j + 2) & (length - 1);
+			Object key = tab[j];
+			if (key == null)
+				break;
+			int home = IdentityTables.indexFor(key, mask) << 1;
+			if (!IdentityTables.staysInPlace(home, i, j)) {
+				tab[i] = key;
+				tab[i + 1] = tab[j + 1];
+				i = j;
 			}
+		}
+		tab[i] = null;
+		tab[i + 1] = null;
+		size--;
+		modCount++;
+	}
 
-			public boolean remove(Object o) {
-				@SuppressWarnings("unchecked")
-				final Map.Entry<K, V> unwrappedEntry = (Map.Entry<K, V>) o;
-				final IdentityWrapper<K> wrappedKey = IdentityWrapper
-						.wrap(unwrappedEntry.getKey());
-				Map.Entry<IdentityWrapper<K>, V> wrappedEntry = new Map.Entry<IdentityWrapper<K>, V>() {
-					public IdentityWrapper<K> getKey() {
-						return wrappedKey;
-					}
-
-					public V getValue() {
-						return unwrappedEntry.getValue();
-					}
+	private boolean clusterWraps(int i) {
+		Object[] tab = table;
+		int length = tab.length;
+		for (int j = (i + 2) & (length - 1); tab[j] != null; j = (j + 2)
+				& (length - 1))
+			if (j == 0)
+				return true;
+		return false;
+	}
 
-					public V setValue(V value) {
-						throw new UnsupportedOperationException();
-					}
+	public int size() {
+		return size;
+	}
 
-					public boolean equals(Object obj) {
-						if (obj == this)
-							return true;
-						if (obj == null || !(obj instanceof Map.Entry))
-							return false;
-						Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
-						return Util.equals(wrappedKey, that.getKey())
-								&& Util
-										.equals(this.getValue(), that
-												.getValue());
-					}
+	/**
+	 * Iterates the table from the last slot to the first. Deleting a slot
+	 * shifts later entries of its cluster backwards, which have been visited
+	 * already, unless the cluster wraps around the end of the table. In that
+	 * case the iterator continues on a copy of the table.
+	 */
+	private abstract class IdentityIterator<T> implements Iterator<T> {
+		Object[] traversal = table;
+		private int index = traversal.length;
+		int lastReturned = -1;
+		private int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			while (index > 0 && traversal[index - 2] == null)
+				index -= 2;
+			return index > 0;
+		}
 
-					public int hashCode() {
-						return wrappedKey.hashCode()
-								^ (getValue() == null ? 0 : getValue()
-										.hashCode());
-					}
-				};
-				return wrappedEntrySet.remove(wrappedEntry);
-			}
+		int nextIndex() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (!hasNext())
+				throw new NoSuchElementException();
+			index -= 2;
+			lastReturned = index;
+			return index;
+		}
 
-			public boolean removeAll(Collection<?> c) {
-				boolean changed = false;
-				for (Iterator<?> iterator = c.iterator(); iterator.hasNext();)
-					changed |= remove(iterator.next());
-				return changed;
-			}
+		public void remove() {
+			if (lastReturned == -1)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Object key = traversal[lastReturned];
+			if (traversal == table && clusterWraps(lastReturned))
+				traversal = table.clone();
+			if (traversal == table)
+				deleteSlot(lastReturned);
+			else
+				deleteSlot(indexOf(IdentityTables.unmaskNull(key)));
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+	}
 
-			public boolean retainAll(Collection<?> c) {
-				boolean changed = false;
-				Object[] toRetain = c.toArray();
-				outer: for (Iterator<?> iterator = iterator(); iterator
-						.hasNext();) {
-					Object entry = iterator.next();
-					for (int i = 0; i < toRetain.length; i++)
-						if (entry.equals(toRetain[i]))
-							continue outer;
-					iterator.remove();
-					changed = true;
-				}
-				return changed;
-			}
+	private class IdentityEntry implements Map.Entry<K, V> {
+		private final K key;
+		private V value;
 
-			public int size() {
-				return wrappedEntrySet.size();
-			}
+		IdentityEntry(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
 
-			public Object[] toArray() {
-				return toArray(new Object[size()]);
-			}
+		public K getKey() {
+			return key;
+		}
 
-			@SuppressWarnings("unchecked")
-			public <T> T[] toArray(T[] a) {
-				int size = size();
-				if (a.length < size) {
-					a = (T[]) Array.newInstance(
-							a.getClass().getComponentType(), size);
-				}
-				int i = 0;
-				for (Iterator<Map.Entry<K, V>> iterator = iterator(); iterator
-						.hasNext();) {
-					a[i] = (T) iterator.next();
-					i++;
-				}
-				return a;
-			}
+		public V getValue() {
+			return value;
+		}
 
-			public boolean equals(Object obj) {
-				if (obj == this)
-					return true;
-				if (obj == null || !(obj instanceof Set))
-					return false;
-				Set<?> that = (Set<?>) obj;
-				return this.size() == that.size() && containsAll(that);
-			}
+		public V setValue(V value) {
+			if (!containsKey(key))
+				throw new IllegalStateException();
+			this.value = value;
+			return put(key, value);
+		}
 
-			public int hashCode() {
-				return wrappedEntrySet.hashCode();
-			}
-		};
-	}
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (obj == null || !(obj instanceof Map.Entry))
+				return false;
+			Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+			return this.key == that.getKey()
+					&& Util.equals(this.value, that.getValue());
+		}
 
-	public V get(Object key) {
-		return wrappedMap.get(IdentityWrapper.wrap(key));
+		public int hashCode() {
+			return entryHashCode(key, value);
+		}
 	}
 
-	public boolean isEmpty() {
-		return wrappedMap.isEmpty();
+	private static int entryHashCode(Object key, Object value) {
+		return System.identityHashCode(key)
+				^ (value == null ? 0 : value.hashCode());
 	}
 
-	public Set<K> keySet() {
-		final Set<IdentityWrapper<K>> wrappedKeySet = wrappedMap.keySet();
-		return new Set<K>() {
-			public boolean add(Object o) {
-				throw new UnsupportedOperationException();
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new IdentityIterator<Map.Entry<K, V>>() {
+					@SuppressWarnings("unchecked")
+					public Map.Entry<K, V> next() {
+						int i = nextIndex();
+						return new IdentityEntry((K) IdentityTables
+								.unmaskNull(traversal[i]), (V) traversal[i + 1]);
+					}
+				};
 			}
 
-			public boolean addAll(Collection<? extends K> c) {
-				throw new UnsupportedOperationException();
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry))
+					return false;
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+				int i = indexOf(entry.getKey());
+				return i != -1 && Util.equals(table[i + 1], entry.getValue());
 			}
 
-			public void clear() {
-				wrappedKeySet.clear();
+			public boolean remove(Object o) {
+				if (!contains(o))
+					return false;
+				deleteSlot(indexOf(((Map.Entry<?, ?>) o).getKey()));
+				return true;
 			}
 
-			public boolean contains(Object o) {
-				return wrappedKeySet.contains(IdentityWrapper.wrap(o));
+			public int size() {
+				return size;
 			}
 
-			public boolean containsAll(Collection<?> c) {
-				for (Iterator<?> iterator = c.iterator(); iterator.hasNext();)
-					if (!wrappedKeySet.contains(IdentityWrapper.wrap(iterator
-							.next())))
-						return false;
-				return true;
+			public void clear() {
+				IdentityMap.this.clear();
 			}
 
-			public boolean isEmpty() {
-				return wrappedKeySet.isEmpty();
+			public int hashCode() {
+				return IdentityMap.this.hashCode();
 			}
+		};
+	}
 
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
 			public Iterator<K> iterator() {
-				final Iterator<IdentityWrapper<K>> wrappedIterator = wrappedKeySet
-						.iterator();
-				return new Iterator<K>() {
-					public boolean hasNext() {
-						return wrappedIterator.hasNext();
-					}
-
+				return new IdentityIterator<K>() {
+					@SuppressWarnings("unchecked")
 					public K next() {
-						return wrappedIterator.next()
-								.unwrap();
-					}
-
-					public void remove() {
-						wrappedIterator.remove();
+						return (K) IdentityTables
+								.unmaskNull(traversal[nextIndex()]);
 					}
 				};
 			}
 
+			public boolean contains(Object o) {
+				return indexOf(o) != -1;
+			}
+
 			public boolean remove(Object o) {
-				return wrappedKeySet.remove(IdentityWrapper.wrap(o));
+				int i = indexOf(o);
+				if (i == -1)
+					return false;
+				deleteSlot(i);
+				return true;
 			}
 
 			public boolean removeAll(Collection<?> c) {
 				boolean changed = false;
 				for (Iterator<?> iterator = c.iterator(); iterator.hasNext();)
-					changed |= wrappedKeySet.remove(IdentityWrapper
-							.wrap(iterator.next()));
+					changed |= remove(iterator.next());
 				return changed;
 			}
 
 			public boolean retainAll(Collection<?> c) {
+				// Cannot delegate to c.contains(it) since we can't be sure it
+				// will compare elements the way we want.
+				IdentitySet<Object> retained = new IdentitySet<Object>(Arrays
+						.asList(c.toArray()));
 				boolean changed = false;
-				Object[] toRetain = c.toArray();
-				outer: for (Iterator<?> iterator = iterator(); iterator
-						.hasNext();) {
-					Object element = iterator.next();
-					for (int i = 0; i < toRetain.length; i++)
-						if (element == toRetain[i])
-							continue outer;
-					// element not contained in collection, remove.
-					remove(element);
-					changed = true;
+				for (Iterator<K> iterator = iterator(); iterator.hasNext();) {
+					if (!retained.contains(iterator.next())) {
+						iterator.remove();
+						changed = true;
+					}
 				}
 				return changed;
 			}
 
 			public int size() {
-				return wrappedKeySet.size();
-			}
-
-			public Object[] toArray() {
-				return toArray(new Object[wrappedKeySet.size()]);
-			}
-
-			@SuppressWarnings("unchecked")
-			public <T> T[] toArray(T[] a) {
-				int size = wrappedKeySet.size();
-				IdentityWrapper<T>[] wrappedArray = wrappedKeySet
-						.toArray(IdentityWrapper.<T> newArray(size));
-				T[] result = a;
-				if (a.length < size) {
-					result = (T[]) Array.newInstance(a.getClass()
-							.getComponentType(), size);
-				}
-				for (int i = 0; i < size; i++)
-					result[i] = wrappedArray[i].unwrap();
-				return result;
+				return size;
 			}
 
-			public boolean equals(Object obj) {
-				if (obj == this)
-					return true;
-				if (obj == null || !(obj instanceof Set))
-					return false;
-				Set<?> that = (Set<?>) obj;
-				return this.size() == that.size() && containsAll(that);
+			public void clear() {
+				IdentityMap.this.clear();
 			}
 
 			public int hashCode() {
-				return wrappedKeySet.hashCode();
+				int hash = 0;
+				for (Iterator<K> iterator = iterator(); iterator.hasNext();)
+					hash += System.identityHashCode(iterator.next());
+				return hash;
 			}
 		};
 	}
 
-	public V put(K key, V value) {
-		return wrappedMap.put(IdentityWrapper.wrap(key), value);
-	}
-
-	public void putAll(Map<? extends K, ? extends V> other) {
-		for (Map.Entry<? extends K, ? extends V> entry : other.entrySet()) {
-			wrappedMap.put(IdentityWrapper.<K>wrap(entry.getKey()), entry
-					.getValue());
-		}
-	}
-
-	public V remove(Object key) {
-		return wrappedMap.remove(IdentityWrapper.wrap(key));
-	}
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				return new IdentityIterator<V>() {
+					@SuppressWarnings("unchecked")
+					public V next() {
+						return (V) traversal[nextIndex() + 1];
+					}
+				};
+			}
 
-	public int size() {
-		return wrappedMap.size();
-	}
+			public int size() {
+				return size;
+			}
 
-	public Collection<V> values() {
-		return wrappedMap.values();
+			public void clear() {
+				IdentityMap.this.clear();
+			}
+		};
 	}
 
 	public boolean equals(Object obj) {
@@ -410,6 +444,12 @@ public class IdentityMap<K, V> implements Map<K, V> {
 	}
 
 	public int hashCode() {
-		return wrappedMap.hashCode();
+		int hash = 0;
+		Object[] tab = table;
+		for (int i = 0; i < tab.length; i += 2)
+			if (tab[i] != null)
+				hash += entryHashCode(IdentityTables.unmaskNull(tab[i]),
+						tab[i + 1]);
+		return hash;
 	}
 }
@@ -10,14 +10,17 @@
  *     Matthew Hall - bug 124684
  *         (through ViewerElementSet.java)
  *     Matthew Hall - bugs 262269, 303847
+ *     IBM Corporation - open addressing implementation
  ******************************************************************************/
 
 package org.eclipse.core.internal.databinding.identity;
 
 import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -28,17 +31,25 @@ import java.util.Set;
  * This class is <i>not</i> a strict implementation the {@link Set} interface.
  * It intentionally violates the {@link Set} contract, which requires the use of
  * {@link #equals(Object)} when comparing elements.
+ * <p>
+ * The elements are stored in an open addressing hash table with linear
+ * probing, so that adding, removing and looking up elements does not allocate
+ * memory unless the table has to grow. Iterators are fail-fast.
  * 
  * @since 1.2
  */
 public class IdentitySet<E> implements Set<E> {
-	private final Set<IdentityWrapper<? extends E>> wrappedSet;
+	private Object[] table;
+
+	private int size;
+
+	private int modCount;
 
 	/**
 	 * Constructs an IdentitySet.
 	 */
 	public IdentitySet() {
-		this.wrappedSet = new HashSet<IdentityWrapper<? extends E>>();
+		this.table = new Object[IdentityTables.DEFAULT_CAPACITY];
 	}
 
 	/**
@@ -49,60 +60,177 @@ public class IdentitySet<E> implements Set<E> {
 	 *            the collection whose elements are to be added to this set.
 	 */
 	public IdentitySet(Collection<? extends E> collection) {
-		this();
+		this.table = new Object[IdentityTables.capacityFor(collection.size())];
 		addAll(collection);
 	}
 
 	public boolean add(E o) {
-		return wrappedSet.add(IdentityWrapper.wrap(o));
+		Object element = IdentityTables.maskNull(o);
+		Object[] tab = table;
+		int mask = tab.length - 1;
+		int i = IdentityTables.indexFor(element, mask);
+		Object current;
+		while ((current = tab[i]) != null) {
+			if (current == element)
+				return false;
+			i = (i + 1) & mask;
+		}
+		tab[i] = element;
+		modCount++;
+		if (++size * 3 > tab.length * 2)
+			resize(tab.length * 2);
+		return true;
+	}
+
+	private void resize(int capacity) {
+		if (capacity > IdentityTables.MAXIMUM_CAPACITY) {
+			if (size == table.length - 1)
+				throw new IllegalStateException("Capacity exhausted"); //$NON-NLS-1$
+			return;
+		}
+		Object[] oldTable = table;
+		Object[] newTable = new Object[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldTable.length; j++) {
+			Object element = oldTable[j];
+			if (element != null) {
+				int i = IdentityTables.indexFor(element, mask);
+				while (newTable[i] != null)
+					i = (i + 1) & mask;
+				newTable[i] = element;
+			}
+		}
+		table = newTable;
 	}
 
 	public boolean addAll(Collection<? extends E> c) {
 		boolean changed = false;
 		for (Iterator<? extends E> iterator = c.iterator(); iterator.hasNext();)
-			changed |= wrappedSet.add(IdentityWrapper.wrap(iterator.next()));
+			changed |= add(iterator.next());
 		return changed;
 	}
 
 	public void clear() {
-		wrappedSet.clear();
+		if (size > 0) {
+			Arrays.fill(table, null);
+			size = 0;
+		}
+		modCount++;
+	}
+
+	private int indexOf(Object o) {
+		Object element = IdentityTables.maskNull(o);
+		Object[] tab = table;
+		int mask = tab.length - 1;
+		int i = IdentityTables.indexFor(element, mask);
+		Object current;
+		while ((current = tab[i]) != null) {
+			if (current == element)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
 	}
 
 	public boolean contains(Object o) {
-		return wrappedSet.contains(IdentityWrapper.wrap(o));
+		return indexOf(o) != -1;
 	}
 
 	public boolean containsAll(Collection<?> c) {
 		for (Iterator<?> iterator = c.iterator(); iterator.hasNext();)
-			if (!wrappedSet.contains(IdentityWrapper.wrap(iterator.next())))
+			if (indexOf(iterator.next()) == -1)
 				return false;
 		return true;
 	}
 
 	public boolean isEmpty() {
-		return wrappedSet.isEmpty();
+		return size == 0;
 	}
 
 	public Iterator<E> iterator() {
-		final Iterator<IdentityWrapper<? extends E>> wrappedIterator = wrappedSet
-				.iterator();
-		return new Iterator<E>() {
-			public boolean hasNext() {
-				return wrappedIterator.hasNext();
-			}
+		return new IdentityIterator();
+	}
 
-			public E next() {
-				return wrappedIterator.next().unwrap();
-			}
+	/**
+	 * Iterates the table from the last slot to the first. Deleting a slot
+	 * shifts later entries of its cluster backwards, which have been visited
+	 * already, unless the cluster wraps around the end of the table. In that
+	 * case the iterator continues on a copy of the table.
+	 */
+	private class IdentityIterator implements Iterator<E> {
+		private Object[] traversal = table;
+		private int index = traversal.length;
+		private int lastReturned = -1;
+		private int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			while (index > 0 && traversal[index - 1] == null)
+				index--;
+			return index > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (!hasNext())
+				throw new NoSuchElementException();
+			lastReturned = --index;
+			return (E) IdentityTables.unmaskNull(traversal[lastReturned]);
+		}
 
-			public void remove() {
-				wrappedIterator.remove();
+		public void remove() {
+			if (lastReturned == -1)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			Object element = traversal[lastReturned];
+			if (traversal == table && clusterWraps(lastReturned))
+				traversal = table.clone();
+			if (traversal == table)
+				deleteSlot(lastReturned);
+			else
+				deleteSlot(indexOf(IdentityTables.unmaskNull(element)));
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	private boolean clusterWraps(int i) {
+		Object[] tab = table;
+		int mask = tab.length - 1;
+		for (int j = (i + 1) & mask; tab[j] != null; j = (j + 1) & mask)
+			if (j == 0)
+				return true;
+		return false;
+	}
+
+	private void deleteSlot(int i) {
+		Object[] tab = table;
+		int mask = tab.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			Object element = tab[j];
+			if (element == null)
+				break;
+			int home = IdentityTables.indexFor(element, mask);
+			if (!IdentityTables.staysInPlace(home, i, j)) {
+				tab[i] = element;
+				i = j;
 			}
-		};
+		}
+		tab[i] = null;
+		size--;
+		modCount++;
 	}
 
 	public boolean remove(Object o) {
-		return wrappedSet.remove(IdentityWrapper.wrap(o));
+		int i = indexOf(o);
+		if (i == -1)
+			return false;
+		deleteSlot(i);
+		return true;
 	}
 
 	public boolean removeAll(Collection<?> c) {
@@ -113,44 +241,42 @@ public class IdentitySet<E> implements Set<E> {
 	}
 
 	public boolean retainAll(Collection<?> c) {
-		// Have to do this the slow way to ensure correct comparisons. i.e.
-		// cannot delegate to c.contains(it) since we can't be sure will
+		// Cannot delegate to c.contains(it) since we can't be sure it will
 		// compare elements the way we want.
+		IdentitySet<Object> retained = new IdentitySet<Object>(Arrays
+				.asList(c.toArray()));
 		boolean changed = false;
-		Object[] retainAll = c.toArray();
-		outer: for (Iterator<?> iterator = iterator(); iterator.hasNext();) {
-			Object element = iterator.next();
-			for (int i = 0; i < retainAll.length; i++) {
-				if (element == retainAll[i]) {
-					continue outer;
-				}
+		for (Iterator<?> iterator = iterator(); iterator.hasNext();) {
+			if (!retained.contains(iterator.next())) {
+				iterator.remove();
+				changed = true;
 			}
-			iterator.remove();
-			changed = true;
 		}
 		return changed;
 	}
 
 	public int size() {
-		return wrappedSet.size();
+		return size;
 	}
 
 	public Object[] toArray() {
-		return toArray(new Object[wrappedSet.size()]);
+		return toArray(new Object[size]);
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T> T[] toArray(T[] a) {
-		int size = wrappedSet.size();
-		IdentityWrapper<? extends E>[] wrappedArray = wrappedSet
-				.toArray(new IdentityWrapper[size]);
 		T[] result = a;
 		if (a.length < size) {
 			result = (T[]) Array.newInstance(a.getClass().getComponentType(),
 					size);
 		}
-		for (int i = 0; i < size; i++)
-			result[i] = (T) wrappedArray[i].unwrap();
+		Object[] tab = table;
+		int i = 0;
+		for (int j = 0; j < tab.length; j++)
+			if (tab[j] != null)
+				result[i++] = (T) IdentityTables.unmaskNull(tab[j]);
+		if (result.length > size)
+			result[size] = null;
 		return result;
 	}
 
@@ -165,9 +291,11 @@ public class IdentitySet<E> implements Set<E> {
 
 	public int hashCode() {
 		int hash = 0;
-		for (Iterator<E> iterator = iterator(); iterator.hasNext();) {
-			E element = iterator.next();
-			hash += element == null ? 0 : element.hashCode();
+		Object[] tab = table;
+		for (int j = 0; j < tab.length; j++) {
+			Object element = tab[j];
+			if (element != null && element != IdentityTables.NULL)
+				hash += element.hashCode();
 		}
 		return hash;
 	}
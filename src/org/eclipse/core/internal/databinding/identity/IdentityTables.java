@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.identity;
+
+/**
+ * Helpers shared by the open addressing identity hash tables of
+ * {@link IdentitySet} and {@link IdentityMap}. The tables use linear probing,
+ * store <code>null</code> as {@link #NULL}, and delete by shifting the
+ * following entries of a cluster backwards, so that no tombstones are needed.
+ *
+ * @since 1.4
+ */
+final class IdentityTables {
+	/**
+	 * Stands in for <code>null</code> keys and elements, since an empty slot
+	 * is <code>null</code>.
+	 */
+	static final Object NULL = new Object();
+
+	static final int DEFAULT_CAPACITY = 16;
+
+	static final int MAXIMUM_CAPACITY = 1 << 29;
+
+	private IdentityTables() {
+	}
+
+	static Object maskNull(Object o) {
+		return o == null ? NULL : o;
+	}
+
+	static Object unmaskNull(Object o) {
+		return o == NULL ? null : o;
+	}
+
+	/**
+	 * Returns the home slot of the given object in a table with the given
+	 * (power of two) number of slots.
+	 *
+	 * @param o
+	 *            the masked object
+	 * @param mask
+	 *            the number of slots minus one
+	 * @return the home slot
+	 */
+	static int indexFor(Object o, int mask) {
+		int h = System.identityHashCode(o);
+		// Identity hash codes tend to be clustered in the low bits
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h & mask;
+	}
+
+	/**
+	 * Returns the number of slots needed to hold the given number of entries
+	 * at a load factor of at most two thirds.
+	 *
+	 * @param size
+	 *            the number of entries
+	 * @return the number of slots, a power of two
+	 */
+	static int capacityFor(int size) {
+		int minimum = size + (size >> 1) + 1;
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < minimum && capacity < MAXIMUM_CAPACITY)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/**
+	 * Returns whether the entry whose home slot is <code>home</code> must stay
+	 * where it is at slot <code>j</code> when slot <code>i</code> of its cluster
+	 * is vacated, that is whether <code>home</code> lies cyclically within
+	 * <code>(i, j]</code>.
+	 */
+	static boolean staysInPlace(int home, int i, int j) {
+		return i <= j ? (i < home && home <= j) : (i < home || home <= j);
+	}
+}
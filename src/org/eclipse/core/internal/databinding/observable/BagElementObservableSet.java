@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.bag.BagChangeEvent;
+import org.eclipse.core.databinding.observable.bag.BagDiff;
+import org.eclipse.core.databinding.observable.bag.IBagChangeListener;
+import org.eclipse.core.databinding.observable.bag.IObservableBag;
+import org.eclipse.core.databinding.observable.set.AbstractObservableSet;
+
+/**
+ * An unmodifiable observable set of the distinct elements of an observable
+ * bag. A set change is fired only when the number of occurrences of an element
+ * changes from zero or drops to zero.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public class BagElementObservableSet<E> extends AbstractObservableSet<E> {
+	private IObservableBag<E> bag;
+
+	private class PrivateInterface implements IBagChangeListener<E>,
+			IStaleListener {
+		public void handleBagChange(BagChangeEvent<E> event) {
+			BagDiff<E> diff = event.diff;
+			Set<E> additions = new HashSet<E>();
+			Set<E> removals = new HashSet<E>();
+			for (Iterator<E> it = diff.getElements().iterator(); it.hasNext();) {
+				E element = it.next();
+				int delta = diff.getCountDelta(element);
+				int count = bag.count(element);
+				if (delta > 0 && count == delta)
+					additions.add(element);
+				else if (delta < 0 && count == 0)
+					removals.add(element);
+			}
+			if (!additions.isEmpty() || !removals.isEmpty())
+				fireSetChange(Diffs.createSetDiff(additions, removals));
+		}
+
+		public void handleStale(StaleEvent staleEvent) {
+			fireStale();
+		}
+	}
+
+	private PrivateInterface privateInterface = new PrivateInterface();
+
+	/**
+	 * @param bag
+	 *            the observable bag whose distinct elements are observed
+	 */
+	public BagElementObservableSet(IObservableBag<E> bag) {
+		super(bag.getRealm());
+		this.bag = bag;
+	}
+
+	protected void firstListenerAdded() {
+		bag.addBagChangeListener(privateInterface);
+		bag.addStaleListener(privateInterface);
+	}
+
+	protected void lastListenerRemoved() {
+		if (bag != null) {
+			bag.removeBagChangeListener(privateInterface);
+			bag.removeStaleListener(privateInterface);
+		}
+	}
+
+	protected Set<E> getWrappedSet() {
+		return bag.elementSet();
+	}
+
+	public Object getElementType() {
+		return bag.getElementType();
+	}
+
+	public boolean isStale() {
+		getterCalled();
+		return bag.isStale();
+	}
+
+	public synchronized void dispose() {
+		lastListenerRemoved();
+		bag = null;
+		privateInterface = null;
+		super.dispose();
+	}
+}
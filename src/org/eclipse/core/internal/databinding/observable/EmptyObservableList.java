@@ -20,6 +20,7 @@ import java.util.ListIterator;
 
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IDisposeListener;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
@@ -108,6 +109,15 @@ public class EmptyObservableList<E> implements IObservableList<E> {
 		return Collections.<E> emptyList().toArray(a);
 	}
 
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		checkRealm();
+	}
+
+	public List<E> snapshot() {
+		checkRealm();
+		return Collections.<E> emptyList();
+	}
+
 	public boolean add(Object o) {
 		throw new UnsupportedOperationException();
 	}
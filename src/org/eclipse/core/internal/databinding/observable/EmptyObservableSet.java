@@ -19,6 +19,7 @@ import java.util.Set;
 
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IDisposeListener;
+import org.eclipse.core.databinding.observable.IElementVisitor;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
@@ -105,6 +106,15 @@ public class EmptyObservableSet<E> implements IObservableSet<E> {
 		return Collections.<E> emptySet().toArray(a);
 	}
 
+	public void visitElements(IElementVisitor<? super E> visitor) {
+		checkRealm();
+	}
+
+	public Set<E> snapshot() {
+		checkRealm();
+		return Collections.<E> emptySet();
+	}
+
 	public boolean add(E o) {
 		throw new UnsupportedOperationException();
 	}
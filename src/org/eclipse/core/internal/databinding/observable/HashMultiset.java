@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A multiset counting the occurrences of its elements with primitive
+ * <code>int</code> counters. Elements are compared using
+ * {@link Object#equals(Object)}, and may be <code>null</code>.
+ * <p>
+ * The elements, their hash codes and their counts are stored in parallel
+ * arrays forming an open addressing hash table with linear probing, so that
+ * changing a count does not allocate memory unless the table has to grow.
+ * Adding and removing occurrences reports whether the element has been added
+ * to or removed from the {@link #elementSet() set of distinct elements}, which
+ * lets observable sets backed by a multiset fire set diffs only on transitions
+ * of a count between zero and one.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public class HashMultiset<E> {
+	private static final Object NULL = new Object();
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private Object[] elements;
+
+	private int[] hashes;
+
+	private int[] counts;
+
+	private int size;
+
+	private int totalCount;
+
+	private int modCount;
+
+	private Set<E> elementSet;
+
+	/**
+	 * Constructs an empty multiset.
+	 */
+	public HashMultiset() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		elements = new Object[capacity];
+		hashes = new int[capacity];
+		counts = new int[capacity];
+	}
+
+	private static int hash(Object element) {
+		int h = element == NULL ? 0 : element.hashCode();
+		// Spread the bits, many hash codes differ in the high bits only
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+
+	private int indexOf(Object element, int hash) {
+		Object[] elements = this.elements;
+		int mask = elements.length - 1;
+		int i = hash & mask;
+		Object current;
+		while ((current = elements[i]) != null) {
+			if (hashes[i] == hash
+					&& (current == element || current.equals(element)))
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of occurrences of the given element.
+	 *
+	 * @param o
+	 *            the element
+	 * @return the number of occurrences, <code>0</code> if the element is not
+	 *         contained
+	 */
+	public int count(Object o) {
+		Object element = o == null ? NULL : o;
+		int i = indexOf(element, hash(element));
+		return i == -1 ? 0 : counts[i];
+	}
+
+	/**
+	 * Adds an occurrence of the given element.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <code>true</code> if the element was not contained before
+	 */
+	public boolean add(E element) {
+		return add(element, 1);
+	}
+
+	/**
+	 * Adds occurrences of the given element.
+	 *
+	 * @param element
+	 *            the element
+	 * @param occurrences
+	 *            the number of occurrences to add, must be positive
+	 * @return <code>true</code> if the element was not contained before
+	 */
+	public boolean add(E element, int occurrences) {
+		if (occurrences <= 0)
+			throw new IllegalArgumentException();
+		Object masked = element == null ? NULL : element;
+		int hash = hash(masked);
+		int i = indexOf(masked, hash);
+		totalCount += occurrences;
+		if (i != -1) {
+			counts[i] += occurrences;
+			return false;
+		}
+		int mask = elements.length - 1;
+		i = hash & mask;
+		while (elements[i] != null)
+			i = (i + 1) & mask;
+		elements[i] = masked;
+		hashes[i] = hash;
+		counts[i] = occurrences;
+		modCount++;
+		if (++size * 3 > elements.length * 2)
+			resize();
+		return true;
+	}
+
+	private void resize() {
+		int capacity = elements.length * 2;
+		if (capacity > MAXIMUM_CAPACITY) {
+			if (size == elements.length - 1)
+				throw new IllegalStateException("Capacity exhausted"); //$NON-NLS-1$
+			return;
+		}
+		Object[] oldElements = elements;
+		int[] oldHashes = hashes;
+		int[] oldCounts = counts;
+		allocate(capacity);
+		int mask = capacity - 1;
+		for (int j = 0; j < oldElements.length; j++) {
+			if (oldElements[j] != null) {
+				int i = oldHashes[j] & mask;
+				while (elements[i] != null)
+					i = (i + 1) & mask;
+				elements[i] = oldElements[j];
+				hashes[i] = oldHashes[j];
+				counts[i] = oldCounts[j];
+			}
+		}
+	}
+
+	/**
+	 * Removes an occurrence of the given element, if contained.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <code>true</code> if the last occurrence of the element has been
+	 *         removed
+	 */
+	public boolean remove(Object element) {
+		return remove(element, 1);
+	}
+
+	/**
+	 * Removes occurrences of the given element. If the element has fewer
+	 * occurrences, all of them are removed.
+	 *
+	 * @param element
+	 *            the element
+	 * @param occurrences
+	 *            the number of occurrences to remove, must be positive
+	 * @return <code>true</code> if the last occurrence of the element has been
+	 *         removed
+	 */
+	public boolean remove(Object element, int occurrences) {
+		if (occurrences <= 0)
+			throw new IllegalArgumentException();
+		Object masked = element == null ? NULL : element;
+		int i = indexOf(masked, hash(masked));
+		if (i == -1)
+			return false;
+		if (counts[i] > occurrences) {
+			counts[i] -= occurrences;
+			totalCount -= occurrences;
+			return false;
+		}
+		totalCount -= counts[i];
+		deleteSlot(i);
+		return true;
+	}
+
+	private void deleteSlot(int i) {
+		Object[] elements = this.elements;
+		int mask = elements.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (elements[j] == null)
+				break;
+			int home = hashes[j] & mask;
+			// Move the element back unless its home lies cyclically in (i, j]
+			if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+				elements[i] = elements[j];
+				hashes[i] = hashes[j];
+				counts[i] = counts[j];
+				i = j;
+			}
+		}
+		elements[i] = null;
+		counts[i] = 0;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(elements, null);
+			Arrays.fill(counts, 0);
+			size = 0;
+			totalCount = 0;
+		}
+		modCount++;
+	}
+
+	/**
+	 * @return the number of distinct elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of occurrences of all elements
+	 */
+	public int totalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * @return <code>true</code> if this multiset contains no elements
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns an unmodifiable, live view of the distinct elements of this
+	 * multiset. Its iterators are fail-fast.
+	 *
+	 * @return the set of distinct elements
+	 */
+	public Set<E> elementSet() {
+		if (elementSet == null) {
+			elementSet = new AbstractSet<E>() {
+				public Iterator<E> iterator() {
+					return new ElementIterator();
+				}
+
+				public boolean contains(Object o) {
+					return count(o) > 0;
+				}
+
+				public int size() {
+					return size;
+				}
+			};
+		}
+		return elementSet;
+	}
+
+	private class ElementIterator implements Iterator<E> {
+		private int index = 0;
+		private int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			Object[] elements = HashMultiset.this.elements;
+			while (index < elements.length && elements[index] == null)
+				index++;
+			return index < elements.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Object element = elements[index++];
+			return element == NULL ? null : (E) element;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * Releases the resources of an observable, typically the listeners on its
+ * dependencies and its cached state, once it has been idle for a given
+ * period. An observable is idle while it has no listeners; the owner reports
+ * each access while idle using {@link #touch()}, and the release happens when
+ * no access has been reported during a whole period.
+ * <p>
+ * At most one timer runnable is pending at any time. An access while a check
+ * is pending only marks the period as used, and the check reschedules itself
+ * for another period. All methods must be invoked from the realm of the
+ * owner.
+ * </p>
+ *
+ * @since 1.4
+ */
+public abstract class IdleTimeout {
+
+	private final Realm realm;
+
+	private int milliseconds = 0;
+
+	private boolean accessedWhileIdle = false;
+
+	private boolean checkScheduled = false;
+
+	private Runnable check = new Runnable() {
+		public void run() {
+			checkScheduled = false;
+			check();
+		}
+	};
+
+	/**
+	 * @param realm
+	 *            the realm of the owner
+	 */
+	public IdleTimeout(Realm realm) {
+		this.realm = realm;
+	}
+
+	/**
+	 * Returns whether the owner is idle, that is whether it has no listeners
+	 * and is not disposed.
+	 *
+	 * @return <code>true</code> if the owner is idle
+	 */
+	protected abstract boolean isIdle();
+
+	/**
+	 * Called when the owner has been idle for a whole period.
+	 */
+	protected abstract void release();
+
+	/**
+	 * Sets the idle period, and starts it if the owner is idle.
+	 *
+	 * @param milliseconds
+	 *            the idle period in milliseconds, or <code>0</code> to never
+	 *            release the owner
+	 */
+	public void setMilliseconds(int milliseconds) {
+		Assert.isTrue(milliseconds >= 0, "Idle timeout cannot be negative"); //$NON-NLS-1$
+		this.milliseconds = milliseconds;
+		touch();
+	}
+
+	/**
+	 * @return the idle period in milliseconds, or <code>0</code> if the owner
+	 *         is never released
+	 */
+	public int getMilliseconds() {
+		return milliseconds;
+	}
+
+	/**
+	 * Reports an access to the owner, or the removal of its last listener.
+	 * If the owner is idle, this starts a new idle period.
+	 */
+	public void touch() {
+		if (milliseconds <= 0 || !isIdle())
+			return;
+		if (checkScheduled) {
+			// Postpone the pending check by another period
+			accessedWhileIdle = true;
+		} else {
+			accessedWhileIdle = false;
+			checkScheduled = true;
+			realm.timerExec(milliseconds, check, Realm.PRIORITY_BACKGROUND);
+		}
+	}
+
+	private void check() {
+		if (milliseconds <= 0 || !isIdle())
+			return;
+		if (accessedWhileIdle) {
+			// Accessed since the check was scheduled
+			touch();
+			return;
+		}
+		release();
+	}
+}
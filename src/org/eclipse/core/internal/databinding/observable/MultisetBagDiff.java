@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.bag.BagDiff;
+
+/**
+ * A bag diff which only adds or only removes occurrences, backed by a
+ * {@link HashMultiset} holding the number of occurrences added or removed per
+ * element. Unlike a diff created from a map of count deltas, the counts are
+ * accumulated and read without boxing them.
+ * <p>
+ * The multiset is owned by the diff and must not be modified once the diff
+ * has been created.
+ * </p>
+ *
+ * @param <E>
+ *            the type of the elements
+ *
+ * @since 1.4
+ */
+public class MultisetBagDiff<E> extends BagDiff<E> {
+	private final HashMultiset<E> counts;
+
+	private final int sign;
+
+	private final Set<E> elements;
+
+	/**
+	 * @param counts
+	 *            the number of occurrences added or removed per element
+	 * @param removal
+	 *            <code>true</code> if the occurrences have been removed,
+	 *            <code>false</code> if they have been added
+	 */
+	public MultisetBagDiff(HashMultiset<E> counts, boolean removal) {
+		this.counts = counts;
+		this.sign = removal ? -1 : 1;
+		this.elements = Collections.unmodifiableSet(counts.elementSet());
+	}
+
+	public Set<E> getElements() {
+		return elements;
+	}
+
+	public int getCountDelta(Object element) {
+		return sign * counts.count(element);
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.databinding.observable;
+
+/**
+ * A queue with a fixed number of priority lanes. Lane <code>0</code> has the
+ * highest priority. Objects are dequeued from the highest priority lane which
+ * is not empty, except that a lane which has been passed over
+ * {@value #MAX_PASSED_OVER} times in a row is served next, so that objects in
+ * lower priority lanes cannot starve.
+ *
+ * @since 1.4
+ */
+public class PriorityLaneQueue {
+
+	/**
+	 * The number of times in a row that a non-empty lane may be passed over in
+	 * favor of a higher priority lane.
+	 */
+	public static final int MAX_PASSED_OVER = 10;
+
+	private final Queue[] lanes;
+	private final int[] passedOver;
+	private int size = 0;
+
+	/**
+	 * @param laneCount
+	 *            the number of priority lanes
+	 */
+	public PriorityLaneQueue(int laneCount) {
+		lanes = new Queue[laneCount];
+		for (int i = 0; i < laneCount; i++)
+			lanes[i] = new Queue();
+		passedOver = new int[laneCount];
+	}
+
+	/**
+	 * Adds the given object to the end of the given lane.
+	 *
+	 * @param o
+	 * @param lane
+	 *            the lane, <code>0</code> being the highest priority
+	 */
+	public void enqueue(Object o, int lane) {
+		lanes[lane].enqueue(o);
+		size++;
+	}
+
+	/**
+	 * Returns the next object in the queue. The queue must not be empty.
+	 *
+	 * @return the next object
+	 */
+	public Object dequeue() {
+		int chosen = -1;
+		for (int i = 0; i < lanes.length; i++) {
+			if (!lanes[i].isEmpty()) {
+				if (chosen == -1)
+					chosen = i;
+				if (passedOver[i] >= MAX_PASSED_OVER) {
+					chosen = i;
+					break;
+				}
+			}
+		}
+		if (chosen == -1) {
+			throw new IllegalStateException();
+		}
+		for (int i = chosen + 1; i < lanes.length; i++) {
+			if (!lanes[i].isEmpty())
+				passedOver[i]++;
+		}
+		passedOver[chosen] = 0;
+		size--;
+		return lanes[chosen].dequeue();
+	}
+
+	/**
+	 * Returns <code>true</code> if all lanes are empty.
+	 *
+	 * @return <code>true</code> if all lanes are empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of objects in all lanes.
+	 *
+	 * @return the number of objects in all lanes
+	 */
+	public int size() {
+		return size;
+	}
+}
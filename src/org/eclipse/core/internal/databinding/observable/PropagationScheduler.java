@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.databinding.observable;
+
+import org.eclipse.core.databinding.observable.Realm;
+
+/**
+ * Schedules the change notifications of computed observables in realms with
+ * {@link Realm#setGlitchFreePropagation(boolean) glitch-free propagation}
+ * enabled.
+ * <p>
+ * All events fired on a thread between the start of the outermost event and
+ * the end of the propagation form a <em>change wave</em>. During a wave, a
+ * computed observable whose dependency changed only marks itself dirty and
+ * {@link #schedule(Node) schedules} its own change notification instead of
+ * firing it right away. When the outermost event has been dispatched, the
+ * scheduled notifications are fired in order of the dependency height of the
+ * computed observables, lowest first. Notifications scheduled while firing
+ * are fired within the same wave. A computed observable therefore fires at
+ * most once per wave, and only after all observables it depends on which
+ * changed in the same wave have fired.
+ * </p>
+ * <p>
+ * The height of a computed observable is one more than the largest height of
+ * the observables read while computing it, where observables which are not
+ * computed have a height of zero. Computed observables report their height
+ * to {@link #reportRead(int)} whenever they are read, and determine their own
+ * height by bracketing their computation with {@link #beginRecompute()} and
+ * {@link #endRecompute(int)}.
+ * </p>
+ * <p>
+ * Independently of glitch-free propagation, the scheduler bounds the nesting
+ * of event dispatch on each thread for realms with
+ * {@link Realm#setBoundedDispatchDepth(boolean) bounded dispatch depth}
+ * enabled. Change notifications travel through chains of computed and
+ * decorating observables by firing events from within listeners, which nests
+ * one dispatch in the next. Once the nesting exceeds
+ * {@link #MAX_DISPATCH_DEPTH}, further events are {@link #defer(Runnable)
+ * deferred} to a work list which is drained iteratively when the outermost
+ * dispatch ends, so that the length of a chain is limited by the heap rather
+ * than by the stack.
+ * </p>
+ * <p>
+ * The scheduler keeps its state per thread, and is not thread safe.
+ * </p>
+ *
+ * @since 1.4
+ */
+public final class PropagationScheduler {
+
+	private static final ThreadLocal<PropagationScheduler> currentScheduler = new ThreadLocal<PropagationScheduler>() {
+		protected PropagationScheduler initialValue() {
+			return new PropagationScheduler();
+		}
+	};
+
+	/**
+	 * Returns the scheduler of the current thread if glitch-free propagation
+	 * is enabled for the given realm.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @return the scheduler of the current thread, or <code>null</code> if
+	 *         glitch-free propagation is not enabled for the realm
+	 */
+	public static PropagationScheduler getInstance(Realm realm) {
+		return realm.isGlitchFreePropagation() ? currentScheduler.get() : null;
+	}
+
+	/**
+	 * Returns the scheduler of the current thread, regardless of whether
+	 * glitch-free propagation is enabled.
+	 *
+	 * @return the scheduler of the current thread
+	 */
+	public static PropagationScheduler getCurrent() {
+		return currentScheduler.get();
+	}
+
+	/**
+	 * A computed observable whose change notification can be scheduled.
+	 */
+	public static abstract class Node {
+		private int height = 0;
+		private long sequence;
+		private boolean scheduled = false;
+
+		/**
+		 * @return the dependency height of this node
+		 */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * @param height
+		 *            the dependency height of this node
+		 */
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+		/**
+		 * @return <code>true</code> if the notification of this node has been
+		 *         scheduled and has not been fired yet
+		 */
+		public boolean isScheduled() {
+			return scheduled;
+		}
+
+		/**
+		 * Fires the scheduled change notification.
+		 */
+		protected abstract void propagate();
+	}
+
+	private int eventDepth = 0;
+
+	private boolean draining = false;
+
+	private Node[] heap = new Node[16];
+
+	private int size = 0;
+
+	private long sequence = 0;
+
+	private int readHeight = 0;
+
+	/**
+	 * The number of nested event dispatches beyond which events are deferred
+	 * to the work list. Shallow propagation, which is by far the most common,
+	 * therefore keeps its usual depth-first order.
+	 */
+	public static final int MAX_DISPATCH_DEPTH = 64;
+
+	private int dispatchDepth = 0;
+
+	private boolean drainingDeferred = false;
+
+	private Runnable[] deferred = new Runnable[16];
+
+	private int deferredHead = 0;
+
+	private int deferredTail = 0;
+
+	private PropagationScheduler() {
+	}
+
+	/**
+	 * Returns whether a change wave is in progress on the current thread.
+	 *
+	 * @return <code>true</code> if notifications must be scheduled
+	 */
+	public boolean isPropagating() {
+		return eventDepth > 0 || draining;
+	}
+
+	/**
+	 * Marks the start of dispatching an event.
+	 */
+	public void beginEvent() {
+		eventDepth++;
+	}
+
+	/**
+	 * Marks the end of dispatching an event. At the end of the outermost
+	 * event, all scheduled notifications are fired. If a notification throws
+	 * an exception, the remaining notifications are still fired, and the first
+	 * exception is rethrown afterwards.
+	 */
+	public void endEvent() {
+		if (--eventDepth > 0 || draining)
+			return;
+		draining = true;
+		RuntimeException failure = null;
+		try {
+			while (size > 0) {
+				Node node = poll();
+				try {
+					node.propagate();
+				} catch (RuntimeException e) {
+					if (failure == null)
+						failure = e;
+				}
+			}
+		} finally {
+			draining = false;
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Schedules the notification of the given node for the current change
+	 * wave, unless it is scheduled already.
+	 *
+	 * @param node
+	 *            the node
+	 */
+	public void schedule(Node node) {
+		if (node.scheduled)
+			return;
+		node.scheduled = true;
+		node.sequence = sequence++;
+		if (size == heap.length) {
+			Node[] newHeap = new Node[size * 2];
+			System.arraycopy(heap, 0, newHeap, 0, size);
+			heap = newHeap;
+		}
+		// Sift up
+		int index = size++;
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!precedes(node, heap[parent]))
+				break;
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = node;
+	}
+
+	private Node poll() {
+		Node result = heap[0];
+		Node last = heap[--size];
+		heap[size] = null;
+		if (size > 0) {
+			// Sift down
+			int index = 0;
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && precedes(heap[child + 1], heap[child]))
+					child++;
+				if (!precedes(heap[child], last))
+					break;
+				heap[index] = heap[child];
+				index = child;
+			}
+			heap[index] = last;
+		}
+		result.scheduled = false;
+		return result;
+	}
+
+	private static boolean precedes(Node a, Node b) {
+		if (a.height != b.height)
+			return a.height < b.height;
+		return a.sequence < b.sequence;
+	}
+
+	/**
+	 * Marks the start of the computation of a computed observable.
+	 *
+	 * @return a token to be passed to {@link #endRecompute(int)}
+	 */
+	public int beginRecompute() {
+		int outerReadHeight = readHeight;
+		readHeight = 0;
+		return outerReadHeight;
+	}
+
+	/**
+	 * Marks the end of the computation of a computed observable.
+	 *
+	 * @param token
+	 *            the token returned by the matching {@link #beginRecompute()}
+	 * @return the height of the computed observable
+	 */
+	public int endRecompute(int token) {
+		int height = readHeight + 1;
+		readHeight = token;
+		return height;
+	}
+
+	/**
+	 * Notifies the scheduler that a computed observable with the given height
+	 * has been read.
+	 *
+	 * @param height
+	 *            the height of the observable
+	 */
+	public void reportRead(int height) {
+		if (height > readHeight)
+			readHeight = height;
+	}
+
+	/**
+	 * Returns whether an event dispatched now would exceed the maximum nesting
+	 * depth, in which case it should be {@link #defer(Runnable) deferred}.
+	 *
+	 * @return <code>true</code> if the event should be deferred
+	 */
+	public boolean isDispatchDepthExceeded() {
+		return dispatchDepth >= MAX_DISPATCH_DEPTH;
+	}
+
+	/**
+	 * Marks the start of dispatching an event to its listeners.
+	 */
+	public void beginDispatch() {
+		dispatchDepth++;
+	}
+
+	/**
+	 * Marks the end of dispatching an event to its listeners. At the end of
+	 * the outermost dispatch, the deferred dispatches are run in the order in
+	 * which they have been deferred, including the ones deferred while
+	 * draining. If a deferred dispatch throws an exception, the remaining ones
+	 * are still run, and the first exception is rethrown afterwards.
+	 */
+	public void endDispatch() {
+		if (--dispatchDepth > 0 || drainingDeferred
+				|| deferredHead == deferredTail)
+			return;
+		drainingDeferred = true;
+		RuntimeException failure = null;
+		try {
+			while (deferredHead != deferredTail) {
+				Runnable runnable = deferred[deferredHead];
+				deferred[deferredHead] = null;
+				deferredHead = (deferredHead + 1) & (deferred.length - 1);
+				try {
+					runnable.run();
+				} catch (RuntimeException e) {
+					if (failure == null)
+						failure = e;
+				}
+			}
+		} finally {
+			drainingDeferred = false;
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Defers the given dispatch until the outermost dispatch on the current
+	 * thread has ended.
+	 *
+	 * @param dispatch
+	 *            the dispatch to run later
+	 */
+	public void defer(Runnable dispatch) {
+		deferred[deferredTail] = dispatch;
+		deferredTail = (deferredTail + 1) & (deferred.length - 1);
+		if (deferredTail == deferredHead) {
+			// Full, double the capacity of the ring buffer
+			int length = deferred.length;
+			Runnable[] newDeferred = new Runnable[length * 2];
+			System.arraycopy(deferred, deferredHead, newDeferred, 0, length
+					- deferredHead);
+			System.arraycopy(deferred, 0, newDeferred, length - deferredHead,
+					deferredHead);
+			deferred = newDeferred;
+			deferredHead = 0;
+			deferredTail = length;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.ObservableSet;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+
+/**
+ * A read-only observable set which mirrors an observable set of another
+ * realm. Set changes of the source observable are handed over to the realm of
+ * the bridge using {@link Realm#asyncExec(Runnable)}; changes which happen
+ * before the bridge had a chance to run are merged into a single set change
+ * event, so that an element which is added and removed again in the meantime
+ * is not reported at all.
+ * <p>
+ * The bridge is stale until the initial contents of the source have arrived,
+ * and while the source is stale. The staleness of the source is handed over
+ * together with its set changes, so the bridge becomes stale by firing a stale
+ * event and stops being stale by firing a set change event within its own
+ * realm, like any other observable.
+ * </p>
+ *
+ * @param <E>
+ *
+ * @since 1.4
+ */
+public class RealmBridgeObservableSet<E> extends ObservableSet<E> {
+	private IObservableSet<E> source;
+
+	// accessed in the realm of the bridge only
+	private boolean initialized = false;
+	private boolean sourceStale = false;
+
+	// guarded by lock, written in the realm of the source
+	private final Object lock = new Object();
+	private Set<E> pendingAdditions = new HashSet<E>();
+	private Set<E> pendingRemovals = new HashSet<E>();
+	private boolean pendingStale = false;
+	private boolean pending = false;
+
+	private volatile boolean disposed = false;
+
+	private class SourceListener implements ISetChangeListener<E>,
+			IStaleListener {
+		public void handleSetChange(SetChangeEvent<E> event) {
+			post(event.diff.getAdditions(), event.diff.getRemovals(),
+					isStale(event.getObservableSet()));
+		}
+
+		public void handleStale(StaleEvent staleEvent) {
+			Set<E> empty = Collections.emptySet();
+			post(empty, empty, true);
+		}
+	}
+
+	private SourceListener sourceListener = new SourceListener();
+
+	private Runnable flusher = new Runnable() {
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * @param realm
+	 *            the realm of the bridge
+	 * @param source
+	 *            the observable set to mirror
+	 */
+	public RealmBridgeObservableSet(Realm realm, final IObservableSet<E> source) {
+		super(realm, new HashSet<E>(), source.getElementType());
+		this.source = source;
+
+		source.getRealm().exec(new Runnable() {
+			public void run() {
+				if (disposed)
+					return;
+				source.addSetChangeListener(sourceListener);
+				source.addStaleListener(sourceListener);
+				post(new HashSet<E>(source), new HashSet<E>(), isStale(source));
+			}
+		});
+	}
+
+	/**
+	 * Called in the realm of the source
+	 */
+	private static boolean isStale(IObservable source) {
+		ObservableTracker.setIgnore(true);
+		try {
+			return source.isStale();
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
+	private void post(Set<E> additions, Set<E> removals, boolean newStale) {
+		synchronized (lock) {
+			for (Iterator<E> it = removals.iterator(); it.hasNext();) {
+				E element = it.next();
+				if (!pendingAdditions.remove(element))
+					pendingRemovals.add(element);
+			}
+			for (Iterator<E> it = additions.iterator(); it.hasNext();) {
+				E element = it.next();
+				if (!pendingRemovals.remove(element))
+					pendingAdditions.add(element);
+			}
+			pendingStale = newStale;
+			if (pending)
+				return;
+			pending = true;
+		}
+		getRealm().asyncExec(flusher);
+	}
+
+	private void flush() {
+		Set<E> additions;
+		Set<E> removals;
+		boolean newStale;
+		synchronized (lock) {
+			newStale = pendingStale;
+			additions = pendingAdditions;
+			removals = pendingRemovals;
+			pendingAdditions = new HashSet<E>();
+			pendingRemovals = new HashSet<E>();
+			pending = false;
+		}
+		if (disposed)
+			return;
+
+		// Only report what actually changed in our copy of the source
+		for (Iterator<E> it = removals.iterator(); it.hasNext();) {
+			if (!wrappedSet.remove(it.next()))
+				it.remove();
+		}
+		for (Iterator<E> it = additions.iterator(); it.hasNext();) {
+			if (!wrappedSet.add(it.next()))
+				it.remove();
+		}
+
+		boolean wasStale = !initialized || sourceStale;
+		boolean changed = !initialized || !additions.isEmpty()
+				|| !removals.isEmpty();
+		initialized = true;
+		sourceStale = newStale;
+
+		// A set change event ends the staleness, announce it again if the
+		// source is still stale
+		if (changed || (wasStale && !sourceStale))
+			fireSetChange(Diffs.createSetDiff(additions, removals));
+		if (sourceStale && (changed || !wasStale))
+			fireStale();
+	}
+
+	public boolean isStale() {
+		getterCalled();
+		return !initialized || sourceStale;
+	}
+
+	public synchronized void dispose() {
+		if (!disposed) {
+			disposed = true;
+			final IObservableSet<E> oldSource = source;
+			final SourceListener oldListener = sourceListener;
+			oldSource.getRealm().exec(new Runnable() {
+				public void run() {
+					oldSource.removeSetChangeListener(oldListener);
+					oldSource.removeStaleListener(oldListener);
+				}
+			});
+			source = null;
+			sourceListener = null;
+		}
+		super.dispose();
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.value.AbstractObservableValue;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+
+/**
+ * A read-only observable value which mirrors an observable value of another
+ * realm. Value changes of the source observable are handed over to the realm
+ * of the bridge using {@link Realm#asyncExec(Runnable)}; changes which happen
+ * before the bridge had a chance to run are coalesced into a single value
+ * change event.
+ * <p>
+ * The bridge is stale until the initial value of the source has arrived, and
+ * while the source is stale. The staleness of the source is handed over
+ * together with its value changes, so the bridge becomes stale by firing a
+ * stale event and stops being stale by firing a value change event within its
+ * own realm, like any other observable.
+ * </p>
+ *
+ * @param <T>
+ *
+ * @since 1.4
+ */
+public class RealmBridgeObservableValue<T> extends AbstractObservableValue<T> {
+	private IObservableValue<T> source;
+	private final Object valueType;
+
+	// accessed in the realm of the bridge only
+	private T value;
+	private boolean initialized = false;
+	private boolean sourceStale = false;
+
+	// guarded by lock, written in the realm of the source
+	private final Object lock = new Object();
+	private T pendingValue;
+	private boolean hasPendingValue = false;
+	private boolean pendingStale = false;
+	private boolean pending = false;
+
+	private volatile boolean disposed = false;
+
+	private class SourceListener implements IValueChangeListener<T>,
+			IStaleListener {
+		public void handleValueChange(ValueChangeEvent<T> event) {
+			post(true, event.diff.getNewValue(),
+					isStale(event.getObservableValue()));
+		}
+
+		public void handleStale(StaleEvent staleEvent) {
+			post(false, null, true);
+		}
+	}
+
+	private SourceListener sourceListener = new SourceListener();
+
+	private Runnable flusher = new Runnable() {
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * @param realm
+	 *            the realm of the bridge
+	 * @param source
+	 *            the observable value to mirror
+	 */
+	public RealmBridgeObservableValue(Realm realm,
+			final IObservableValue<T> source) {
+		super(realm);
+		this.source = source;
+		this.valueType = source.getValueType();
+
+		source.getRealm().exec(new Runnable() {
+			public void run() {
+				if (disposed)
+					return;
+				source.addValueChangeListener(sourceListener);
+				source.addStaleListener(sourceListener);
+				post(true, source.getValue(), isStale(source));
+			}
+		});
+	}
+
+	/**
+	 * Called in the realm of the source
+	 */
+	private static boolean isStale(IObservable source) {
+		ObservableTracker.setIgnore(true);
+		try {
+			return source.isStale();
+		} finally {
+			ObservableTracker.setIgnore(false);
+		}
+	}
+
+	private void post(boolean hasValue, T newValue, boolean newStale) {
+		synchronized (lock) {
+			if (hasValue) {
+				pendingValue = newValue;
+				hasPendingValue = true;
+			}
+			pendingStale = newStale;
+			if (pending)
+				return;
+			pending = true;
+		}
+		getRealm().asyncExec(flusher);
+	}
+
+	private void flush() {
+		boolean hasValue;
+		T newValue;
+		boolean newStale;
+		synchronized (lock) {
+			hasValue = hasPendingValue;
+			newValue = pendingValue;
+			newStale = pendingStale;
+			pendingValue = null;
+			hasPendingValue = false;
+			pending = false;
+		}
+		if (disposed)
+			return;
+
+		boolean wasStale = !initialized || sourceStale;
+		T oldValue = value;
+		boolean changed = false;
+		if (hasValue) {
+			changed = !initialized || !Util.equals(oldValue, newValue);
+			value = newValue;
+			initialized = true;
+		}
+		sourceStale = newStale;
+		boolean isStale = !initialized || sourceStale;
+
+		// A value change event ends the staleness, announce it again if the
+		// source is still stale
+		if (changed || (wasStale && !isStale))
+			fireValueChange(Diffs.createValueDiff(oldValue, value));
+		if (isStale && (changed || !wasStale))
+			fireStale();
+	}
+
+	protected T doGetValue() {
+		return value;
+	}
+
+	public Object getValueType() {
+		return valueType;
+	}
+
+	public boolean isStale() {
+		ObservableTracker.getterCalled(this);
+		return !initialized || sourceStale;
+	}
+
+	public synchronized void dispose() {
+		if (!disposed) {
+			disposed = true;
+			final IObservableValue<T> oldSource = source;
+			final SourceListener oldListener = sourceListener;
+			oldSource.getRealm().exec(new Runnable() {
+				public void run() {
+					oldSource.removeValueChangeListener(oldListener);
+					oldSource.removeStaleListener(oldListener);
+				}
+			});
+			source = null;
+			sourceListener = null;
+		}
+		super.dispose();
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.bag.AbstractObservableBag;
+import org.eclipse.core.databinding.observable.bag.BagDiff;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+
+/**
+ * An unmodifiable observable bag viewing an observable set, in which every
+ * element of the set occurs once. Set changes are propagated as bag changes
+ * with a count delta of one per added or removed element.
+ * 
+ * @param <E>
+ *            the type of the elements
+ * 
+ * @since 1.4
+ */
+public class SetObservableBag<E> extends AbstractObservableBag<E> {
+	private IObservableSet<E> set;
+
+	private class PrivateInterface implements ISetChangeListener<E>,
+			IStaleListener {
+		public void handleSetChange(SetChangeEvent<E> event) {
+			final SetDiff<E> diff = event.diff;
+			Set<E> changed = new HashSet<E>(diff.getAdditions());
+			changed.addAll(diff.getRemovals());
+			final Set<E> elements = Collections.unmodifiableSet(changed);
+			// Each element of a set occurs once, no need to count
+			fireBagChange(new BagDiff<E>() {
+				public Set<E> getElements() {
+					return elements;
+				}
+
+				public int getCountDelta(Object element) {
+					if (diff.getAdditions().contains(element))
+						return 1;
+					return diff.getRemovals().contains(element) ? -1 : 0;
+				}
+			});
+		}
+
+		public void handleStale(StaleEvent staleEvent) {
+			fireStale();
+		}
+	}
+
+	private PrivateInterface privateInterface = new PrivateInterface();
+
+	/**
+	 * @param set
+	 *            the observable set to view as a bag
+	 */
+	public SetObservableBag(IObservableSet<E> set) {
+		super(set.getRealm());
+		this.set = set;
+	}
+
+	protected void firstListenerAdded() {
+		set.addSetChangeListener(privateInterface);
+		set.addStaleListener(privateInterface);
+	}
+
+	protected void lastListenerRemoved() {
+		if (set != null) {
+			set.removeSetChangeListener(privateInterface);
+			set.removeStaleListener(privateInterface);
+		}
+	}
+
+	protected int doCount(Object o) {
+		return set.contains(o) ? 1 : 0;
+	}
+
+	protected Set<E> doGetElementSet() {
+		return set;
+	}
+
+	protected int doGetSize() {
+		return set.size();
+	}
+
+	public Object getElementType() {
+		return set.getElementType();
+	}
+
+	public boolean isStale() {
+		getterCalled();
+		return set.isStale();
+	}
+
+	public synchronized void dispose() {
+		lastListenerRemoved();
+		set = null;
+		privateInterface = null;
+		super.dispose();
+	}
+}
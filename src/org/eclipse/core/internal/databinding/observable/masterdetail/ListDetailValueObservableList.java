@@ -14,7 +14,6 @@ package org.eclipse.core.internal.databinding.observable.masterdetail;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.RandomAccess;
 
@@ -22,6 +21,7 @@ import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.DisposeEvent;
 import org.eclipse.core.databinding.observable.IDisposeListener;
 import org.eclipse.core.databinding.observable.IObserving;
+import org.eclipse.core.databinding.observable.IResumableRunnable;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.StaleEvent;
@@ -37,6 +37,7 @@ import org.eclipse.core.databinding.observable.value.IValueChangeListener;
 import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
 import org.eclipse.core.internal.databinding.identity.IdentityMap;
 import org.eclipse.core.internal.databinding.identity.IdentitySet;
+import org.eclipse.core.internal.databinding.observable.Queue;
 
 /**
  * @since 1.4
@@ -60,6 +61,14 @@ public class ListDetailValueObservableList<U, V> extends AbstractObservableList<
 
 	private IdentitySet<IObservableValue<V>> staleDetailObservables = new IdentitySet<IObservableValue<V>>();
 
+	// Master list diff entries which have not yet been applied to the detail
+	// list.
+	private Queue pendingMasterEntries = new Queue();
+
+	// Applies the pending master list diff entries. Null unless there are
+	// pending master list diff entries.
+	private MasterListUpdater masterListUpdater;
+
 	private IListChangeListener<U> masterListListener = new IListChangeListener<U>() {
 		public void handleListChange(ListChangeEvent<U> event) {
 			handleMasterListChange(event.diff);
@@ -116,9 +125,10 @@ public class ListDetailValueObservableList<U, V> extends AbstractObservableList<
 			}
 		});
 
-		ListDiff<U> initMasterDiff = Diffs.computeListDiff(Collections.<U>emptyList(),
-				masterList);
-		handleMasterListChange(initMasterDiff);
+		// Nobody can be listening yet, so the initial details are created
+		// right away, only later master diffs are processed in slices
+		for (int i = 0, size = masterList.size(); i < size; i++)
+			addDetailObservable(masterList.get(i), i);
 	}
 
 	protected synchronized void firstListenerAdded() {
@@ -146,37 +156,74 @@ public class ListDetailValueObservableList<U, V> extends AbstractObservableList<
 	}
 
 	private void handleMasterListChange(ListDiff<U> masterListDiff) {
-		boolean wasStale = isStale();
-
-		boolean hasListeners = hasListeners();
 		ListDiffEntry<U>[] masterEntries = masterListDiff.getDifferences();
-		ListDiffEntry<V>[] detailEntries = ListDiffEntry.newArray(masterEntries.length);
 		for (int i = 0; i < masterEntries.length; i++) {
-			ListDiffEntry<U> masterEntry = masterEntries[i];
-			int index = masterEntry.getPosition();
+			pendingMasterEntries.enqueue(masterEntries[i]);
+		}
 
-			U masterElement = masterEntry.getElement();
-			V detailValue;
-			if (masterEntry.isAddition()) {
-				detailValue = addDetailObservable(masterElement, index);
-			} else {
-				detailValue = removeDetailObservable(masterElement, index);
-			}
+		// A big master diff may take a while to process, so do it in slices
+		// of work according to the time budget of the realm. Master diffs
+		// arriving in the meantime are processed by the same updater.
+		if (masterListUpdater == null && !pendingMasterEntries.isEmpty()) {
+			masterListUpdater = new MasterListUpdater();
+			getRealm().execResumable(masterListUpdater);
+		}
+	}
 
-			if (hasListeners) {
-				// Create the corresponding diff for the detail list.
-				detailEntries[i] = Diffs.createListDiffEntry(index,
-						masterEntry.isAddition(), detailValue);
+	private class MasterListUpdater implements IResumableRunnable {
+		boolean yielded = false;
+
+		@SuppressWarnings("unchecked")
+		// safe, only master list diff entries are enqueued
+		public boolean run(long deadline) {
+			if (masterListUpdater != this) {
+				// disposed in the meantime
+				return true;
 			}
-		}
 
-		if (hasListeners) {
-			if (!wasStale && isStale()) {
-				fireStale();
+			boolean wasStale = isStale();
+
+			boolean hasListeners = hasListeners();
+			ArrayList<ListDiffEntry<V>> detailEntries = new ArrayList<ListDiffEntry<V>>();
+			do {
+				ListDiffEntry<U> masterEntry = (ListDiffEntry<U>) pendingMasterEntries
+						.dequeue();
+				int index = masterEntry.getPosition();
+
+				U masterElement = masterEntry.getElement();
+				V detailValue;
+				if (masterEntry.isAddition()) {
+					detailValue = addDetailObservable(masterElement, index);
+				} else {
+					detailValue = removeDetailObservable(masterElement, index);
+				}
+
+				if (hasListeners) {
+					// Create the corresponding diff for the detail list.
+					detailEntries.add(Diffs.createListDiffEntry(index,
+							masterEntry.isAddition(), detailValue));
+				}
+			} while (!pendingMasterEntries.isEmpty()
+					&& System.nanoTime() < deadline);
+
+			boolean done = pendingMasterEntries.isEmpty();
+			if (done) {
+				masterListUpdater = null;
+			} else {
+				yielded = true;
 			}
 
-			// Fire a list change event with the adapted diff.
-			fireListChange(Diffs.createListDiff(detailEntries));
+			if (hasListeners) {
+				if (!wasStale && isStale()) {
+					fireStale();
+				}
+
+				// Fire a list change event with the adapted diff.
+				fireListChange(Diffs.createListDiff(detailEntries
+						.toArray(ListDiffEntry.<V> newArray(detailEntries
+								.size()))));
+			}
+			return done;
 		}
 	}
 
@@ -308,7 +355,8 @@ public class ListDetailValueObservableList<U, V> extends AbstractObservableList<
 		return super.isStale()
 				|| (masterList != null && masterList.isStale())
 				|| (staleDetailObservables != null && !staleDetailObservables
-						.isEmpty());
+						.isEmpty())
+				|| (masterListUpdater != null && masterListUpdater.yielded);
 	}
 
 	public Object getObserved() {
@@ -336,6 +384,8 @@ public class ListDetailValueObservableList<U, V> extends AbstractObservableList<
 		detailValueListener = null;
 		masterDetailMap = null;
 		staleDetailObservables = null;
+		pendingMasterEntries = null;
+		masterListUpdater = null;
 
 		super.dispose();
 	}
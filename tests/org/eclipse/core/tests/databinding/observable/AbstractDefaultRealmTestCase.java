@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.VirtualTimeRealm;
+
+/**
+ * Base class for tests which need a default realm. Each test runs with a
+ * fresh {@link VirtualTimeRealm} as the default realm, so runnables passed to
+ * the realm only run when the test calls {@link VirtualTimeRealm#drainAll()}
+ * or {@link VirtualTimeRealm#advance(long)}.
+ */
+public abstract class AbstractDefaultRealmTestCase extends TestCase {
+	private Realm previousRealm;
+
+	protected VirtualTimeRealm realm;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		realm = new VirtualTimeRealm();
+		previousRealm = DefaultRealmSetter.set(realm);
+	}
+
+	protected void tearDown() throws Exception {
+		DefaultRealmSetter.set(previousRealm);
+		realm = null;
+		super.tearDown();
+	}
+
+	private static class DefaultRealmSetter extends Realm {
+		static Realm set(Realm realm) {
+			return setDefault(realm);
+		}
+
+		public boolean isCurrent() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.DecoratingObservableValue;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+
+/**
+ * Tests for {@link org.eclipse.core.databinding.observable.Realm#setBoundedDispatchDepth(boolean)
+ * bounded dispatch depth}.
+ */
+public class BoundedDispatchDepthTest extends AbstractDefaultRealmTestCase {
+	private static final int CHAIN_LENGTH = 20000;
+
+	private WritableValue<Integer> source;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		realm.setBoundedDispatchDepth(true);
+		source = new WritableValue<Integer>(Integer.valueOf(0), Integer.class);
+	}
+
+	private List<ComputedValue<Integer>> createRunningTotals() {
+		List<ComputedValue<Integer>> chain = new ArrayList<ComputedValue<Integer>>();
+		IObservableValue<Integer> previous = source;
+		for (int i = 0; i < CHAIN_LENGTH; i++) {
+			final IObservableValue<Integer> input = previous;
+			ComputedValue<Integer> total = new ComputedValue<Integer>() {
+				protected Integer calculate() {
+					return Integer.valueOf(input.getValue().intValue() + 1);
+				}
+			};
+			// Read in order, so that computing does not nest either
+			total.getValue();
+			chain.add(total);
+			previous = total;
+		}
+		return chain;
+	}
+
+	public void testDeepComputedChain() {
+		List<ComputedValue<Integer>> chain = createRunningTotals();
+		ComputedValue<Integer> last = chain.get(chain.size() - 1);
+		final int[] changes = new int[1];
+		last.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				changes[0]++;
+			}
+		});
+
+		source.setValue(Integer.valueOf(1));
+		assertEquals(1, changes[0]);
+		for (int i = 0; i < chain.size(); i++)
+			chain.get(i).getValue();
+		assertEquals(Integer.valueOf(CHAIN_LENGTH + 1), last.getValue());
+	}
+
+	public void testDeepDecoratorChain() {
+		IChangeListener noop = new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+			}
+		};
+		IObservableValue<Integer> last = source;
+		for (int i = 0; i < CHAIN_LENGTH; i++) {
+			last = new DecoratingObservableValue<Integer>(last, false);
+			// Listen in order, so that hooking the decorated observables does
+			// not nest either
+			last.addChangeListener(noop);
+		}
+		final List<Integer> values = new ArrayList<Integer>();
+		last.addValueChangeListener(new IValueChangeListener<Integer>() {
+			public void handleValueChange(ValueChangeEvent<Integer> event) {
+				values.add(event.diff.getNewValue());
+			}
+		});
+
+		source.setValue(Integer.valueOf(1));
+		source.setValue(Integer.valueOf(2));
+		assertEquals(2, values.size());
+		assertEquals(Integer.valueOf(1), values.get(0));
+		assertEquals(Integer.valueOf(2), values.get(1));
+	}
+
+	public void testShallowEventsAreDispatchedSynchronously() {
+		ComputedValue<Integer> doubled = new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				return Integer.valueOf(source.getValue().intValue() * 2);
+			}
+		};
+		final int[] changes = new int[1];
+		doubled.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				changes[0]++;
+			}
+		});
+		source.setValue(Integer.valueOf(3));
+		assertEquals(1, changes[0]);
+		assertTrue(realm.isIdle());
+	}
+}
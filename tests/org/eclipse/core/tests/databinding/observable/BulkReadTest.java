@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.IElementVisitor;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IObservableCollection;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.list.ComputedList;
+import org.eclipse.core.databinding.observable.list.DecoratingObservableList;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.map.DecoratingObservableMap;
+import org.eclipse.core.databinding.observable.map.IEntryVisitor;
+import org.eclipse.core.databinding.observable.map.IObservableMap;
+import org.eclipse.core.databinding.observable.map.WritableMap;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+
+/**
+ * Tests for the bulk reads of observable collections,
+ * {@link IObservableCollection#visitElements(IElementVisitor)},
+ * {@link IObservableMap#visitEntries(IEntryVisitor)} and the
+ * <code>snapshot()</code> methods.
+ */
+public class BulkReadTest extends AbstractDefaultRealmTestCase {
+	private WritableList<String> list;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		list = new WritableList<String>(new ArrayList<String>(Arrays
+				.asList(new String[] { "a", "b", "c" })), String.class); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private static <E> List<E> visit(IObservableCollection<E> collection,
+			final int limit) {
+		final List<E> visited = new ArrayList<E>();
+		collection.visitElements(new IElementVisitor<E>() {
+			public boolean visit(E element) {
+				visited.add(element);
+				return visited.size() < limit;
+			}
+		});
+		return visited;
+	}
+
+	private static IObservable[] tracked(Runnable runnable) {
+		return ObservableTracker.runAndMonitor(runnable, null, null);
+	}
+
+	public void testVisitElementsInOrderUntilStopped() {
+		assertEquals(Arrays.asList(new String[] { "a", "b", "c" }), visit( //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				list, Integer.MAX_VALUE));
+		assertEquals(Arrays.asList(new String[] { "a", "b" }), visit(list, 2)); //$NON-NLS-1$ //$NON-NLS-2$
+		WritableSet<String> set = new WritableSet<String>(list, String.class);
+		assertEquals(3, visit(set, Integer.MAX_VALUE).size());
+	}
+
+	public void testVisitTracksTheCollectionOnly() {
+		IObservable[] observables = tracked(new Runnable() {
+			public void run() {
+				visit(list, Integer.MAX_VALUE);
+			}
+		});
+		assertEquals(1, observables.length);
+		assertSame(list, observables[0]);
+	}
+
+	public void testObservablesReadByTheVisitorAreTracked() {
+		final WritableList<WritableValue<Integer>> values = new WritableList<WritableValue<Integer>>();
+		final WritableValue<Integer> one = new WritableValue<Integer>(Integer
+				.valueOf(1), Integer.class);
+		values.add(one);
+		values.add(new WritableValue<Integer>(Integer.valueOf(2),
+				Integer.class));
+		ComputedValue<Integer> sum = new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				final int[] total = new int[1];
+				values.visitElements(new IElementVisitor<WritableValue<Integer>>() {
+					public boolean visit(WritableValue<Integer> element) {
+						total[0] += element.getValue().intValue();
+						return true;
+					}
+				});
+				return Integer.valueOf(total[0]);
+			}
+		};
+		assertEquals(Integer.valueOf(3), sum.getValue());
+		one.setValue(Integer.valueOf(10));
+		assertEquals(Integer.valueOf(12), sum.getValue());
+		values.remove(one);
+		assertEquals(Integer.valueOf(2), sum.getValue());
+	}
+
+	public void testDecoratingAndComputedLists() {
+		DecoratingObservableList<String> decorating = new DecoratingObservableList<String>(
+				list, false);
+		assertEquals(list, visit(decorating, Integer.MAX_VALUE));
+		ComputedList<String> computed = new ComputedList<String>() {
+			protected List<String> calculate() {
+				return list.snapshot();
+			}
+		};
+		assertEquals(list, visit(computed, Integer.MAX_VALUE));
+	}
+
+	public void testListSnapshot() {
+		final List<List<String>> snapshots = new ArrayList<List<String>>();
+		IObservable[] observables = tracked(new Runnable() {
+			public void run() {
+				snapshots.add(list.snapshot());
+			}
+		});
+		assertEquals(1, observables.length);
+		List<String> snapshot = snapshots.get(0);
+		list.add("d"); //$NON-NLS-1$
+		assertEquals(3, snapshot.size());
+		try {
+			snapshot.add("e"); //$NON-NLS-1$
+			fail();
+		} catch (UnsupportedOperationException expected) {
+		}
+	}
+
+	public void testMapEntries() {
+		final WritableMap<String, Integer> map = new WritableMap<String, Integer>();
+		map.put("a", Integer.valueOf(1)); //$NON-NLS-1$
+		map.put("b", Integer.valueOf(2)); //$NON-NLS-1$
+		final IObservableMap<String, Integer> decorating = new DecoratingObservableMap<String, Integer>(
+				map, false);
+		final int[] visited = new int[1];
+		IObservable[] observables = tracked(new Runnable() {
+			public void run() {
+				decorating.visitEntries(new IEntryVisitor<String, Integer>() {
+					public boolean visit(String key, Integer value) {
+						assertEquals(map.get(key), value);
+						visited[0]++;
+						return false;
+					}
+				});
+			}
+		});
+		assertEquals("stopped after the first entry", 1, visited[0]); //$NON-NLS-1$
+		assertTrue(Arrays.asList(observables).contains(decorating));
+
+		Map<String, Integer> snapshot = map.snapshot();
+		map.remove("a"); //$NON-NLS-1$
+		assertEquals(2, snapshot.size());
+		assertEquals(Integer.valueOf(1), snapshot.get("a")); //$NON-NLS-1$
+	}
+}
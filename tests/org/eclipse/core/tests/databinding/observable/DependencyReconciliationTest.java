@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.list.ComputedList;
+import org.eclipse.core.databinding.observable.set.ComputedSet;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+
+/**
+ * Tests that computed observables reconcile their dependencies while
+ * listened to, and release them once they are no longer listened to.
+ */
+public class DependencyReconciliationTest extends AbstractDefaultRealmTestCase {
+	static class Dependency extends WritableValue<Integer> {
+		int subscriptions;
+
+		Dependency() {
+			super(Integer.valueOf(0), null);
+		}
+
+		protected void firstListenerAdded() {
+			subscriptions++;
+			super.firstListenerAdded();
+		}
+
+		boolean isListened() {
+			return hasListeners();
+		}
+	}
+
+	private Dependency dependency;
+
+	private IChangeListener listener = new IChangeListener() {
+		public void handleChange(ChangeEvent event) {
+		}
+	};
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		dependency = new Dependency();
+	}
+
+	private void assertReleasedWhenDirty(IObservable computed) {
+		computed.addChangeListener(listener);
+		assertTrue(dependency.isListened());
+
+		// Go dirty while listened to, the dependency is kept
+		dependency.setValue(Integer.valueOf(1));
+		assertTrue(dependency.isListened());
+
+		computed.removeChangeListener(listener);
+		assertFalse("dependency leaked", dependency.isListened()); //$NON-NLS-1$
+	}
+
+	public void testComputedValueKeepsDependencyAcrossChanges() {
+		final ComputedValue<Integer> computed = new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				return dependency.getValue();
+			}
+		};
+		computed.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				computed.getValue();
+			}
+		});
+		dependency.setValue(Integer.valueOf(1));
+		dependency.setValue(Integer.valueOf(2));
+		assertEquals(Integer.valueOf(2), computed.getValue());
+		assertEquals(1, dependency.subscriptions);
+	}
+
+	public void testComputedValueReleasesDependencyWhenDirty() {
+		assertReleasedWhenDirty(new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				return dependency.getValue();
+			}
+		});
+	}
+
+	public void testComputedListReleasesDependencyWhenDirty() {
+		assertReleasedWhenDirty(new ComputedList<Integer>() {
+			protected List<Integer> calculate() {
+				return Collections.singletonList(dependency.getValue());
+			}
+		});
+	}
+
+	public void testComputedSetReleasesDependencyWhenDirty() {
+		assertReleasedWhenDirty(new ComputedSet<Integer>() {
+			protected Set<Integer> calculate() {
+				return Collections.singleton(dependency.getValue());
+			}
+		});
+	}
+
+	public void testRunAndMonitorReconcilesDependencies() {
+		final WritableValue<Integer> other = new WritableValue<Integer>();
+		final boolean[] readOther = { true };
+		Runnable runnable = new Runnable() {
+			public void run() {
+				dependency.getValue();
+				if (readOther[0])
+					other.getValue();
+			}
+		};
+		IObservable[] dependencies = ObservableTracker.runAndMonitor(
+				runnable, listener, null, null);
+		assertEquals(2, dependencies.length);
+		readOther[0] = false;
+		dependencies = ObservableTracker.runAndMonitor(runnable, listener,
+				null, dependencies);
+		assertEquals(1, dependencies.length);
+		assertTrue(dependency.isListened());
+		assertEquals(1, dependency.subscriptions);
+	}
+}
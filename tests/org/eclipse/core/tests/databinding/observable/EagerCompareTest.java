@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.list.ComputedList;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.set.ComputedSet;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+
+/**
+ * Tests eager comparison of computed values, lists and sets.
+ */
+public class EagerCompareTest extends AbstractDefaultRealmTestCase {
+	private WritableList<Integer> input;
+
+	private int calculations;
+
+	private int changes;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		input = new WritableList<Integer>();
+		calculations = 0;
+		changes = 0;
+	}
+
+	private ComputedValue<Boolean> parity() {
+		ComputedValue<Boolean> parity = new ComputedValue<Boolean>() {
+			protected Boolean calculate() {
+				calculations++;
+				return Boolean.valueOf(input.size() % 2 == 0);
+			}
+		};
+		parity.setEagerCompare(true);
+		return parity;
+	}
+
+	private ComputedValue<Object> downstream(final ComputedValue<?> upstream) {
+		ComputedValue<Object> downstream = new ComputedValue<Object>() {
+			protected Object calculate() {
+				return upstream.getValue();
+			}
+		};
+		downstream.addValueChangeListener(new IValueChangeListener<Object>() {
+			public void handleValueChange(ValueChangeEvent<Object> event) {
+				changes++;
+			}
+		});
+		return downstream;
+	}
+
+	public void testEqualValueDoesNotFire() {
+		ComputedValue<Boolean> parity = parity();
+		ComputedValue<Object> downstream = downstream(parity);
+		input.add(Integer.valueOf(1));
+		assertEquals(1, changes);
+		input.addAll(java.util.Arrays.asList(new Integer[] {
+				Integer.valueOf(2), Integer.valueOf(3) }));
+		assertEquals("equal parity must not propagate", 1, changes);
+		assertEquals(Boolean.FALSE, downstream.getValue());
+	}
+
+	public void testStaleThenEqualValueEndsStaleness() {
+		ComputedValue<Boolean> parity = parity();
+		ComputedValue<Object> downstream = downstream(parity);
+		final int[] staleEvents = new int[1];
+		downstream.addStaleListener(new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				staleEvents[0]++;
+			}
+		});
+
+		input.setStale(true);
+		assertTrue(parity.isStale());
+		assertTrue(downstream.isStale());
+		assertEquals(1, staleEvents[0]);
+
+		// Settle on an input with the same parity
+		input.setStale(false);
+		input.addAll(java.util.Arrays.asList(new Integer[] {
+				Integer.valueOf(1), Integer.valueOf(2) }));
+		assertEquals(Boolean.TRUE, parity.getValue());
+		assertFalse(parity.isStale());
+		assertEquals("staleness must end with a change event", 1, changes);
+		assertFalse(downstream.isStale());
+	}
+
+	public void testEqualValueWhileStillStaleKeepsStaleness() {
+		ComputedValue<Boolean> parity = parity();
+		ComputedValue<Object> downstream = downstream(parity);
+		input.setStale(true);
+		input.addAll(java.util.Arrays.asList(new Integer[] {
+				Integer.valueOf(1), Integer.valueOf(2) }));
+		assertTrue(parity.isStale());
+		assertEquals(0, changes);
+		assertTrue(downstream.isStale());
+	}
+
+	public void testComputedListStaleThenEqualEndsStaleness() {
+		final ComputedList<String> list = new ComputedList<String>() {
+			protected List<String> calculate() {
+				input.size();
+				return Collections.singletonList("x"); //$NON-NLS-1$
+			}
+		};
+		list.setEagerCompare(true);
+		ComputedValue<Object> downstream = new ComputedValue<Object>() {
+			protected Object calculate() {
+				return Integer.valueOf(list.size());
+			}
+		};
+		downstream.addValueChangeListener(new IValueChangeListener<Object>() {
+			public void handleValueChange(ValueChangeEvent<Object> event) {
+				changes++;
+			}
+		});
+
+		input.add(Integer.valueOf(1));
+		assertEquals(0, changes);
+
+		input.setStale(true);
+		assertTrue(downstream.isStale());
+		input.setStale(false);
+		input.add(Integer.valueOf(2));
+		assertFalse(list.isStale());
+		assertFalse(downstream.isStale());
+	}
+
+	public void testComputedSetStaleThenEqualEndsStaleness() {
+		final ComputedSet<String> set = new ComputedSet<String>() {
+			protected Set<String> calculate() {
+				input.size();
+				return Collections.singleton("x"); //$NON-NLS-1$
+			}
+		};
+		set.setEagerCompare(true);
+		ComputedValue<Object> downstream = new ComputedValue<Object>() {
+			protected Object calculate() {
+				return Integer.valueOf(set.size());
+			}
+		};
+		downstream.addValueChangeListener(new IValueChangeListener<Object>() {
+			public void handleValueChange(ValueChangeEvent<Object> event) {
+				changes++;
+			}
+		});
+
+		input.add(Integer.valueOf(1));
+		assertEquals(0, changes);
+
+		input.setStale(true);
+		assertTrue(downstream.isStale());
+		input.setStale(false);
+		input.add(Integer.valueOf(2));
+		assertFalse(set.isStale());
+		assertFalse(downstream.isStale());
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.list.ComputedList;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+
+/**
+ * Tests for {@link org.eclipse.core.databinding.observable.Realm#setGlitchFreePropagation(boolean)
+ * glitch-free propagation}.
+ */
+public class GlitchFreePropagationTest extends AbstractDefaultRealmTestCase {
+	private WritableValue<Integer> source;
+
+	private ComputedValue<Integer> left;
+
+	private ComputedValue<Integer> right;
+
+	private ComputedValue<Integer> sum;
+
+	private int sumComputations;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		realm.setGlitchFreePropagation(true);
+		// source -> left, right -> sum
+		source = new WritableValue<Integer>(Integer.valueOf(1), Integer.class);
+		left = new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				return Integer.valueOf(source.getValue().intValue() + 1);
+			}
+		};
+		right = new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				return Integer.valueOf(source.getValue().intValue() * 2);
+			}
+		};
+		sum = new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				sumComputations++;
+				return Integer.valueOf(left.getValue().intValue()
+						+ right.getValue().intValue());
+			}
+		};
+	}
+
+	public void testDiamondFiresOnceWithConsistentValue() {
+		final List<Integer> values = new ArrayList<Integer>();
+		sum.addValueChangeListener(new IValueChangeListener<Integer>() {
+			public void handleValueChange(ValueChangeEvent<Integer> event) {
+				values.add(event.diff.getNewValue());
+			}
+		});
+		assertEquals(Integer.valueOf(4), sum.getValue());
+		sumComputations = 0;
+
+		source.setValue(Integer.valueOf(10));
+		assertEquals(Collections.singletonList(Integer.valueOf(31)), values);
+		assertEquals(1, sumComputations);
+	}
+
+	public void testLowerNodesFireFirst() {
+		final List<String> order = new ArrayList<String>();
+		sum.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				order.add("sum"); //$NON-NLS-1$
+			}
+		});
+		left.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				order.add("left"); //$NON-NLS-1$
+			}
+		});
+		source.setValue(Integer.valueOf(2));
+		assertEquals(2, order.size());
+		assertEquals("left", order.get(0)); //$NON-NLS-1$
+		assertEquals("sum", order.get(1)); //$NON-NLS-1$
+	}
+
+	public void testComputedListFiresOncePerWave() {
+		ComputedList<Integer> list = new ComputedList<Integer>() {
+			protected List<Integer> calculate() {
+				List<Integer> result = new ArrayList<Integer>();
+				result.add(left.getValue());
+				result.add(right.getValue());
+				result.add(sum.getValue());
+				return result;
+			}
+		};
+		final List<List<Integer>> snapshots = new ArrayList<List<Integer>>();
+		final ComputedList<Integer> observed = list;
+		list.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				snapshots.add(new ArrayList<Integer>(observed));
+			}
+		});
+		source.setValue(Integer.valueOf(3));
+		assertEquals(1, snapshots.size());
+		List<Integer> expected = new ArrayList<Integer>();
+		expected.add(Integer.valueOf(4));
+		expected.add(Integer.valueOf(6));
+		expected.add(Integer.valueOf(10));
+		assertEquals(expected, snapshots.get(0));
+	}
+
+	public void testEventsAreFiredWithinTheWave() {
+		final int[] changes = new int[1];
+		sum.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				changes[0]++;
+			}
+		});
+		source.setValue(Integer.valueOf(5));
+		// no realm runnables are needed to finish the wave
+		assertEquals(1, changes[0]);
+		assertTrue(realm.isIdle());
+		assertEquals(Integer.valueOf(16), sum.getValue());
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.list.ComputedList;
+import org.eclipse.core.databinding.observable.set.ComputedSet;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.tests.databinding.observable.DependencyReconciliationTest.Dependency;
+
+/**
+ * Tests the idle timeout of computed values, lists and sets.
+ */
+public class IdleTimeoutTest extends AbstractDefaultRealmTestCase {
+	private Dependency dependency;
+
+	private int calculations;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		dependency = new Dependency();
+		calculations = 0;
+	}
+
+	private ComputedValue<Integer> computedValue() {
+		return new ComputedValue<Integer>() {
+			protected Integer calculate() {
+				calculations++;
+				return dependency.getValue();
+			}
+		};
+	}
+
+	public void testReleasedAfterIdlePeriod() {
+		ComputedValue<Integer> computed = computedValue();
+		computed.getValue();
+		computed.setIdleTimeout(100);
+		assertEquals(100, computed.getIdleTimeout());
+		assertTrue(dependency.isListened());
+
+		realm.advance(100);
+		assertFalse(dependency.isListened());
+
+		computed.getValue();
+		assertEquals(2, calculations);
+		assertTrue(dependency.isListened());
+	}
+
+	public void testAccessPostponesRelease() {
+		ComputedValue<Integer> computed = computedValue();
+		computed.setIdleTimeout(100);
+		computed.getValue();
+		realm.advance(50);
+		computed.getValue();
+		realm.advance(60);
+		assertTrue(dependency.isListened());
+		realm.advance(100);
+		assertFalse(dependency.isListened());
+		assertEquals(1, calculations);
+	}
+
+	public void testNotReleasedWhileListened() {
+		ComputedValue<Integer> computed = computedValue();
+		computed.setIdleTimeout(100);
+		IChangeListener listener = new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+			}
+		};
+		computed.addChangeListener(listener);
+		realm.advance(500);
+		assertTrue(dependency.isListened());
+
+		computed.removeChangeListener(listener);
+		realm.advance(100);
+		assertFalse(dependency.isListened());
+	}
+
+	public void testNoTimeoutByDefault() {
+		ComputedValue<Integer> computed = computedValue();
+		assertEquals(0, computed.getIdleTimeout());
+		computed.getValue();
+		realm.advance(10000);
+		assertTrue(dependency.isListened());
+	}
+
+	public void testNegativeTimeout() {
+		try {
+			computedValue().setIdleTimeout(-1);
+			fail();
+		} catch (RuntimeException expected) {
+		}
+	}
+
+	private void assertReleased(Runnable access) {
+		assertTrue(dependency.isListened());
+		realm.advance(100);
+		assertFalse(dependency.isListened());
+		access.run();
+		assertEquals(2, calculations);
+	}
+
+	public void testComputedList() {
+		final ComputedList<Integer> computed = new ComputedList<Integer>() {
+			protected List<Integer> calculate() {
+				calculations++;
+				return Collections.singletonList(dependency.getValue());
+			}
+		};
+		computed.size();
+		computed.setIdleTimeout(100);
+		assertReleased(new Runnable() {
+			public void run() {
+				assertEquals(1, computed.size());
+			}
+		});
+	}
+
+	public void testComputedSet() {
+		final ComputedSet<Integer> computed = new ComputedSet<Integer>() {
+			protected Set<Integer> calculate() {
+				calculations++;
+				return Collections.singleton(dependency.getValue());
+			}
+		};
+		computed.size();
+		computed.setIdleTimeout(100);
+		assertReleased(new Runnable() {
+			public void run() {
+				assertEquals(1, computed.size());
+			}
+		});
+	}
+}
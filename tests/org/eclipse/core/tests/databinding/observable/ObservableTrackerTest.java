@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.tests.databinding.observable.DependencyReconciliationTest.Dependency;
+
+/**
+ * Tests for {@link ObservableTracker}.
+ */
+public class ObservableTrackerTest extends AbstractDefaultRealmTestCase {
+	private WritableValue<Object> first;
+
+	private WritableValue<Object> second;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		first = new WritableValue<Object>();
+		second = new WritableValue<Object>();
+	}
+
+	public void testNestedFramesTrackSeparately() {
+		final IObservable[][] inner = new IObservable[1][];
+		IObservable[] outer = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				first.getValue();
+				inner[0] = ObservableTracker.runAndMonitor(new Runnable() {
+					public void run() {
+						second.getValue();
+					}
+				}, null, null);
+				first.getValue();
+			}
+		}, null, null);
+		assertEquals(1, outer.length);
+		assertSame(first, outer[0]);
+		assertEquals(1, inner[0].length);
+		assertSame(second, inner[0][0]);
+	}
+
+	public void testTrackingResumesAfterException() {
+		try {
+			ObservableTracker.runAndMonitor(new Runnable() {
+				public void run() {
+					throw new IllegalStateException();
+				}
+			}, null, null);
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		IObservable[] observables = ObservableTracker.runAndMonitor(
+				new Runnable() {
+					public void run() {
+						first.getValue();
+					}
+				}, null, null);
+		assertEquals(1, observables.length);
+	}
+
+	public void testIgnoredReadsAreNotTracked() {
+		IObservable[] observables = ObservableTracker.runAndMonitor(
+				new Runnable() {
+					public void run() {
+						ObservableTracker.runAndIgnore(new Runnable() {
+							public void run() {
+								first.getValue();
+							}
+						});
+						second.getValue();
+					}
+				}, null, null);
+		assertEquals(1, observables.length);
+		assertSame(second, observables[0]);
+	}
+
+	public void testFrameOnOtherThreadDoesNotTrackReadsOfThisThread()
+			throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final IObservable[][] result = new IObservable[1][];
+		Thread other = new Thread() {
+			public void run() {
+				result[0] = ObservableTracker.runAndCollect(new Runnable() {
+					public void run() {
+						started.countDown();
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+		};
+		other.start();
+		started.await();
+		try {
+			// Tracked by nobody while the other thread has an active frame
+			first.getValue();
+			new WritableValue<Object>();
+			IObservable[] observables = ObservableTracker.runAndMonitor(
+					new Runnable() {
+						public void run() {
+							second.getValue();
+						}
+					}, null, null);
+			assertEquals(1, observables.length);
+		} finally {
+			release.countDown();
+			other.join();
+		}
+		assertEquals(0, result[0].length);
+	}
+
+	public void testDuplicateReadsAreTrackedOnce() {
+		final WritableValue<?>[] values = new WritableValue<?>[100];
+		for (int i = 0; i < values.length; i++)
+			values[i] = new WritableValue<Object>();
+		IObservable[] observables = ObservableTracker.runAndMonitor(
+				new Runnable() {
+					public void run() {
+						for (int pass = 0; pass < 2; pass++)
+							for (int i = 0; i < values.length; i++)
+								values[i].getValue();
+					}
+				}, null, null);
+		assertEquals(values.length, observables.length);
+		for (int i = 0; i < values.length; i++)
+			assertSame(values[i], observables[i]);
+	}
+
+	public void testReconcileWithPreviousDependencies() {
+		final Dependency kept = new Dependency();
+		final Dependency dropped = new Dependency();
+		final Dependency added = new Dependency();
+		IChangeListener listener = new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+			}
+		};
+		IObservable[] previous = ObservableTracker.runAndMonitor(
+				new Runnable() {
+					public void run() {
+						kept.getValue();
+						dropped.getValue();
+					}
+				}, listener, null, null);
+		assertTrue(kept.isListened());
+		assertTrue(dropped.isListened());
+
+		IObservable[] same = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				dropped.getValue();
+				kept.getValue();
+			}
+		}, listener, null, previous);
+		assertSame(previous, same);
+		assertEquals(1, kept.subscriptions);
+
+		IObservable[] next = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				kept.getValue();
+				added.getValue();
+			}
+		}, listener, null, previous);
+		assertEquals(2, next.length);
+		assertTrue(kept.isListened());
+		assertFalse(dropped.isListened());
+		assertTrue(added.isListened());
+		assertEquals(1, kept.subscriptions);
+	}
+
+	public void testCollectInsideMonitor() {
+		final IObservable[][] created = new IObservable[1][];
+		IObservable[] read = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				created[0] = ObservableTracker.runAndCollect(new Runnable() {
+					public void run() {
+						new WritableValue<Object>().getValue();
+						first.getValue();
+					}
+				});
+			}
+		}, null, null);
+		assertEquals(1, created[0].length);
+		// reads within the collecting frame are still tracked by the
+		// monitoring frame below it
+		assertEquals(2, read.length);
+		assertSame(created[0][0], read[0]);
+		assertSame(first, read[1]);
+	}
+}
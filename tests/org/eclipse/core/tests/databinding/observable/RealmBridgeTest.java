@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.VirtualTimeRealm;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+
+/**
+ * Tests for {@link Observables#bridgeObservableValue} and
+ * {@link Observables#bridgeObservableSet}.
+ */
+public class RealmBridgeTest extends AbstractDefaultRealmTestCase {
+	static class StaleableValue extends WritableValue<String> {
+		private boolean stale;
+
+		StaleableValue() {
+			super("a", String.class); //$NON-NLS-1$
+		}
+
+		void setStale(boolean stale) {
+			boolean wasStale = this.stale;
+			this.stale = stale;
+			if (stale && !wasStale)
+				fireStale();
+		}
+
+		public boolean isStale() {
+			ObservableTracker.getterCalled(this);
+			return stale;
+		}
+	}
+
+	/**
+	 * The realm of the bridge, the sources belong to the default realm
+	 */
+	private VirtualTimeRealm bridgeRealm;
+
+	private int changes;
+
+	private int staleEvents;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		bridgeRealm = new VirtualTimeRealm();
+		changes = 0;
+		staleEvents = 0;
+	}
+
+	private void listen(IObservable bridge) {
+		bridge.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				changes++;
+			}
+		});
+		bridge.addStaleListener(new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				staleEvents++;
+			}
+		});
+	}
+
+	public void testValueChangesAreCoalesced() {
+		WritableValue<String> source = new WritableValue<String>("a", //$NON-NLS-1$
+				String.class);
+		IObservableValue<String> bridge = Observables.bridgeObservableValue(
+				bridgeRealm, source);
+		listen(bridge);
+		assertTrue(bridge.isStale());
+		bridgeRealm.drainAll();
+		assertEquals("a", bridge.getValue()); //$NON-NLS-1$
+		assertFalse(bridge.isStale());
+		changes = 0;
+
+		source.setValue("b"); //$NON-NLS-1$
+		source.setValue("c"); //$NON-NLS-1$
+		// Not forwarded yet, and not reported as stale without a stale event
+		assertEquals("a", bridge.getValue()); //$NON-NLS-1$
+		assertFalse(bridge.isStale());
+		bridgeRealm.drainAll();
+		assertEquals("c", bridge.getValue()); //$NON-NLS-1$
+		assertEquals(1, changes);
+		assertEquals(0, staleEvents);
+	}
+
+	public void testValueStalenessIsForwarded() {
+		StaleableValue source = new StaleableValue();
+		IObservableValue<String> bridge = Observables.bridgeObservableValue(
+				bridgeRealm, source);
+		listen(bridge);
+		bridgeRealm.drainAll();
+		changes = 0;
+
+		source.setStale(true);
+		assertFalse(bridge.isStale());
+		bridgeRealm.drainAll();
+		assertTrue(bridge.isStale());
+		assertEquals(1, staleEvents);
+
+		// Staleness ends with a change, even if the value is equal
+		source.setStale(false);
+		source.setValue("a"); //$NON-NLS-1$
+		source.setValue("b"); //$NON-NLS-1$
+		source.setValue("a"); //$NON-NLS-1$
+		bridgeRealm.drainAll();
+		assertFalse(bridge.isStale());
+		assertEquals(1, changes);
+	}
+
+	public void testSetChangesAreMerged() {
+		WritableSet<String> source = new WritableSet<String>();
+		IObservableSet<String> bridge = Observables.bridgeObservableSet(
+				bridgeRealm, source);
+		listen(bridge);
+		bridgeRealm.drainAll();
+		changes = 0;
+
+		source.add("a"); //$NON-NLS-1$
+		source.add("b"); //$NON-NLS-1$
+		source.remove("a"); //$NON-NLS-1$
+		bridgeRealm.drainAll();
+		assertEquals(new HashSet<String>(Arrays.asList(new String[] { "b" })), //$NON-NLS-1$
+				bridge);
+		assertEquals(1, changes);
+	}
+
+	public void testSetStalenessIsForwarded() {
+		WritableSet<String> source = new WritableSet<String>();
+		IObservableSet<String> bridge = Observables.bridgeObservableSet(
+				bridgeRealm, source);
+		listen(bridge);
+		bridgeRealm.drainAll();
+		changes = 0;
+
+		source.setStale(true);
+		bridgeRealm.drainAll();
+		assertTrue(bridge.isStale());
+		assertEquals(1, staleEvents);
+
+		source.setStale(false);
+		source.add("a"); //$NON-NLS-1$
+		source.remove("a"); //$NON-NLS-1$
+		bridgeRealm.drainAll();
+		assertFalse(bridge.isStale());
+		assertEquals(1, changes);
+		assertTrue(bridge.isEmpty());
+	}
+}
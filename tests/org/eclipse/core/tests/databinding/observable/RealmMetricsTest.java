@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.RealmMetrics;
+import org.eclipse.core.databinding.observable.RealmMetrics.Histogram;
+
+/**
+ * Tests for {@link RealmMetrics} and the monitor of a {@link Realm}.
+ */
+public class RealmMetricsTest extends TestCase {
+	public void testHistogramBuckets() {
+		Histogram histogram = new Histogram();
+		histogram.record(0);
+		histogram.record(1);
+		histogram.record(1000);
+		histogram.record(-5);
+		assertEquals(4, histogram.getCount());
+		assertEquals(2, histogram.getCount(0));
+		assertEquals(1, histogram.getCount(1));
+		assertEquals(1, histogram.getCount(10));
+		assertEquals(1001, histogram.getTotal());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(1023, Histogram.getUpperBound(10));
+		assertEquals(Long.MAX_VALUE,
+				Histogram.getUpperBound(Histogram.BUCKET_COUNT - 1));
+	}
+
+	public void testHistogramPercentiles() {
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getPercentile(0.5));
+		for (int i = 0; i < 99; i++)
+			histogram.record(3);
+		histogram.record(100000);
+		assertEquals(3, histogram.getPercentile(0.5));
+		assertEquals(3, histogram.getPercentile(0.99));
+		assertEquals(100000, histogram.getPercentile(1.0));
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+	public void testSlowTasksAreReported() {
+		final Runnable[] slow = new Runnable[1];
+		RealmMetrics metrics = new RealmMetrics(5) {
+			protected void handleSlowTask(Realm realm, Runnable runnable,
+					long executionNanos) {
+				slow[0] = runnable;
+			}
+		};
+		Runnable fast = new Runnable() {
+			public void run() {
+			}
+		};
+		metrics.taskFinished(null, fast, 4999999L);
+		assertNull(slow[0]);
+		metrics.taskFinished(null, fast, 5000000L);
+		assertSame(fast, slow[0]);
+		assertEquals(2, metrics.getExecutionTimes().getCount());
+	}
+
+	public void testQueuedRunnablesAreMeasured() throws Exception {
+		final Realm realm = new Realm() {
+			public boolean isCurrent() {
+				return false;
+			}
+
+			protected void syncExec(Runnable runnable) {
+				runnable.run();
+			}
+		};
+		final RealmMetrics metrics = new RealmMetrics();
+		realm.setMonitor(metrics);
+		assertSame(metrics, realm.getMonitor());
+
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(3);
+		final Runnable blocking = new Runnable() {
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}
+		};
+		final Runnable counting = new Runnable() {
+			public void run() {
+				done.countDown();
+			}
+		};
+		// Queue from a daemon thread, the worker thread of the realm inherits
+		// it and does not keep the VM alive
+		Thread queueing = new Thread() {
+			public void run() {
+				realm.asyncExec(blocking);
+				realm.asyncExec(counting);
+				realm.asyncExec(counting);
+			}
+		};
+		queueing.setDaemon(true);
+		queueing.start();
+		queueing.join();
+
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(metrics.getMaxQueueDepth() >= 2);
+		assertEquals(3, metrics.getWaitTimes().getCount());
+		// taskFinished is called after the runnable returned
+		long deadline = System.currentTimeMillis() + 5000;
+		while (metrics.getExecutionTimes().getCount() < 3
+				&& System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+		assertEquals(3, metrics.getExecutionTimes().getCount());
+		assertEquals(0, realm.getQueueDepth());
+
+		metrics.reset();
+		assertEquals(0, metrics.getMaxQueueDepth());
+		realm.setMonitor(null);
+		assertNull(realm.getMonitor());
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.Realm;
+
+/**
+ * Tests for the priority lanes of the realm work queue.
+ */
+public class RealmPriorityTest extends AbstractDefaultRealmTestCase {
+	private List<String> log = new ArrayList<String>();
+
+	private Runnable logging(final String name) {
+		return new Runnable() {
+			public void run() {
+				log.add(name);
+			}
+		};
+	}
+
+	public void testRunnablesRunByPriority() {
+		realm.asyncExec(logging("background"), Realm.PRIORITY_BACKGROUND); //$NON-NLS-1$
+		realm.asyncExec(logging("normal")); //$NON-NLS-1$
+		realm.asyncExec(logging("interactive"), Realm.PRIORITY_INTERACTIVE); //$NON-NLS-1$
+		realm.drainAll();
+		assertEquals("[interactive, normal, background]", log.toString()); //$NON-NLS-1$
+	}
+
+	public void testUnknownPriority() {
+		try {
+			realm.asyncExec(logging("x"), Realm.PRIORITY_BACKGROUND + 1); //$NON-NLS-1$
+			fail();
+		} catch (RuntimeException expected) {
+		}
+	}
+}
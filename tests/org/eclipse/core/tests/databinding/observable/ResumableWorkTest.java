@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.IResumableRunnable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.map.ComputedObservableMap;
+import org.eclipse.core.databinding.observable.map.IMapChangeListener;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+
+/**
+ * Tests for resumable work executed in slices according to the time budget of
+ * a realm.
+ */
+public class ResumableWorkTest extends AbstractDefaultRealmTestCase {
+	private static void spin(long nanos) {
+		long until = System.nanoTime() + nanos;
+		while (System.nanoTime() < until) {
+			// busy wait
+		}
+	}
+
+	static class Counter implements IResumableRunnable {
+		final int total;
+		int done;
+		int slices;
+
+		Counter(int total) {
+			this.total = total;
+		}
+
+		public boolean run(long deadline) {
+			slices++;
+			do {
+				spin(50000L);
+				done++;
+			} while (done < total && System.nanoTime() < deadline);
+			return done == total;
+		}
+	}
+
+	public void testUnlimitedBudgetRunsToCompletion() {
+		assertEquals(0, realm.getTimeBudget());
+		Counter counter = new Counter(100);
+		realm.execResumable(counter);
+		assertEquals(100, counter.done);
+		assertEquals(1, counter.slices);
+	}
+
+	public void testWorkIsSlicedAccordingToBudget() {
+		realm.setTimeBudget(1);
+		Counter counter = new Counter(100);
+		realm.execResumable(counter);
+		// The first slice runs right away since we are in the realm
+		assertTrue(counter.done > 0 && counter.done < 100);
+		assertFalse(realm.isIdle());
+		realm.drainAll();
+		assertEquals(100, counter.done);
+		assertTrue(counter.slices > 1);
+	}
+
+	public void testFailingSliceIsNotResumed() {
+		final int[] slices = new int[1];
+		realm.execResumable(new IResumableRunnable() {
+			public boolean run(long deadline) {
+				slices[0]++;
+				throw new IllegalStateException("expected"); //$NON-NLS-1$
+			}
+		});
+		realm.drainAll();
+		assertEquals(1, slices[0]);
+	}
+
+	public void testNegativeBudget() {
+		try {
+			realm.setTimeBudget(-1);
+			fail();
+		} catch (RuntimeException expected) {
+		}
+	}
+
+	static class BackedMap extends ComputedObservableMap<Integer, String> {
+		final Map<Integer, String> values = new HashMap<Integer, String>();
+		int hooked;
+
+		BackedMap(WritableSet<Integer> keySet) {
+			super(keySet);
+		}
+
+		protected void hookListener(Integer addedKey) {
+			spin(50000L);
+			hooked++;
+		}
+
+		protected void unhookListener(Integer removedKey) {
+			hooked--;
+		}
+
+		protected String doGet(Integer key) {
+			return values.get(key);
+		}
+
+		protected String doPut(Integer key, String value) {
+			return values.put(key, value);
+		}
+	}
+
+	public void testComputedMapHooksKeysInSlices() {
+		realm.setTimeBudget(1);
+		WritableSet<Integer> keys = new WritableSet<Integer>();
+		for (int i = 0; i < 100; i++)
+			keys.add(Integer.valueOf(i));
+		BackedMap map = new BackedMap(keys);
+		for (int i = 0; i < 100; i++)
+			map.values.put(Integer.valueOf(i), "old"); //$NON-NLS-1$
+
+		final int[] staleEvents = new int[1];
+		final MapChangeEvent<?, ?>[] lastEvent = new MapChangeEvent<?, ?>[1];
+		map.addStaleListener(new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				staleEvents[0]++;
+			}
+		});
+		map.addMapChangeListener(new IMapChangeListener<Integer, String>() {
+			public void handleMapChange(MapChangeEvent<Integer, String> event) {
+				lastEvent[0] = event;
+			}
+		});
+		assertTrue(map.hooked < 100);
+		assertTrue(map.isStale());
+		assertEquals(1, staleEvents[0]);
+
+		// Changed before being hooked, must be reported once hooked
+		map.values.put(Integer.valueOf(99), "new"); //$NON-NLS-1$
+		realm.drainAll();
+		assertEquals(100, map.hooked);
+		assertFalse(map.isStale());
+		assertNotNull(lastEvent[0]);
+		assertTrue(lastEvent[0].diff.getChangedKeys().contains(
+				Integer.valueOf(99)));
+		assertEquals("old", lastEvent[0].diff.getOldValue(Integer.valueOf(99))); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.ShardedRealm;
+
+/**
+ * Tests for {@link ShardedRealm}.
+ */
+public class ShardedRealmTest extends TestCase {
+	private ShardedRealm pool;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		pool = new ShardedRealm(3);
+	}
+
+	protected void tearDown() throws Exception {
+		pool.dispose();
+		super.tearDown();
+	}
+
+	public void testPartitionKeysAreAssignedConsistently() {
+		assertEquals(3, pool.getShardCount());
+		for (int i = 0; i < 100; i++) {
+			Object key = "key" + i; //$NON-NLS-1$
+			int index = pool.indexOf(key);
+			assertTrue(index >= 0 && index < 3);
+			assertEquals(index, pool.indexOf(new String("key" + i))); //$NON-NLS-1$
+			assertSame(pool.getShard(index), pool.getShard(key));
+		}
+		assertEquals(0, pool.indexOf(null));
+		assertTrue(pool.indexOf(Integer.valueOf(Integer.MIN_VALUE)) >= 0);
+	}
+
+	public void testShardsRunOnTheirOwnThread() throws Exception {
+		final Thread[] threads = new Thread[3];
+		final Realm[] defaults = new Realm[3];
+		final boolean[] current = new boolean[3];
+		final CountDownLatch done = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++) {
+			final int index = i;
+			final Realm shard = pool.getShard(i);
+			assertFalse(shard.isCurrent());
+			shard.asyncExec(new Runnable() {
+				public void run() {
+					threads[index] = Thread.currentThread();
+					defaults[index] = Realm.getDefault();
+					current[index] = shard.isCurrent();
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 3; i++) {
+			assertSame(pool.getShard(i), defaults[i]);
+			assertTrue(current[i]);
+			for (int j = 0; j < i; j++)
+				assertNotSame(threads[i], threads[j]);
+		}
+	}
+
+	public void testRunnablesAreDiscardedAfterDispose() throws Exception {
+		Realm shard = pool.getShard(0);
+		final CountDownLatch ran = new CountDownLatch(1);
+		pool.dispose();
+		shard.asyncExec(new Runnable() {
+			public void run() {
+				ran.countDown();
+			}
+		});
+		assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+	}
+
+	public void testShardCountMustBePositive() {
+		try {
+			new ShardedRealm(0);
+			fail();
+		} catch (RuntimeException expected) {
+		}
+	}
+}
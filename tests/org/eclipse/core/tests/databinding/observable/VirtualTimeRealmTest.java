@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.VirtualTimeRealm;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.runtime.AssertionFailedException;
+
+/**
+ * Tests for {@link VirtualTimeRealm}.
+ */
+public class VirtualTimeRealmTest extends AbstractDefaultRealmTestCase {
+	private List<String> log;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		log = new ArrayList<String>();
+	}
+
+	private Runnable logging(final String name) {
+		return new Runnable() {
+			public void run() {
+				log.add(name + "@" + realm.getTime()); //$NON-NLS-1$
+			}
+		};
+	}
+
+	public void testAsyncExecRunsOnDrain() {
+		realm.asyncExec(logging("a")); //$NON-NLS-1$
+		assertTrue(log.isEmpty());
+		assertFalse(realm.isIdle());
+		assertEquals(1, realm.drainAll());
+		assertEquals(Arrays.asList(new String[] { "a@0" }), log); //$NON-NLS-1$
+		assertTrue(realm.isIdle());
+		assertEquals(0, realm.getTime());
+	}
+
+	public void testDrainRunsRunnablesQueuedWhileDraining() {
+		realm.asyncExec(new Runnable() {
+			public void run() {
+				realm.asyncExec(logging("nested")); //$NON-NLS-1$
+			}
+		});
+		assertEquals(2, realm.drainAll());
+		assertEquals(Arrays.asList(new String[] { "nested@0" }), log); //$NON-NLS-1$
+	}
+
+	public void testTimersFireInDueTimeOrder() {
+		realm.timerExec(30, logging("c")); //$NON-NLS-1$
+		realm.timerExec(10, logging("a")); //$NON-NLS-1$
+		realm.timerExec(10, logging("b")); //$NON-NLS-1$
+		assertEquals(10, realm.getNextDueTime());
+
+		assertEquals(0, realm.advance(9));
+		assertTrue(log.isEmpty());
+		assertEquals(2, realm.advance(1));
+		assertEquals(1, realm.advance(100));
+		assertEquals(Arrays.asList(new String[] { "a@10", "b@10", "c@30" }), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				log);
+		assertEquals(110, realm.getTime());
+		assertEquals(-1, realm.getNextDueTime());
+		assertTrue(realm.isIdle());
+	}
+
+	public void testTimersScheduledWhileAdvancingFireIfDue() {
+		realm.timerExec(10, new Runnable() {
+			public void run() {
+				realm.timerExec(5, logging("chained")); //$NON-NLS-1$
+			}
+		});
+		realm.advance(20);
+		assertEquals(Arrays.asList(new String[] { "chained@15" }), log); //$NON-NLS-1$
+	}
+
+	public void testZeroAndNegativeDelays() {
+		realm.timerExec(-1, logging("never")); //$NON-NLS-1$
+		realm.timerExec(0, logging("now")); //$NON-NLS-1$
+		assertEquals(-1, realm.getNextDueTime());
+		realm.drainAll();
+		realm.advance(1000);
+		assertEquals(Arrays.asList(new String[] { "now@0" }), log); //$NON-NLS-1$
+	}
+
+	public void testQueuedRunnablesRunInPriorityOrder() {
+		realm.asyncExec(logging("background"), Realm.PRIORITY_BACKGROUND); //$NON-NLS-1$
+		realm.asyncExec(logging("normal"), Realm.PRIORITY_NORMAL); //$NON-NLS-1$
+		realm.asyncExec(logging("interactive"), Realm.PRIORITY_INTERACTIVE); //$NON-NLS-1$
+		realm.drainAll();
+		assertEquals(Arrays.asList(new String[] { "interactive@0", //$NON-NLS-1$
+				"normal@0", "background@0" }), log); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testAdvanceByNegativeTime() {
+		try {
+			realm.advance(-1);
+			fail();
+		} catch (AssertionFailedException e) {
+			// expected
+		}
+	}
+
+	public void testDrainOutsideOfRealm() throws Exception {
+		final Throwable[] thrown = new Throwable[1];
+		Thread other = new Thread() {
+			public void run() {
+				try {
+					realm.drainAll();
+				} catch (Throwable t) {
+					thrown[0] = t;
+				}
+			}
+		};
+		other.start();
+		other.join();
+		assertTrue(thrown[0] instanceof AssertionFailedException);
+	}
+
+	public void testDelayedValue() {
+		WritableValue<String> target = new WritableValue<String>("old", //$NON-NLS-1$
+				String.class);
+		IObservableValue<String> delayed = Observables.observeDelayedValue(100,
+				target);
+		final int[] changes = new int[1];
+		delayed.addValueChangeListener(new IValueChangeListener<String>() {
+			public void handleValueChange(ValueChangeEvent<String> event) {
+				changes[0]++;
+			}
+		});
+		target.setValue("new"); //$NON-NLS-1$
+		realm.advance(99);
+		assertEquals(0, changes[0]);
+		realm.advance(1);
+		assertEquals(1, changes[0]);
+		assertEquals("new", delayed.getValue()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.bag;
+
+import java.util.Arrays;
+
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.bag.BagChangeEvent;
+import org.eclipse.core.databinding.observable.bag.BagDiff;
+import org.eclipse.core.databinding.observable.bag.IBagChangeListener;
+import org.eclipse.core.databinding.observable.bag.IObservableBag;
+import org.eclipse.core.databinding.observable.bag.WritableBag;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link WritableBag} and the bag view of a set.
+ */
+public class WritableBagTest extends AbstractDefaultRealmTestCase {
+	private WritableBag<String> bag;
+
+	private BagDiff<String> lastDiff;
+
+	private int changes;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		bag = new WritableBag<String>();
+		listen(bag);
+	}
+
+	private void listen(IObservableBag<String> observable) {
+		observable.addBagChangeListener(new IBagChangeListener<String>() {
+			public void handleBagChange(BagChangeEvent<String> event) {
+				lastDiff = event.diff;
+				changes++;
+			}
+		});
+	}
+
+	public void testAddAllCountsOccurrences() {
+		bag.addAll(Arrays.asList(new String[] { "a", "b", "a", "a" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals(1, changes);
+		assertEquals(3, lastDiff.getCountDelta("a")); //$NON-NLS-1$
+		assertEquals(1, lastDiff.getCountDelta("b")); //$NON-NLS-1$
+		assertEquals(0, lastDiff.getCountDelta("c")); //$NON-NLS-1$
+		assertEquals(2, lastDiff.getElements().size());
+		assertEquals(4, bag.size());
+		assertEquals(3, bag.count("a")); //$NON-NLS-1$
+	}
+
+	public void testRemoveAllRemovesEveryOccurrence() {
+		bag.addAll(Arrays.asList(new String[] { "a", "b", "a" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(bag.removeAll(Arrays.asList(new String[] { "a", "c" }))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(-2, lastDiff.getCountDelta("a")); //$NON-NLS-1$
+		assertEquals(0, lastDiff.getCountDelta("b")); //$NON-NLS-1$
+		assertEquals(1, lastDiff.getElements().size());
+		assertEquals(1, bag.size());
+		assertFalse(bag.removeAll(Arrays.asList(new String[] { "c" }))); //$NON-NLS-1$
+		assertEquals(2, changes);
+	}
+
+	public void testRetainAll() {
+		bag.addAll(Arrays.asList(new String[] { "a", "b", "b" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(bag.retainAll(Arrays.asList(new String[] { "a" }))); //$NON-NLS-1$
+		assertEquals(-2, lastDiff.getCountDelta("b")); //$NON-NLS-1$
+		assertEquals(1, lastDiff.getElements().size());
+		assertEquals(0, bag.count("b")); //$NON-NLS-1$
+		assertFalse(bag.retainAll(Arrays.asList(new String[] { "a" }))); //$NON-NLS-1$
+	}
+
+	public void testClear() {
+		bag.add("a", 5); //$NON-NLS-1$
+		bag.add("b"); //$NON-NLS-1$
+		bag.clear();
+		assertEquals(-5, lastDiff.getCountDelta("a")); //$NON-NLS-1$
+		assertEquals(-1, lastDiff.getCountDelta("b")); //$NON-NLS-1$
+		assertTrue(bag.isEmpty());
+		changes = 0;
+		bag.clear();
+		assertEquals(0, changes);
+	}
+
+	public void testSetAsBag() {
+		WritableSet<String> set = new WritableSet<String>();
+		set.add("a"); //$NON-NLS-1$
+		IObservableBag<String> view = Observables.observeSetAsBag(set);
+		listen(view);
+		set.addAll(Arrays.asList(new String[] { "b", "c" })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, lastDiff.getCountDelta("b")); //$NON-NLS-1$
+		assertEquals(0, lastDiff.getCountDelta("a")); //$NON-NLS-1$
+		assertEquals(2, lastDiff.getElements().size());
+		set.remove("a"); //$NON-NLS-1$
+		assertEquals(-1, lastDiff.getCountDelta("a")); //$NON-NLS-1$
+		assertEquals(2, view.size());
+	}
+}
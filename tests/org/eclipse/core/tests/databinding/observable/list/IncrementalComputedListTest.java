@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.ObservableEvent;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.IncrementalComputedList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiff;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link IncrementalComputedList}.
+ */
+public class IncrementalComputedListTest extends AbstractDefaultRealmTestCase {
+	private WritableList<Integer> numbers;
+
+	private Squares squares;
+
+	private class Squares extends IncrementalComputedList<Integer> {
+		int calculations;
+
+		int diffCalculations;
+
+		int lastEventCount;
+
+		boolean incremental = true;
+
+		protected List<Integer> calculate() {
+			calculations++;
+			List<Integer> result = new ArrayList<Integer>();
+			for (Iterator<Integer> it = numbers.iterator(); it.hasNext();)
+				result.add(square(it.next()));
+			return result;
+		}
+
+		@SuppressWarnings("unchecked")
+		protected ListDiff<Integer> calculateDiff(List<Integer> previous,
+				List<ObservableEvent> events) {
+			diffCalculations++;
+			lastEventCount = events.size();
+			if (!incremental)
+				return null;
+			List<ListDiffEntry<Integer>> entries = new ArrayList<ListDiffEntry<Integer>>();
+			for (Iterator<ObservableEvent> it = events.iterator(); it.hasNext();) {
+				ListChangeEvent<Integer> event = (ListChangeEvent<Integer>) it
+						.next();
+				ListDiffEntry<Integer>[] differences = event.diff
+						.getDifferences();
+				for (int i = 0; i < differences.length; i++)
+					entries.add(Diffs.createListDiffEntry(differences[i]
+							.getPosition(), differences[i].isAddition(),
+							square(differences[i].getElement())));
+			}
+			return Diffs.createListDiff(entries.toArray(ListDiffEntry
+					.<Integer> newArray(entries.size())));
+		}
+
+		private Integer square(Integer i) {
+			return Integer.valueOf(i.intValue() * i.intValue());
+		}
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		numbers = new WritableList<Integer>(new ArrayList<Integer>(Arrays
+				.asList(new Integer[] { Integer.valueOf(1), Integer.valueOf(2),
+						Integer.valueOf(3) })), Integer.class);
+		squares = new Squares();
+	}
+
+	private static List<Integer> list(int[] values) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < values.length; i++)
+			result.add(Integer.valueOf(values[i]));
+		return result;
+	}
+
+	public void testInitialListIsComputedFromScratch() {
+		assertEquals(list(new int[] { 1, 4, 9 }), squares);
+		assertEquals(1, squares.calculations);
+		assertEquals(0, squares.diffCalculations);
+	}
+
+	public void testChangesAreAppliedIncrementally() {
+		final List<ListDiffEntry<Integer>> fired = new ArrayList<ListDiffEntry<Integer>>();
+		squares.addListChangeListener(new IListChangeListener<Integer>() {
+			public void handleListChange(ListChangeEvent<Integer> event) {
+				fired.addAll(Arrays.asList(event.diff.getDifferences()));
+			}
+		});
+		numbers.add(Integer.valueOf(4));
+		numbers.remove(0);
+
+		assertEquals(list(new int[] { 4, 9, 16 }), squares);
+		// the listener inspects each diff, which applies each change
+		assertEquals(1, squares.calculations);
+		assertEquals(2, squares.diffCalculations);
+		assertEquals(1, squares.lastEventCount);
+		assertEquals(2, fired.size());
+		assertTrue(fired.get(0).isAddition());
+		assertEquals(3, fired.get(0).getPosition());
+		assertEquals(Integer.valueOf(16), fired.get(0).getElement());
+		assertFalse(fired.get(1).isAddition());
+		assertEquals(Integer.valueOf(1), fired.get(1).getElement());
+	}
+
+	public void testChangesBeforeReadAreReplayedTogether() {
+		squares.addListChangeListener(new IListChangeListener<Integer>() {
+			public void handleListChange(ListChangeEvent<Integer> event) {
+			}
+		});
+		numbers.add(Integer.valueOf(4));
+		numbers.remove(0);
+		numbers.add(0, Integer.valueOf(7));
+
+		assertEquals(list(new int[] { 49, 4, 9, 16 }), squares);
+		assertEquals(1, squares.calculations);
+		assertEquals(1, squares.diffCalculations);
+		assertEquals(3, squares.lastEventCount);
+	}
+
+	public void testNullDiffRecomputesFromScratch() {
+		squares.addListChangeListener(new IListChangeListener<Integer>() {
+			public void handleListChange(ListChangeEvent<Integer> event) {
+			}
+		});
+		squares.incremental = false;
+		numbers.set(1, Integer.valueOf(5));
+		assertEquals(list(new int[] { 1, 25, 9 }), squares);
+		assertEquals(1, squares.diffCalculations);
+		assertEquals(2, squares.calculations);
+	}
+
+	public void testUnlistenedListRecomputesFromScratch() {
+		assertEquals(list(new int[] { 1, 4, 9 }), squares);
+		numbers.add(Integer.valueOf(10));
+		assertEquals(list(new int[] { 1, 4, 9, 100 }), squares);
+		assertEquals(2, squares.calculations);
+		assertEquals(0, squares.diffCalculations);
+	}
+
+	public void testLongBacklogRecomputesFromScratch() {
+		squares.addListChangeListener(new IListChangeListener<Integer>() {
+			public void handleListChange(ListChangeEvent<Integer> event) {
+			}
+		});
+		for (int i = 0; i < 2000; i++)
+			numbers.add(Integer.valueOf(i));
+		assertEquals(2003, squares.size());
+		assertEquals(2, squares.calculations);
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.masterdetail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.masterdetail.IObservableFactory;
+import org.eclipse.core.databinding.observable.masterdetail.MasterDetailObservables;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for the detail values list of
+ * {@link MasterDetailObservables#detailValues}.
+ */
+public class ListDetailValueObservableListTest extends
+		AbstractDefaultRealmTestCase {
+	/**
+	 * Creates doubled values, taking long enough for a master diff to exceed
+	 * the time budget of the realm
+	 */
+	private static final IObservableFactory<IObservableValue<Integer>, Integer> SLOW_DOUBLER = new IObservableFactory<IObservableValue<Integer>, Integer>() {
+		public IObservableValue<Integer> createObservable(Integer target) {
+			long until = System.nanoTime() + 50000L;
+			while (System.nanoTime() < until) {
+				// busy wait
+			}
+			return new WritableValue<Integer>(Integer.valueOf(target
+					.intValue() * 2), Integer.class);
+		}
+	};
+
+	private WritableList<Integer> master;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		realm.setTimeBudget(1);
+		master = new WritableList<Integer>(range(0, 100), Integer.class);
+	}
+
+	private static List<Integer> range(int from, int to) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = from; i < to; i++)
+			list.add(Integer.valueOf(i));
+		return list;
+	}
+
+	public void testInitialDetailsAreComplete() {
+		IObservableList<Integer> detail = MasterDetailObservables
+				.detailValues(master, SLOW_DOUBLER, Integer.class);
+		assertEquals(100, detail.size());
+		assertEquals(Integer.valueOf(198), detail.get(99));
+		assertFalse(detail.isStale());
+		assertTrue(realm.isIdle());
+	}
+
+	public void testLaterMasterDiffsAreSliced() {
+		IObservableList<Integer> detail = MasterDetailObservables
+				.detailValues(master, SLOW_DOUBLER, Integer.class);
+		final List<Integer> mirror = new ArrayList<Integer>(detail);
+		final int[] events = new int[1];
+		detail.addListChangeListener(new IListChangeListener<Integer>() {
+			public void handleListChange(ListChangeEvent<Integer> event) {
+				event.diff.applyTo(mirror);
+				events[0]++;
+			}
+		});
+
+		master.addAll(range(100, 200));
+		assertTrue(detail.size() < 200);
+		realm.drainAll();
+		assertTrue(events[0] > 1);
+		assertEquals(200, detail.size());
+		assertEquals(Integer.valueOf(398), detail.get(199));
+		assertEquals(detail, mirror);
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.eclipse.core.databinding.observable.set.BitSetObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link BitSetObservableSet}.
+ */
+public class BitSetObservableSetTest extends AbstractDefaultRealmTestCase {
+	private enum Color {
+		RED, GREEN, BLUE
+	}
+
+	private SetDiff<?> lastDiff;
+
+	private int changes;
+
+	private void listen(BitSetObservableSet<?> set) {
+		set.addSetChangeListener(new ISetChangeListener<Object>() {
+			public void handleSetChange(SetChangeEvent<Object> event) {
+				lastDiff = event.diff;
+				changes++;
+			}
+		});
+	}
+
+	private static BitSet bits(int... indices) {
+		BitSet bits = new BitSet();
+		for (int i = 0; i < indices.length; i++)
+			bits.set(indices[i]);
+		return bits;
+	}
+
+	public void testIntegers() {
+		BitSetObservableSet<Integer> set = BitSetObservableSet.forIntegers();
+		listen(set);
+		assertTrue(set.add(Integer.valueOf(3)));
+		assertFalse(set.add(Integer.valueOf(3)));
+		assertEquals(1, changes);
+		assertTrue(set.contains(Integer.valueOf(3)));
+		assertFalse(set.contains(Integer.valueOf(-3)));
+		assertFalse(set.contains("3")); //$NON-NLS-1$
+
+		assertTrue(set.or(bits(1, 3, 5)));
+		assertEquals(2, lastDiff.getAdditions().size());
+		assertTrue(lastDiff.getAdditions().contains(Integer.valueOf(5)));
+		Iterator<Integer> it = set.iterator();
+		assertEquals(Integer.valueOf(1), it.next());
+		assertEquals(Integer.valueOf(3), it.next());
+		assertEquals(Integer.valueOf(5), it.next());
+		assertFalse(it.hasNext());
+		assertEquals(bits(1, 3, 5), set.toBitSet());
+	}
+
+	public void testBulkRemovals() {
+		BitSetObservableSet<Integer> set = BitSetObservableSet.forIntegers();
+		set.or(bits(1, 2, 3, 4));
+		listen(set);
+		assertTrue(set.and(bits(1, 2, 9)));
+		assertEquals(2, lastDiff.getRemovals().size());
+		assertTrue(set.andNot(bits(2)));
+		assertTrue(lastDiff.getRemovals().contains(Integer.valueOf(2)));
+		assertFalse(set.andNot(bits(7)));
+		assertEquals(2, changes);
+		assertEquals(bits(1), set.toBitSet());
+	}
+
+	public void testEnum() {
+		BitSetObservableSet<Color> set = BitSetObservableSet
+				.forEnum(Color.class);
+		listen(set);
+		set.add(Color.BLUE);
+		set.add(Color.RED);
+		assertEquals(2, set.size());
+		assertEquals(Color.RED, set.iterator().next());
+		set.clear();
+		assertEquals(2, lastDiff.getRemovals().size());
+		assertTrue(set.isEmpty());
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.set.DifferenceSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link DifferenceSet}.
+ */
+public class DifferenceSetTest extends AbstractDefaultRealmTestCase {
+	private WritableSet<String> minuend;
+
+	private WritableSet<String> subtrahend;
+
+	private DifferenceSet<String> difference;
+
+	private List<SetDiff<String>> diffs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		minuend = new WritableSet<String>(Arrays.asList(new String[] { "a", //$NON-NLS-1$
+				"b", "c" }), null); //$NON-NLS-1$ //$NON-NLS-2$
+		subtrahend = new WritableSet<String>(Arrays
+				.asList(new String[] { "b" }), null); //$NON-NLS-1$
+		difference = new DifferenceSet<String>(minuend, subtrahend);
+		diffs = new ArrayList<SetDiff<String>>();
+	}
+
+	private static HashSet<String> setOf(String... elements) {
+		return new HashSet<String>(Arrays.asList(elements));
+	}
+
+	private void listen() {
+		difference.addSetChangeListener(new ISetChangeListener<String>() {
+			public void handleSetChange(SetChangeEvent<String> event) {
+				diffs.add(event.diff);
+			}
+		});
+	}
+
+	public void testUnlistenedViewQueriesChildren() {
+		assertEquals(setOf("a", "c"), difference); //$NON-NLS-1$ //$NON-NLS-2$
+		subtrahend.add("a"); //$NON-NLS-1$
+		assertEquals(setOf("c"), difference); //$NON-NLS-1$
+		minuend.add("d"); //$NON-NLS-1$
+		assertTrue(difference.contains("d")); //$NON-NLS-1$
+	}
+
+	public void testChangesOfMinuend() {
+		listen();
+		minuend.add("d"); //$NON-NLS-1$
+		assertEquals(setOf("d"), diffs.get(0).getAdditions()); //$NON-NLS-1$
+		minuend.remove("b"); //$NON-NLS-1$
+		assertEquals("excluded anyway", 1, diffs.size()); //$NON-NLS-1$
+		minuend.remove("a"); //$NON-NLS-1$
+		assertEquals(setOf("a"), diffs.get(1).getRemovals()); //$NON-NLS-1$
+		assertEquals(setOf("c", "d"), difference); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testChangesOfSubtrahend() {
+		listen();
+		subtrahend.add("c"); //$NON-NLS-1$
+		assertEquals(setOf("c"), diffs.get(0).getRemovals()); //$NON-NLS-1$
+		subtrahend.add("z"); //$NON-NLS-1$
+		assertEquals("not in the minuend", 1, diffs.size()); //$NON-NLS-1$
+		subtrahend.remove("b"); //$NON-NLS-1$
+		assertEquals(setOf("b"), diffs.get(1).getAdditions()); //$NON-NLS-1$
+		assertEquals(setOf("a", "b"), difference); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testStalenessOfSubtrahend() {
+		listen();
+		assertFalse(difference.isStale());
+		subtrahend.setStale(true);
+		assertTrue(difference.isStale());
+		// staleness ends with a change event
+		subtrahend.setStale(false);
+		subtrahend.add("z"); //$NON-NLS-1$
+		assertFalse(difference.isStale());
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.IntersectionSet;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.set.UnionSet;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link IntersectionSet}.
+ */
+public class IntersectionSetTest extends AbstractDefaultRealmTestCase {
+	private WritableSet<String> first;
+
+	private WritableSet<String> second;
+
+	private IntersectionSet<String> intersection;
+
+	private List<SetDiff<String>> diffs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		first = new WritableSet<String>(Arrays.asList(new String[] { "a", //$NON-NLS-1$
+				"b" }), null); //$NON-NLS-1$
+		second = new WritableSet<String>(Arrays.asList(new String[] { "b", //$NON-NLS-1$
+				"c" }), null); //$NON-NLS-1$
+		IObservableSet<String>[] children = UnionSet.newArray(2);
+		children[0] = first;
+		children[1] = second;
+		intersection = new IntersectionSet<String>(children);
+		diffs = new ArrayList<SetDiff<String>>();
+	}
+
+	private static HashSet<String> setOf(String... elements) {
+		return new HashSet<String>(Arrays.asList(elements));
+	}
+
+	private void listen() {
+		intersection.addSetChangeListener(new ISetChangeListener<String>() {
+			public void handleSetChange(SetChangeEvent<String> event) {
+				diffs.add(event.diff);
+			}
+		});
+	}
+
+	public void testUnlistenedViewQueriesChildren() {
+		assertEquals(setOf("b"), intersection); //$NON-NLS-1$
+		second.add("a"); //$NON-NLS-1$
+		assertEquals(setOf("a", "b"), intersection); //$NON-NLS-1$ //$NON-NLS-2$
+		first.remove("b"); //$NON-NLS-1$
+		assertEquals(setOf("a"), intersection); //$NON-NLS-1$
+	}
+
+	public void testListenedSetFiresOnMembershipChanges() {
+		listen();
+		first.add("c"); //$NON-NLS-1$
+		assertEquals(1, diffs.size());
+		assertEquals(setOf("c"), diffs.get(0).getAdditions()); //$NON-NLS-1$
+		assertEquals(setOf("b", "c"), intersection); //$NON-NLS-1$ //$NON-NLS-2$
+
+		first.add("d"); //$NON-NLS-1$
+		assertEquals("not contained in the second set", 1, diffs.size()); //$NON-NLS-1$
+
+		second.remove("b"); //$NON-NLS-1$
+		assertEquals(setOf("b"), diffs.get(1).getRemovals()); //$NON-NLS-1$
+		assertEquals(setOf("c"), intersection); //$NON-NLS-1$
+	}
+
+	public void testBulkRemoval() {
+		listen();
+		second.add("a"); //$NON-NLS-1$
+		diffs.clear();
+		first.retainAll(setOf("a")); //$NON-NLS-1$
+		assertEquals(setOf("b"), diffs.get(0).getRemovals()); //$NON-NLS-1$
+		assertTrue(diffs.get(0).getAdditions().isEmpty());
+		assertEquals(setOf("a"), intersection); //$NON-NLS-1$
+	}
+
+	public void testStalenessOfChildren() {
+		listen();
+		final List<IObservable> stale = new ArrayList<IObservable>();
+		intersection.addStaleListener(new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				stale.add(staleEvent.getObservable());
+			}
+		});
+		assertFalse(intersection.isStale());
+		first.setStale(true);
+		assertEquals(1, stale.size());
+		assertTrue(intersection.isStale());
+		// staleness ends with a change event
+		first.setStale(false);
+		first.add("x"); //$NON-NLS-1$
+		assertFalse(intersection.isStale());
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.map.WritableMap;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.MappedSet;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link MappedSet}.
+ */
+@SuppressWarnings("deprecation")
+public class MappedSetTest extends AbstractDefaultRealmTestCase {
+	private WritableSet<Integer> input;
+
+	private WritableMap<Integer, String> map;
+
+	private MappedSet<Integer, String> mapped;
+
+	private List<SetDiff<String>> diffs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		input = new WritableSet<Integer>();
+		map = new WritableMap<Integer, String>();
+		map.put(Integer.valueOf(1), "x"); //$NON-NLS-1$
+		map.put(Integer.valueOf(2), "x"); //$NON-NLS-1$
+		map.put(Integer.valueOf(3), "y"); //$NON-NLS-1$
+		input.addAll(map.keySet());
+		mapped = new MappedSet<Integer, String>(input, map);
+		diffs = new ArrayList<SetDiff<String>>();
+		mapped.addSetChangeListener(new ISetChangeListener<String>() {
+			public void handleSetChange(SetChangeEvent<String> event) {
+				diffs.add(event.diff);
+			}
+		});
+	}
+
+	private static HashSet<String> setOf(String... elements) {
+		return new HashSet<String>(Arrays.asList(elements));
+	}
+
+	public void testInitialValues() {
+		assertEquals(setOf("x", "y"), mapped); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testValueIsRemovedWithItsLastKey() {
+		map.put(Integer.valueOf(1), "y"); //$NON-NLS-1$
+		assertEquals(setOf("x", "y"), mapped); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(diffs.get(0).isEmpty());
+
+		map.put(Integer.valueOf(2), "z"); //$NON-NLS-1$
+		assertEquals(setOf("y", "z"), mapped); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(setOf("z"), diffs.get(1).getAdditions()); //$NON-NLS-1$
+		assertEquals(setOf("x"), diffs.get(1).getRemovals()); //$NON-NLS-1$
+	}
+
+	public void testInputChanges() {
+		input.remove(Integer.valueOf(3));
+		assertEquals(setOf("y"), diffs.get(0).getRemovals()); //$NON-NLS-1$
+		input.add(Integer.valueOf(3));
+		assertEquals(setOf("y"), diffs.get(1).getAdditions()); //$NON-NLS-1$
+		input.remove(Integer.valueOf(1));
+		assertTrue(diffs.get(2).isEmpty());
+		assertEquals(setOf("x", "y"), mapped); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.set.UnionSet;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link UnionSet}.
+ */
+public class UnionSetTest extends AbstractDefaultRealmTestCase {
+	private WritableSet<String> first;
+
+	private WritableSet<String> second;
+
+	private UnionSet<String> union;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		first = new WritableSet<String>(Arrays.asList(new String[] { "a", //$NON-NLS-1$
+				"b" }), null); //$NON-NLS-1$
+		second = new WritableSet<String>(Arrays.asList(new String[] { "b", //$NON-NLS-1$
+				"c" }), null); //$NON-NLS-1$
+		IObservableSet<String>[] children = UnionSet.newArray(2);
+		children[0] = first;
+		children[1] = second;
+		union = new UnionSet<String>(children);
+	}
+
+	private static HashSet<String> setOf(String... elements) {
+		return new HashSet<String>(Arrays.asList(elements));
+	}
+
+	public void testUnlistenedViewQueriesChildren() {
+		assertEquals(3, union.size());
+		assertEquals(setOf("a", "b", "c"), new HashSet<String>(union)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(union.contains("c")); //$NON-NLS-1$
+		first.remove("b"); //$NON-NLS-1$
+		assertEquals(3, union.size());
+		second.remove("b"); //$NON-NLS-1$
+		assertEquals(2, union.size());
+		assertFalse(union.contains("b")); //$NON-NLS-1$
+	}
+
+	public void testListenedUnionFiresOnTransitions() {
+		final SetDiff<?>[] lastDiff = new SetDiff<?>[1];
+		union.addSetChangeListener(new ISetChangeListener<String>() {
+			public void handleSetChange(SetChangeEvent<String> event) {
+				lastDiff[0] = event.diff;
+			}
+		});
+		first.remove("b"); //$NON-NLS-1$
+		assertNull("still contained in the second set", lastDiff[0]); //$NON-NLS-1$
+		assertEquals(3, union.size());
+		second.remove("b"); //$NON-NLS-1$
+		assertEquals(setOf("b"), lastDiff[0].getRemovals()); //$NON-NLS-1$
+		assertEquals(2, union.size());
+		second.add("d"); //$NON-NLS-1$
+		assertEquals(setOf("d"), lastDiff[0].getAdditions()); //$NON-NLS-1$
+		assertEquals(setOf("a", "c", "d"), new HashSet<String>(union)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
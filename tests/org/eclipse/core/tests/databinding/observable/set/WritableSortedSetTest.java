@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.eclipse.core.databinding.observable.set.IObservableSortedSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.set.WritableSortedSet;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link WritableSortedSet}.
+ */
+public class WritableSortedSetTest extends AbstractDefaultRealmTestCase {
+	private WritableSortedSet<Integer> set;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		set = new WritableSortedSet<Integer>();
+	}
+
+	private void addRange(int from, int to) {
+		for (int i = from; i < to; i++)
+			set.add(Integer.valueOf(i));
+	}
+
+	private static List<Integer> list(int... values) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < values.length; i++)
+			result.add(Integer.valueOf(values[i]));
+		return result;
+	}
+
+	private List<SetDiff<Integer>> record(IObservableSortedSet<Integer> observed) {
+		final List<SetDiff<Integer>> diffs = new ArrayList<SetDiff<Integer>>();
+		observed.addSetChangeListener(new ISetChangeListener<Integer>() {
+			public void handleSetChange(SetChangeEvent<Integer> event) {
+				diffs.add(event.diff);
+			}
+		});
+		return diffs;
+	}
+
+	public void testRandomOperationsMatchTreeSet() {
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			Integer element = Integer.valueOf(random.nextInt(1000));
+			if (random.nextInt(3) == 0)
+				assertEquals(expected.remove(element), set.remove(element));
+			else
+				assertEquals(expected.add(element), set.add(element));
+		}
+		assertEquals(expected.size(), set.size());
+		assertEquals(new ArrayList<Integer>(expected), new ArrayList<Integer>(
+				set));
+		assertEquals(expected.first(), set.first());
+		assertEquals(expected.last(), set.last());
+		int index = 0;
+		for (Iterator<Integer> it = expected.iterator(); it.hasNext(); index++) {
+			Integer element = it.next();
+			assertEquals(element, set.get(index));
+			assertEquals(index, set.indexOf(element));
+		}
+		assertEquals(-1, set.indexOf(Integer.valueOf(-1)));
+	}
+
+	public void testComparator() {
+		set = new WritableSortedSet<Integer>(Collections
+				.<Integer> reverseOrder());
+		addRange(0, 5);
+		assertEquals(list(4, 3, 2, 1, 0), new ArrayList<Integer>(set));
+		assertEquals(Integer.valueOf(4), set.first());
+	}
+
+	public void testQueriesOnEmptySet() {
+		try {
+			set.first();
+			fail();
+		} catch (NoSuchElementException expected) {
+		}
+		try {
+			set.get(0);
+			fail();
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+
+	public void testBulkChangesFireOneDiff() {
+		List<SetDiff<Integer>> diffs = record(set);
+		set.addAll(list(3, 1, 2, 1));
+		assertEquals(1, diffs.size());
+		assertEquals(3, diffs.get(0).getAdditions().size());
+		set.retainAll(list(2));
+		assertEquals(2, diffs.size());
+		assertEquals(list(1, 3), new ArrayList<Integer>(diffs.get(1)
+				.getRemovals()));
+		set.clear();
+		assertEquals(list(2), new ArrayList<Integer>(diffs.get(2)
+				.getRemovals()));
+	}
+
+	public void testRangeViewsReadTheTree() {
+		addRange(0, 10);
+		IObservableSortedSet<Integer> sub = set.subSet(Integer.valueOf(3),
+				Integer.valueOf(7));
+		assertEquals(list(3, 4, 5, 6), new ArrayList<Integer>(sub));
+		assertEquals(4, sub.size());
+		assertEquals(Integer.valueOf(3), sub.first());
+		assertEquals(Integer.valueOf(6), sub.last());
+		assertEquals(Integer.valueOf(5), sub.get(2));
+		assertEquals(2, sub.indexOf(Integer.valueOf(5)));
+		assertEquals(-1, sub.indexOf(Integer.valueOf(8)));
+		assertFalse(sub.contains(Integer.valueOf(7)));
+
+		assertEquals(list(0, 1, 2), new ArrayList<Integer>(set
+				.headSet(Integer.valueOf(3))));
+		assertEquals(list(8, 9), new ArrayList<Integer>(set.tailSet(Integer
+				.valueOf(8))));
+		assertEquals(list(4, 5), new ArrayList<Integer>(sub.subSet(Integer
+				.valueOf(4), Integer.valueOf(6))));
+
+		set.remove(Integer.valueOf(4));
+		assertEquals(list(3, 5, 6), new ArrayList<Integer>(sub));
+	}
+
+	public void testRangeViewsForwardChangesWithinTheirRange() {
+		addRange(0, 10);
+		IObservableSortedSet<Integer> head = set.headSet(Integer.valueOf(5));
+		List<SetDiff<Integer>> diffs = record(head);
+
+		set.add(Integer.valueOf(20));
+		assertTrue(diffs.isEmpty());
+		set.removeAll(list(2, 8));
+		assertEquals(1, diffs.size());
+		assertEquals(list(2), new ArrayList<Integer>(diffs.get(0)
+				.getRemovals()));
+		set.add(Integer.valueOf(-1));
+		assertEquals(list(-1), new ArrayList<Integer>(diffs.get(1)
+				.getAdditions()));
+	}
+
+	public void testChangesThroughRangeViews() {
+		addRange(0, 10);
+		IObservableSortedSet<Integer> sub = set.subSet(Integer.valueOf(3),
+				Integer.valueOf(7));
+		try {
+			sub.add(Integer.valueOf(7));
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		assertFalse(sub.remove(Integer.valueOf(8)));
+		assertTrue(set.contains(Integer.valueOf(8)));
+
+		sub.clear();
+		assertEquals(list(0, 1, 2, 7, 8, 9), new ArrayList<Integer>(set));
+		sub.add(Integer.valueOf(5));
+		assertTrue(set.contains(Integer.valueOf(5)));
+		sub.retainAll(Collections.<Integer> emptySet());
+		assertEquals(6, set.size());
+	}
+
+	public void testInvalidRanges() {
+		try {
+			set.subSet(Integer.valueOf(5), Integer.valueOf(3));
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		IObservableSortedSet<Integer> head = set.headSet(Integer.valueOf(5));
+		try {
+			head.tailSet(Integer.valueOf(6));
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testDisposedViewStopsListening() {
+		IObservableSortedSet<Integer> tail = set.tailSet(Integer.valueOf(0));
+		List<SetDiff<Integer>> diffs = record(tail);
+		tail.dispose();
+		set.addAll(Arrays.asList(new Integer[] { Integer.valueOf(1) }));
+		assertTrue(diffs.isEmpty());
+	}
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.set.WritableStringSet;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.runtime.AssertionFailedException;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link WritableStringSet}.
+ */
+public class WritableStringSetTest extends AbstractDefaultRealmTestCase {
+	private WritableStringSet set;
+
+	private WritableValue<String> prefix;
+
+	private IObservableSet<String> view;
+
+	private List<SetDiff<String>> diffs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		set = new WritableStringSet(realm, Arrays.asList(new String[] {
+				"car", "cart", "carbon", "cat", "dog", "" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		prefix = new WritableValue<String>("ca", String.class); //$NON-NLS-1$
+		view = set.prefixView(prefix);
+		diffs = new ArrayList<SetDiff<String>>();
+	}
+
+	private void listen() {
+		view.addSetChangeListener(new ISetChangeListener<String>() {
+			public void handleSetChange(SetChangeEvent<String> event) {
+				diffs.add(event.diff);
+			}
+		});
+	}
+
+	private static HashSet<String> setOf(String... elements) {
+		return new HashSet<String>(Arrays.asList(elements));
+	}
+
+	public void testIteratesInLexicographicOrder() {
+		assertEquals(Arrays.asList(new String[] { "", "car", "carbon", "cart", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				"cat", "dog" }), new ArrayList<String>(set)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(6, set.size());
+		assertTrue(set.contains("")); //$NON-NLS-1$
+		assertFalse(set.contains("ca")); //$NON-NLS-1$
+	}
+
+	public void testNullIsRejected() {
+		try {
+			set.add(null);
+			fail();
+		} catch (AssertionFailedException expected) {
+		}
+	}
+
+	public void testUnlistenedViewFollowsThePrefix() {
+		assertEquals(setOf("car", "carbon", "cart", "cat"), view); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		prefix.setValue("cart"); //$NON-NLS-1$
+		assertEquals(setOf("cart"), view); //$NON-NLS-1$
+		prefix.setValue(null);
+		assertEquals(6, view.size());
+	}
+
+	public void testExtendingThePrefixOnlyRemoves() {
+		listen();
+		prefix.setValue("car"); //$NON-NLS-1$
+		assertEquals(1, diffs.size());
+		assertTrue(diffs.get(0).getAdditions().isEmpty());
+		assertEquals(setOf("cat"), diffs.get(0).getRemovals()); //$NON-NLS-1$
+		prefix.setValue("carb"); //$NON-NLS-1$
+		assertEquals(setOf("car", "cart"), diffs.get(1).getRemovals()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(setOf("carbon"), view); //$NON-NLS-1$
+		prefix.setValue("carbonate"); //$NON-NLS-1$
+		assertEquals(setOf("carbon"), diffs.get(2).getRemovals()); //$NON-NLS-1$
+		assertTrue(view.isEmpty());
+	}
+
+	public void testShorteningThePrefixOnlyAdds() {
+		prefix.setValue("cart"); //$NON-NLS-1$
+		listen();
+		prefix.setValue("c"); //$NON-NLS-1$
+		assertEquals(1, diffs.size());
+		assertTrue(diffs.get(0).getRemovals().isEmpty());
+		assertEquals(setOf("car", "carbon", "cat"), diffs.get(0) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				.getAdditions());
+		prefix.setValue(""); //$NON-NLS-1$
+		assertEquals(setOf("", "dog"), diffs.get(1).getAdditions()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testUnrelatedPrefix() {
+		listen();
+		prefix.setValue("do"); //$NON-NLS-1$
+		assertEquals(setOf("dog"), diffs.get(0).getAdditions()); //$NON-NLS-1$
+		assertEquals(setOf("car", "carbon", "cart", "cat"), diffs.get(0) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				.getRemovals());
+		prefix.setValue("x"); //$NON-NLS-1$
+		assertEquals(setOf("dog"), diffs.get(1).getRemovals()); //$NON-NLS-1$
+		prefix.setValue("y"); //$NON-NLS-1$
+		assertEquals(2, diffs.size());
+	}
+
+	public void testChangesOfTheSetAreFiltered() {
+		listen();
+		set.add("dot"); //$NON-NLS-1$
+		assertTrue(diffs.isEmpty());
+		set.addAll(Arrays.asList(new String[] { "cab", "door" })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(setOf("cab"), diffs.get(0).getAdditions()); //$NON-NLS-1$
+		set.remove("car"); //$NON-NLS-1$
+		assertEquals(setOf("car"), diffs.get(1).getRemovals()); //$NON-NLS-1$
+		assertEquals(setOf("cab", "carbon", "cart", "cat"), view); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		set.clear();
+		assertEquals(setOf("cab", "carbon", "cart", "cat"), diffs.get(2) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				.getRemovals());
+		assertTrue(view.isEmpty());
+	}
+
+	public void testRetainAll() {
+		set.retainAll(setOf("cat", "dog", "cow")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(setOf("cat", "dog"), set); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(setOf("cat"), view); //$NON-NLS-1$
+	}
+
+	public void testViewIsUnmodifiable() {
+		try {
+			view.add("cab"); //$NON-NLS-1$
+			fail();
+		} catch (UnsupportedOperationException expected) {
+		}
+	}
+
+	public void testDisposedViewStopsListening() {
+		listen();
+		view.dispose();
+		prefix.setValue("c"); //$NON-NLS-1$
+		set.add("cow"); //$NON-NLS-1$
+		assertTrue(diffs.isEmpty());
+	}
+}
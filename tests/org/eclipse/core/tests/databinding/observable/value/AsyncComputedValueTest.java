@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.value;
+
+import java.util.concurrent.Executor;
+
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.value.AsyncComputedValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link AsyncComputedValue}.
+ */
+public class AsyncComputedValueTest extends AbstractDefaultRealmTestCase {
+	private static final Executor DIRECT = new Executor() {
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private WritableValue<Integer> input;
+
+	private AsyncComputedValue<Integer, Integer> halved;
+
+	private int changes;
+
+	private int staleEvents;
+
+	private boolean fail;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		input = new WritableValue<Integer>(Integer.valueOf(2), null);
+		halved = new AsyncComputedValue<Integer, Integer>(realm, DIRECT) {
+			protected Integer snapshot() {
+				return input.getValue();
+			}
+
+			protected Integer calculate(Integer snapshot) throws Exception {
+				if (fail)
+					throw new Exception("expected"); //$NON-NLS-1$
+				return Integer.valueOf(snapshot.intValue() / 2);
+			}
+		};
+		halved.addValueChangeListener(new IValueChangeListener<Integer>() {
+			public void handleValueChange(ValueChangeEvent<Integer> event) {
+				changes++;
+			}
+		});
+		halved.addStaleListener(new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				staleEvents++;
+			}
+		});
+		realm.drainAll();
+		changes = 0;
+		staleEvents = 0;
+	}
+
+	public void testChangedResultIsPublished() {
+		assertEquals(Integer.valueOf(1), halved.getValue());
+		input.setValue(Integer.valueOf(4));
+		assertTrue(halved.isStale());
+		assertEquals(1, staleEvents);
+		realm.drainAll();
+		assertEquals(Integer.valueOf(2), halved.getValue());
+		assertFalse(halved.isStale());
+		assertEquals(1, changes);
+	}
+
+	public void testEqualResultEndsStaleness() {
+		input.setValue(Integer.valueOf(3));
+		assertTrue(halved.isStale());
+		realm.drainAll();
+		assertEquals(Integer.valueOf(1), halved.getValue());
+		assertFalse(halved.isStale());
+		assertEquals("staleness must end with a change event", 1, changes); //$NON-NLS-1$
+	}
+
+	public void testFailedComputationEndsStaleness() {
+		fail = true;
+		input.setValue(Integer.valueOf(8));
+		realm.drainAll();
+		assertEquals(Integer.valueOf(1), halved.getValue());
+		assertFalse(halved.isStale());
+		assertEquals(1, changes);
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.value.ComputedValueCache;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link ComputedValueCache}.
+ */
+public class ComputedValueCacheTest extends AbstractDefaultRealmTestCase {
+	private WritableValue<Integer> factor;
+
+	private Map<String, Integer> calculations;
+
+	private ComputedValueCache<String, Integer> cache;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		factor = new WritableValue<Integer>(Integer.valueOf(1), Integer.class);
+		calculations = new HashMap<String, Integer>();
+		cache = new ComputedValueCache<String, Integer>(2) {
+			protected Integer calculate(String key) {
+				Integer count = calculations.get(key);
+				calculations.put(key, Integer.valueOf(count == null ? 1 : count
+						.intValue() + 1));
+				return Integer.valueOf(key.length()
+						* factor.getValue().intValue());
+			}
+		};
+	}
+
+	private int calculationsOf(String key) {
+		Integer count = calculations.get(key);
+		return count == null ? 0 : count.intValue();
+	}
+
+	private void touch(String key) {
+		IObservableValue<Integer> reference = cache.createObservable(key);
+		reference.getValue();
+		reference.dispose();
+	}
+
+	public void testReferencesShareTheComputedValue() {
+		IObservableValue<Integer> first = cache.createObservable("abc"); //$NON-NLS-1$
+		IObservableValue<Integer> second = cache.createObservable("abc"); //$NON-NLS-1$
+		assertNotSame(first, second);
+		assertEquals(Integer.valueOf(3), first.getValue());
+		assertEquals(Integer.valueOf(3), second.getValue());
+		assertEquals(1, calculationsOf("abc")); //$NON-NLS-1$
+		assertEquals(1, cache.size());
+
+		final int[] changes = new int[1];
+		second.addValueChangeListener(new IValueChangeListener<Integer>() {
+			public void handleValueChange(ValueChangeEvent<Integer> event) {
+				changes[0]++;
+			}
+		});
+		factor.setValue(Integer.valueOf(2));
+		assertEquals(1, changes[0]);
+		assertEquals(Integer.valueOf(6), first.getValue());
+		assertEquals(Integer.valueOf(6), second.getValue());
+		assertEquals(2, calculationsOf("abc")); //$NON-NLS-1$
+	}
+
+	public void testLeastRecentlyUsedUnreferencedValueIsEvicted() {
+		touch("a"); //$NON-NLS-1$
+		touch("bb"); //$NON-NLS-1$
+		touch("a"); //$NON-NLS-1$
+		touch("ccc"); //$NON-NLS-1$
+		assertEquals(2, cache.size());
+
+		// "a" was used more recently than "bb"
+		touch("a"); //$NON-NLS-1$
+		assertEquals(1, calculationsOf("a")); //$NON-NLS-1$
+		touch("bb"); //$NON-NLS-1$
+		assertEquals(2, calculationsOf("bb")); //$NON-NLS-1$
+	}
+
+	public void testReferencedValuesAreNotEvicted() {
+		IObservableValue<Integer> a = cache.createObservable("a"); //$NON-NLS-1$
+		IObservableValue<Integer> b = cache.createObservable("bb"); //$NON-NLS-1$
+		IObservableValue<Integer> c = cache.createObservable("ccc"); //$NON-NLS-1$
+		assertEquals(3, cache.size());
+		assertFalse(a.isDisposed());
+
+		b.dispose();
+		assertEquals(2, cache.size());
+		assertEquals(Integer.valueOf(1), a.getValue());
+		assertEquals(Integer.valueOf(3), c.getValue());
+	}
+
+	public void testShrinkingEvicts() {
+		touch("a"); //$NON-NLS-1$
+		touch("bb"); //$NON-NLS-1$
+		cache.setMaximumSize(0);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMaximumSize());
+
+		IObservableValue<Integer> reference = cache.createObservable("a"); //$NON-NLS-1$
+		assertEquals(1, cache.size());
+		reference.dispose();
+		assertEquals(0, cache.size());
+	}
+
+	public void testDisposeDisposesReferences() {
+		IObservableValue<Integer> reference = cache.createObservable("a"); //$NON-NLS-1$
+		cache.dispose();
+		assertEquals(0, cache.size());
+		assertTrue(reference.isDisposed());
+	}
+
+	public void testSharedValueIsNotReportedAsCreated() {
+		final IObservableValue<?>[] reference = new IObservableValue<?>[1];
+		IObservable[] created = ObservableTracker.runAndCollect(new Runnable() {
+			public void run() {
+				reference[0] = cache.createObservable("a"); //$NON-NLS-1$
+			}
+		});
+		assertEquals(1, created.length);
+		assertSame(reference[0], created[0]);
+	}
+}
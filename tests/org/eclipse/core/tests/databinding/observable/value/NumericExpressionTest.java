@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.databinding.observable.value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.NumericExpression;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.tests.databinding.observable.AbstractDefaultRealmTestCase;
+
+/**
+ * Tests for {@link NumericExpression}.
+ */
+public class NumericExpressionTest extends AbstractDefaultRealmTestCase {
+	private WritableList<Integer> amounts;
+
+	private WritableValue<Double> rate;
+
+	private int changes;
+
+	private int staleEvents;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		amounts = new WritableList<Integer>(new ArrayList<Integer>(Arrays.asList(new Integer[] {
+				Integer.valueOf(1), Integer.valueOf(2) })), null);
+		rate = new WritableValue<Double>(Double.valueOf(0.5), null);
+	}
+
+	private IObservableValue<Double> observe(NumericExpression expression) {
+		IObservableValue<Double> value = expression.toObservable();
+		value.addValueChangeListener(new IValueChangeListener<Double>() {
+			public void handleValueChange(ValueChangeEvent<Double> event) {
+				changes++;
+			}
+		});
+		value.addStaleListener(new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				staleEvents++;
+			}
+		});
+		return value;
+	}
+
+	public void testEvaluation() {
+		IObservableValue<Double> value = NumericExpression.sumOf(amounts)
+				.times(NumericExpression.valueOf(rate).plus(1)).round(2)
+				.toObservable();
+		assertEquals(Double.valueOf(4.5), value.getValue());
+		rate.setValue(null);
+		assertNull(value.getValue());
+	}
+
+	public void testFiresOnlyWhenValueChanges() {
+		IObservableValue<Double> value = observe(NumericExpression.sumOf(
+				amounts).max(NumericExpression.constant(10)));
+		amounts.add(Integer.valueOf(3));
+		assertEquals(0, changes);
+		amounts.add(Integer.valueOf(7));
+		assertEquals(1, changes);
+		assertEquals(Double.valueOf(13), value.getValue());
+	}
+
+	public void testStaleForwardedOnce() {
+		IObservableValue<Double> value = observe(NumericExpression
+				.sumOf(amounts));
+		amounts.setStale(true);
+		amounts.setStale(false);
+		amounts.setStale(true);
+		assertEquals(1, staleEvents);
+		assertTrue(value.isStale());
+	}
+
+	public void testStalenessEndsWithChangeEvenIfValueIsEqual() {
+		IObservableValue<Double> value = observe(NumericExpression.sumOf(
+				amounts).max(NumericExpression.constant(10)));
+		amounts.setStale(true);
+		assertEquals(1, staleEvents);
+		amounts.setStale(false);
+		amounts.add(Integer.valueOf(1));
+		assertEquals(Double.valueOf(10), value.getValue());
+		assertEquals(1, changes);
+		assertFalse(value.isStale());
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.databinding.identity;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.internal.databinding.identity.IdentityCollector;
+
+/**
+ * Tests for {@link IdentityCollector}.
+ */
+public class IdentityCollectorTest extends TestCase {
+	private IdentityCollector<Object> collector = new IdentityCollector<Object>();
+
+	public void testKeepsInsertionOrderWithoutDuplicates() {
+		Object[] elements = new Object[1000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new String("element"); //$NON-NLS-1$
+			assertTrue(collector.add(elements[i]));
+		}
+		for (int i = 0; i < elements.length; i++)
+			assertFalse(collector.add(elements[i]));
+		assertEquals(elements.length, collector.size());
+		for (int i = 0; i < elements.length; i++) {
+			assertSame(elements[i], collector.get(i));
+			assertTrue(collector.contains(elements[i]));
+		}
+		Object[] array = collector.toArray(new Object[collector.size()]);
+		for (int i = 0; i < elements.length; i++)
+			assertSame(elements[i], array[i]);
+	}
+
+	public void testGetBeyondSize() {
+		collector.add(new Object());
+		try {
+			collector.get(1);
+			fail();
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+
+	public void testClearAllowsReuse() {
+		Object first = new Object();
+		collector.add(first);
+		for (int i = 0; i < 5000; i++)
+			collector.add(new Object());
+		collector.clear();
+		assertEquals(0, collector.size());
+		assertFalse(collector.contains(first));
+		assertTrue(collector.add(first));
+		assertSame(first, collector.get(0));
+		collector.clear();
+		assertFalse(collector.contains(first));
+	}
+}
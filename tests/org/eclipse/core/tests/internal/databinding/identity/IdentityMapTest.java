@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.databinding.identity;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.internal.databinding.identity.IdentityMap;
+
+/**
+ * Tests for {@link IdentityMap}.
+ */
+public class IdentityMapTest extends TestCase {
+	private IdentityMap<Object, Object> map = new IdentityMap<Object, Object>();
+
+	public void testKeysAreComparedByIdentity() {
+		String key = new String("key"); //$NON-NLS-1$
+		String equalKey = new String("key"); //$NON-NLS-1$
+		map.put(key, "first"); //$NON-NLS-1$
+		map.put(equalKey, "second"); //$NON-NLS-1$
+		assertEquals(2, map.size());
+		assertEquals("first", map.get(key)); //$NON-NLS-1$
+		assertEquals("second", map.get(equalKey)); //$NON-NLS-1$
+		assertNull(map.get("key")); //$NON-NLS-1$
+	}
+
+	public void testNullKeyAndValue() {
+		assertNull(map.put(null, "value")); //$NON-NLS-1$
+		assertTrue(map.containsKey(null));
+		assertEquals("value", map.get(null)); //$NON-NLS-1$
+		map.put("key", null); //$NON-NLS-1$
+		assertTrue(map.containsValue(null));
+		assertEquals("value", map.remove(null)); //$NON-NLS-1$
+		assertFalse(map.containsKey(null));
+		assertEquals(1, map.size());
+	}
+
+	public void testPutReplacesValue() {
+		Object key = new Object();
+		assertNull(map.put(key, "old")); //$NON-NLS-1$
+		assertEquals("old", map.put(key, "new")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, map.size());
+		assertEquals("new", map.get(key)); //$NON-NLS-1$
+	}
+
+	public void testRandomOperationsMatchIdentityHashMap() {
+		Map<Object, Object> expected = new IdentityHashMap<Object, Object>();
+		Object[] keys = new Object[500];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = Integer.valueOf(i);
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			Object key = keys[random.nextInt(keys.length)];
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				Object value = Integer.valueOf(i);
+				assertEquals(expected.put(key, value), map.put(key, value));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(expected.containsKey(keys[i]), map.containsKey(keys[i]));
+			assertSame(expected.get(keys[i]), map.get(keys[i]));
+		}
+		int iterated = 0;
+		for (Iterator<Map.Entry<Object, Object>> it = map.entrySet().iterator(); it
+				.hasNext();) {
+			Map.Entry<Object, Object> entry = it.next();
+			assertSame(expected.get(entry.getKey()), entry.getValue());
+			iterated++;
+		}
+		assertEquals(expected.size(), iterated);
+	}
+
+	public void testIteratorRemoveVisitsEveryEntryOnce() {
+		Object[] keys = new Object[100];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = new Object();
+			map.put(keys[i], Integer.valueOf(i));
+		}
+		Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+		for (Iterator<Object> it = map.keySet().iterator(); it.hasNext();) {
+			Object key = it.next();
+			assertNull(visited.put(key, key));
+			// Removal shifts entries backwards, which must not skip or
+			// repeat entries
+			if (((Integer) map.get(key)).intValue() % 2 == 0)
+				it.remove();
+		}
+		assertEquals(keys.length, visited.size());
+		assertEquals(keys.length / 2, map.size());
+		for (int i = 0; i < keys.length; i++)
+			assertEquals(i % 2 != 0, map.containsKey(keys[i]));
+	}
+
+	public void testEntrySetValueWritesThrough() {
+		Object key = new Object();
+		map.put(key, "old"); //$NON-NLS-1$
+		Map.Entry<Object, Object> entry = map.entrySet().iterator().next();
+		assertEquals("old", entry.setValue("new")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("new", map.get(key)); //$NON-NLS-1$
+	}
+
+	public void testClear() {
+		for (int i = 0; i < 100; i++)
+			map.put(new Object(), null);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.keySet().iterator().hasNext());
+	}
+
+	public void testEqualsAndHashCode() {
+		Object key = new Object();
+		map.put(key, "value"); //$NON-NLS-1$
+		IdentityMap<Object, Object> other = new IdentityMap<Object, Object>(map);
+		assertEquals(map, other);
+		assertEquals(map.hashCode(), other.hashCode());
+		other.put(key, "other"); //$NON-NLS-1$
+		assertFalse(map.equals(other));
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.databinding.identity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.internal.databinding.identity.IdentitySet;
+
+/**
+ * Tests for {@link IdentitySet}.
+ */
+public class IdentitySetTest extends TestCase {
+	private IdentitySet<Object> set = new IdentitySet<Object>();
+
+	public void testElementsAreComparedByIdentity() {
+		String element = new String("element"); //$NON-NLS-1$
+		String equalElement = new String("element"); //$NON-NLS-1$
+		assertTrue(set.add(element));
+		assertTrue(set.add(equalElement));
+		assertFalse(set.add(element));
+		assertEquals(2, set.size());
+		assertFalse(set.contains("element")); //$NON-NLS-1$
+		assertTrue(set.remove(equalElement));
+		assertTrue(set.contains(element));
+	}
+
+	public void testNullElement() {
+		assertTrue(set.add(null));
+		assertFalse(set.add(null));
+		assertTrue(set.contains(null));
+		Iterator<Object> it = set.iterator();
+		assertNull(it.next());
+		assertFalse(it.hasNext());
+		assertTrue(set.remove(null));
+		assertTrue(set.isEmpty());
+	}
+
+	public void testRandomOperationsMatchIdentityHashMap() {
+		Map<Object, Object> expected = new IdentityHashMap<Object, Object>();
+		Object[] elements = new Object[500];
+		for (int i = 0; i < elements.length; i++)
+			elements[i] = new Object();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			Object element = elements[random.nextInt(elements.length)];
+			if (random.nextInt(3) == 0)
+				assertEquals(expected.remove(element) != null, set
+						.remove(element));
+			else
+				assertEquals(expected.put(element, element) == null, set
+						.add(element));
+			assertEquals(expected.size(), set.size());
+		}
+		for (int i = 0; i < elements.length; i++)
+			assertEquals(expected.containsKey(elements[i]), set
+					.contains(elements[i]));
+		assertEquals(expected.size(), set.toArray().length);
+	}
+
+	public void testIteratorRemoveVisitsEveryElementOnce() {
+		Object[] elements = new Object[100];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new Object();
+			set.add(elements[i]);
+		}
+		Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+		int index = 0;
+		for (Iterator<Object> it = set.iterator(); it.hasNext(); index++) {
+			Object element = it.next();
+			assertNull(visited.put(element, element));
+			// Removal shifts elements backwards, which must not skip or
+			// repeat elements
+			if (index % 2 == 0)
+				it.remove();
+		}
+		assertEquals(elements.length, visited.size());
+		assertEquals(elements.length / 2, set.size());
+	}
+
+	public void testBulkOperations() {
+		Object a = new Object();
+		Object b = new Object();
+		Object c = new Object();
+		set.addAll(Arrays.asList(new Object[] { a, b, c }));
+		assertTrue(set.containsAll(Arrays.asList(new Object[] { a, c })));
+		assertTrue(set.retainAll(Arrays.asList(new Object[] { a, b })));
+		assertEquals(2, set.size());
+		assertTrue(set.removeAll(Collections.singleton(a)));
+		assertEquals(Collections.singleton(b), set);
+		assertEquals(Collections.singleton(b).hashCode(), set.hashCode());
+		Object[] array = set.toArray(new Object[0]);
+		assertEquals(1, array.length);
+		assertSame(b, array[0]);
+	}
+}
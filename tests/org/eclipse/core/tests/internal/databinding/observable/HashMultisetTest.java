@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.databinding.observable;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.internal.databinding.observable.HashMultiset;
+
+/**
+ * Tests for {@link HashMultiset}.
+ */
+public class HashMultisetTest extends TestCase {
+	private HashMultiset<Object> multiset = new HashMultiset<Object>();
+
+	public void testAddAndRemoveReportTransitions() {
+		assertTrue(multiset.add("a")); //$NON-NLS-1$
+		assertFalse(multiset.add("a")); //$NON-NLS-1$
+		assertFalse(multiset.add("a", 3)); //$NON-NLS-1$
+		assertEquals(5, multiset.count("a")); //$NON-NLS-1$
+		assertEquals(1, multiset.size());
+		assertEquals(5, multiset.totalCount());
+
+		assertFalse(multiset.remove("a")); //$NON-NLS-1$
+		assertFalse(multiset.remove("a", 3)); //$NON-NLS-1$
+		assertEquals(1, multiset.count("a")); //$NON-NLS-1$
+		assertTrue(multiset.remove("a")); //$NON-NLS-1$
+		assertEquals(0, multiset.count("a")); //$NON-NLS-1$
+		assertTrue(multiset.isEmpty());
+		assertFalse(multiset.remove("a")); //$NON-NLS-1$
+	}
+
+	public void testRemovingMoreThanContainedRemovesAll() {
+		multiset.add("a", 2); //$NON-NLS-1$
+		assertTrue(multiset.remove("a", 10)); //$NON-NLS-1$
+		assertEquals(0, multiset.totalCount());
+	}
+
+	public void testElementsAreComparedByEquality() {
+		multiset.add(new String("a")); //$NON-NLS-1$
+		assertFalse(multiset.add(new String("a"))); //$NON-NLS-1$
+		assertEquals(2, multiset.count("a")); //$NON-NLS-1$
+	}
+
+	public void testNullElement() {
+		assertTrue(multiset.add(null));
+		assertEquals(1, multiset.count(null));
+		assertTrue(multiset.elementSet().contains(null));
+		assertNull(multiset.elementSet().iterator().next());
+		assertTrue(multiset.remove(null));
+	}
+
+	public void testNonPositiveOccurrences() {
+		try {
+			multiset.add("a", 0); //$NON-NLS-1$
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			multiset.remove("a", -1); //$NON-NLS-1$
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testRandomOperationsMatchCountingMap() {
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			Integer element = Integer.valueOf(random.nextInt(300));
+			Integer count = expected.get(element);
+			int before = count == null ? 0 : count.intValue();
+			if (random.nextBoolean()) {
+				assertEquals(before == 0, multiset.add(element));
+				expected.put(element, Integer.valueOf(before + 1));
+			} else {
+				assertEquals(before == 1, multiset.remove(element));
+				if (before > 1)
+					expected.put(element, Integer.valueOf(before - 1));
+				else
+					expected.remove(element);
+			}
+		}
+		assertEquals(expected.size(), multiset.size());
+		assertEquals(expected.keySet(), new HashSet<Object>(multiset
+				.elementSet()));
+		for (Iterator<Map.Entry<Integer, Integer>> it = expected.entrySet()
+				.iterator(); it.hasNext();) {
+			Map.Entry<Integer, Integer> entry = it.next();
+			assertEquals(entry.getValue().intValue(), multiset.count(entry
+					.getKey()));
+		}
+	}
+
+	public void testElementSetIteratorIsFailFast() {
+		multiset.add("a"); //$NON-NLS-1$
+		multiset.add("b"); //$NON-NLS-1$
+		Iterator<Object> it = multiset.elementSet().iterator();
+		it.next();
+		multiset.remove("a"); //$NON-NLS-1$
+		try {
+			it.next();
+			fail();
+		} catch (ConcurrentModificationException expected) {
+		}
+	}
+
+	public void testClear() {
+		for (int i = 0; i < 100; i++)
+			multiset.add(Integer.valueOf(i), 2);
+		multiset.clear();
+		assertTrue(multiset.isEmpty());
+		assertEquals(0, multiset.totalCount());
+		assertEquals(0, multiset.count(Integer.valueOf(1)));
+	}
+}
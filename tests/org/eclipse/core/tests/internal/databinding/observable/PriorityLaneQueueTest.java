@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.databinding.observable;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.internal.databinding.observable.PriorityLaneQueue;
+
+/**
+ * Tests for {@link PriorityLaneQueue}.
+ */
+public class PriorityLaneQueueTest extends TestCase {
+	private PriorityLaneQueue queue = new PriorityLaneQueue(3);
+
+	public void testHigherLanesFirstAndFifoWithinLane() {
+		queue.enqueue("low", 2); //$NON-NLS-1$
+		queue.enqueue("normal1", 1); //$NON-NLS-1$
+		queue.enqueue("high", 0); //$NON-NLS-1$
+		queue.enqueue("normal2", 1); //$NON-NLS-1$
+		assertEquals(4, queue.size());
+		assertEquals("high", queue.dequeue()); //$NON-NLS-1$
+		assertEquals("normal1", queue.dequeue()); //$NON-NLS-1$
+		assertEquals("normal2", queue.dequeue()); //$NON-NLS-1$
+		assertEquals("low", queue.dequeue()); //$NON-NLS-1$
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testLowerLanesDoNotStarve() {
+		queue.enqueue("low", 2); //$NON-NLS-1$
+		for (int i = 0; i < PriorityLaneQueue.MAX_PASSED_OVER; i++) {
+			queue.enqueue("high", 0); //$NON-NLS-1$
+			assertEquals("high", queue.dequeue()); //$NON-NLS-1$
+		}
+		queue.enqueue("high", 0); //$NON-NLS-1$
+		assertEquals("low", queue.dequeue()); //$NON-NLS-1$
+		assertEquals("high", queue.dequeue()); //$NON-NLS-1$
+	}
+
+	public void testDequeueFromEmptyQueue() {
+		try {
+			queue.dequeue();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+}